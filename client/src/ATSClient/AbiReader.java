@@ -0,0 +1,130 @@
+package ATSClient;
+
+import avm.Address;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Decodes the return data of a call, one ABI token as ABIEncoder produces it, straight from the returned array.
+ * Amounts and strings are built from the array in place; only byte arrays and addresses, which the caller owns, are
+ * copied out.
+ */
+public final class AbiReader {
+    private AbiReader() {
+    }
+
+    public static boolean readBoolean(byte[] data) {
+        requireToken(data, AbiWriter.BOOLEAN, 1);
+        return data[1] != 0;
+    }
+
+    public static int readInt(byte[] data) {
+        requireToken(data, AbiWriter.INT, 4);
+        return (data[1] & 0xFF) << 24 | (data[2] & 0xFF) << 16 | (data[3] & 0xFF) << 8 | (data[4] & 0xFF);
+    }
+
+    public static long readLong(byte[] data) {
+        requireToken(data, AbiWriter.LONG, 8);
+        long value = 0;
+        for (int i = 1; i <= 8; i++) {
+            value = (value << 8) | (data[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the string, or null if the method returned null.
+     */
+    public static String readString(byte[] data) {
+        if (isNull(data, AbiWriter.STRING)) {
+            return null;
+        }
+        int length = readLength(data, AbiWriter.STRING);
+        return new String(data, 3, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the address, or null if the method returned null.
+     */
+    public static Address readAddress(byte[] data) {
+        if (isNull(data, AbiWriter.ADDRESS)) {
+            return null;
+        }
+        requireToken(data, AbiWriter.ADDRESS, AbiWriter.ADDRESS_LENGTH);
+        return new Address(Arrays.copyOfRange(data, 1, 1 + AbiWriter.ADDRESS_LENGTH));
+    }
+
+    /**
+     * Returns the byte array, or null if the method returned null.
+     */
+    public static byte[] readByteArray(byte[] data) {
+        if (isNull(data, AbiWriter.BYTE_ARRAY)) {
+            return null;
+        }
+        int length = readLength(data, AbiWriter.BYTE_ARRAY);
+        return Arrays.copyOfRange(data, 3, 3 + length);
+    }
+
+    /**
+     * Returns a token amount returned as a byte array, or null if the method returned null or an empty array, which
+     * getSupplyCap does for an uncapped supply.
+     */
+    public static BigInteger readAmount(byte[] data) {
+        if (isNull(data, AbiWriter.BYTE_ARRAY)) {
+            return null;
+        }
+        int length = readLength(data, AbiWriter.BYTE_ARRAY);
+        return (length == 0) ? null : new BigInteger(data, 3, length);
+    }
+
+    /**
+     * Returns the addresses, any of which may be null, or null if the method returned null.
+     */
+    public static Address[] readAddressArray(byte[] data) {
+        if (data.length == 3 && data[0] == AbiWriter.NULL && data[1] == AbiWriter.ARRAY && data[2] == AbiWriter.ADDRESS) {
+            return null;
+        }
+        if (data.length < 4 || data[0] != AbiWriter.ARRAY || data[1] != AbiWriter.ADDRESS) {
+            throw new IllegalArgumentException("the return data is not a single array of addresses");
+        }
+        Address[] values = new Address[(data[2] & 0xFF) << 8 | (data[3] & 0xFF)];
+        int position = 4;
+        for (int i = 0; i < values.length; i++) {
+            if (position + 2 <= data.length && data[position] == AbiWriter.NULL && data[position + 1] == AbiWriter.ADDRESS) {
+                position += 2;
+            } else if (position + 1 + AbiWriter.ADDRESS_LENGTH <= data.length && data[position] == AbiWriter.ADDRESS) {
+                values[i] = new Address(Arrays.copyOfRange(data, position + 1, position + 1 + AbiWriter.ADDRESS_LENGTH));
+                position += 1 + AbiWriter.ADDRESS_LENGTH;
+            } else {
+                throw new IllegalArgumentException("element " + i + " of the return data is not an address");
+            }
+        }
+        if (position != data.length) {
+            throw new IllegalArgumentException("the return data is " + data.length + " bytes long for " + values.length + " addresses");
+        }
+        return values;
+    }
+
+    private static boolean isNull(byte[] data, byte type) {
+        return data.length == 2 && data[0] == AbiWriter.NULL && data[1] == type;
+    }
+
+    private static int readLength(byte[] data, byte type) {
+        if (data.length < 3 || data[0] != type) {
+            throw new IllegalArgumentException("the return data is not a single token of type " + type);
+        }
+        int length = (data[1] & 0xFF) << 8 | (data[2] & 0xFF);
+        if (data.length != 3 + length) {
+            throw new IllegalArgumentException("the return data is " + data.length + " bytes long for a token of " + length);
+        }
+        return length;
+    }
+
+    private static void requireToken(byte[] data, byte type, int length) {
+        if (data.length != 1 + length || data[0] != type) {
+            throw new IllegalArgumentException("the return data is not a single token of type " + type);
+        }
+    }
+}
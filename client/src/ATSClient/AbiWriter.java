@@ -0,0 +1,277 @@
+package ATSClient;
+
+import avm.Address;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes transaction data in the AVM ABI format, the one ABIEncoder produces, into a buffer that is reused from one
+ * call to the next. Encoding a call allocates nothing once the buffer has grown to the largest call, except for
+ * BigInteger amounts, which are copied out of their BigInteger.
+ *
+ * Not thread-safe, use one writer, and so one client, per thread.
+ */
+public final class AbiWriter {
+    static final byte BOOLEAN = 0x02;
+    static final byte INT = 0x05;
+    static final byte LONG = 0x06;
+    static final byte BYTE_ARRAY = 0x11;
+    static final byte STRING = 0x21;
+    static final byte ADDRESS = 0x22;
+    static final byte ARRAY = 0x31;
+    static final byte NULL = 0x32;
+
+    static final int ADDRESS_LENGTH = 32;
+    private static final int MAX_LENGTH = 0xFFFF;
+
+    private byte[] buffer;
+    private int position;
+
+    public AbiWriter() {
+        this(256);
+    }
+
+    public AbiWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Start the data of a new call, dropping whatever was written before.
+     *
+     * @param methodName the name of the method, as encoded by {@link #encodeMethodName}
+     */
+    public AbiWriter begin(byte[] methodName) {
+        position = 0;
+        ensureCapacity(methodName.length);
+        System.arraycopy(methodName, 0, buffer, 0, methodName.length);
+        position = methodName.length;
+        return this;
+    }
+
+    public AbiWriter putBoolean(boolean value) {
+        ensureCapacity(2);
+        buffer[position++] = BOOLEAN;
+        buffer[position++] = (byte) (value ? 1 : 0);
+        return this;
+    }
+
+    public AbiWriter putInt(int value) {
+        ensureCapacity(5);
+        buffer[position++] = INT;
+        writeInt(value);
+        return this;
+    }
+
+    public AbiWriter putLong(long value) {
+        ensureCapacity(9);
+        buffer[position++] = LONG;
+        writeLong(value);
+        return this;
+    }
+
+    public AbiWriter putString(String value) {
+        if (value == null) {
+            return putNull(STRING);
+        }
+        int length = value.length();
+        ensureCapacity(3 + 3 * length);
+        buffer[position] = STRING;
+        int start = position + 3;
+        int end = start;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                // not ASCII, let the JDK deal with surrogates
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(utf8, 0, buffer, start, utf8.length);
+                end = start + utf8.length;
+                break;
+            }
+            buffer[end++] = (byte) c;
+        }
+        checkLength(end - start);
+        position++;
+        writeShort(end - start);
+        position = end;
+        return this;
+    }
+
+    public AbiWriter putAddress(Address value) {
+        if (value == null) {
+            return putNull(ADDRESS);
+        }
+        ensureCapacity(1 + ADDRESS_LENGTH);
+        buffer[position++] = ADDRESS;
+        System.arraycopy(value.unwrap(), 0, buffer, position, ADDRESS_LENGTH);
+        position += ADDRESS_LENGTH;
+        return this;
+    }
+
+    public AbiWriter putByteArray(byte[] value) {
+        if (value == null) {
+            return putNull(BYTE_ARRAY);
+        }
+        checkLength(value.length);
+        ensureCapacity(3 + value.length);
+        buffer[position++] = BYTE_ARRAY;
+        writeShort(value.length);
+        System.arraycopy(value, 0, buffer, position, value.length);
+        position += value.length;
+        return this;
+    }
+
+    /**
+     * Write a token amount as the byte array the contracts take, the two's complement big-endian encoding of
+     * BigInteger.toByteArray.
+     */
+    public AbiWriter putAmount(BigInteger amount) {
+        if (amount == null) {
+            return putNull(BYTE_ARRAY);
+        }
+        if (amount.signum() < 0) {
+            throw new IllegalArgumentException("negative amount: " + amount);
+        }
+        return putByteArray(amount.toByteArray());
+    }
+
+    /**
+     * Write a token amount as {@link #putAmount(BigInteger)} does, without allocating.
+     */
+    public AbiWriter putAmount(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("negative amount: " + amount);
+        }
+        int length = (64 - Long.numberOfLeadingZeros(amount)) / 8 + 1;
+        ensureCapacity(3 + length);
+        buffer[position++] = BYTE_ARRAY;
+        writeShort(length);
+        for (int shift = 8 * (length - 1); shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (amount >>> shift);
+        }
+        return this;
+    }
+
+    public AbiWriter putAddressArray(Address[] values) {
+        if (values == null) {
+            return putNullArray(ADDRESS);
+        }
+        checkLength(values.length);
+        ensureCapacity(4);
+        buffer[position++] = ARRAY;
+        buffer[position++] = ADDRESS;
+        writeShort(values.length);
+        for (Address value : values) {
+            putAddress(value);
+        }
+        return this;
+    }
+
+    public AbiWriter put2DByteArray(byte[][] values) {
+        if (values == null) {
+            return putNullArray(BYTE_ARRAY);
+        }
+        checkLength(values.length);
+        ensureCapacity(4);
+        buffer[position++] = ARRAY;
+        buffer[position++] = BYTE_ARRAY;
+        writeShort(values.length);
+        for (byte[] value : values) {
+            putByteArray(value);
+        }
+        return this;
+    }
+
+    public AbiWriter putAmountArray(BigInteger[] amounts) {
+        if (amounts == null) {
+            return putNullArray(BYTE_ARRAY);
+        }
+        checkLength(amounts.length);
+        ensureCapacity(4);
+        buffer[position++] = ARRAY;
+        buffer[position++] = BYTE_ARRAY;
+        writeShort(amounts.length);
+        for (BigInteger amount : amounts) {
+            putAmount(amount);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of bytes written since {@link #begin}.
+     */
+    public int length() {
+        return position;
+    }
+
+    /**
+     * Returns a read-only view of the data written since {@link #begin}, valid until the writer is used again.
+     */
+    public ByteBuffer view() {
+        return ByteBuffer.wrap(buffer, 0, position).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Copy the data written since {@link #begin} into a buffer.
+     */
+    public void writeTo(ByteBuffer target) {
+        target.put(buffer, 0, position);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Encode a method name as the token that starts the data of a call to it.
+     */
+    public static byte[] encodeMethodName(String methodName) {
+        return new AbiWriter(3 + 3 * methodName.length()).putString(methodName).toByteArray();
+    }
+
+    private AbiWriter putNull(byte type) {
+        ensureCapacity(2);
+        buffer[position++] = NULL;
+        buffer[position++] = type;
+        return this;
+    }
+
+    private AbiWriter putNullArray(byte elementType) {
+        ensureCapacity(3);
+        buffer[position++] = NULL;
+        buffer[position++] = ARRAY;
+        buffer[position++] = elementType;
+        return this;
+    }
+
+    private void writeShort(int value) {
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeLong(long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (position + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, position + length));
+        }
+    }
+
+    private static void checkLength(int length) {
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException("the ABI limits arrays and strings to " + MAX_LENGTH + " elements, got " + length);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package ATSClient;
+
+import avm.Address;
+
+import java.math.BigInteger;
+
+/**
+ * Encodes calls to the callables of AionInterfaceRegistryContract and decodes what they return.
+ * Each call method encodes into the AbiWriter of the client and returns it, so its data is valid until the next
+ * call.
+ *
+ * Generated by ClientGenerator from src/AionInterfaceRegistry/AionInterfaceRegistryContract.java, do not edit.
+ */
+public final class AionInterfaceRegistryClient {
+    private static final byte[] GET_MANAGER = AbiWriter.encodeMethodName("getManager");
+    private static final byte[] SET_MANAGER = AbiWriter.encodeMethodName("setManager");
+    private static final byte[] GET_INTERFACE_IMPLEMENTER = AbiWriter.encodeMethodName("getInterfaceImplementer");
+    private static final byte[] SET_INTERFACE_IMPLEMENTER = AbiWriter.encodeMethodName("setInterfaceImplementer");
+    private static final byte[] GET_INTERFACE_IMPLEMENTERS = AbiWriter.encodeMethodName("getInterfaceImplementers");
+    private static final byte[] SET_INTERFACE_IMPLEMENTERS = AbiWriter.encodeMethodName("setInterfaceImplementers");
+    private static final byte[] SET_MANAGERS = AbiWriter.encodeMethodName("setManagers");
+    private static final byte[] GET_DEFAULT_INTERFACE_IMPLEMENTER = AbiWriter.encodeMethodName("getDefaultInterfaceImplementer");
+    private static final byte[] SET_DEFAULT_INTERFACE_IMPLEMENTER = AbiWriter.encodeMethodName("setDefaultInterfaceImplementer");
+    private static final byte[] GET_GOVERNANCE = AbiWriter.encodeMethodName("getGovernance");
+    private static final byte[] SET_GOVERNANCE = AbiWriter.encodeMethodName("setGovernance");
+    private static final byte[] GET_IMPLEMENTED_TARGET_COUNT = AbiWriter.encodeMethodName("getImplementedTargetCount");
+    private static final byte[] GET_IMPLEMENTED_TARGETS = AbiWriter.encodeMethodName("getImplementedTargets");
+
+    private final AbiWriter writer;
+
+    public AionInterfaceRegistryClient() {
+        this(new AbiWriter());
+    }
+
+    public AionInterfaceRegistryClient(AbiWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Called to get the address of the manager which controls the registration of the 'target'.
+     *
+     * @param target Address supporting an interface.
+     * @return the target's manager.
+     */
+    public AbiWriter getManager(Address target) {
+        return writer.begin(GET_MANAGER).putAddress(target);
+    }
+
+    /**
+     * Called to set the address of the manager which controls the registration of the 'target'. Only
+     * the target itself or the current manager can call this.
+     *
+     * @param target Address supporting an interface.
+     * @param newManager Address of the manager for 'target'.
+     */
+    public AbiWriter setManager(Address target, Address newManager) {
+        return writer.begin(SET_MANAGER).putAddress(target).putAddress(newManager);
+    }
+
+    /**
+     * Called to get the address of the delegate implementing the interfaceHash on behalf of the 'target'. If the
+     * target has set no implementer for the interface, the default implementer of the interface is returned.
+     *
+     * @param target Address supporting an interface.
+     * @param interfaceHash sha256 hash of the interface.
+     * @return The address of the contract which implements the interface 'interfaceHash' for 'target', or null if there is none
+     */
+    public AbiWriter getInterfaceImplementer(Address target, byte[] interfaceHash) {
+        return writer.begin(GET_INTERFACE_IMPLEMENTER).putAddress(target).putByteArray(interfaceHash);
+    }
+
+    /**
+     * Called to set the address of the delegate which implements the interface 'interfaceHash' on behalf of the 'target'.
+     *
+     * @param target Address supporting an interface.
+     * @param interfaceHash sha256 hash of the interface.
+     * @param implementer Address implementing the interface on behalf of 'target', or null to remove the implementer.
+     */
+    public AbiWriter setInterfaceImplementer(Address target, byte[] interfaceHash, Address implementer) {
+        return writer.begin(SET_INTERFACE_IMPLEMENTER).putAddress(target).putByteArray(interfaceHash).putAddress(implementer);
+    }
+
+    /**
+     * Called to get the implementers of many interfaces at once: the implementer of interfaceHashes[i] for targets[i],
+     * as getInterfaceImplementer returns it, at index i.
+     *
+     * @param targets Addresses supporting an interface.
+     * @param interfaceHashes sha256 hash of the interface, for each target.
+     * @return The implementer for each target, null where there is none
+     */
+    public AbiWriter getInterfaceImplementers(Address[] targets, byte[][] interfaceHashes) {
+        return writer.begin(GET_INTERFACE_IMPLEMENTERS).putAddressArray(targets).put2DByteArray(interfaceHashes);
+    }
+
+    /**
+     * Called to set one implementer of the interface 'interfaceHash' for many targets. The caller must be each target
+     * or its manager, and an implementer other than the caller must accept each target, as in setInterfaceImplementer.
+     * A single event lists all the targets.
+     *
+     * @param targets Addresses supporting an interface.
+     * @param interfaceHash sha256 hash of the interface.
+     * @param implementer Address implementing the interface on behalf of each target, or null to remove the implementer.
+     */
+    public AbiWriter setInterfaceImplementers(Address[] targets, byte[] interfaceHash, Address implementer) {
+        return writer.begin(SET_INTERFACE_IMPLEMENTERS).putAddressArray(targets).putByteArray(interfaceHash).putAddress(implementer);
+    }
+
+    /**
+     * Called to set one manager for many targets. The caller must be each target or its current manager. A single
+     * event lists all the targets.
+     *
+     * @param targets Addresses supporting an interface.
+     * @param newManager Address of the manager for each target.
+     */
+    public AbiWriter setManagers(Address[] targets, Address newManager) {
+        return writer.begin(SET_MANAGERS).putAddressArray(targets).putAddress(newManager);
+    }
+
+    /**
+     * Called to get the default implementer of the interface 'interfaceHash'.
+     *
+     * @param interfaceHash sha256 hash of the interface.
+     * @return The address of the contract which implements the interface for every target without an implementer of its own, or null
+     */
+    public AbiWriter getDefaultInterfaceImplementer(byte[] interfaceHash) {
+        return writer.begin(GET_DEFAULT_INTERFACE_IMPLEMENTER).putByteArray(interfaceHash);
+    }
+
+    /**
+     * Called to set the default implementer of the interface 'interfaceHash'. It implements the interface for every
+     * target that has not set an implementer of its own, so that targets sharing one implementer need no state or
+     * transaction each, however many there are.
+     *
+     * Only the governance address can call this, see getGovernance. A default reaches targets that never agreed to it,
+     * so the governance address is trusted to only make defaults of implementers that serve any target. A target that
+     * does not want the default sets an implementer of its own, itself for example, which always takes precedence.
+     *
+     * @param interfaceHash sha256 hash of the interface.
+     * @param implementer Address implementing the interface, or null to remove the default.
+     */
+    public AbiWriter setDefaultInterfaceImplementer(byte[] interfaceHash, Address implementer) {
+        return writer.begin(SET_DEFAULT_INTERFACE_IMPLEMENTER).putByteArray(interfaceHash).putAddress(implementer);
+    }
+
+    /**
+     * Called to get the address allowed to set default implementers. It is the deployer of the registry until the
+     * governance is handed over, to a multisig or governance contract for example.
+     *
+     * @return the governance address.
+     */
+    public AbiWriter getGovernance() {
+        return writer.begin(GET_GOVERNANCE);
+    }
+
+    /**
+     * Called to hand the right to set default implementers over to 'newGovernance'. Only the current governance
+     * address can call this.
+     *
+     * @param newGovernance Address allowed to set default implementers from now on.
+     */
+    public AbiWriter setGovernance(Address newGovernance) {
+        return writer.begin(SET_GOVERNANCE).putAddress(newGovernance);
+    }
+
+    /**
+     * Called to get the number of contracts for which 'implementer' is the registered implementer of the interface
+     * 'interfaceHash'. Contracts that only use it as the default implementer are not counted.
+     *
+     * @param implementer Address implementing the interface.
+     * @param interfaceHash sha256 hash of the interface.
+     * @return The number of contracts
+     */
+    public AbiWriter getImplementedTargetCount(Address implementer, byte[] interfaceHash) {
+        return writer.begin(GET_IMPLEMENTED_TARGET_COUNT).putAddress(implementer).putByteArray(interfaceHash);
+    }
+
+    /**
+     * Called to get a page of the contracts for which 'implementer' is the registered implementer of the interface
+     * 'interfaceHash', for example to find the contracts to move off an implementer. Removing a contract moves the last
+     * contract into its place, so pages read across transactions that remove contracts may skip or repeat some.
+     *
+     * @param implementer Address implementing the interface.
+     * @param interfaceHash sha256 hash of the interface.
+     * @param offset index of the first contract of the page.
+     * @param count maximum number of contracts to return.
+     * @return The contracts of the page, fewer than 'count' at the end
+     */
+    public AbiWriter getImplementedTargets(Address implementer, byte[] interfaceHash, int offset, int count) {
+        return writer.begin(GET_IMPLEMENTED_TARGETS).putAddress(implementer).putByteArray(interfaceHash).putInt(offset).putInt(count);
+    }
+
+    public static Address decodeGetManager(byte[] returnData) {
+        return AbiReader.readAddress(returnData);
+    }
+
+    public static Address decodeGetInterfaceImplementer(byte[] returnData) {
+        return AbiReader.readAddress(returnData);
+    }
+
+    public static Address[] decodeGetInterfaceImplementers(byte[] returnData) {
+        return AbiReader.readAddressArray(returnData);
+    }
+
+    public static Address decodeGetDefaultInterfaceImplementer(byte[] returnData) {
+        return AbiReader.readAddress(returnData);
+    }
+
+    public static Address decodeGetGovernance(byte[] returnData) {
+        return AbiReader.readAddress(returnData);
+    }
+
+    public static int decodeGetImplementedTargetCount(byte[] returnData) {
+        return AbiReader.readInt(returnData);
+    }
+
+    public static Address[] decodeGetImplementedTargets(byte[] returnData) {
+        return AbiReader.readAddressArray(returnData);
+    }
+}
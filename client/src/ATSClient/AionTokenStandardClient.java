@@ -0,0 +1,674 @@
+package ATSClient;
+
+import avm.Address;
+
+import java.math.BigInteger;
+
+/**
+ * Encodes calls to the callables of AionTokenStandardContract and decodes what they return.
+ * Each call method encodes into the AbiWriter of the client and returns it, so its data is valid until the next
+ * call.
+ *
+ * Generated by ClientGenerator from src/AionTokenStandard/AionTokenStandardContract.java, do not edit.
+ */
+public final class AionTokenStandardClient {
+    private static final byte[] GET_NAME = AbiWriter.encodeMethodName("getName");
+    private static final byte[] GET_SYMBOL = AbiWriter.encodeMethodName("getSymbol");
+    private static final byte[] GET_TOTAL_SUPPLY = AbiWriter.encodeMethodName("getTotalSupply");
+    private static final byte[] GET_GRANULARITY = AbiWriter.encodeMethodName("getGranularity");
+    private static final byte[] BALANCE_OF = AbiWriter.encodeMethodName("balanceOf");
+    private static final byte[] GET_BALANCE_ROOT = AbiWriter.encodeMethodName("getBalanceRoot");
+    private static final byte[] AUTHORIZE_OPERATOR = AbiWriter.encodeMethodName("authorizeOperator");
+    private static final byte[] REVOKE_OPERATOR = AbiWriter.encodeMethodName("revokeOperator");
+    private static final byte[] IS_OPERATOR_FOR = AbiWriter.encodeMethodName("isOperatorFor");
+    private static final byte[] SEND = AbiWriter.encodeMethodName("send");
+    private static final byte[] SEND_PACKED = AbiWriter.encodeMethodName("sendPacked");
+    private static final byte[] OPERATOR_SEND = AbiWriter.encodeMethodName("operatorSend");
+    private static final byte[] BURN = AbiWriter.encodeMethodName("burn");
+    private static final byte[] OPERATOR_BURN = AbiWriter.encodeMethodName("operatorBurn");
+    private static final byte[] GET_SUPPLY_CAP = AbiWriter.encodeMethodName("getSupplyCap");
+    private static final byte[] SET_SUPPLY_CAP = AbiWriter.encodeMethodName("setSupplyCap");
+    private static final byte[] MINT = AbiWriter.encodeMethodName("mint");
+    private static final byte[] MINT_BATCH = AbiWriter.encodeMethodName("mintBatch");
+    private static final byte[] CREATE_STREAM = AbiWriter.encodeMethodName("createStream");
+    private static final byte[] GET_STREAM = AbiWriter.encodeMethodName("getStream");
+    private static final byte[] GET_STREAM_WITHDRAWABLE = AbiWriter.encodeMethodName("getStreamWithdrawable");
+    private static final byte[] WITHDRAW_FROM_STREAM = AbiWriter.encodeMethodName("withdrawFromStream");
+    private static final byte[] CANCEL_STREAM = AbiWriter.encodeMethodName("cancelStream");
+    private static final byte[] CREATE_VESTING_SCHEDULE = AbiWriter.encodeMethodName("createVestingSchedule");
+    private static final byte[] GET_VESTING_SCHEDULE = AbiWriter.encodeMethodName("getVestingSchedule");
+    private static final byte[] GET_RELEASABLE_AMOUNT = AbiWriter.encodeMethodName("getReleasableAmount");
+    private static final byte[] OPEN_CHANNEL = AbiWriter.encodeMethodName("openChannel");
+    private static final byte[] GET_CHANNEL = AbiWriter.encodeMethodName("getChannel");
+    private static final byte[] CLOSE_CHANNEL = AbiWriter.encodeMethodName("closeChannel");
+    private static final byte[] RECLAIM_CHANNEL = AbiWriter.encodeMethodName("reclaimChannel");
+    private static final byte[] CLEAR = AbiWriter.encodeMethodName("clear");
+    private static final byte[] CREATE_PAYOUT_JOB = AbiWriter.encodeMethodName("createPayoutJob");
+    private static final byte[] ADD_PAYOUT_CHUNK = AbiWriter.encodeMethodName("addPayoutChunk");
+    private static final byte[] CONTINUE_JOB = AbiWriter.encodeMethodName("continueJob");
+    private static final byte[] GET_PAYOUT_JOB = AbiWriter.encodeMethodName("getPayoutJob");
+    private static final byte[] SET_HOOK_STIPEND = AbiWriter.encodeMethodName("setHookStipend");
+    private static final byte[] GET_HOOK_STIPEND = AbiWriter.encodeMethodName("getHookStipend");
+    private static final byte[] SET_DEFERRED_NOTIFICATIONS = AbiWriter.encodeMethodName("setDeferredNotifications");
+    private static final byte[] GET_NOTIFICATION_COUNT = AbiWriter.encodeMethodName("getNotificationCount");
+    private static final byte[] DRAIN_NOTIFICATIONS = AbiWriter.encodeMethodName("drainNotifications");
+    private static final byte[] GET_LIQUID_SUPPLY = AbiWriter.encodeMethodName("getLiquidSupply");
+    private static final byte[] THAW = AbiWriter.encodeMethodName("thaw");
+    private static final byte[] FREEZE = AbiWriter.encodeMethodName("freeze");
+    private static final byte[] OPERATOR_FREEZE = AbiWriter.encodeMethodName("operatorFreeze");
+
+    private final AbiWriter writer;
+
+    public AionTokenStandardClient() {
+        this(new AbiWriter());
+    }
+
+    public AionTokenStandardClient(AbiWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Returns the tokenName of the token.
+     */
+    public AbiWriter getName() {
+        return writer.begin(GET_NAME);
+    }
+
+    /**
+     * Returns the tokenSymbol of the token.
+     */
+    public AbiWriter getSymbol() {
+        return writer.begin(GET_SYMBOL);
+    }
+
+    /**
+     * Returns the total number of minted tokens across all chains.
+     */
+    public AbiWriter getTotalSupply() {
+        return writer.begin(GET_TOTAL_SUPPLY);
+    }
+
+    /**
+     * Get the smallest part of the token that's not divisible.
+     */
+    public AbiWriter getGranularity() {
+        return writer.begin(GET_GRANULARITY);
+    }
+
+    /**
+     * Get the balance of the account with address tokenHolder on the Home chain.
+     *
+     * @param tokenHolder Address for which the balance is returned
+     * @return Amount of token held by tokenHolder in the token contract.
+     */
+    public AbiWriter balanceOf(Address tokenHolder) {
+        return writer.begin(BALANCE_OF).putAddress(tokenHolder);
+    }
+
+    /**
+     * Returns the root of the sparse Merkle tree committing to the stored balance of every token holder, see
+     * BalanceTree. Amounts accrued from streams or vesting schedules are committed once they are settled.
+     */
+    public AbiWriter getBalanceRoot() {
+        return writer.begin(GET_BALANCE_ROOT);
+    }
+
+    /**
+     * Set a third party operator address as an operator of caller to send, burn or freeze tokens on its behalf.
+     *
+     * @param operator Address to set as a operator of caller.
+     */
+    public AbiWriter authorizeOperator(Address operator) {
+        return writer.begin(AUTHORIZE_OPERATOR).putAddress(operator);
+    }
+
+    /**
+     * Remove the right of the operator address from being an operator of caller.
+     *
+     * @param operator Address to revoke as an operator for caller
+     */
+    public AbiWriter revokeOperator(Address operator) {
+        return writer.begin(REVOKE_OPERATOR).putAddress(operator);
+    }
+
+    /**
+     * Indicates whether the operator address is an operator of the tokenHolder address.
+     *
+     * @param operator Address which may be an operator of tokenHolder.
+     * @param tokenHolder Address of a token holder which may have the operator address as an operator.
+     * @return true if operator is an operator of tokenHolder and false otherwise.
+     */
+    public AbiWriter isOperatorFor(Address operator, Address tokenHolder) {
+        return writer.begin(IS_OPERATOR_FOR).putAddress(operator).putAddress(tokenHolder);
+    }
+
+    /**
+     * Send the amount of tokens from the caller to the recipient
+     *
+     * @param to token recipient
+     * @param amount number of tokens to send
+     * @param senderData information of the transfer
+     */
+    public AbiWriter send(Address to, BigInteger amount, byte[] senderData) {
+        return writer.begin(SEND).putAddress(to).putAmount(amount).putByteArray(senderData);
+    }
+
+    /**
+     * As {@link #send}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter send(Address to, long amount, byte[] senderData) {
+        return writer.begin(SEND).putAddress(to).putAmount(amount).putByteArray(senderData);
+    }
+
+    /**
+     * Send tokens from the caller, with the arguments packed into one byte array to keep call data small:
+     * - byte[0]: selector, PACKED_SEND_SELECTOR
+     * - byte[1:32]: recipient address
+     * - the amount, as an unsigned LEB128 varint of at most 9 bytes
+     * - optionally, the length of senderData as a varint followed by senderData; without it senderData is empty
+     *
+     * Amounts that do not fit in 63 bits have to be sent with send.
+     *
+     * @param packed the packed arguments
+     */
+    public AbiWriter sendPacked(byte[] packed) {
+        return writer.begin(SEND_PACKED).putByteArray(packed);
+    }
+
+    /**
+     * Send the amount of token on behalf of the address 'from' to the address 'to'
+     *
+     * @param from token holder
+     * @param to token recipient
+     * @param amount number of tokens to send
+     * @param senderData information of the transfer
+     * @param operatorData information from the operator
+     */
+    public AbiWriter operatorSend(Address from, Address to, BigInteger amount, byte[] senderData, byte[] operatorData) {
+        return writer.begin(OPERATOR_SEND).putAddress(from).putAddress(to).putAmount(amount).putByteArray(senderData).putByteArray(operatorData);
+    }
+
+    /**
+     * As {@link #operatorSend}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter operatorSend(Address from, Address to, long amount, byte[] senderData, byte[] operatorData) {
+        return writer.begin(OPERATOR_SEND).putAddress(from).putAddress(to).putAmount(amount).putByteArray(senderData).putByteArray(operatorData);
+    }
+
+    /**
+     * Burn the amount of tokens from the caller address
+     *
+     * @param amount number of tokens to send
+     * @param senderData information from the sender
+     */
+    public AbiWriter burn(BigInteger amount, byte[] senderData) {
+        return writer.begin(BURN).putAmount(amount).putByteArray(senderData);
+    }
+
+    /**
+     * As {@link #burn}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter burn(long amount, byte[] senderData) {
+        return writer.begin(BURN).putAmount(amount).putByteArray(senderData);
+    }
+
+    /**
+     * Burn the amount of token on behalf of the address 'from'
+     *
+     * @param from token holder
+     * @param amount number of tokens to send
+     * @param senderData information from the sender
+     * @param operatorData information from the operator
+     */
+    public AbiWriter operatorBurn(Address from, BigInteger amount, byte[] senderData, byte[] operatorData) {
+        return writer.begin(OPERATOR_BURN).putAddress(from).putAmount(amount).putByteArray(senderData).putByteArray(operatorData);
+    }
+
+    /**
+     * As {@link #operatorBurn}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter operatorBurn(Address from, long amount, byte[] senderData, byte[] operatorData) {
+        return writer.begin(OPERATOR_BURN).putAddress(from).putAmount(amount).putByteArray(senderData).putByteArray(operatorData);
+    }
+
+    /**
+     * Returns the maximum total supply that minting can reach, or an empty array if the supply is not capped.
+     */
+    public AbiWriter getSupplyCap() {
+        return writer.begin(GET_SUPPLY_CAP);
+    }
+
+    /**
+     * Cap the total supply that can be reached by minting. Only the owner can call this. Once set, the cap can only
+     * be lowered, and never below the current total supply.
+     *
+     * @param cap maximum total supply
+     */
+    public AbiWriter setSupplyCap(BigInteger cap) {
+        return writer.begin(SET_SUPPLY_CAP).putAmount(cap);
+    }
+
+    /**
+     * As {@link #setSupplyCap}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter setSupplyCap(long cap) {
+        return writer.begin(SET_SUPPLY_CAP).putAmount(cap);
+    }
+
+    /**
+     * Create new tokens and give them to the recipient. Only the owner can call this.
+     *
+     * @param to token recipient
+     * @param amount number of tokens to mint
+     * @param senderData information of the minting
+     */
+    public AbiWriter mint(Address to, BigInteger amount, byte[] senderData) {
+        return writer.begin(MINT).putAddress(to).putAmount(amount).putByteArray(senderData);
+    }
+
+    /**
+     * As {@link #mint}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter mint(Address to, long amount, byte[] senderData) {
+        return writer.begin(MINT).putAddress(to).putAmount(amount).putByteArray(senderData);
+    }
+
+    /**
+     * Create new tokens for many recipients at once. Only the owner can call this. The total supply is updated once
+     * and a single Minted event lists every recipient of the batch.
+     *
+     * @param recipients token recipients
+     * @param amounts number of tokens to mint for the recipient at the same index
+     * @param senderData information of the minting
+     */
+    public AbiWriter mintBatch(Address[] recipients, BigInteger[] amounts, byte[] senderData) {
+        return writer.begin(MINT_BATCH).putAddressArray(recipients).putAmountArray(amounts).putByteArray(senderData);
+    }
+
+    /**
+     * Lock a deposit of the caller that is streamed to the recipient at a fixed rate per block, starting at
+     * startBlock and ending at stopBlock. Nothing is transferred per block, the streamed amount is computed from the
+     * block number whenever the recipient's balance is read, withdrawn or spent.
+     *
+     * A recipient has at most MAX_INCOMING_STREAMS streams at a time, so that streams opened by others cannot make its
+     * transfers run out of energy. The recipient can cancel streams it does not want to free their places.
+     *
+     * @param recipient address receiving the stream
+     * @param ratePerBlock number of tokens streamed per block
+     * @param startBlock block number from which tokens start streaming
+     * @param stopBlock block number at which the whole deposit has been streamed
+     * @return id of the new stream
+     */
+    public AbiWriter createStream(Address recipient, BigInteger ratePerBlock, long startBlock, long stopBlock) {
+        return writer.begin(CREATE_STREAM).putAddress(recipient).putAmount(ratePerBlock).putLong(startBlock).putLong(stopBlock);
+    }
+
+    /**
+     * As {@link #createStream}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter createStream(Address recipient, long ratePerBlock, long startBlock, long stopBlock) {
+        return writer.begin(CREATE_STREAM).putAddress(recipient).putAmount(ratePerBlock).putLong(startBlock).putLong(stopBlock);
+    }
+
+    /**
+     * Returns the stream record, encoded as described in StreamInformation, or null if there is no such stream.
+     */
+    public AbiWriter getStream(long streamId) {
+        return writer.begin(GET_STREAM).putLong(streamId);
+    }
+
+    /**
+     * Returns the amount of the stream that has been streamed but not yet withdrawn by the recipient.
+     */
+    public AbiWriter getStreamWithdrawable(long streamId) {
+        return writer.begin(GET_STREAM_WITHDRAWABLE).putLong(streamId);
+    }
+
+    /**
+     * Move the streamed amount of a stream into the recipient's balance. Only the recipient can call this.
+     */
+    public AbiWriter withdrawFromStream(long streamId) {
+        return writer.begin(WITHDRAW_FROM_STREAM).putLong(streamId);
+    }
+
+    /**
+     * End a stream. The recipient receives what has been streamed so far and the rest of the deposit goes back to
+     * the sender. Either the sender or the recipient can call this.
+     */
+    public AbiWriter cancelStream(long streamId) {
+        return writer.begin(CANCEL_STREAM).putLong(streamId);
+    }
+
+    /**
+     * Lock tokens of the owner in a vesting schedule for the beneficiary. Nothing vests before the cliff, after which
+     * the total vests linearly from start until start + duration. Vested tokens are not released by separate
+     * transactions, they are computed from the block timestamp whenever the beneficiary's balance is read or spent.
+     * Only the owner can call this, and a beneficiary can only have one schedule at a time.
+     *
+     * @param beneficiary address receiving the vested tokens
+     * @param total number of tokens to vest
+     * @param start block timestamp at which vesting starts
+     * @param cliff number of seconds after start before anything vests
+     * @param duration number of seconds after start at which everything has vested, start + duration must fit a long
+     */
+    public AbiWriter createVestingSchedule(Address beneficiary, BigInteger total, long start, long cliff, long duration) {
+        return writer.begin(CREATE_VESTING_SCHEDULE).putAddress(beneficiary).putAmount(total).putLong(start).putLong(cliff).putLong(duration);
+    }
+
+    /**
+     * As {@link #createVestingSchedule}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter createVestingSchedule(Address beneficiary, long total, long start, long cliff, long duration) {
+        return writer.begin(CREATE_VESTING_SCHEDULE).putAddress(beneficiary).putAmount(total).putLong(start).putLong(cliff).putLong(duration);
+    }
+
+    /**
+     * Returns the vesting schedule of the beneficiary, encoded as described in VestingSchedule, or null if there is none.
+     */
+    public AbiWriter getVestingSchedule(Address beneficiary) {
+        return writer.begin(GET_VESTING_SCHEDULE).putAddress(beneficiary);
+    }
+
+    /**
+     * Returns the amount that has vested for the beneficiary but is not part of its stored balance yet.
+     */
+    public AbiWriter getReleasableAmount(Address beneficiary) {
+        return writer.begin(GET_RELEASABLE_AMOUNT).putAddress(beneficiary);
+    }
+
+    /**
+     * Open a unidirectional payment channel by locking a deposit of the caller for the recipient. Payments are made
+     * off-chain with vouchers over a cumulative amount, signed with the given ed25519 key, and the recipient settles
+     * the channel once with the latest voucher through closeChannel.
+     *
+     * @param recipient address that can close the channel with a voucher
+     * @param deposit number of tokens locked in the channel
+     * @param signerPublicKey ed25519 public key vouchers are signed with, which must not be a point of small order
+     * @param expiryBlock block number after which the sender can reclaim an unclosed channel
+     * @return id of the new channel
+     */
+    public AbiWriter openChannel(Address recipient, BigInteger deposit, byte[] signerPublicKey, long expiryBlock) {
+        return writer.begin(OPEN_CHANNEL).putAddress(recipient).putAmount(deposit).putByteArray(signerPublicKey).putLong(expiryBlock);
+    }
+
+    /**
+     * As {@link #openChannel}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter openChannel(Address recipient, long deposit, byte[] signerPublicKey, long expiryBlock) {
+        return writer.begin(OPEN_CHANNEL).putAddress(recipient).putAmount(deposit).putByteArray(signerPublicKey).putLong(expiryBlock);
+    }
+
+    /**
+     * Returns the channel record, encoded as described in ChannelInformation, or null if there is no such channel.
+     */
+    public AbiWriter getChannel(long channelId) {
+        return writer.begin(GET_CHANNEL).putLong(channelId);
+    }
+
+    /**
+     * Settle a channel with a voucher. Only the recipient can call this. A voucher is the signature of
+     * ATS contract address (32 bytes) + channel id (8 bytes) + amount filled to 32 bytes, made with the channel's
+     * signer key. The recipient receives the amount and the rest of the deposit goes back to the sender.
+     *
+     * @param channelId id of the channel
+     * @param amount cumulative amount of the voucher
+     * @param signature ed25519 signature of the voucher
+     */
+    public AbiWriter closeChannel(long channelId, BigInteger amount, byte[] signature) {
+        return writer.begin(CLOSE_CHANNEL).putLong(channelId).putAmount(amount).putByteArray(signature);
+    }
+
+    /**
+     * As {@link #closeChannel}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter closeChannel(long channelId, long amount, byte[] signature) {
+        return writer.begin(CLOSE_CHANNEL).putLong(channelId).putAmount(amount).putByteArray(signature);
+    }
+
+    /**
+     * Return the whole deposit of a channel that the recipient did not close before it expired. Only the sender can
+     * call this.
+     */
+    public AbiWriter reclaimChannel(long channelId) {
+        return writer.begin(RECLAIM_CHANNEL).putLong(channelId);
+    }
+
+    /**
+     * Settle a batch of obligations by their net effect. Every obligation moves amounts[i] from froms[i] to tos[i],
+     * and the caller must be froms[i] or one of its operators. The obligations are netted per account in memory, so
+     * each distinct account is read once and written at most once, however many obligations it takes part in. Token
+     * holder hooks are not called and a single Cleared event lists the resulting balances instead of one Sent event
+     * per obligation.
+     *
+     * @param froms token holders paying
+     * @param tos token recipients
+     * @param amounts number of tokens of the obligation at the same index
+     * @param operatorData information from the operator
+     */
+    public AbiWriter clear(Address[] froms, Address[] tos, BigInteger[] amounts, byte[] operatorData) {
+        return writer.begin(CLEAR).putAddressArray(froms).putAddressArray(tos).putAmountArray(amounts).putByteArray(operatorData);
+    }
+
+    /**
+     * Start a payout job of the caller, a list of payments too long to make in one transaction. The caller adds the
+     * payments in chunks with addPayoutChunk, which locks their tokens, and anyone can then pay them out over as many
+     * transactions as it takes with continueJob.
+     *
+     * @return id of the new job
+     */
+    public AbiWriter createPayoutJob() {
+        return writer.begin(CREATE_PAYOUT_JOB);
+    }
+
+    /**
+     * Append payments to a payout job and lock their total from the caller's balance until they are paid out. Only
+     * the creator of the job can call this, at any time, also while the job is being paid out.
+     *
+     * @param jobId id of the job
+     * @param recipients token recipients
+     * @param amounts number of tokens to pay to the recipient at the same index
+     */
+    public AbiWriter addPayoutChunk(long jobId, Address[] recipients, BigInteger[] amounts) {
+        return writer.begin(ADD_PAYOUT_CHUNK).putLong(jobId).putAddressArray(recipients).putAmountArray(amounts);
+    }
+
+    /**
+     * Pay out the next payments of a payout job for as long as the energy of the transaction lasts, then store where
+     * it stopped so that the next call carries on from there. Anyone can call this, with any energy limit: payments
+     * stop while enough energy remains to store the job and log the progress, judged from the costliest payment of the
+     * call so far, so only a limit too low for a single payment makes the transaction fail. Token holder hooks are
+     * not called and a single PayoutProgress event lists the payments made.
+     *
+     * @param jobId id of the job
+     * @return number of payments of the job still to be paid out
+     */
+    public AbiWriter continueJob(long jobId) {
+        return writer.begin(CONTINUE_JOB).putLong(jobId);
+    }
+
+    /**
+     * Returns the payout job record, encoded as described in PayoutJob, or null if there is no such job.
+     */
+    public AbiWriter getPayoutJob(long jobId) {
+        return writer.begin(GET_PAYOUT_JOB).putLong(jobId);
+    }
+
+    /**
+     * Set the energy limit of calls to the tokensToSend and tokensReceived hooks of the caller, overriding the stipend
+     * the token was deployed with. A hook contract that needs less energy than the stipend makes transfers involving
+     * it cheaper to reserve for, one that needs more can still be called.
+     *
+     * @param stipend energy limit of a hook call, or 0 to use the stipend of the token again
+     */
+    public AbiWriter setHookStipend(long stipend) {
+        return writer.begin(SET_HOOK_STIPEND).putLong(stipend);
+    }
+
+    /**
+     * Returns the energy limit of calls to the hooks of the holder.
+     */
+    public AbiWriter getHookStipend(Address holder) {
+        return writer.begin(GET_HOOK_STIPEND).putAddress(holder);
+    }
+
+    /**
+     * Have the tokensReceived notifications of the caller queued in this contract instead of calling its hook during
+     * each transfer and mint, which makes the cost of sending to the caller independent of its hook. The queue is
+     * delivered with drainNotifications. Turning this off keeps the notifications already queued until they are
+     * drained.
+     *
+     * @param enabled whether to queue the notifications of the caller
+     */
+    public AbiWriter setDeferredNotifications(boolean enabled) {
+        return writer.begin(SET_DEFERRED_NOTIFICATIONS).putBoolean(enabled);
+    }
+
+    /**
+     * Returns the number of notifications queued for the holder.
+     */
+    public AbiWriter getNotificationCount(Address holder) {
+        return writer.begin(GET_NOTIFICATION_COUNT).putAddress(holder);
+    }
+
+    /**
+     * Deliver the oldest queued notifications of a holder, in order, with a single call of its
+     * tokensReceivedBatch(Address[] operators, Address[] froms, byte[][] amounts, byte[][] userData, byte[][] operatorData)
+     * method, which gets whatever energy the transaction has left. The notifications are removed from the queue only if
+     * that call succeeds. Anyone can call this.
+     *
+     * @param holder holder whose notifications to deliver
+     * @param maxCount maximum number of notifications to deliver
+     * @return number of notifications still queued for the holder
+     */
+    public AbiWriter drainNotifications(Address holder, int maxCount) {
+        return writer.begin(DRAIN_NOTIFICATIONS).putAddress(holder).putInt(maxCount);
+    }
+
+    /**
+     *  Returns the total supply of tokens currently in circulation on this chain.
+     */
+    public AbiWriter getLiquidSupply() {
+        return writer.begin(GET_LIQUID_SUPPLY);
+    }
+
+    public AbiWriter thaw(Address localRecipient, BigInteger amount, byte[] bridgeId, byte[] bridgeData, byte[] removeSender, byte[] remoteData) {
+        return writer.begin(THAW).putAddress(localRecipient).putAmount(amount).putByteArray(bridgeId).putByteArray(bridgeData).putByteArray(removeSender).putByteArray(remoteData);
+    }
+
+    /**
+     * As {@link #thaw}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter thaw(Address localRecipient, long amount, byte[] bridgeId, byte[] bridgeData, byte[] removeSender, byte[] remoteData) {
+        return writer.begin(THAW).putAddress(localRecipient).putAmount(amount).putByteArray(bridgeId).putByteArray(bridgeData).putByteArray(removeSender).putByteArray(remoteData);
+    }
+
+    public AbiWriter freeze(byte[] remoteRecipient, BigInteger amount, byte[] bridgeId, byte[] localData) {
+        return writer.begin(FREEZE).putByteArray(remoteRecipient).putAmount(amount).putByteArray(bridgeId).putByteArray(localData);
+    }
+
+    /**
+     * As {@link #freeze}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter freeze(byte[] remoteRecipient, long amount, byte[] bridgeId, byte[] localData) {
+        return writer.begin(FREEZE).putByteArray(remoteRecipient).putAmount(amount).putByteArray(bridgeId).putByteArray(localData);
+    }
+
+    public AbiWriter operatorFreeze(Address localSender, byte[] remoteRecipient, BigInteger amount, byte[] bridgeId, byte[] localData) {
+        return writer.begin(OPERATOR_FREEZE).putAddress(localSender).putByteArray(remoteRecipient).putAmount(amount).putByteArray(bridgeId).putByteArray(localData);
+    }
+
+    /**
+     * As {@link #operatorFreeze}, for an amount that fits in a long, encoded without allocating.
+     */
+    public AbiWriter operatorFreeze(Address localSender, byte[] remoteRecipient, long amount, byte[] bridgeId, byte[] localData) {
+        return writer.begin(OPERATOR_FREEZE).putAddress(localSender).putByteArray(remoteRecipient).putAmount(amount).putByteArray(bridgeId).putByteArray(localData);
+    }
+
+    public static String decodeGetName(byte[] returnData) {
+        return AbiReader.readString(returnData);
+    }
+
+    public static String decodeGetSymbol(byte[] returnData) {
+        return AbiReader.readString(returnData);
+    }
+
+    public static BigInteger decodeGetTotalSupply(byte[] returnData) {
+        return AbiReader.readAmount(returnData);
+    }
+
+    public static int decodeGetGranularity(byte[] returnData) {
+        return AbiReader.readInt(returnData);
+    }
+
+    public static BigInteger decodeBalanceOf(byte[] returnData) {
+        return AbiReader.readAmount(returnData);
+    }
+
+    public static byte[] decodeGetBalanceRoot(byte[] returnData) {
+        return AbiReader.readByteArray(returnData);
+    }
+
+    public static boolean decodeIsOperatorFor(byte[] returnData) {
+        return AbiReader.readBoolean(returnData);
+    }
+
+    public static BigInteger decodeGetSupplyCap(byte[] returnData) {
+        return AbiReader.readAmount(returnData);
+    }
+
+    public static long decodeCreateStream(byte[] returnData) {
+        return AbiReader.readLong(returnData);
+    }
+
+    public static byte[] decodeGetStream(byte[] returnData) {
+        return AbiReader.readByteArray(returnData);
+    }
+
+    public static BigInteger decodeGetStreamWithdrawable(byte[] returnData) {
+        return AbiReader.readAmount(returnData);
+    }
+
+    public static byte[] decodeGetVestingSchedule(byte[] returnData) {
+        return AbiReader.readByteArray(returnData);
+    }
+
+    public static BigInteger decodeGetReleasableAmount(byte[] returnData) {
+        return AbiReader.readAmount(returnData);
+    }
+
+    public static long decodeOpenChannel(byte[] returnData) {
+        return AbiReader.readLong(returnData);
+    }
+
+    public static byte[] decodeGetChannel(byte[] returnData) {
+        return AbiReader.readByteArray(returnData);
+    }
+
+    public static long decodeCreatePayoutJob(byte[] returnData) {
+        return AbiReader.readLong(returnData);
+    }
+
+    public static long decodeContinueJob(byte[] returnData) {
+        return AbiReader.readLong(returnData);
+    }
+
+    public static byte[] decodeGetPayoutJob(byte[] returnData) {
+        return AbiReader.readByteArray(returnData);
+    }
+
+    public static long decodeGetHookStipend(byte[] returnData) {
+        return AbiReader.readLong(returnData);
+    }
+
+    public static long decodeGetNotificationCount(byte[] returnData) {
+        return AbiReader.readLong(returnData);
+    }
+
+    public static long decodeDrainNotifications(byte[] returnData) {
+        return AbiReader.readLong(returnData);
+    }
+
+    public static BigInteger decodeGetLiquidSupply(byte[] returnData) {
+        return AbiReader.readAmount(returnData);
+    }
+}
@@ -0,0 +1,159 @@
+package ATSClient;
+
+import avm.Address;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Submits batches of token transfers from one account with many transactions in flight, rather than waiting for the
+ * receipt of each one before sending the next.
+ * - The call data of every transfer is encoded up front, on the calling thread, so that a transfer that cannot be
+ *   encoded fails the batch before anything is sent.
+ * - Nonces are assigned in order, from the nonce of the account at the node for the first batch and counted locally
+ *   after that.
+ * - Each transaction is signed, sent and awaited by a task of the executor, with at most window tasks in flight.
+ *   Sending is retried after an IOException, with the same signed bytes, so a retry cannot use a second nonce.
+ *
+ * A transaction that is never accepted leaves a gap in the nonces, which holds back every later one. The batch then
+ * stops sending, the transactions already in flight wait for it in vain and fail in turn, and the next batch starts
+ * again from the nonce of the account at the node.
+ *
+ * Use an executor with one thread per task, as the tasks mostly wait for receipts: on JDK 21 and later
+ * Executors.newVirtualThreadPerTaskExecutor(), before that Executors.newCachedThreadPool().
+ *
+ * Batches are submitted one at a time; submit is not meant to be called from several threads.
+ */
+public class BulkSubmitter {
+    private final TransactionNode node;
+    private final TransactionSigner signer;
+    private final Address token;
+    private final Executor executor;
+    private final Semaphore window;
+    private final AionTokenStandardClient client = new AionTokenStandardClient();
+
+    private long energyLimit = 2_000_000L;
+    private long energyPrice = 10_000_000_000L;
+    private int maxAttempts = 5;
+    private long retryDelayMillis = 200;
+    private long nextNonce = -1; // -1 until known from the node
+
+    /**
+     * @param token the address of the ATS contract
+     * @param window the maximum number of transactions in flight
+     */
+    public BulkSubmitter(TransactionNode node, TransactionSigner signer, Address token, Executor executor, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("the window must hold at least one transaction");
+        }
+        this.node = node;
+        this.signer = signer;
+        this.token = token;
+        this.executor = executor;
+        this.window = new Semaphore(window);
+    }
+
+    public void setEnergy(long energyLimit, long energyPrice) {
+        this.energyLimit = energyLimit;
+        this.energyPrice = energyPrice;
+    }
+
+    /**
+     * Set how many times a transaction is sent before it counts as failed, and the delay before the first retry,
+     * which doubles with each retry.
+     */
+    public void setRetries(int maxAttempts, long retryDelayMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("a transaction must be sent at least once");
+        }
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /**
+     * Submit the transfers in order and wait until each one is mined or has failed.
+     *
+     * @return the outcome of each transfer, in the order of the transfers
+     * @throws IllegalArgumentException if a transfer cannot be encoded, for example for a negative amount
+     * @throws IOException if the nonce of the account cannot be read from the node
+     */
+    public List<SubmittedTransfer> submit(List<Transfer> transfers) throws IOException, InterruptedException {
+        byte[][] data = new byte[transfers.size()][];
+        for (int i = 0; i < transfers.size(); i++) {
+            data[i] = transfers.get(i).encode(client).toByteArray();
+        }
+        if (nextNonce < 0) {
+            nextNonce = node.getNonce(signer.getAddress());
+        }
+
+        SubmittedTransfer[] outcomes = new SubmittedTransfer[transfers.size()];
+        CountDownLatch done = new CountDownLatch(transfers.size());
+        AtomicBoolean stopped = new AtomicBoolean();
+        for (int i = 0; i < transfers.size(); i++) {
+            Transfer transfer = transfers.get(i);
+            window.acquire();
+            if (stopped.get()) {
+                window.release();
+                outcomes[i] = new SubmittedTransfer(transfer, -1, SubmittedTransfer.Status.NOT_SUBMITTED, 0, null);
+                done.countDown();
+                continue;
+            }
+
+            long nonce = nextNonce++;
+            int index = i;
+            executor.execute(() -> {
+                try {
+                    outcomes[index] = send(transfer, nonce, data[index]);
+                    if (outcomes[index].getStatus() == SubmittedTransfer.Status.FAILED) {
+                        stopped.set(true);
+                    }
+                } finally {
+                    window.release();
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+
+        if (stopped.get()) {
+            nextNonce = -1;
+        }
+        return Arrays.asList(outcomes);
+    }
+
+    private SubmittedTransfer send(Transfer transfer, long nonce, byte[] data) {
+        byte[] signed;
+        try {
+            signed = signer.sign(nonce, token, BigInteger.ZERO, data, energyLimit, energyPrice);
+        } catch (RuntimeException e) {
+            return new SubmittedTransfer(transfer, nonce, SubmittedTransfer.Status.FAILED, 0, e);
+        }
+
+        Exception error = null;
+        long delay = retryDelayMillis;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                boolean success = node.sendAndWait(signed);
+                return new SubmittedTransfer(transfer, nonce, success ? SubmittedTransfer.Status.SUCCESS : SubmittedTransfer.Status.REVERTED, attempt, null);
+            } catch (IOException e) {
+                error = e;
+            }
+            if (attempt < maxAttempts) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return new SubmittedTransfer(transfer, nonce, SubmittedTransfer.Status.FAILED, attempt, e);
+                }
+                delay *= 2;
+            }
+        }
+        return new SubmittedTransfer(transfer, nonce, SubmittedTransfer.Status.FAILED, maxAttempts, error);
+    }
+}
@@ -0,0 +1,261 @@
+package ATSClient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates the client classes of this package from the @Callable methods of the contracts. Run it from the root of
+ * the repository after changing a callable, and commit the result:
+ *
+ *   java ATSClient.ClientGenerator
+ *
+ * ATSClientTest fails while a generated client is out of date.
+ *
+ * The contract sources are parsed rather than the compiled classes reflected on, for the parameter names and doc
+ * comments. Byte arrays that hold token amounts, recognised by the names below, become BigInteger in the client.
+ */
+public class ClientGenerator {
+    public static final String[][] CONTRACTS = {
+            {"src/AionTokenStandard/AionTokenStandardContract.java", "AionTokenStandardClient"},
+            {"src/AionInterfaceRegistry/AionInterfaceRegistryContract.java", "AionInterfaceRegistryClient"},
+    };
+    public static final String OUTPUT_DIRECTORY = "client/src/ATSClient";
+
+    private static final Set<String> AMOUNT_PARAMETERS = new HashSet<>(Arrays.asList("amount", "amounts", "cap", "ratePerBlock", "total", "deposit"));
+    private static final Set<String> AMOUNT_RESULTS = new HashSet<>(Arrays.asList(
+            "getTotalSupply", "balanceOf", "getSupplyCap", "getStreamWithdrawable", "getReleasableAmount", "getLiquidSupply"));
+
+    private static final Pattern CALLABLE = Pattern.compile(
+            "(/\\*\\*(?:(?!\\*/).)*\\*/\\s*)?@Callable\\s+public\\s+static\\s+([\\w\\[\\]]+)\\s+(\\w+)\\s*\\(([^)]*)\\)", Pattern.DOTALL);
+
+    public static void main(String[] args) throws IOException {
+        Path root = Paths.get(args.length > 0 ? args[0] : ".");
+        for (String[] contract : CONTRACTS) {
+            String source = new String(Files.readAllBytes(root.resolve(contract[0])), StandardCharsets.UTF_8);
+            Path output = root.resolve(OUTPUT_DIRECTORY).resolve(contract[1] + ".java");
+            Files.write(output, generate(source, contract[0], contract[1]).getBytes(StandardCharsets.UTF_8));
+            System.out.println("generated " + output);
+        }
+    }
+
+    /**
+     * Returns the source of the client of a contract.
+     */
+    public static String generate(String contractSource, String contractPath, String clientName) {
+        List<Callable> callables = parse(contractSource);
+        String contractName = Paths.get(contractPath).getFileName().toString().replace(".java", "");
+
+        StringBuilder out = new StringBuilder();
+        out.append("package ATSClient;\n\n");
+        out.append("import avm.Address;\n\n");
+        out.append("import java.math.BigInteger;\n\n");
+        out.append("/**\n");
+        out.append(" * Encodes calls to the callables of ").append(contractName).append(" and decodes what they return.\n");
+        out.append(" * Each call method encodes into the AbiWriter of the client and returns it, so its data is valid until the next\n");
+        out.append(" * call.\n");
+        out.append(" *\n");
+        out.append(" * Generated by ClientGenerator from ").append(contractPath).append(", do not edit.\n");
+        out.append(" */\n");
+        out.append("public final class ").append(clientName).append(" {\n");
+        for (Callable callable : callables) {
+            out.append("    private static final byte[] ").append(constantName(callable.name))
+                    .append(" = AbiWriter.encodeMethodName(\"").append(callable.name).append("\");\n");
+        }
+        out.append("\n");
+        out.append("    private final AbiWriter writer;\n\n");
+        out.append("    public ").append(clientName).append("() {\n");
+        out.append("        this(new AbiWriter());\n");
+        out.append("    }\n\n");
+        out.append("    public ").append(clientName).append("(AbiWriter writer) {\n");
+        out.append("        this.writer = writer;\n");
+        out.append("    }\n");
+
+        for (Callable callable : callables) {
+            out.append("\n");
+            appendCall(out, callable, false);
+            if (callable.amountCount() == 1 && callable.hasScalarAmount()) {
+                out.append("\n");
+                appendCall(out, callable, true);
+            }
+        }
+
+        for (Callable callable : callables) {
+            if (callable.returnType.equals("void")) {
+                continue;
+            }
+            String[] result = resultMapping(callable);
+            out.append("\n");
+            out.append("    public static ").append(result[0]).append(" decode").append(Character.toUpperCase(callable.name.charAt(0)))
+                    .append(callable.name.substring(1)).append("(byte[] returnData) {\n");
+            out.append("        return AbiReader.").append(result[1]).append("(returnData);\n");
+            out.append("    }\n");
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private static void appendCall(StringBuilder out, Callable callable, boolean longAmount) {
+        if (longAmount) {
+            out.append("    /**\n");
+            out.append("     * As {@link #").append(callable.name).append("}, for an amount that fits in a long, encoded without allocating.\n");
+            out.append("     */\n");
+        } else if (callable.doc != null) {
+            out.append(callable.doc);
+        }
+        List<String> declarations = new ArrayList<>();
+        StringBuilder body = new StringBuilder("        return writer.begin(").append(constantName(callable.name)).append(")");
+        for (String[] parameter : callable.parameters) {
+            String[] mapping = parameterMapping(callable, parameter);
+            String type = (longAmount && mapping[0].equals("BigInteger")) ? "long" : mapping[0];
+            declarations.add(type + " " + parameter[1]);
+            body.append(".").append(mapping[1]).append("(").append(parameter[1]).append(")");
+        }
+        out.append("    public AbiWriter ").append(callable.name).append("(").append(String.join(", ", declarations)).append(") {\n");
+        out.append(body).append(";\n");
+        out.append("    }\n");
+    }
+
+    /**
+     * Returns the client type of a parameter and the AbiWriter method that writes it.
+     */
+    private static String[] parameterMapping(Callable callable, String[] parameter) {
+        boolean amount = AMOUNT_PARAMETERS.contains(parameter[1]);
+        switch (parameter[0]) {
+            case "boolean":
+                return new String[]{"boolean", "putBoolean"};
+            case "int":
+                return new String[]{"int", "putInt"};
+            case "long":
+                return new String[]{"long", "putLong"};
+            case "String":
+                return new String[]{"String", "putString"};
+            case "Address":
+                return new String[]{"Address", "putAddress"};
+            case "Address[]":
+                return new String[]{"Address[]", "putAddressArray"};
+            case "byte[]":
+                return amount ? new String[]{"BigInteger", "putAmount"} : new String[]{"byte[]", "putByteArray"};
+            case "byte[][]":
+                return amount ? new String[]{"BigInteger[]", "putAmountArray"} : new String[]{"byte[][]", "put2DByteArray"};
+            default:
+                throw new IllegalStateException("no client type for parameter " + parameter[1] + " of " + callable.name + ": " + parameter[0]);
+        }
+    }
+
+    /**
+     * Returns the client type of a result and the AbiReader method that reads it.
+     */
+    private static String[] resultMapping(Callable callable) {
+        switch (callable.returnType) {
+            case "boolean":
+                return new String[]{"boolean", "readBoolean"};
+            case "int":
+                return new String[]{"int", "readInt"};
+            case "long":
+                return new String[]{"long", "readLong"};
+            case "String":
+                return new String[]{"String", "readString"};
+            case "Address":
+                return new String[]{"Address", "readAddress"};
+            case "Address[]":
+                return new String[]{"Address[]", "readAddressArray"};
+            case "byte[]":
+                return AMOUNT_RESULTS.contains(callable.name) ? new String[]{"BigInteger", "readAmount"} : new String[]{"byte[]", "readByteArray"};
+            default:
+                throw new IllegalStateException("no client type for the result of " + callable.name + ": " + callable.returnType);
+        }
+    }
+
+    /**
+     * Returns the signature of each callable of a contract: its return type, its name and the types of its parameters.
+     */
+    public static List<String[]> signatures(String contractSource) {
+        List<String[]> signatures = new ArrayList<>();
+        for (Callable callable : parse(contractSource)) {
+            List<String> signature = new ArrayList<>(Arrays.asList(callable.returnType, callable.name));
+            for (String[] parameter : callable.parameters) {
+                signature.add(parameter[0]);
+            }
+            signatures.add(signature.toArray(new String[0]));
+        }
+        return signatures;
+    }
+
+    private static List<Callable> parse(String contractSource) {
+        List<Callable> callables = new ArrayList<>();
+        Matcher matcher = CALLABLE.matcher(contractSource);
+        while (matcher.find()) {
+            List<String[]> parameters = new ArrayList<>();
+            String parameterList = matcher.group(4).trim();
+            if (!parameterList.isEmpty()) {
+                for (String parameter : parameterList.split(",")) {
+                    parameters.add(parameter.trim().split("\\s+"));
+                }
+            }
+            callables.add(new Callable(reindent(matcher.group(1)), matcher.group(2), matcher.group(3), parameters));
+        }
+        return callables;
+    }
+
+    /**
+     * Returns a doc comment indented for a member of the client, or null for none or a section banner.
+     */
+    private static String reindent(String doc) {
+        if (doc == null || doc.contains("====")) {
+            return null;
+        }
+        StringBuilder out = new StringBuilder();
+        for (String line : doc.trim().split("\n")) {
+            line = line.trim();
+            out.append("    ").append(line.startsWith("*") ? " " : "").append(line).append("\n");
+        }
+        return out.toString();
+    }
+
+    private static String constantName(String methodName) {
+        return methodName.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    private static class Callable {
+        final String doc;
+        final String returnType;
+        final String name;
+        final List<String[]> parameters; // type, name
+
+        Callable(String doc, String returnType, String name, List<String[]> parameters) {
+            this.doc = doc;
+            this.returnType = returnType;
+            this.name = name;
+            this.parameters = parameters;
+        }
+
+        int amountCount() {
+            int count = 0;
+            for (String[] parameter : parameters) {
+                if (AMOUNT_PARAMETERS.contains(parameter[1]) && parameter[0].startsWith("byte[]")) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        boolean hasScalarAmount() {
+            for (String[] parameter : parameters) {
+                if (AMOUNT_PARAMETERS.contains(parameter[1]) && parameter[0].equals("byte[]")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
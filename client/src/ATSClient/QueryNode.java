@@ -0,0 +1,19 @@
+package ATSClient;
+
+import avm.Address;
+
+import java.io.IOException;
+
+/**
+ * The node RegistryMirror reads the registry from. Called from several threads at once.
+ */
+public interface QueryNode {
+
+    /**
+     * Run a call against the latest state of the node, without sending a transaction.
+     *
+     * @return the return data of the call
+     * @throws IOException if the node cannot be reached or the call fails
+     */
+    byte[] call(Address contract, byte[] data) throws IOException;
+}
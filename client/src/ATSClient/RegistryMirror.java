@@ -0,0 +1,195 @@
+package ATSClient;
+
+import ATSIndexer.EventLog;
+import avm.Address;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Answers getInterfaceImplementer and getManager from a cache of the answers of the registry, so that a router
+ * resolving the hooks of many transfers does not query the node for each one.
+ * - A lookup missing from the cache is read from the node and kept, null answers included.
+ * - Each cache holds at most capacity entries and drops the least recently used one first.
+ * - The logs of the registry are passed to apply as they arrive, and drop the entries their events change. An answer
+ *   read from the node while such a log is applied is returned but not kept, as it may predate the log.
+ *
+ * Blocks that are rolled back may have changed entries the mirror has not seen change back, so call clear after a
+ * reorg. The node should be at least as recent as the logs applied.
+ *
+ * Interface hashes other than 32 bytes long are not kept, as events carry them as 32-byte topics.
+ *
+ * Lookups and apply can be called from several threads at once.
+ */
+public class RegistryMirror {
+    private static final int TOPIC_LENGTH = 32;
+    private static final int ADDRESS_LENGTH = 32;
+
+    private static final ByteBuffer INTERFACE_IMPLEMENTER_SET = topic("InterfaceImplementerSetEvent");
+    private static final ByteBuffer INTERFACE_IMPLEMENTERS_SET = topic("InterfaceImplementersSetEvent");
+    private static final ByteBuffer DEFAULT_INTERFACE_IMPLEMENTER_SET = topic("DefaultInterfaceImplementerSetEvent");
+    private static final ByteBuffer MANAGER_CHANGED = topic("ManagerChangedEvent");
+    private static final ByteBuffer MANAGERS_CHANGED = topic("ManagersChangedEvent");
+
+    private final QueryNode node;
+    private final Address registry;
+    private final AionInterfaceRegistryClient client = new AionInterfaceRegistryClient();
+    private final Map<ByteBuffer, Address> implementers; // <target ++ interface hash, implementer>
+    private final Map<Address, Address> managers; // <target, manager>
+    private long version; // counts the logs that dropped entries
+
+    /**
+     * @param registry the address of the AionInterfaceRegistryContract
+     * @param capacity the maximum number of implementers, and of managers, kept
+     */
+    public RegistryMirror(QueryNode node, Address registry, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("the cache must hold at least one entry");
+        }
+        this.node = node;
+        this.registry = registry;
+        this.implementers = new LruMap<>(capacity);
+        this.managers = new LruMap<>(capacity);
+    }
+
+    /**
+     * Returns the implementer of the interface for the target, as the registry returns it.
+     *
+     * @throws IOException if the implementer is not cached and cannot be read from the node
+     */
+    public Address getInterfaceImplementer(Address target, byte[] interfaceHash) throws IOException {
+        boolean cacheable = interfaceHash.length == TOPIC_LENGTH;
+        ByteBuffer key = cacheable ? implementerKey(target.unwrap(), ByteBuffer.wrap(interfaceHash)) : null;
+        byte[] query;
+        long seen;
+        synchronized (this) {
+            if (cacheable && implementers.containsKey(key)) {
+                return implementers.get(key);
+            }
+            query = client.getInterfaceImplementer(target, interfaceHash).toByteArray();
+            seen = version;
+        }
+
+        Address implementer = AionInterfaceRegistryClient.decodeGetInterfaceImplementer(node.call(registry, query));
+        synchronized (this) {
+            if (cacheable && version == seen) {
+                implementers.put(key, implementer);
+            }
+        }
+        return implementer;
+    }
+
+    /**
+     * Returns the manager of the target, as the registry returns it.
+     *
+     * @throws IOException if the manager is not cached and cannot be read from the node
+     */
+    public Address getManager(Address target) throws IOException {
+        byte[] query;
+        long seen;
+        synchronized (this) {
+            Address manager = managers.get(target);
+            if (manager != null) {
+                return manager;
+            }
+            query = client.getManager(target).toByteArray();
+            seen = version;
+        }
+
+        Address manager = AionInterfaceRegistryClient.decodeGetManager(node.call(registry, query));
+        synchronized (this) {
+            if (version == seen) {
+                managers.put(target, manager);
+            }
+        }
+        return manager;
+    }
+
+    /**
+     * Drop the entries the event of a log changes. Logs of other contracts and other events are skipped.
+     */
+    public synchronized void apply(EventLog log) {
+        byte[][] topics = log.getTopics();
+        if (!Arrays.equals(log.getAddress(), registry.unwrap()) || topics.length < 2) {
+            return;
+        }
+
+        ByteBuffer event = ByteBuffer.wrap(topics[0]);
+        ByteBuffer data = log.getData();
+        if (event.equals(INTERFACE_IMPLEMENTER_SET) && topics.length >= 3) {
+            // target, interface hash, delegate
+            implementers.remove(implementerKey(topics[1], ByteBuffer.wrap(topics[2])));
+        } else if (event.equals(INTERFACE_IMPLEMENTERS_SET)) {
+            // interface hash, delegate; data: targets
+            ByteBuffer interfaceHash = ByteBuffer.wrap(topics[1]);
+            byte[] target = new byte[ADDRESS_LENGTH];
+            for (int offset = data.position(); offset + ADDRESS_LENGTH <= data.limit(); offset += ADDRESS_LENGTH) {
+                data.get(offset, target);
+                implementers.remove(implementerKey(target, interfaceHash));
+            }
+        } else if (event.equals(DEFAULT_INTERFACE_IMPLEMENTER_SET)) {
+            // interface hash, delegate: the default applies to any target without an implementer of its own
+            ByteBuffer interfaceHash = ByteBuffer.wrap(topics[1]);
+            for (Iterator<ByteBuffer> keys = implementers.keySet().iterator(); keys.hasNext(); ) {
+                if (keys.next().slice(ADDRESS_LENGTH, TOPIC_LENGTH).equals(interfaceHash)) {
+                    keys.remove();
+                }
+            }
+        } else if (event.equals(MANAGER_CHANGED)) {
+            // target, new manager
+            managers.remove(new Address(topics[1]));
+        } else if (event.equals(MANAGERS_CHANGED)) {
+            // new manager; data: targets
+            byte[] target = new byte[ADDRESS_LENGTH];
+            for (int offset = data.position(); offset + ADDRESS_LENGTH <= data.limit(); offset += ADDRESS_LENGTH) {
+                data.get(offset, target);
+                managers.remove(new Address(target));
+            }
+        } else {
+            return;
+        }
+        version++;
+    }
+
+    /**
+     * Drop every entry, after a reorg for example.
+     */
+    public synchronized void clear() {
+        implementers.clear();
+        managers.clear();
+        version++;
+    }
+
+    private static ByteBuffer implementerKey(byte[] target, ByteBuffer interfaceHash) {
+        ByteBuffer key = ByteBuffer.allocate(ADDRESS_LENGTH + TOPIC_LENGTH);
+        key.put(target).put(interfaceHash.duplicate());
+        return key.flip();
+    }
+
+    private static ByteBuffer topic(String name) {
+        return ByteBuffer.wrap(Arrays.copyOf(name.getBytes(StandardCharsets.UTF_8), TOPIC_LENGTH));
+    }
+
+    /**
+     * A map that drops its least recently used entry when it holds more than capacity entries.
+     */
+    @SuppressWarnings("serial")
+    private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+
+        LruMap(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
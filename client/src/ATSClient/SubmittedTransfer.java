@@ -0,0 +1,60 @@
+package ATSClient;
+
+/**
+ * The outcome of one transfer of a BulkSubmitter batch.
+ */
+public final class SubmittedTransfer {
+    public enum Status {
+        /** Mined and successful. */
+        SUCCESS,
+        /** Mined but failed, for example for an insufficient balance. Its nonce is used. */
+        REVERTED,
+        /**
+         * Not mined after all the attempts. The node may still hold it and mine it later, so compare its nonce with
+         * the nonce of the account before submitting the transfer again.
+         */
+        FAILED,
+        /** Not sent, because an earlier transfer of the batch failed. */
+        NOT_SUBMITTED
+    }
+
+    private final Transfer transfer;
+    private final long nonce;
+    private final Status status;
+    private final int attempts;
+    private final Exception error;
+
+    SubmittedTransfer(Transfer transfer, long nonce, Status status, int attempts, Exception error) {
+        this.transfer = transfer;
+        this.nonce = nonce;
+        this.status = status;
+        this.attempts = attempts;
+        this.error = error;
+    }
+
+    public Transfer getTransfer() {
+        return transfer;
+    }
+
+    /**
+     * Returns the nonce of the transaction, or -1 if it was not submitted.
+     */
+    public long getNonce() {
+        return nonce;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns the error of the last attempt of a FAILED transfer, or null.
+     */
+    public Exception getError() {
+        return error;
+    }
+}
@@ -0,0 +1,25 @@
+package ATSClient;
+
+import avm.Address;
+
+import java.io.IOException;
+
+/**
+ * The node BulkSubmitter sends transactions to. Called from several threads at once.
+ */
+public interface TransactionNode {
+
+    /**
+     * Returns the nonce of the next transaction of an account, counting the transactions that are mined.
+     */
+    long getNonce(Address account) throws IOException;
+
+    /**
+     * Send a signed transaction and wait until it is mined. Sending the same transaction again, after an
+     * IOException, must return its result if it was mined after all.
+     *
+     * @return true if the transaction ran successfully, false if it was mined but failed
+     * @throws IOException if the transaction was not accepted, or mined in time
+     */
+    boolean sendAndWait(byte[] signedTransaction) throws IOException;
+}
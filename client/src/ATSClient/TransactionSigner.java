@@ -0,0 +1,21 @@
+package ATSClient;
+
+import avm.Address;
+
+import java.math.BigInteger;
+
+/**
+ * Signs the transactions of one account. BulkSubmitter calls it from several threads at once.
+ */
+public interface TransactionSigner {
+
+    /**
+     * Returns the account that signs, and so sends, the transactions.
+     */
+    Address getAddress();
+
+    /**
+     * Returns the signed transaction, encoded as the node expects it.
+     */
+    byte[] sign(long nonce, Address to, BigInteger value, byte[] data, long energyLimit, long energyPrice);
+}
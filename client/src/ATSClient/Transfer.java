@@ -0,0 +1,66 @@
+package ATSClient;
+
+import avm.Address;
+
+import java.math.BigInteger;
+
+/**
+ * A token transfer for BulkSubmitter: a send from the submitting account, or an operatorSend on behalf of a holder
+ * that authorized it.
+ */
+public final class Transfer {
+    private final Address from; // null for a send
+    private final Address to;
+    private final BigInteger amount;
+    private final byte[] senderData;
+    private final byte[] operatorData;
+
+    private Transfer(Address from, Address to, BigInteger amount, byte[] senderData, byte[] operatorData) {
+        this.from = from;
+        this.to = to;
+        this.amount = amount;
+        this.senderData = senderData;
+        this.operatorData = operatorData;
+    }
+
+    public static Transfer send(Address to, BigInteger amount, byte[] senderData) {
+        return new Transfer(null, to, amount, senderData, null);
+    }
+
+    public static Transfer operatorSend(Address from, Address to, BigInteger amount, byte[] senderData, byte[] operatorData) {
+        return new Transfer(from, to, amount, senderData, operatorData);
+    }
+
+    /**
+     * Returns the holder the tokens are sent on behalf of, or null if they are sent by the submitting account.
+     */
+    public Address getFrom() {
+        return from;
+    }
+
+    public Address getTo() {
+        return to;
+    }
+
+    public BigInteger getAmount() {
+        return amount;
+    }
+
+    public byte[] getSenderData() {
+        return senderData;
+    }
+
+    public byte[] getOperatorData() {
+        return operatorData;
+    }
+
+    /**
+     * Encode the call to the token contract.
+     */
+    AbiWriter encode(AionTokenStandardClient client) {
+        if (from == null) {
+            return client.send(to, amount, senderData);
+        }
+        return client.operatorSend(from, to, amount, senderData, operatorData);
+    }
+}
@@ -0,0 +1,317 @@
+import ATSClient.AbiWriter;
+import ATSClient.AionInterfaceRegistryClient;
+import ATSClient.AionTokenStandardClient;
+import ATSClient.ClientGenerator;
+import ATSClient.QueryNode;
+import ATSClient.RegistryMirror;
+import ATSIndexer.EventLog;
+import ATSSimulator.ContractSimulator;
+import ATSSimulator.SimulatedLog;
+import ATSSimulator.SimulatedResult;
+import AionInterfaceRegistry.AionInterfaceRegistryContract;
+import AionInterfaceRegistry.AionInterfaceRegistryInterface;
+import AionTokenStandard.AionTokenStandardContract;
+import AionTokenStandard.AionTokenStandardInterface;
+import avm.Address;
+import org.aion.avm.userlib.abi.ABIEncoder;
+import org.junit.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ATSClientTest {
+
+    private Random random = new Random(42);
+    private AionTokenStandardClient tokenClient = new AionTokenStandardClient();
+    private AionInterfaceRegistryClient registryClient = new AionInterfaceRegistryClient();
+
+    @Test
+    public void testGeneratedClientsAreUpToDate() throws IOException {
+        for (String[] contract : ClientGenerator.CONTRACTS) {
+            String source = new String(Files.readAllBytes(Paths.get(contract[0])), StandardCharsets.UTF_8);
+            String generated = ClientGenerator.generate(source, contract[0], contract[1]);
+            String checkedIn = new String(Files.readAllBytes(Paths.get(ClientGenerator.OUTPUT_DIRECTORY, contract[1] + ".java")), StandardCharsets.UTF_8);
+            Assert.assertEquals(contract[1] + " is out of date, run ATSClient.ClientGenerator", generated, checkedIn);
+        }
+    }
+
+    @Test
+    public void testInterfacesMatchCallables() throws IOException {
+        assertInterfaceMatches("src/AionTokenStandard/AionTokenStandardContract.java", AionTokenStandardInterface.class);
+        assertInterfaceMatches("src/AionInterfaceRegistry/AionInterfaceRegistryContract.java", AionInterfaceRegistryInterface.class);
+    }
+
+    @Test
+    public void testEncodingMatchesABIEncoder() {
+        Address to = randomAddress();
+        byte[] data = new byte[]{1, 2, 3};
+        BigInteger amount = new BigInteger("1000000000000000000000");
+        Assert.assertArrayEquals(
+                concat(ABIEncoder.encodeOneString("send"), ABIEncoder.encodeOneAddress(to), ABIEncoder.encodeOneByteArray(amount.toByteArray()), ABIEncoder.encodeOneByteArray(data)),
+                tokenClient.send(to, amount, data).toByteArray());
+
+        Address[] recipients = new Address[]{randomAddress(), randomAddress()};
+        BigInteger[] amounts = new BigInteger[]{BigInteger.ONE, amount};
+        Assert.assertArrayEquals(
+                concat(ABIEncoder.encodeOneString("mintBatch"), ABIEncoder.encodeOneAddressArray(recipients),
+                        ABIEncoder.encodeOne2DByteArray(new byte[][]{BigInteger.ONE.toByteArray(), amount.toByteArray()}), ABIEncoder.encodeOneByteArray(null)),
+                tokenClient.mintBatch(recipients, amounts, null).toByteArray());
+
+        Assert.assertArrayEquals(
+                concat(ABIEncoder.encodeOneString("createStream"), ABIEncoder.encodeOneAddress(to), ABIEncoder.encodeOneByteArray(new byte[]{10}),
+                        ABIEncoder.encodeOneLong(5), ABIEncoder.encodeOneLong(15)),
+                tokenClient.createStream(to, 10, 5, 15).toByteArray());
+
+        Assert.assertArrayEquals(
+                concat(ABIEncoder.encodeOneString("setDeferredNotifications"), ABIEncoder.encodeOneBoolean(true)),
+                tokenClient.setDeferredNotifications(true).toByteArray());
+
+        byte[] interfaceHash = new byte[32];
+        random.nextBytes(interfaceHash);
+        Assert.assertArrayEquals(
+                concat(ABIEncoder.encodeOneString("setInterfaceImplementer"), ABIEncoder.encodeOneAddress(to), ABIEncoder.encodeOneByteArray(interfaceHash), ABIEncoder.encodeOneAddress(null)),
+                registryClient.setInterfaceImplementer(to, interfaceHash, null).toByteArray());
+
+        AbiWriter writer = new AbiWriter(4);
+        Assert.assertArrayEquals(ABIEncoder.encodeOneString("J\u00fcrgen \ud83d\udcb8"), writer.begin(new byte[0]).putString("J\u00fcrgen \ud83d\udcb8").toByteArray());
+    }
+
+    @Test
+    public void testLongAmountsEncodeAsBigIntegers() {
+        Address to = randomAddress();
+        long[] amounts = {0, 1, 127, 128, 255, 256, 32_767, 32_768, 1L << 55, (1L << 56) - 1, 1L << 56, Long.MAX_VALUE};
+        for (long amount : amounts) {
+            byte[] expected = tokenClient.send(to, BigInteger.valueOf(amount), null).toByteArray();
+            Assert.assertArrayEquals("amount " + amount, expected, tokenClient.send(to, amount, null).toByteArray());
+        }
+
+        try {
+            tokenClient.burn(-1, null);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDecoding() {
+        BigInteger balance = new BigInteger("123456789012345678901234567890");
+        Assert.assertEquals(balance, AionTokenStandardClient.decodeBalanceOf(ABIEncoder.encodeOneByteArray(balance.toByteArray())));
+        Assert.assertNull(AionTokenStandardClient.decodeGetSupplyCap(ABIEncoder.encodeOneByteArray(new byte[0])));
+        Assert.assertEquals("Aion Token", AionTokenStandardClient.decodeGetName(ABIEncoder.encodeOneString("Aion Token")));
+        Assert.assertEquals(18, AionTokenStandardClient.decodeGetGranularity(ABIEncoder.encodeOneInteger(18)));
+        Assert.assertEquals(-7L, AionTokenStandardClient.decodeCreateStream(ABIEncoder.encodeOneLong(-7L)));
+        Assert.assertTrue(AionTokenStandardClient.decodeIsOperatorFor(ABIEncoder.encodeOneBoolean(true)));
+
+        Address implementer = randomAddress();
+        Assert.assertEquals(implementer, AionInterfaceRegistryClient.decodeGetInterfaceImplementer(ABIEncoder.encodeOneAddress(implementer)));
+        Assert.assertNull(AionInterfaceRegistryClient.decodeGetInterfaceImplementer(ABIEncoder.encodeOneAddress(null)));
+        Address[] implementers = new Address[]{implementer, null, randomAddress()};
+        Assert.assertArrayEquals(implementers, AionInterfaceRegistryClient.decodeGetInterfaceImplementers(ABIEncoder.encodeOneAddressArray(implementers)));
+        Assert.assertNull(AionInterfaceRegistryClient.decodeGetInterfaceImplementers(new AbiWriter(4).begin(new byte[0]).putAddressArray(null).toByteArray()));
+
+        try {
+            AionTokenStandardClient.decodeBalanceOf(ABIEncoder.encodeOneLong(1));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCallsThroughSimulator() {
+        long energyLimit = 10_000_000L;
+        ContractSimulator simulator = new ContractSimulator();
+        Address deployer = simulator.createAccount(BigInteger.valueOf(1_000_000_000L));
+        Address owner = simulator.createAccount(BigInteger.valueOf(1_000_000_000L));
+        Address holder = simulator.createAccount(BigInteger.valueOf(1_000_000_000L));
+
+        Address registry = simulator.deploy(deployer, AionInterfaceRegistryContract.class, null, energyLimit).getDappAddress();
+        BigInteger totalSupply = new BigInteger("1000000000000000000000000");
+        byte[] arguments = ContractSimulator.encodeDeploymentArguments("Aion Token", "ATS", 1, totalSupply.toByteArray(), registry, 10_000_000L);
+        Address token = simulator.deploy(owner, AionTokenStandardContract.class, arguments, energyLimit).getDappAddress();
+
+        SimulatedResult result = simulator.call(owner, token, BigInteger.ZERO, tokenClient.send(holder, 1_000L, new byte[0]).toByteArray(), energyLimit);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+
+        result = simulator.call(owner, token, BigInteger.ZERO, tokenClient.balanceOf(holder).toByteArray(), energyLimit);
+        Assert.assertEquals(BigInteger.valueOf(1_000), AionTokenStandardClient.decodeBalanceOf(result.getReturnData()));
+
+        result = simulator.call(owner, token, BigInteger.ZERO, tokenClient.getTotalSupply().toByteArray(), energyLimit);
+        Assert.assertEquals(totalSupply, AionTokenStandardClient.decodeGetTotalSupply(result.getReturnData()));
+
+        result = simulator.call(owner, token, BigInteger.ZERO, tokenClient.getSupplyCap().toByteArray(), energyLimit);
+        Assert.assertNull(AionTokenStandardClient.decodeGetSupplyCap(result.getReturnData()));
+
+        result = simulator.call(owner, registry, BigInteger.ZERO, registryClient.getManager(holder).toByteArray(), energyLimit);
+        Assert.assertEquals(holder, AionInterfaceRegistryClient.decodeGetManager(result.getReturnData()));
+    }
+
+    @Test
+    public void testRegistryMirrorDropsEntriesOnEvents() throws IOException {
+        long energyLimit = 10_000_000L;
+        ContractSimulator simulator = new ContractSimulator();
+        Address deployer = simulator.createAccount(BigInteger.valueOf(1_000_000_000L));
+        Address target1 = simulator.createAccount(BigInteger.valueOf(1_000_000_000L));
+        Address target2 = simulator.createAccount(BigInteger.valueOf(1_000_000_000L));
+        Address target3 = simulator.createAccount(BigInteger.valueOf(1_000_000_000L));
+        Address registry = simulator.deploy(deployer, AionInterfaceRegistryContract.class, null, energyLimit).getDappAddress();
+        byte[] interfaceHash = new byte[32];
+        random.nextBytes(interfaceHash);
+
+        AtomicInteger queries = new AtomicInteger();
+        QueryNode node = (contract, data) -> {
+            queries.incrementAndGet();
+            return simulator.call(deployer, contract, BigInteger.ZERO, data, energyLimit).getReturnData();
+        };
+        RegistryMirror mirror = new RegistryMirror(node, registry, 100);
+
+        applyLogs(mirror, simulator.call(target1, registry, BigInteger.ZERO, registryClient.setInterfaceImplementer(target1, interfaceHash, target1).toByteArray(), energyLimit));
+        Assert.assertEquals(target1, mirror.getInterfaceImplementer(target1, interfaceHash));
+        Assert.assertEquals(target1, mirror.getInterfaceImplementer(target1, interfaceHash));
+        Assert.assertNull(mirror.getInterfaceImplementer(target2, interfaceHash));
+        Assert.assertNull(mirror.getInterfaceImplementer(target3, interfaceHash));
+        Assert.assertEquals(target1, mirror.getManager(target1));
+        Assert.assertEquals(4, queries.get());
+
+        // target2 sets an implementer, the other entries are kept
+        applyLogs(mirror, simulator.call(target2, registry, BigInteger.ZERO, registryClient.setInterfaceImplementers(new Address[]{target2}, interfaceHash, target2).toByteArray(), energyLimit));
+        Assert.assertEquals(target2, mirror.getInterfaceImplementer(target2, interfaceHash));
+        Assert.assertEquals(target1, mirror.getInterfaceImplementer(target1, interfaceHash));
+        Assert.assertEquals(5, queries.get());
+
+        // a default implementer drops every entry of the interface
+        applyLogs(mirror, simulator.call(deployer, registry, BigInteger.ZERO, registryClient.setDefaultInterfaceImplementer(interfaceHash, deployer).toByteArray(), energyLimit));
+        Assert.assertEquals(deployer, mirror.getInterfaceImplementer(target3, interfaceHash));
+        Assert.assertEquals(target1, mirror.getInterfaceImplementer(target1, interfaceHash));
+        Assert.assertEquals(7, queries.get());
+
+        // target1 removes its implementer and falls back to the default
+        applyLogs(mirror, simulator.call(target1, registry, BigInteger.ZERO, registryClient.setInterfaceImplementer(target1, interfaceHash, null).toByteArray(), energyLimit));
+        Assert.assertEquals(deployer, mirror.getInterfaceImplementer(target1, interfaceHash));
+        Assert.assertEquals(8, queries.get());
+
+        // a change of manager drops the manager but not the implementers, which do not depend on it
+        applyLogs(mirror, simulator.call(target1, registry, BigInteger.ZERO, registryClient.setManager(target1, target2).toByteArray(), energyLimit));
+        Assert.assertEquals(target2, mirror.getManager(target1));
+        applyLogs(mirror, simulator.call(target2, registry, BigInteger.ZERO, registryClient.setManagers(new Address[]{target1}, target3).toByteArray(), energyLimit));
+        Assert.assertEquals(target3, mirror.getManager(target1));
+        Assert.assertEquals(target3, mirror.getManager(target1));
+        Assert.assertEquals(deployer, mirror.getInterfaceImplementer(target1, interfaceHash));
+        Assert.assertEquals(10, queries.get());
+    }
+
+    @Test
+    public void testRegistryMirrorIsBounded() throws IOException {
+        Address registry = randomAddress();
+        AtomicInteger queries = new AtomicInteger();
+        QueryNode node = (contract, data) -> {
+            queries.incrementAndGet();
+            return ABIEncoder.encodeOneAddress(null);
+        };
+        RegistryMirror mirror = new RegistryMirror(node, registry, 2);
+
+        byte[] interfaceHash = new byte[32];
+        Address[] targets = new Address[]{randomAddress(), randomAddress(), randomAddress()};
+        mirror.getInterfaceImplementer(targets[0], interfaceHash);
+        mirror.getInterfaceImplementer(targets[1], interfaceHash);
+        mirror.getInterfaceImplementer(targets[0], interfaceHash);
+        Assert.assertEquals(2, queries.get());
+
+        // targets[1] is the least recently used
+        mirror.getInterfaceImplementer(targets[2], interfaceHash);
+        mirror.getInterfaceImplementer(targets[0], interfaceHash);
+        Assert.assertEquals(3, queries.get());
+        mirror.getInterfaceImplementer(targets[1], interfaceHash);
+        Assert.assertEquals(4, queries.get());
+
+        // hashes that events cannot carry whole are not kept
+        mirror.getInterfaceImplementer(targets[0], new byte[33]);
+        mirror.getInterfaceImplementer(targets[0], new byte[33]);
+        Assert.assertEquals(6, queries.get());
+    }
+
+    /**
+     * Measures how fast the client encodes sends. It is a benchmark rather than a test, so it is skipped unless run with
+     * -Dats.client.bench=true, for example
+     * mvn test -Dtest=ATSClientTest#testEncodingThroughput -Dats.client.bench=true
+     */
+    @Test
+    public void testEncodingThroughput() {
+        Assume.assumeTrue(Boolean.getBoolean("ats.client.bench"));
+
+        Address[] recipients = new Address[1_024];
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = randomAddress();
+        }
+        byte[] senderData = new byte[16];
+        ByteBuffer target = ByteBuffer.allocate(256);
+
+        int calls = 2_000_000;
+        long checksum = 0;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                target.clear();
+                tokenClient.send(recipients[i & 1023], i, senderData).writeTo(target);
+                checksum += target.position();
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("encoded %d sends in %.1f ms, %.0f ns per call", calls, elapsed / 1e6, (double) elapsed / calls));
+        }
+        Assert.assertTrue(checksum > 0);
+    }
+
+    private static void assertInterfaceMatches(String contractPath, Class<?> contractInterface) throws IOException {
+        String source = new String(Files.readAllBytes(Paths.get(contractPath)), StandardCharsets.UTF_8);
+        List<String> callables = new ArrayList<>();
+        for (String[] signature : ClientGenerator.signatures(source)) {
+            callables.add(String.join(" ", signature));
+        }
+
+        List<String> declared = new ArrayList<>();
+        for (Method method : contractInterface.getDeclaredMethods()) {
+            StringBuilder signature = new StringBuilder(method.getReturnType().getSimpleName()).append(" ").append(method.getName());
+            for (Class<?> parameterType : method.getParameterTypes()) {
+                signature.append(" ").append(parameterType.getSimpleName());
+            }
+            declared.add(signature.toString());
+        }
+
+        Collections.sort(callables);
+        Collections.sort(declared);
+        Assert.assertEquals(contractInterface.getSimpleName() + " does not match the callables of " + contractPath, callables, declared);
+    }
+
+    private static void applyLogs(RegistryMirror mirror, SimulatedResult result) {
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        for (SimulatedLog log : result.getLogs()) {
+            mirror.apply(new EventLog(log.getAddress().unwrap(), log.getTopics().toArray(new byte[0][]), ByteBuffer.wrap(log.getData())));
+        }
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    private Address randomAddress() {
+        byte[] address = new byte[32];
+        random.nextBytes(address);
+        return new Address(address);
+    }
+}
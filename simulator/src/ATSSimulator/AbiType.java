@@ -0,0 +1,112 @@
+package ATSSimulator;
+
+import avm.Address;
+import org.aion.avm.userlib.abi.ABIDecoder;
+import org.aion.avm.userlib.abi.ABIEncoder;
+
+/**
+ * The parameter and return types a callable may use, each bound to its ABIDecoder and ABIEncoder method. Resolved
+ * once per method so that dispatching a call does not reflect on the argument types.
+ */
+enum AbiType {
+    BYTE(byte.class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneByte(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneByte((Byte) value); }
+    },
+    BOOLEAN(boolean.class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneBoolean(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneBoolean((Boolean) value); }
+    },
+    CHAR(char.class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneCharacter(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneCharacter((Character) value); }
+    },
+    SHORT(short.class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneShort(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneShort((Short) value); }
+    },
+    INT(int.class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneInteger(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneInteger((Integer) value); }
+    },
+    LONG(long.class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneLong(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneLong((Long) value); }
+    },
+    BYTE_ARRAY(byte[].class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneByteArray(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneByteArray((byte[]) value); }
+    },
+    INT_ARRAY(int[].class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneIntegerArray(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneIntegerArray((int[]) value); }
+    },
+    LONG_ARRAY(long[].class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneLongArray(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneLongArray((long[]) value); }
+    },
+    STRING(String.class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneString(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneString((String) value); }
+    },
+    ADDRESS(Address.class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneAddress(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneAddress((Address) value); }
+    },
+    BYTE_ARRAY_2D(byte[][].class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOne2DByteArray(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOne2DByteArray((byte[][]) value); }
+    },
+    STRING_ARRAY(String[].class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneStringArray(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneStringArray((String[]) value); }
+    },
+    ADDRESS_ARRAY(Address[].class) {
+        Object decode(ABIDecoder decoder) { return decoder.decodeOneAddressArray(); }
+        byte[] encode(Object value) { return ABIEncoder.encodeOneAddressArray((Address[]) value); }
+    };
+
+    private final Class<?> javaType;
+
+    AbiType(Class<?> javaType) {
+        this.javaType = javaType;
+    }
+
+    abstract Object decode(ABIDecoder decoder);
+
+    abstract byte[] encode(Object value);
+
+    static AbiType of(Class<?> javaType) {
+        for (AbiType type : values()) {
+            if (type.javaType == javaType) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("type not supported by the ABI: " + javaType.getName());
+    }
+
+    /**
+     * The type of a boxed argument passed to ContractSimulator.encodeCall.
+     */
+    static AbiType ofValue(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null arguments have no ABI type, encode them by hand");
+        }
+        Class<?> valueType = value.getClass();
+        for (AbiType type : values()) {
+            if (type.javaType == valueType || (type.javaType.isPrimitive() && boxed(type.javaType) == valueType)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("type not supported by the ABI: " + valueType.getName());
+    }
+
+    private static Class<?> boxed(Class<?> primitive) {
+        if (primitive == byte.class) return Byte.class;
+        if (primitive == boolean.class) return Boolean.class;
+        if (primitive == char.class) return Character.class;
+        if (primitive == short.class) return Short.class;
+        if (primitive == int.class) return Integer.class;
+        return Long.class;
+    }
+}
@@ -0,0 +1,61 @@
+package ATSSimulator;
+
+import avm.Address;
+import avm.Result;
+
+import java.math.BigInteger;
+
+/**
+ * The Blockchain surface seen by the contract executing in one call frame. The avm.Blockchain stand-in forwards
+ * every call to the runtime returned by ContractSimulator.currentRuntime().
+ */
+public interface BlockchainRuntime {
+
+    byte[] getData();
+
+    Address getAddress();
+
+    Address getCaller();
+
+    Address getOrigin();
+
+    BigInteger getValue();
+
+    long getBlockNumber();
+
+    long getBlockTimestamp();
+
+    long getEnergyLimit();
+
+    long getRemainingEnergy();
+
+    BigInteger getBalance(Address address);
+
+    Result call(Address targetAddress, BigInteger value, byte[] data, long energyLimit);
+
+    void putStorage(byte[] key, byte[] value);
+
+    byte[] getStorage(byte[] key);
+
+    void log(byte[][] topics, byte[] data);
+
+    byte[] sha256(byte[] data);
+
+    byte[] blake2b(byte[] data);
+
+    byte[] keccak256(byte[] data);
+
+    boolean edVerify(byte[] data, byte[] signature, byte[] publicKey);
+
+    /**
+     * Always throws; the frame fails with FAILED_REVERT.
+     */
+    void revert();
+
+    /**
+     * Always throws; the frame fails with FAILED_INVALID.
+     */
+    void invalid();
+
+    void print(String message);
+}
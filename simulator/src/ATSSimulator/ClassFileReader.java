@@ -0,0 +1,149 @@
+package ATSSimulator;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads the method annotations of a class file. @Callable is retained in the class file but not at run time, so
+ * reflection cannot see it; this reads the RuntimeVisibleAnnotations and RuntimeInvisibleAnnotations attributes of
+ * the methods instead. Only the parts of the format needed for that are decoded, the rest is skipped.
+ */
+final class ClassFileReader {
+    private static final int MAGIC = 0xcafebabe;
+
+    private ClassFileReader() {
+    }
+
+    /**
+     * @return name followed by descriptor, such as "send(Lavm/Address;[B[B)V", of every method in 'classFile'
+     * annotated with the annotation type 'annotationDescriptor', such as "Lorg/aion/avm/tooling/abi/Callable;"
+     */
+    static Set<String> findAnnotatedMethods(byte[] classFile, String annotationDescriptor) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("not a class file");
+            }
+            in.skipBytes(4); // minor and major version
+            String[] utf8 = readConstantPool(in);
+
+            in.skipBytes(6); // access flags, this class, super class
+            in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+            int fieldCount = in.readUnsignedShort();
+            for (int i = 0; i < fieldCount; i++) {
+                in.skipBytes(6); // access flags, name, descriptor
+                skipAttributes(in);
+            }
+
+            Set<String> methods = new HashSet<>();
+            int methodCount = in.readUnsignedShort();
+            for (int i = 0; i < methodCount; i++) {
+                in.skipBytes(2); // access flags
+                String name = utf8[in.readUnsignedShort()];
+                String descriptor = utf8[in.readUnsignedShort()];
+                int attributeCount = in.readUnsignedShort();
+                for (int j = 0; j < attributeCount; j++) {
+                    String attributeName = utf8[in.readUnsignedShort()];
+                    int length = in.readInt();
+                    if (attributeName.equals("RuntimeVisibleAnnotations") || attributeName.equals("RuntimeInvisibleAnnotations")) {
+                        int annotationCount = in.readUnsignedShort();
+                        for (int k = 0; k < annotationCount; k++) {
+                            if (utf8[in.readUnsignedShort()].equals(annotationDescriptor)) {
+                                methods.add(name + descriptor);
+                            }
+                            skipElementValuePairs(in);
+                        }
+                    } else {
+                        in.skipBytes(length);
+                    }
+                }
+            }
+            return methods;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("truncated class file", e);
+        }
+    }
+
+    /**
+     * @return the Utf8 constants by constant pool index, with null at the indices of every other constant
+     */
+    private static String[] readConstantPool(DataInputStream in) throws IOException {
+        String[] utf8 = new String[in.readUnsignedShort()];
+        for (int i = 1; i < utf8.length; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double, both take two entries
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown constant pool tag " + tag);
+            }
+        }
+        return utf8;
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            in.skipBytes(2); // name
+            in.skipBytes(in.readInt());
+        }
+    }
+
+    private static void skipElementValuePairs(DataInputStream in) throws IOException {
+        int pairCount = in.readUnsignedShort();
+        for (int i = 0; i < pairCount; i++) {
+            in.skipBytes(2); // element name
+            skipElementValue(in);
+        }
+    }
+
+    private static void skipElementValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'e': // enum constant: type and constant name
+                in.skipBytes(4);
+                break;
+            case '@':
+                in.skipBytes(2); // annotation type
+                skipElementValuePairs(in);
+                break;
+            case '[':
+                int valueCount = in.readUnsignedShort();
+                for (int i = 0; i < valueCount; i++) {
+                    skipElementValue(in);
+                }
+                break;
+            default: // a primitive, String or class constant
+                in.skipBytes(2);
+        }
+    }
+}
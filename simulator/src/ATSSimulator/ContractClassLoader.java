@@ -0,0 +1,92 @@
+package ATSSimulator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the classes of one deployed contract child-first, so that every deployment has its own static fields just
+ * like a dapp on the AVM. The JDK, the avm and userlib APIs and the simulator itself come from the parent loader and
+ * are shared.
+ */
+class ContractClassLoader extends ClassLoader {
+    private static final String[] SHARED_PREFIXES = {"java.", "javax.", "jdk.", "sun.", "avm.", "org.aion.", "ATSSimulator."};
+    private static final String CALLABLE_DESCRIPTOR = "Lorg/aion/avm/tooling/abi/Callable;";
+
+    private final List<Class<?>> definedClasses = new ArrayList<>();
+    private final List<Field> staticFields = new ArrayList<>();
+    private int classesWithFieldsListed;
+
+    ContractClassLoader(ClassLoader parent) {
+        super(parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        for (String prefix : SHARED_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return super.loadClass(name, resolve);
+            }
+        }
+
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) {
+                byte[] bytecode = readBytecode(name);
+                loaded = defineClass(name, bytecode, 0, bytecode.length);
+                definedClasses.add(loaded);
+            }
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * @return the static fields of the contract classes loaded so far that can change: every non-final field, and
+     * final fields holding an array or a collection. The fields are made accessible.
+     */
+    List<Field> getMutableStaticFields() {
+        while (classesWithFieldsListed < definedClasses.size()) {
+            for (Field field : definedClasses.get(classesWithFieldsListed).getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) && (!Modifier.isFinal(modifiers) || isMutableType(field.getType()))) {
+                    field.setAccessible(true);
+                    staticFields.add(field);
+                }
+            }
+            classesWithFieldsListed++;
+        }
+        return staticFields;
+    }
+
+    /**
+     * @return name followed by descriptor of every method of 'contractClass' that carries @Callable, read from its
+     * bytecode since the annotation is not retained at run time
+     */
+    Set<String> getCallableMethods(Class<?> contractClass) throws ClassNotFoundException {
+        return ClassFileReader.findAnnotatedMethods(readBytecode(contractClass.getName()), CALLABLE_DESCRIPTOR);
+    }
+
+    private static boolean isMutableType(Class<?> type) {
+        return type.isArray() || Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type);
+    }
+
+    private byte[] readBytecode(String name) throws ClassNotFoundException {
+        try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+            if (in == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+    }
+}
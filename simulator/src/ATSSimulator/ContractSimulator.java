@@ -0,0 +1,678 @@
+package ATSSimulator;
+
+import avm.Address;
+import avm.Result;
+import org.aion.avm.userlib.abi.ABIDecoder;
+import org.aion.avm.userlib.abi.ABIEncoder;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs AVM contracts directly on the JVM, for fast simulation of large transaction volumes.
+ *
+ * The contract classes are compiled against the real avm API but run against the stand-ins in the avm package of
+ * this source root, so put simulator/src on the classpath in place of the avm API jar. The userlib jar is still
+ * needed for AionMap, ABIDecoder and the like.
+ *
+ * What is simulated:
+ * - accounts with balances, and contract storage, journaled so that a failed call frame and everything it called
+ *   is rolled back, together with the static fields of the contracts involved (see StaticState)
+ * - one class loader per deployment, so each deployed contract has its own static fields
+ * - dispatch of transaction data to the contract's @Callable methods through ABIDecoder and ABIEncoder
+ * - cross-contract calls, logs, sha256, blake2b, keccak256 and ed25519 verification
+ * - an approximate energy model, see EnergyModel
+ *
+ * Not simulated: bytecode metering, contract creation from a contract, and the AVM's limits on object graph size. A
+ * simulator is not thread-safe; run one simulator per thread to use several cores.
+ */
+public class ContractSimulator {
+    private static final ThreadLocal<Frame> CURRENT_FRAME = new ThreadLocal<>();
+    private static final int MAX_CALL_DEPTH = 10;
+    private static final int STORAGE_KEY_LENGTH = 32;
+    private static final int TOPIC_LENGTH = 32;
+    private static final byte[] ED25519_KEY_PREFIX = {0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00};
+
+    private final EnergyModel energyModel;
+    private final Map<Address, Account> accounts = new HashMap<>();
+    private final List<Runnable> journal = new ArrayList<>();
+    private final List<SimulatedLog> logs = new ArrayList<>();
+    private final MessageDigest sha256;
+    private long addressCount;
+    private long blockNumber = 1;
+    private long blockTimestamp = 1_546_300_800L;
+    private boolean printEnabled;
+
+    public ContractSimulator() {
+        this(new EnergyModel());
+    }
+
+    public ContractSimulator(EnergyModel energyModel) {
+        this.energyModel = energyModel;
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the runtime of the call frame executing on this thread, used by the avm.Blockchain stand-in.
+     */
+    public static BlockchainRuntime currentRuntime() {
+        Frame frame = CURRENT_FRAME.get();
+        if (frame == null) {
+            throw new IllegalStateException("avm.Blockchain used outside of a simulated transaction");
+        }
+        return frame;
+    }
+
+    /**
+     * Creates a regular account holding the given balance.
+     */
+    public Address createAccount(BigInteger balance) {
+        Address address = newAddress();
+        accounts.put(address, new Account(balance));
+        return address;
+    }
+
+    public BigInteger getBalance(Address address) {
+        Account account = accounts.get(address);
+        return (account == null) ? BigInteger.ZERO : account.balance;
+    }
+
+    /**
+     * Writes 'value' under 'key' in the storage of 'contract' outside of any transaction and without charging
+     * energy, for setting up state written by an earlier version of a contract. A null value deletes the key.
+     */
+    public void putStorage(Address contract, byte[] key, byte[] value) {
+        ensureNotExecuting();
+        Map<StorageKey, byte[]> storage = contractAccount(contract).storage;
+        if (value == null) {
+            storage.remove(new StorageKey(key));
+        } else {
+            storage.put(new StorageKey(key), value.clone());
+        }
+    }
+
+    /**
+     * @return the value stored under 'key' in the storage of 'contract', or null if there is none
+     */
+    public byte[] getStorage(Address contract, byte[] key) {
+        byte[] value = contractAccount(contract).storage.get(new StorageKey(key));
+        return (value == null) ? null : value.clone();
+    }
+
+    private Account contractAccount(Address contract) {
+        Account account = accounts.get(contract);
+        if (account == null || account.deployment == null) {
+            throw new IllegalArgumentException("no contract at " + contract);
+        }
+        return account;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public long getBlockTimestamp() {
+        return blockTimestamp;
+    }
+
+    /**
+     * Moves the chain forward by 'count' blocks, 'secondsPerBlock' apart.
+     */
+    public void nextBlocks(long count, long secondsPerBlock) {
+        if (count < 0 || secondsPerBlock < 0) {
+            throw new IllegalArgumentException();
+        }
+        blockNumber += count;
+        blockTimestamp += count * secondsPerBlock;
+    }
+
+    /**
+     * Whether Blockchain.print and println write to System.out. Off by default, so that debug output does not
+     * dominate long simulations.
+     */
+    public void setPrintEnabled(boolean printEnabled) {
+        this.printEnabled = printEnabled;
+    }
+
+    /**
+     * Deploys the contract whose main class is 'contractClass' and runs its static initializer with
+     * 'deploymentArguments' as the transaction data.
+     */
+    public SimulatedResult deploy(Address deployer, Class<?> contractClass, byte[] deploymentArguments, long energyLimit) {
+        byte[] data = (deploymentArguments == null) ? new byte[0] : deploymentArguments;
+        Address dappAddress = newAddress();
+        Frame frame = new Frame(null, deployer, deployer, dappAddress, BigInteger.ZERO, data, energyLimit);
+
+        ensureNotExecuting();
+        Frame previous = CURRENT_FRAME.get();
+        try {
+            frame.charge(energyModel.deploymentBase + energyModel.dataCost(data));
+
+            Account account = new Account(BigInteger.ZERO);
+            accounts.put(dappAddress, account);
+            journal.add(() -> accounts.remove(dappAddress));
+
+            ContractClassLoader loader = new ContractClassLoader(contractClass.getClassLoader());
+            CURRENT_FRAME.set(frame);
+            try {
+                Class<?> mainClass = Class.forName(contractClass.getName(), true, loader);
+                account.deployment = new Deployment(loader, mainClass);
+            } catch (ExceptionInInitializerError e) {
+                throw rethrow(e.getCause());
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException(e);
+            }
+            return new SimulatedResult(SimulatedResult.Code.SUCCESS, null, frame.energyUsed, new ArrayList<>(logs), dappAddress, null);
+        } catch (RuntimeException | Error e) {
+            rollback(0);
+            return failure(e, frame);
+        } finally {
+            CURRENT_FRAME.set(previous);
+            journal.clear();
+            logs.clear();
+        }
+    }
+
+    /**
+     * Sends a transaction from 'caller' to 'target', transferring 'value' and calling the contract there with 'data'
+     * if it is one.
+     */
+    public SimulatedResult call(Address caller, Address target, BigInteger value, byte[] data, long energyLimit) {
+        if (getBalance(caller).compareTo(value) < 0) {
+            throw new IllegalArgumentException("the caller cannot pay the transferred value");
+        }
+        Frame frame = new Frame(null, caller, caller, target, value, data, energyLimit);
+
+        ensureNotExecuting();
+        try {
+            frame.charge(energyModel.transactionBase + energyModel.dataCost(data));
+            byte[] returnData = execute(frame);
+            return new SimulatedResult(SimulatedResult.Code.SUCCESS, returnData, frame.energyUsed, new ArrayList<>(logs), null, null);
+        } catch (RuntimeException | Error e) {
+            return failure(e, frame);
+        } finally {
+            journal.clear();
+            logs.clear();
+        }
+    }
+
+    /**
+     * Encodes a call to 'methodName' the way ABIUtil.encodeMethodArguments does. Arguments are encoded by their
+     * runtime type, so null arguments are not accepted.
+     */
+    public static byte[] encodeCall(String methodName, Object... arguments) {
+        byte[][] encoded = new byte[arguments.length + 1][];
+        encoded[0] = ABIEncoder.encodeOneString(methodName);
+        for (int i = 0; i < arguments.length; i++) {
+            encoded[i + 1] = AbiType.ofValue(arguments[i]).encode(arguments[i]);
+        }
+        return concatenate(encoded);
+    }
+
+    /**
+     * Encodes deployment arguments the way ABIUtil.encodeDeploymentArguments does.
+     */
+    public static byte[] encodeDeploymentArguments(Object... arguments) {
+        byte[][] encoded = new byte[arguments.length][];
+        for (int i = 0; i < arguments.length; i++) {
+            encoded[i] = AbiType.ofValue(arguments[i]).encode(arguments[i]);
+        }
+        return concatenate(encoded);
+    }
+
+    /**
+     * Executes one call frame: moves the value, then runs the contract at the frame's address, if there is one. On
+     * failure the storage, balances, logs and static fields touched by the frame, including those of the contracts it
+     * called, are put back before rethrowing.
+     */
+    private byte[] execute(Frame frame) {
+        int journalMark = journal.size();
+        int logMark = logs.size();
+        Account target = accounts.get(frame.address);
+        boolean isContract = target != null && target.deployment != null;
+        if (isContract) {
+            // journaled first, so that rolling back any enclosing frame puts the statics back as well
+            StaticState staticState = StaticState.capture(target.deployment.loader);
+            journal.add(staticState::restore);
+        }
+
+        Frame previous = CURRENT_FRAME.get();
+        CURRENT_FRAME.set(frame);
+        try {
+            transfer(frame.caller, frame.address, frame.value);
+            if (!isContract) {
+                return new byte[0];
+            }
+            frame.charge(energyModel.callableBase);
+            return target.deployment.invoke(frame.data);
+        } catch (RuntimeException | Error e) {
+            rollback(journalMark);
+            logs.subList(logMark, logs.size()).clear();
+            throw e;
+        } finally {
+            CURRENT_FRAME.set(previous);
+        }
+    }
+
+    private void transfer(Address from, Address to, BigInteger value) {
+        if (value.signum() < 0) {
+            throw new IllegalArgumentException("negative value");
+        }
+        if (!accounts.containsKey(to)) {
+            accounts.put(to, new Account(BigInteger.ZERO));
+            journal.add(() -> accounts.remove(to));
+        }
+        if (value.signum() == 0) {
+            return;
+        }
+        Account sender = accounts.get(from);
+        Account recipient = accounts.get(to);
+        if (sender == null || sender.balance.compareTo(value) < 0) {
+            throw new RevertException();
+        }
+        BigInteger senderBalance = sender.balance;
+        BigInteger recipientBalance = recipient.balance;
+        sender.balance = senderBalance.subtract(value);
+        recipient.balance = recipient.balance.add(value);
+        journal.add(() -> {
+            sender.balance = senderBalance;
+            recipient.balance = recipientBalance;
+        });
+    }
+
+    private void rollback(int journalMark) {
+        for (int i = journal.size() - 1; i >= journalMark; i--) {
+            journal.get(i).run();
+        }
+        journal.subList(journalMark, journal.size()).clear();
+    }
+
+    private SimulatedResult failure(Throwable e, Frame frame) {
+        SimulatedResult.Code code;
+        if (e instanceof RevertException) {
+            code = SimulatedResult.Code.FAILED_REVERT;
+        } else if (e instanceof InvalidException) {
+            code = SimulatedResult.Code.FAILED_INVALID;
+        } else if (e instanceof OutOfEnergyException) {
+            code = SimulatedResult.Code.FAILED_OUT_OF_ENERGY;
+        } else {
+            code = SimulatedResult.Code.FAILED_EXCEPTION;
+        }
+        // like the AVM, a failed transaction that was not reverted consumes its whole energy limit
+        long energyUsed = (code == SimulatedResult.Code.FAILED_REVERT) ? frame.energyUsed : frame.energyLimit;
+        return new SimulatedResult(code, null, energyUsed, new ArrayList<>(), null, (code == SimulatedResult.Code.FAILED_EXCEPTION) ? e : null);
+    }
+
+    private void ensureNotExecuting() {
+        if (CURRENT_FRAME.get() != null) {
+            throw new IllegalStateException("a contract cannot start a transaction, use Blockchain.call");
+        }
+    }
+
+    private Address newAddress() {
+        byte[] raw = sha256.digest(ByteBuffer.allocate(Long.BYTES).putLong(addressCount++).array());
+        raw[0] = (byte) 0xa0;
+        return new Address(raw);
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private static byte[] concatenate(byte[][] parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+    /**
+     * The runtime of one call frame, which is what avm.Blockchain talks to while the frame's contract executes.
+     */
+    private class Frame implements BlockchainRuntime {
+        private final Address origin;
+        private final Address caller;
+        private final Address address;
+        private final BigInteger value;
+        private final byte[] data;
+        private final long energyLimit;
+        private final int depth;
+        private long energyUsed;
+
+        private Frame(Frame parent, Address origin, Address caller, Address address, BigInteger value, byte[] data, long energyLimit) {
+            this.origin = origin;
+            this.caller = caller;
+            this.address = address;
+            this.value = value;
+            this.data = data;
+            this.energyLimit = energyLimit;
+            this.depth = (parent == null) ? 0 : parent.depth + 1;
+        }
+
+        private void charge(long energy) {
+            energyUsed += energy;
+            if (energyUsed > energyLimit) {
+                energyUsed = energyLimit;
+                throw new OutOfEnergyException();
+            }
+        }
+
+        @Override
+        public byte[] getData() {
+            return data.clone();
+        }
+
+        @Override
+        public Address getAddress() {
+            return address;
+        }
+
+        @Override
+        public Address getCaller() {
+            return caller;
+        }
+
+        @Override
+        public Address getOrigin() {
+            return origin;
+        }
+
+        @Override
+        public BigInteger getValue() {
+            return value;
+        }
+
+        @Override
+        public long getBlockNumber() {
+            return blockNumber;
+        }
+
+        @Override
+        public long getBlockTimestamp() {
+            return blockTimestamp;
+        }
+
+        @Override
+        public long getEnergyLimit() {
+            return energyLimit;
+        }
+
+        @Override
+        public long getRemainingEnergy() {
+            return energyLimit - energyUsed;
+        }
+
+        @Override
+        public BigInteger getBalance(Address address) {
+            return ContractSimulator.this.getBalance(address);
+        }
+
+        @Override
+        public Result call(Address targetAddress, BigInteger value, byte[] data, long energyLimit) {
+            if (targetAddress == null || value == null || data == null || energyLimit < 0) {
+                throw new NullPointerException();
+            }
+            charge(energyModel.callBase);
+            if (depth + 1 >= MAX_CALL_DEPTH) {
+                return new Result(false, null);
+            }
+
+            Frame child = new Frame(this, origin, address, targetAddress, value, data, Math.min(energyLimit, getRemainingEnergy()));
+            try {
+                return new Result(true, execute(child));
+            } catch (RuntimeException | Error e) {
+                return new Result(false, null);
+            } finally {
+                charge(child.energyUsed);
+            }
+        }
+
+        @Override
+        public void putStorage(byte[] key, byte[] value) {
+            StorageKey storageKey = new StorageKey(key);
+            charge((value == null) ? energyModel.storageDelete : energyModel.storageWriteBase + energyModel.storageWritePerByte * value.length);
+
+            Map<StorageKey, byte[]> storage = accounts.get(address).storage;
+            byte[] previous = (value == null) ? storage.remove(storageKey) : storage.put(storageKey, value.clone());
+            journal.add(() -> {
+                if (previous == null) {
+                    storage.remove(storageKey);
+                } else {
+                    storage.put(storageKey, previous);
+                }
+            });
+        }
+
+        @Override
+        public byte[] getStorage(byte[] key) {
+            byte[] value = accounts.get(address).storage.get(new StorageKey(key));
+            charge(energyModel.storageReadBase + ((value == null) ? 0 : energyModel.storageReadPerByte * value.length));
+            return (value == null) ? null : value.clone();
+        }
+
+        @Override
+        public void log(byte[][] topics, byte[] data) {
+            List<byte[]> paddedTopics = new ArrayList<>(topics.length);
+            for (byte[] topic : topics) {
+                paddedTopics.add(Arrays.copyOf(topic, TOPIC_LENGTH));
+            }
+            charge(energyModel.logBase + energyModel.logPerTopic * topics.length + energyModel.logPerByte * data.length);
+            logs.add(new SimulatedLog(address, paddedTopics, data.clone()));
+        }
+
+        @Override
+        public byte[] sha256(byte[] data) {
+            charge(energyModel.hashBase + energyModel.hashPerByte * data.length);
+            return sha256.digest(data);
+        }
+
+        @Override
+        public byte[] blake2b(byte[] data) {
+            charge(energyModel.hashBase + energyModel.hashPerByte * data.length);
+            return HashFunctions.blake2b(data);
+        }
+
+        @Override
+        public byte[] keccak256(byte[] data) {
+            charge(energyModel.hashBase + energyModel.hashPerByte * data.length);
+            return HashFunctions.keccak256(data);
+        }
+
+        @Override
+        public boolean edVerify(byte[] data, byte[] signature, byte[] publicKey) {
+            charge(energyModel.edVerify);
+            if (publicKey.length != 32) {
+                return false;
+            }
+            try {
+                byte[] encodedKey = Arrays.copyOf(ED25519_KEY_PREFIX, ED25519_KEY_PREFIX.length + publicKey.length);
+                System.arraycopy(publicKey, 0, encodedKey, ED25519_KEY_PREFIX.length, publicKey.length);
+                PublicKey key = KeyFactory.getInstance("Ed25519").generatePublic(new X509EncodedKeySpec(encodedKey));
+
+                Signature verifier = Signature.getInstance("Ed25519");
+                verifier.initVerify(key);
+                verifier.update(data);
+                return verifier.verify(signature);
+            } catch (GeneralSecurityException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void revert() {
+            throw new RevertException();
+        }
+
+        @Override
+        public void invalid() {
+            throw new InvalidException();
+        }
+
+        @Override
+        public void print(String message) {
+            if (printEnabled) {
+                System.out.print(message);
+            }
+        }
+    }
+
+    private static class Account {
+        private BigInteger balance;
+        private final Map<StorageKey, byte[]> storage = new HashMap<>();
+        private Deployment deployment; // null for regular accounts
+
+        private Account(BigInteger balance) {
+            this.balance = balance;
+        }
+    }
+
+    /**
+     * A deployed contract: its class loader and the callables of its main class.
+     *
+     * Like the AVM, only the methods of the main class annotated with @Callable can be called, and they must be public
+     * and static. The ABI does not allow overloading, so neither does the simulator.
+     */
+    private static class Deployment {
+        private final ContractClassLoader loader;
+        private final Map<String, CallableMethod> callables = new HashMap<>();
+
+        private Deployment(ContractClassLoader loader, Class<?> mainClass) throws ClassNotFoundException {
+            this.loader = loader;
+            Set<String> callableMethods = loader.getCallableMethods(mainClass);
+            for (Method method : mainClass.getDeclaredMethods()) {
+                String descriptor = MethodType.methodType(method.getReturnType(), method.getParameterTypes()).toMethodDescriptorString();
+                if (!callableMethods.contains(method.getName() + descriptor)) {
+                    continue;
+                }
+                int modifiers = method.getModifiers();
+                if (!Modifier.isPublic(modifiers) || !Modifier.isStatic(modifiers)) {
+                    throw new IllegalArgumentException("callable is not public static: " + method.getName());
+                }
+                if (callables.put(method.getName(), new CallableMethod(method)) != null) {
+                    throw new IllegalArgumentException("overloaded callable: " + method.getName());
+                }
+            }
+        }
+
+        private byte[] invoke(byte[] data) {
+            if (data.length == 0) {
+                return new byte[0]; // a plain value transfer
+            }
+            ABIDecoder decoder = new ABIDecoder(data);
+            CallableMethod callable = callables.get(decoder.decodeMethodName());
+            if (callable == null) {
+                throw new RevertException();
+            }
+
+            Object[] arguments = new Object[callable.parameterTypes.length];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = callable.parameterTypes[i].decode(decoder);
+            }
+            try {
+                Object returned = callable.method.invoke(null, arguments);
+                return (callable.returnType == null) ? new byte[0] : callable.returnType.encode(returned);
+            } catch (InvocationTargetException e) {
+                throw rethrow(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class CallableMethod {
+        private final Method method;
+        private final AbiType[] parameterTypes;
+        private final AbiType returnType; // null for void
+
+        private CallableMethod(Method method) {
+            this.method = method;
+            Class<?>[] parameters = method.getParameterTypes();
+            this.parameterTypes = new AbiType[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                this.parameterTypes[i] = AbiType.of(parameters[i]);
+            }
+            this.returnType = (method.getReturnType() == void.class) ? null : AbiType.of(method.getReturnType());
+        }
+    }
+
+    private static class StorageKey {
+        private final byte[] key;
+        private final int hash;
+
+        private StorageKey(byte[] key) {
+            if (key.length != STORAGE_KEY_LENGTH) {
+                throw new IllegalArgumentException("storage keys are 32 bytes");
+            }
+            this.key = key.clone();
+            this.hash = Arrays.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof StorageKey && Arrays.equals(key, ((StorageKey) obj).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Thrown by Blockchain.revert and a failed Blockchain.require. Carries no stack trace, as it is control flow.
+     */
+    @SuppressWarnings("serial")
+    private static class RevertException extends RuntimeException {
+        private RevertException() {
+            super(null, null, false, false);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class InvalidException extends RuntimeException {
+        private InvalidException() {
+            super(null, null, false, false);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class OutOfEnergyException extends RuntimeException {
+        private OutOfEnergyException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ATSSimulator;
+
+/**
+ * Approximate energy charges used by the ContractSimulator.
+ *
+ * The simulator does not instrument bytecode, so only the blockchain API calls are metered and every call frame is
+ * charged a flat callableBase in place of its execution cost. The figures are in the range of the AVM fee schedule
+ * but are not taken from it; calibrate them against AvmRule energy results before relying on absolute numbers.
+ * Relative comparisons (more storage writes, more logs, more cross-contract calls) are what the model is for.
+ */
+public class EnergyModel {
+    public long transactionBase = 21_000;
+    public long deploymentBase = 200_000;
+    public long dataZeroByte = 4;
+    public long dataNonZeroByte = 64;
+
+    public long callableBase = 5_000;
+    public long callBase = 700;
+
+    public long storageReadBase = 5_000;
+    public long storageReadPerByte = 5;
+    public long storageWriteBase = 20_000;
+    public long storageWritePerByte = 25;
+    public long storageDelete = 5_000;
+
+    public long logBase = 1_000;
+    public long logPerTopic = 500;
+    public long logPerByte = 10;
+
+    public long hashBase = 300;
+    public long hashPerByte = 2;
+    public long edVerify = 3_000;
+
+    /**
+     * Energy charged for the transaction data, before anything executes.
+     */
+    public long dataCost(byte[] data) {
+        long cost = 0;
+        for (byte b : data) {
+            cost += (b == 0) ? dataZeroByte : dataNonZeroByte;
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,177 @@
+package ATSSimulator;
+
+/**
+ * The hash functions of the Blockchain API that the JDK does not provide: keccak256, the Keccak sponge with the
+ * original 0x01 padding rather than the 0x06 padding of SHA3-256, and blake2b, BLAKE2b with a 32-byte digest as
+ * specified in RFC 7693.
+ */
+final class HashFunctions {
+    private static final int KECCAK_RATE = 136; // 1600 bits of state minus a 512-bit capacity, in bytes
+    private static final long[] KECCAK_ROUND_CONSTANTS = {
+            0x0000000000000001L, 0x0000000000008082L, 0x800000000000808aL, 0x8000000080008000L,
+            0x000000000000808bL, 0x0000000080000001L, 0x8000000080008081L, 0x8000000000008009L,
+            0x000000000000008aL, 0x0000000000000088L, 0x0000000080008009L, 0x000000008000000aL,
+            0x000000008000808bL, 0x800000000000008bL, 0x8000000000008089L, 0x8000000000008003L,
+            0x8000000000008002L, 0x8000000000000080L, 0x000000000000800aL, 0x800000008000000aL,
+            0x8000000080008081L, 0x8000000000008080L, 0x0000000080000001L, 0x8000000080008008L,
+    };
+    // rotation of the lane at x + 5 * y
+    private static final int[] KECCAK_ROTATIONS = {
+            0, 1, 62, 28, 27,
+            36, 44, 6, 55, 20,
+            3, 10, 43, 25, 39,
+            41, 45, 15, 21, 8,
+            18, 2, 61, 56, 14,
+    };
+
+    private static final int BLAKE2B_BLOCK = 128;
+    private static final int BLAKE2B_DIGEST = 32;
+    private static final long[] BLAKE2B_IV = {
+            0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L,
+            0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L,
+    };
+    private static final byte[][] BLAKE2B_SIGMA = {
+            {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15},
+            {14, 10, 4, 8, 9, 15, 13, 6, 1, 12, 0, 2, 11, 7, 5, 3},
+            {11, 8, 12, 0, 5, 2, 15, 13, 10, 14, 3, 6, 7, 1, 9, 4},
+            {7, 9, 3, 1, 13, 12, 11, 14, 2, 6, 5, 10, 4, 0, 15, 8},
+            {9, 0, 5, 7, 2, 4, 10, 15, 14, 1, 11, 12, 6, 8, 3, 13},
+            {2, 12, 6, 10, 0, 11, 8, 3, 4, 13, 7, 5, 15, 14, 1, 9},
+            {12, 5, 1, 15, 14, 13, 4, 10, 0, 7, 6, 3, 9, 2, 8, 11},
+            {13, 11, 7, 14, 12, 1, 3, 9, 5, 0, 15, 4, 8, 6, 2, 10},
+            {6, 15, 14, 9, 11, 3, 0, 8, 12, 2, 13, 7, 1, 4, 10, 5},
+            {10, 2, 8, 4, 7, 6, 1, 5, 15, 11, 9, 14, 3, 12, 13, 0},
+    };
+
+    private HashFunctions() {
+    }
+
+    static byte[] keccak256(byte[] data) {
+        long[] state = new long[25];
+        int offset = 0;
+        for (; data.length - offset >= KECCAK_RATE; offset += KECCAK_RATE) {
+            keccakAbsorb(state, data, offset);
+        }
+
+        byte[] last = new byte[KECCAK_RATE];
+        System.arraycopy(data, offset, last, 0, data.length - offset);
+        last[data.length - offset] ^= 0x01;
+        last[KECCAK_RATE - 1] ^= (byte) 0x80;
+        keccakAbsorb(state, last, 0);
+
+        byte[] digest = new byte[32];
+        for (int i = 0; i < digest.length; i++) {
+            digest[i] = (byte) (state[i / 8] >>> (8 * (i % 8)));
+        }
+        return digest;
+    }
+
+    private static void keccakAbsorb(long[] state, byte[] block, int offset) {
+        for (int i = 0; i < KECCAK_RATE / 8; i++) {
+            state[i] ^= readLongLittleEndian(block, offset + 8 * i);
+        }
+        keccakPermute(state);
+    }
+
+    private static void keccakPermute(long[] a) {
+        long[] c = new long[5];
+        long[] b = new long[25];
+        for (long roundConstant : KECCAK_ROUND_CONSTANTS) {
+            // theta
+            for (int x = 0; x < 5; x++) {
+                c[x] = a[x] ^ a[x + 5] ^ a[x + 10] ^ a[x + 15] ^ a[x + 20];
+            }
+            for (int x = 0; x < 5; x++) {
+                long d = c[(x + 4) % 5] ^ Long.rotateLeft(c[(x + 1) % 5], 1);
+                for (int y = 0; y < 25; y += 5) {
+                    a[x + y] ^= d;
+                }
+            }
+            // rho and pi
+            for (int x = 0; x < 5; x++) {
+                for (int y = 0; y < 5; y++) {
+                    b[y + 5 * ((2 * x + 3 * y) % 5)] = Long.rotateLeft(a[x + 5 * y], KECCAK_ROTATIONS[x + 5 * y]);
+                }
+            }
+            // chi
+            for (int y = 0; y < 25; y += 5) {
+                for (int x = 0; x < 5; x++) {
+                    a[x + y] = b[x + y] ^ (~b[(x + 1) % 5 + y] & b[(x + 2) % 5 + y]);
+                }
+            }
+            // iota
+            a[0] ^= roundConstant;
+        }
+    }
+
+    static byte[] blake2b(byte[] data) {
+        long[] h = BLAKE2B_IV.clone();
+        h[0] ^= 0x01010000L | BLAKE2B_DIGEST; // no key, digest length in bytes
+
+        int offset = 0;
+        for (; data.length - offset > BLAKE2B_BLOCK; offset += BLAKE2B_BLOCK) {
+            blake2bCompress(h, data, offset, offset + BLAKE2B_BLOCK, false);
+        }
+        byte[] last = new byte[BLAKE2B_BLOCK];
+        System.arraycopy(data, offset, last, 0, data.length - offset);
+        blake2bCompress(h, last, 0, data.length, true);
+
+        byte[] digest = new byte[BLAKE2B_DIGEST];
+        for (int i = 0; i < digest.length; i++) {
+            digest[i] = (byte) (h[i / 8] >>> (8 * (i % 8)));
+        }
+        return digest;
+    }
+
+    /**
+     * @param byteCount number of message bytes compressed so far, including this block; messages here are shorter
+     *                  than 2^63 bytes, so the high word of the counter is always zero
+     */
+    private static void blake2bCompress(long[] h, byte[] block, int offset, long byteCount, boolean isLast) {
+        long[] m = new long[16];
+        for (int i = 0; i < 16; i++) {
+            m[i] = readLongLittleEndian(block, offset + 8 * i);
+        }
+        long[] v = new long[16];
+        System.arraycopy(h, 0, v, 0, 8);
+        System.arraycopy(BLAKE2B_IV, 0, v, 8, 8);
+        v[12] ^= byteCount;
+        if (isLast) {
+            v[14] = ~v[14];
+        }
+
+        for (int round = 0; round < 12; round++) {
+            byte[] s = BLAKE2B_SIGMA[round % 10];
+            blake2bMix(v, 0, 4, 8, 12, m[s[0]], m[s[1]]);
+            blake2bMix(v, 1, 5, 9, 13, m[s[2]], m[s[3]]);
+            blake2bMix(v, 2, 6, 10, 14, m[s[4]], m[s[5]]);
+            blake2bMix(v, 3, 7, 11, 15, m[s[6]], m[s[7]]);
+            blake2bMix(v, 0, 5, 10, 15, m[s[8]], m[s[9]]);
+            blake2bMix(v, 1, 6, 11, 12, m[s[10]], m[s[11]]);
+            blake2bMix(v, 2, 7, 8, 13, m[s[12]], m[s[13]]);
+            blake2bMix(v, 3, 4, 9, 14, m[s[14]], m[s[15]]);
+        }
+        for (int i = 0; i < 8; i++) {
+            h[i] ^= v[i] ^ v[i + 8];
+        }
+    }
+
+    private static void blake2bMix(long[] v, int a, int b, int c, int d, long x, long y) {
+        v[a] = v[a] + v[b] + x;
+        v[d] = Long.rotateRight(v[d] ^ v[a], 32);
+        v[c] = v[c] + v[d];
+        v[b] = Long.rotateRight(v[b] ^ v[c], 24);
+        v[a] = v[a] + v[b] + y;
+        v[d] = Long.rotateRight(v[d] ^ v[a], 16);
+        v[c] = v[c] + v[d];
+        v[b] = Long.rotateRight(v[b] ^ v[c], 63);
+    }
+
+    private static long readLongLittleEndian(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+}
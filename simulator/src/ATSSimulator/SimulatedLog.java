@@ -0,0 +1,32 @@
+package ATSSimulator;
+
+import avm.Address;
+
+import java.util.List;
+
+/**
+ * A log emitted by a simulated contract. Like the AVM, topics are right-padded or truncated to 32 bytes.
+ */
+public class SimulatedLog {
+    private final Address address;
+    private final List<byte[]> topics;
+    private final byte[] data;
+
+    SimulatedLog(Address address, List<byte[]> topics, byte[] data) {
+        this.address = address;
+        this.topics = topics;
+        this.data = data;
+    }
+
+    public Address getAddress() {
+        return address;
+    }
+
+    public List<byte[]> getTopics() {
+        return topics;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
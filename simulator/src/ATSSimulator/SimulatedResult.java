@@ -0,0 +1,69 @@
+package ATSSimulator;
+
+import avm.Address;
+
+import java.util.List;
+
+/**
+ * The outcome of a simulated deployment or transaction. Logs are only kept for successful transactions.
+ */
+public class SimulatedResult {
+
+    public enum Code {
+        SUCCESS,
+        FAILED_REVERT,
+        FAILED_INVALID,
+        FAILED_OUT_OF_ENERGY,
+        FAILED_EXCEPTION
+    }
+
+    private final Code resultCode;
+    private final byte[] returnData;
+    private final long energyUsed;
+    private final List<SimulatedLog> logs;
+    private final Address dappAddress;
+    private final Throwable exception;
+
+    SimulatedResult(Code resultCode, byte[] returnData, long energyUsed, List<SimulatedLog> logs, Address dappAddress, Throwable exception) {
+        this.resultCode = resultCode;
+        this.returnData = returnData;
+        this.energyUsed = energyUsed;
+        this.logs = logs;
+        this.dappAddress = dappAddress;
+        this.exception = exception;
+    }
+
+    public Code getResultCode() {
+        return resultCode;
+    }
+
+    public boolean isSuccess() {
+        return resultCode == Code.SUCCESS;
+    }
+
+    public byte[] getReturnData() {
+        return returnData;
+    }
+
+    public long getEnergyUsed() {
+        return energyUsed;
+    }
+
+    public List<SimulatedLog> getLogs() {
+        return logs;
+    }
+
+    /**
+     * @return the address of the deployed contract, or null if this is not a successful deployment.
+     */
+    public Address getDappAddress() {
+        return dappAddress;
+    }
+
+    /**
+     * @return the exception thrown by the contract for FAILED_EXCEPTION, null otherwise.
+     */
+    public Throwable getException() {
+        return exception;
+    }
+}
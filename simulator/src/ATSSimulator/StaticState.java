@@ -0,0 +1,160 @@
+package ATSSimulator;
+
+import org.aion.avm.userlib.AionList;
+import org.aion.avm.userlib.AionMap;
+import org.aion.avm.userlib.AionSet;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A copy of the static fields of a deployed contract, taken when a call frame starts so that a failed frame can put
+ * them back, as the AVM does when it discards a reverted call's object graph.
+ *
+ * Arrays and userlib collections are copied deeply. Objects of the contract's own classes, such as the entries of its
+ * maps, may be changed in place, so they are kept rather than copied, and the values of their fields are copied the
+ * same way and put back into them on restore; objects reachable along several paths stay shared. Any other object is
+ * assumed to be immutable (String, BigInteger and Address are), and is shared between the copy and the live state.
+ */
+class StaticState {
+    private final ContractClassLoader loader;
+    private final List<Field> fields = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+    private final Map<Object, List<Object>> objectFieldValues = new IdentityHashMap<>(); // <contract object, the values of its fields>
+
+    private StaticState(ContractClassLoader loader) {
+        this.loader = loader;
+    }
+
+    static StaticState capture(ContractClassLoader loader) {
+        StaticState state = new StaticState(loader);
+        List<Field> fields = loader.getMutableStaticFields();
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            try {
+                state.fields.add(field);
+                state.values.add(state.copy(field.get(null)));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return state;
+    }
+
+    void restore() {
+        for (int i = 0; i < fields.size(); i++) {
+            restoreField(fields.get(i), null, values.get(i));
+        }
+        for (Map.Entry<Object, List<Object>> entry : objectFieldValues.entrySet()) {
+            List<Field> objectFields = instanceFields(entry.getKey().getClass());
+            for (int i = 0; i < objectFields.size(); i++) {
+                restoreField(objectFields.get(i), entry.getKey(), entry.getValue().get(i));
+            }
+        }
+    }
+
+    private static void restoreField(Field field, Object object, Object saved) {
+        try {
+            if (!Modifier.isFinal(field.getModifiers())) {
+                field.set(object, saved);
+            } else {
+                restoreInPlace(field.get(object), saved);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void restoreInPlace(Object live, Object saved) {
+        if (live instanceof Map) {
+            ((Map<Object, Object>) live).clear();
+            ((Map<Object, Object>) live).putAll((Map<Object, Object>) saved);
+        } else if (live instanceof Collection) {
+            ((Collection<Object>) live).clear();
+            ((Collection<Object>) live).addAll((Collection<Object>) saved);
+        } else if (live != null && live.getClass().isArray()) {
+            System.arraycopy(saved, 0, live, 0, Array.getLength(live));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object copy(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.getClass().getClassLoader() == loader) {
+            captureFields(value);
+            return value;
+        }
+        if (value instanceof AionMap) {
+            AionMap<Object, Object> copy = new AionMap<>();
+            for (Map.Entry<Object, Object> entry : ((AionMap<Object, Object>) value).entrySet()) {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return copy;
+        }
+        if (value instanceof AionList) {
+            AionList<Object> copy = new AionList<>();
+            for (Object element : (AionList<Object>) value) {
+                copy.add(copy(element));
+            }
+            return copy;
+        }
+        if (value instanceof AionSet) {
+            AionSet<Object> copy = new AionSet<>();
+            copy.addAll((AionSet<Object>) value);
+            return copy;
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            if (value.getClass().getComponentType().isPrimitive()) {
+                System.arraycopy(value, 0, copy, 0, length);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    Array.set(copy, i, copy(Array.get(value, i)));
+                }
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    private void captureFields(Object object) {
+        if (objectFieldValues.containsKey(object)) {
+            return;
+        }
+        List<Object> saved = new ArrayList<>();
+        objectFieldValues.put(object, saved); // before the fields, which may lead back to the object
+        try {
+            for (Field field : instanceFields(object.getClass())) {
+                saved.add(copy(field.get(object)));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the instance fields of a contract class and of its contract superclasses, made accessible
+     */
+    private List<Field> instanceFields(Class<?> type) {
+        List<Field> instanceFields = new ArrayList<>();
+        for (Class<?> c = type; c != null && c.getClassLoader() == loader; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    instanceFields.add(field);
+                }
+            }
+        }
+        return instanceFields;
+    }
+}
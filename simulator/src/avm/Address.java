@@ -0,0 +1,45 @@
+package avm;
+
+import java.util.Arrays;
+
+/**
+ * Simulator stand-in for the AVM's avm.Address: a 32-byte account address compared by value.
+ */
+public final class Address {
+    public static final int LENGTH = 32;
+
+    private final byte[] raw;
+
+    public Address(byte[] raw) {
+        if (raw == null) {
+            throw new NullPointerException();
+        }
+        if (raw.length != LENGTH) {
+            throw new IllegalArgumentException();
+        }
+        this.raw = raw.clone();
+    }
+
+    public byte[] unwrap() {
+        return raw.clone();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Address && Arrays.equals(raw, ((Address) obj).raw);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(raw);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder hex = new StringBuilder(LENGTH * 2);
+        for (byte b : raw) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
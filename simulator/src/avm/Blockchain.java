@@ -0,0 +1,129 @@
+package avm;
+
+import ATSSimulator.ContractSimulator;
+
+import java.math.BigInteger;
+
+/**
+ * Simulator stand-in for the AVM's avm.Blockchain. Every method forwards to the runtime of the transaction the
+ * ContractSimulator is executing on the current thread, so contracts compiled against the real API run unchanged.
+ */
+public final class Blockchain {
+
+    private Blockchain() {
+    }
+
+    public static byte[] getData() {
+        return ContractSimulator.currentRuntime().getData();
+    }
+
+    public static Address getAddress() {
+        return ContractSimulator.currentRuntime().getAddress();
+    }
+
+    public static Address getCaller() {
+        return ContractSimulator.currentRuntime().getCaller();
+    }
+
+    public static Address getOrigin() {
+        return ContractSimulator.currentRuntime().getOrigin();
+    }
+
+    public static BigInteger getValue() {
+        return ContractSimulator.currentRuntime().getValue();
+    }
+
+    public static long getBlockNumber() {
+        return ContractSimulator.currentRuntime().getBlockNumber();
+    }
+
+    public static long getBlockTimestamp() {
+        return ContractSimulator.currentRuntime().getBlockTimestamp();
+    }
+
+    public static long getEnergyLimit() {
+        return ContractSimulator.currentRuntime().getEnergyLimit();
+    }
+
+    public static long getRemainingEnergy() {
+        return ContractSimulator.currentRuntime().getRemainingEnergy();
+    }
+
+    public static BigInteger getBalance(Address address) {
+        return ContractSimulator.currentRuntime().getBalance(address);
+    }
+
+    public static BigInteger getBalanceOfThisContract() {
+        return ContractSimulator.currentRuntime().getBalance(getAddress());
+    }
+
+    public static Result call(Address targetAddress, BigInteger value, byte[] data, long energyLimit) {
+        return ContractSimulator.currentRuntime().call(targetAddress, value, data, energyLimit);
+    }
+
+    public static void putStorage(byte[] key, byte[] value) {
+        ContractSimulator.currentRuntime().putStorage(key, value);
+    }
+
+    public static byte[] getStorage(byte[] key) {
+        return ContractSimulator.currentRuntime().getStorage(key);
+    }
+
+    public static void log(byte[] data) {
+        ContractSimulator.currentRuntime().log(new byte[0][], data);
+    }
+
+    public static void log(byte[] topic1, byte[] data) {
+        ContractSimulator.currentRuntime().log(new byte[][]{topic1}, data);
+    }
+
+    public static void log(byte[] topic1, byte[] topic2, byte[] data) {
+        ContractSimulator.currentRuntime().log(new byte[][]{topic1, topic2}, data);
+    }
+
+    public static void log(byte[] topic1, byte[] topic2, byte[] topic3, byte[] data) {
+        ContractSimulator.currentRuntime().log(new byte[][]{topic1, topic2, topic3}, data);
+    }
+
+    public static void log(byte[] topic1, byte[] topic2, byte[] topic3, byte[] topic4, byte[] data) {
+        ContractSimulator.currentRuntime().log(new byte[][]{topic1, topic2, topic3, topic4}, data);
+    }
+
+    public static byte[] sha256(byte[] data) {
+        return ContractSimulator.currentRuntime().sha256(data);
+    }
+
+    public static byte[] blake2b(byte[] data) {
+        return ContractSimulator.currentRuntime().blake2b(data);
+    }
+
+    public static byte[] keccak256(byte[] data) {
+        return ContractSimulator.currentRuntime().keccak256(data);
+    }
+
+    public static boolean edVerify(byte[] data, byte[] signature, byte[] publicKey) {
+        return ContractSimulator.currentRuntime().edVerify(data, signature, publicKey);
+    }
+
+    public static void require(boolean condition) {
+        if (!condition) {
+            revert();
+        }
+    }
+
+    public static void revert() {
+        ContractSimulator.currentRuntime().revert();
+    }
+
+    public static void invalid() {
+        ContractSimulator.currentRuntime().invalid();
+    }
+
+    public static void print(String message) {
+        ContractSimulator.currentRuntime().print(message);
+    }
+
+    public static void println(String message) {
+        ContractSimulator.currentRuntime().print(message + "\n");
+    }
+}
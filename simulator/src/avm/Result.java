@@ -0,0 +1,27 @@
+package avm;
+
+/**
+ * Simulator stand-in for the AVM's avm.Result, returned to a contract by Blockchain.call.
+ */
+public final class Result {
+    private final boolean success;
+    private final byte[] returnData;
+
+    public Result(boolean success, byte[] returnData) {
+        this.success = success;
+        this.returnData = returnData;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public byte[] getReturnData() {
+        return returnData;
+    }
+
+    @Override
+    public String toString() {
+        return "success:" + success;
+    }
+}
@@ -0,0 +1,284 @@
+import AionInterfaceRegistry.AionInterfaceRegistryContract;
+import AionTokenStandard.AionTokenStandardContract;
+import ATSSimulator.ContractSimulator;
+import ATSSimulator.SimulatedResult;
+import avm.Address;
+import org.aion.avm.userlib.abi.ABIDecoder;
+import org.junit.*;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public class ContractSimulatorTest {
+
+    private long energyLimit = 10_000_000L;
+
+    private ContractSimulator simulator;
+    private Address deployer;
+    private Address AIRDappAddress;
+    private Address ATSDappAddress;
+    private Address ATSOwnerAddress;
+    private Address tokenHolder1Address;
+
+    private BigInteger ATSTotalSupply = new BigInteger("1000000000000000000000000");
+
+    @Before
+    public void setup() {
+        simulator = new ContractSimulator();
+        deployer = simulator.createAccount(BigInteger.valueOf(1_000_000_000L));
+        ATSOwnerAddress = simulator.createAccount(BigInteger.valueOf(1_000_000_000L));
+        tokenHolder1Address = simulator.createAccount(BigInteger.valueOf(1_000_000_000L));
+
+        SimulatedResult result = simulator.deploy(deployer, AionInterfaceRegistryContract.class, null, energyLimit);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        AIRDappAddress = result.getDappAddress();
+
+        byte[] arguments = ContractSimulator.encodeDeploymentArguments("Aion Token", "ATS", 1, ATSTotalSupply.toByteArray(), AIRDappAddress, 10_000_000L);
+        SimulatedResult result2 = simulator.deploy(ATSOwnerAddress, AionTokenStandardContract.class, arguments, energyLimit);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result2.getResultCode());
+        ATSDappAddress = result2.getDappAddress();
+    }
+
+    @Test
+    public void testDeploymentRegistersWithAIR() {
+        byte[] interfaceHash = sha256("AIP004Token".getBytes());
+        SimulatedResult result = call(deployer, AIRDappAddress, "getInterfaceImplementer", ATSDappAddress, interfaceHash);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        Assert.assertEquals(ATSDappAddress, new ABIDecoder(result.getReturnData()).decodeOneAddress());
+    }
+
+    @Test
+    public void testSend() {
+        SimulatedResult result = call(ATSOwnerAddress, ATSDappAddress, "send", tokenHolder1Address, BigInteger.valueOf(500).toByteArray(), new byte[0]);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        Assert.assertFalse(result.getLogs().isEmpty());
+        Assert.assertTrue(result.getEnergyUsed() > 0);
+
+        Assert.assertEquals(BigInteger.valueOf(500), balanceOf(tokenHolder1Address));
+        Assert.assertEquals(ATSTotalSupply.subtract(BigInteger.valueOf(500)), balanceOf(ATSOwnerAddress));
+    }
+
+    @Test
+    public void testRevertRollsBackStorage() {
+        // the first recipient is credited before minting to the ATS contract itself reverts the batch
+        Address[] recipients = new Address[]{tokenHolder1Address, ATSDappAddress};
+        byte[][] amounts = new byte[][]{BigInteger.TEN.toByteArray(), BigInteger.TEN.toByteArray()};
+        SimulatedResult result = call(ATSOwnerAddress, ATSDappAddress, "mintBatch", recipients, amounts, new byte[0]);
+        Assert.assertEquals(SimulatedResult.Code.FAILED_REVERT, result.getResultCode());
+        Assert.assertTrue(result.getLogs().isEmpty());
+
+        Assert.assertEquals(BigInteger.ZERO, balanceOf(tokenHolder1Address));
+    }
+
+    @Test
+    public void testRevertRestoresStaticFields() {
+        Address counter = deployCounter();
+
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, call(deployer, counter, "increment").getResultCode());
+        Assert.assertEquals(SimulatedResult.Code.FAILED_REVERT, call(deployer, counter, "incrementAndRevert").getResultCode());
+
+        Assert.assertEquals(1L, getLong(call(deployer, counter, "getCount")));
+        Assert.assertEquals(1, new ABIDecoder(call(deployer, counter, "getCallerCount").getReturnData()).decodeOneInteger());
+    }
+
+    @Test
+    public void testRevertRollsBackCalledContracts() {
+        Address counter1 = deployCounter();
+        Address counter2 = deployCounter();
+
+        // counter2 is incremented by counter1, which then reverts
+        Assert.assertEquals(SimulatedResult.Code.FAILED_REVERT, call(deployer, counter1, "incrementOtherAndRevert", counter2).getResultCode());
+        Assert.assertEquals(0L, getLong(call(deployer, counter2, "getCount")));
+
+        // counter2 reverts inside a call that succeeds, only counter1 keeps its increment
+        SimulatedResult result = call(deployer, counter1, "incrementOtherAndRevertThere", counter2);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        Assert.assertFalse(new ABIDecoder(result.getReturnData()).decodeOneBoolean());
+        Assert.assertEquals(1L, getLong(call(deployer, counter1, "getCount")));
+        Assert.assertEquals(0L, getLong(call(deployer, counter2, "getCount")));
+    }
+
+    @Test
+    public void testRevertRestoresContractObjects() {
+        byte[] interfaceHash = sha256("AIP004Token".getBytes());
+        Address manager = simulator.createAccount(BigInteger.ZERO);
+        Address[] targets = new Address[3];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = simulator.createAccount(BigInteger.ZERO);
+            Assert.assertEquals(SimulatedResult.Code.SUCCESS, call(targets[i], AIRDappAddress, "setManagers", new Address[]{targets[i]}, manager).getResultCode());
+        }
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, call(manager, AIRDappAddress, "setInterfaceImplementers", targets, interfaceHash, manager).getResultCode());
+
+        SimulatedResult result = simulator.deploy(deployer, ImplementerContract.class, null, energyLimit);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        Address implementer = result.getDappAddress();
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, call(deployer, implementer, "reject", targets[1]).getResultCode());
+
+        // moving targets[0] off the manager moves targets[2] into its place, then targets[1] is rejected
+        Address[] batch = new Address[]{targets[0], targets[1]};
+        Assert.assertEquals(SimulatedResult.Code.FAILED_REVERT, call(manager, AIRDappAddress, "setInterfaceImplementers", batch, interfaceHash, implementer).getResultCode());
+        Assert.assertArrayEquals(targets, getImplementedTargets(manager, interfaceHash));
+
+        // moving targets[2] off the manager must find it where it was before the failed batch
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, call(manager, AIRDappAddress, "setInterfaceImplementer", targets[2], interfaceHash, implementer).getResultCode());
+        Assert.assertArrayEquals(new Address[]{targets[0], targets[1]}, getImplementedTargets(manager, interfaceHash));
+    }
+
+    @Test
+    public void testDeploymentsHaveSeparateStaticFields() {
+        Address counter1 = deployCounter();
+        Address counter2 = deployCounter();
+
+        call(deployer, counter1, "increment");
+        call(deployer, counter1, "increment");
+        call(deployer, counter2, "increment");
+
+        Assert.assertEquals(2L, getLong(call(deployer, counter1, "getCount")));
+        Assert.assertEquals(1L, getLong(call(deployer, counter2, "getCount")));
+    }
+
+    @Test
+    public void testOutOfEnergy() {
+        byte[] txData = ContractSimulator.encodeCall("send", tokenHolder1Address, BigInteger.valueOf(500).toByteArray(), new byte[0]);
+        SimulatedResult result = simulator.call(ATSOwnerAddress, ATSDappAddress, BigInteger.ZERO, txData, 50_000);
+        Assert.assertEquals(SimulatedResult.Code.FAILED_OUT_OF_ENERGY, result.getResultCode());
+        Assert.assertEquals(50_000, result.getEnergyUsed());
+
+        Assert.assertEquals(BigInteger.ZERO, balanceOf(tokenHolder1Address));
+    }
+
+    @Test
+    public void testUnknownMethodReverts() {
+        Assert.assertEquals(SimulatedResult.Code.FAILED_REVERT, call(deployer, ATSDappAddress, "noSuchMethod").getResultCode());
+    }
+
+    @Test
+    public void testOnlyCallablesCanBeCalled() {
+        Address counter = deployCounter();
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, call(deployer, counter, "increment").getResultCode());
+
+        Assert.assertEquals(SimulatedResult.Code.FAILED_REVERT, call(deployer, counter, "reset").getResultCode());
+        Assert.assertEquals(1L, getLong(call(deployer, counter, "getCount")));
+    }
+
+    @Test
+    public void testHashes() {
+        Address counter = deployCounter();
+
+        SimulatedResult result = call(deployer, counter, "hashes", (Object) "abc".getBytes());
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        byte[] hashes = new ABIDecoder(result.getReturnData()).decodeOneByteArray();
+        Assert.assertEquals("4e03657aea45a94fc7d47ba826c8d667c0d1e6e33a64a036ec44f58fa12d6c45", toHex(Arrays.copyOfRange(hashes, 0, 32)));
+        Assert.assertEquals("bddd813c634239723171ef3fee98579b94964e3bb1cb3e427262c8c068d52319", toHex(Arrays.copyOfRange(hashes, 32, 64)));
+
+        // 200 bytes span two blocks of either function
+        SimulatedResult result2 = call(deployer, counter, "hashes", (Object) new byte[200]);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result2.getResultCode());
+        byte[] hashes2 = new ABIDecoder(result2.getReturnData()).decodeOneByteArray();
+        Assert.assertEquals("e1bb54e1bc3af48d01e5dbfc81015c98152a574f6428c6948aa4837c9c0baad9", toHex(Arrays.copyOfRange(hashes2, 0, 32)));
+        Assert.assertEquals("c978e85c0d32724ed4550cc0901a10e5412f3dcf29fd20ffe35a419f097dd113", toHex(Arrays.copyOfRange(hashes2, 32, 64)));
+    }
+
+    @Test
+    public void testLegacyTokenHolderRecord() {
+        Address operator = simulator.createAccount(BigInteger.ZERO);
+        Address recipient = simulator.createAccount(BigInteger.ZERO);
+
+        // a record as written before the layout version: the balance filled to 32 bytes, then the operators
+        byte[] legacyRecord = new byte[64];
+        legacyRecord[30] = 0x01;
+        legacyRecord[31] = (byte) 0xf4;
+        System.arraycopy(operator.unwrap(), 0, legacyRecord, 32, Address.LENGTH);
+        Assert.assertTrue(legacyRecord[0] >= 0);
+        simulator.putStorage(ATSDappAddress, tokenHolder1Address.unwrap(), legacyRecord);
+
+        Assert.assertEquals(BigInteger.valueOf(500), balanceOf(tokenHolder1Address));
+        Assert.assertTrue(isOperatorFor(operator, tokenHolder1Address));
+        Assert.assertFalse(isOperatorFor(recipient, tokenHolder1Address));
+
+        // the next transfer rewrites the record in the compact layout, keeping the remaining balance and operators
+        SimulatedResult result = call(operator, ATSDappAddress, "operatorSend", tokenHolder1Address, recipient, BigInteger.valueOf(200).toByteArray(), new byte[0], new byte[0]);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        Assert.assertEquals((byte) 0x81, simulator.getStorage(ATSDappAddress, tokenHolder1Address.unwrap())[0]);
+        Assert.assertEquals(BigInteger.valueOf(300), balanceOf(tokenHolder1Address));
+        Assert.assertEquals(BigInteger.valueOf(200), balanceOf(recipient));
+        Assert.assertTrue(isOperatorFor(operator, tokenHolder1Address));
+    }
+
+    @Test
+    public void testManyTransfers() {
+        int holderCount = 1_000;
+        int transferCount = 100_000;
+        Address[] holders = new Address[holderCount];
+        for (int i = 0; i < holderCount; i++) {
+            holders[i] = simulator.createAccount(BigInteger.ZERO);
+            Assert.assertEquals(SimulatedResult.Code.SUCCESS, call(ATSOwnerAddress, ATSDappAddress, "send", holders[i], BigInteger.valueOf(1_000_000).toByteArray(), new byte[0]).getResultCode());
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < transferCount; i++) {
+            Address from = holders[i % holderCount];
+            Address to = holders[(i * 7 + 1) % holderCount];
+            Assert.assertEquals(SimulatedResult.Code.SUCCESS, call(from, ATSDappAddress, "send", to, BigInteger.ONE.toByteArray(), new byte[0]).getResultCode());
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        System.out.println(transferCount + " transfers in " + elapsedNanos / 1_000_000 + " ms ("
+                + (long) (transferCount * 60e9 / elapsedNanos) + " per minute)");
+
+        BigInteger total = balanceOf(ATSOwnerAddress);
+        for (Address holder : holders) {
+            total = total.add(balanceOf(holder));
+        }
+        Assert.assertEquals(ATSTotalSupply, total);
+    }
+
+    private Address deployCounter() {
+        SimulatedResult result = simulator.deploy(deployer, CounterContract.class, null, energyLimit);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        return result.getDappAddress();
+    }
+
+    private SimulatedResult call(Address caller, Address contract, String methodName, Object... arguments) {
+        byte[] txData = ContractSimulator.encodeCall(methodName, arguments);
+        return simulator.call(caller, contract, BigInteger.ZERO, txData, energyLimit);
+    }
+
+    private BigInteger balanceOf(Address tokenHolder) {
+        SimulatedResult result = call(tokenHolder, ATSDappAddress, "balanceOf", tokenHolder);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        return new BigInteger(new ABIDecoder(result.getReturnData()).decodeOneByteArray());
+    }
+
+    private boolean isOperatorFor(Address operator, Address tokenHolder) {
+        SimulatedResult result = call(tokenHolder, ATSDappAddress, "isOperatorFor", operator, tokenHolder);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        return new ABIDecoder(result.getReturnData()).decodeOneBoolean();
+    }
+
+    private Address[] getImplementedTargets(Address implementer, byte[] interfaceHash) {
+        SimulatedResult result = call(implementer, AIRDappAddress, "getImplementedTargets", implementer, interfaceHash, 0, 10);
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        return new ABIDecoder(result.getReturnData()).decodeOneAddressArray();
+    }
+
+    private long getLong(SimulatedResult result) {
+        Assert.assertEquals(SimulatedResult.Code.SUCCESS, result.getResultCode());
+        return new ABIDecoder(result.getReturnData()).decodeOneLong();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private byte[] sha256(byte[] data) {
+        try {
+            return java.security.MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
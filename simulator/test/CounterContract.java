@@ -0,0 +1,66 @@
+import avm.Address;
+import avm.Blockchain;
+import org.aion.avm.tooling.abi.Callable;
+import org.aion.avm.userlib.AionList;
+import org.aion.avm.userlib.abi.ABIEncoder;
+
+import java.math.BigInteger;
+
+/**
+ * Keeps its state in static fields only, to check that the simulator restores them when a call fails.
+ */
+public class CounterContract {
+
+    private static long count;
+    private static AionList<Address> callers = new AionList<>();
+
+    @Callable
+    public static long increment() {
+        count++;
+        callers.add(Blockchain.getCaller());
+        return count;
+    }
+
+    @Callable
+    public static void incrementAndRevert() {
+        increment();
+        Blockchain.revert();
+    }
+
+    @Callable
+    public static void incrementOtherAndRevert(Address other) {
+        Blockchain.require(Blockchain.call(other, BigInteger.ZERO, ABIEncoder.encodeOneString("increment"), Blockchain.getRemainingEnergy()).isSuccess());
+        Blockchain.revert();
+    }
+
+    @Callable
+    public static boolean incrementOtherAndRevertThere(Address other) {
+        increment();
+        return Blockchain.call(other, BigInteger.ZERO, ABIEncoder.encodeOneString("incrementAndRevert"), Blockchain.getRemainingEnergy()).isSuccess();
+    }
+
+    @Callable
+    public static long getCount() {
+        return count;
+    }
+
+    @Callable
+    public static int getCallerCount() {
+        return callers.size();
+    }
+
+    @Callable
+    public static byte[] hashes(byte[] data) {
+        byte[] hashes = new byte[64];
+        System.arraycopy(Blockchain.keccak256(data), 0, hashes, 0, 32);
+        System.arraycopy(Blockchain.blake2b(data), 0, hashes, 32, 32);
+        return hashes;
+    }
+
+    /**
+     * Public and static but not annotated, so it is not callable.
+     */
+    public static void reset() {
+        count = 0;
+    }
+}
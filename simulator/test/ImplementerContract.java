@@ -0,0 +1,20 @@
+import avm.Address;
+import org.aion.avm.tooling.abi.Callable;
+
+/**
+ * Accepts to implement any interface for any target but one, to make a batch registration fail partway.
+ */
+public class ImplementerContract {
+
+    private static Address rejectedTarget;
+
+    @Callable
+    public static void reject(Address target) {
+        rejectedTarget = target;
+    }
+
+    @Callable
+    public static boolean isImplementerFor(Address target, byte[] interfaceHash) {
+        return !target.equals(rejectedTarget);
+    }
+}
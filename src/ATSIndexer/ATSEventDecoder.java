@@ -0,0 +1,305 @@
+package ATSIndexer;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes the logs of an ATS contract into the balance and operator changes they stand for and hands them to a
+ * Handler. Event data is read in place from the log buffers, following the encodings of ATSContractEvents and of the
+ * records embedded in the events.
+ *
+ * A decoder holds the first part of a Sent or Burned event until its second part, so a decoder is used for one
+ * sequence of logs at a time, and endBlock is called at the end of every block.
+ */
+class ATSEventDecoder {
+    /**
+     * Where the tokens credited to or debited from a holder come from or go to.
+     */
+    static final int TRANSFER = 0; // another holder, or several holders for a Cleared event
+    static final int SUPPLY = 1; // created, minted or burned
+    static final int ESCROW = 2; // locked in or released from a stream, a vesting schedule, a channel or a payout job
+
+    static final int ADDRESS_LENGTH = 32;
+    static final int AMOUNT_LENGTH = 32;
+    private static final int TOPIC_LENGTH = 32;
+
+    private static final int TOKEN_CREATED = 0;
+    private static final int SENT_PART1 = 1;
+    private static final int SENT_PART2 = 2;
+    private static final int BURNED_PART1 = 3;
+    private static final int BURNED_PART2 = 4;
+    private static final int MINTED = 5;
+    private static final int STREAM_CREATED = 6;
+    private static final int STREAM_WITHDRAWN = 7;
+    private static final int STREAM_CANCELLED = 8;
+    private static final int VESTING_SCHEDULE_CREATED = 9;
+    private static final int VESTING_RELEASED = 10;
+    private static final int CHANNEL_OPENED = 11;
+    private static final int CHANNEL_CLOSED = 12;
+    private static final int CLEARED = 13;
+    private static final int AUTHORIZED_OPERATOR = 14;
+    private static final int REVOKED_OPERATOR = 15;
+    private static final int PAYOUT_CHUNK_ADDED = 16;
+    private static final int PAYOUT_PROGRESS = 17;
+
+    private static final Map<ByteBuffer, Integer> EVENTS = new HashMap<>();
+
+    static {
+        registerEvent("TokenCreatedEvent", TOKEN_CREATED);
+        registerEvent("SentEventPart1", SENT_PART1);
+        registerEvent("SentEventPart2", SENT_PART2);
+        registerEvent("BurnedEventPart1", BURNED_PART1);
+        registerEvent("BurnedEventPart2", BURNED_PART2);
+        registerEvent("MintedEvent", MINTED);
+        registerEvent("StreamCreatedEvent", STREAM_CREATED);
+        registerEvent("StreamWithdrawnEvent", STREAM_WITHDRAWN);
+        registerEvent("StreamCancelledEvent", STREAM_CANCELLED);
+        registerEvent("VestingScheduleCreatedEvent", VESTING_SCHEDULE_CREATED);
+        registerEvent("VestingReleasedEvent", VESTING_RELEASED);
+        registerEvent("ChannelOpenedEvent", CHANNEL_OPENED);
+        registerEvent("ChannelClosedEvent", CHANNEL_CLOSED);
+        registerEvent("ClearedEvent", CLEARED);
+        registerEvent("AuthorizedOperatorEvent", AUTHORIZED_OPERATOR);
+        registerEvent("RevokedOperatorEvent", REVOKED_OPERATOR);
+        registerEvent("PayoutChunkAddedEvent", PAYOUT_CHUNK_ADDED);
+        registerEvent("PayoutProgressEvent", PAYOUT_PROGRESS);
+    }
+
+    interface Handler {
+        /**
+         * The token was created, its whole initial supply is credited to the owner right after.
+         */
+        void tokenCreated(ByteBuffer owner, int ownerOffset) throws IOException;
+
+        void credit(ByteBuffer holder, int holderOffset, ByteBuffer amount, int amountOffset, int counterpart) throws IOException;
+
+        void debit(ByteBuffer holder, int holderOffset, ByteBuffer amount, int amountOffset, int counterpart) throws IOException;
+
+        /**
+         * Debit the owner given to tokenCreated, vesting schedule events do not name it.
+         */
+        void debitOwner(ByteBuffer amount, int amountOffset, int counterpart) throws IOException;
+
+        /**
+         * The holder balance is replaced by the outcome of a clearing batch, which moves tokens between holders only.
+         */
+        void setBalance(ByteBuffer holder, int holderOffset, ByteBuffer balance, int balanceOffset) throws IOException;
+
+        /**
+         * @param operatorAndHolder buffer holding the operator address followed by the token holder address
+         */
+        void authorizeOperator(ByteBuffer operatorAndHolder, int offset) throws IOException;
+
+        void revokeOperator(ByteBuffer operatorAndHolder, int offset) throws IOException;
+    }
+
+    private final byte[] contractAddress;
+    private final ByteBuffer amount = ByteBuffer.allocate(AMOUNT_LENGTH); // amounts the events do not carry as such
+
+    private EventLog pendingPart1;
+    private int pendingEvent;
+
+    ATSEventDecoder(byte[] contractAddress) {
+        this.contractAddress = contractAddress.clone();
+    }
+
+    /**
+     * Decode a log, skipping the logs of other contracts and the events that change no balance or operator.
+     *
+     * @throws IllegalStateException if the log cannot have been emitted at this point by an ATS contract
+     */
+    void decode(EventLog log, Handler handler) throws IOException {
+        if (!Arrays.equals(log.getAddress(), contractAddress)) {
+            return;
+        }
+        byte[][] topics = log.getTopics();
+        Integer event = (topics.length == 0 || topics[0].length != TOPIC_LENGTH) ? null : EVENTS.get(ByteBuffer.wrap(topics[0]));
+        if (pendingPart1 != null && (event == null || event != pendingEvent + 1)) {
+            throw new IllegalStateException("the first part of an event is not followed by its second part");
+        }
+        if (event == null) {
+            return;
+        }
+
+        ByteBuffer data = log.getData();
+        int base = data.position();
+        switch (event) {
+            case TOKEN_CREATED:
+                // owner (32), total supply (32)
+                requireLength(data, ADDRESS_LENGTH + AMOUNT_LENGTH);
+                handler.tokenCreated(data, base);
+                handler.credit(data, base, data, base + ADDRESS_LENGTH, SUPPLY);
+                break;
+            case SENT_PART1:
+                // operator (32), from (32), to (32)
+                requireLength(data, 3 * ADDRESS_LENGTH);
+                pendingPart1 = log;
+                pendingEvent = event;
+                break;
+            case BURNED_PART1:
+                // operator (32), from (32)
+                requireLength(data, 2 * ADDRESS_LENGTH);
+                pendingPart1 = log;
+                pendingEvent = event;
+                break;
+            case SENT_PART2:
+            case BURNED_PART2: {
+                if (pendingPart1 == null) {
+                    throw new IllegalStateException("the second part of an event does not follow its first part");
+                }
+                // amount (32), length of senderData (4), senderData, operatorData
+                requireLength(data, AMOUNT_LENGTH + Integer.BYTES);
+                ByteBuffer part1 = pendingPart1.getData();
+                int part1Base = part1.position();
+                pendingPart1 = null;
+                if (event == SENT_PART2) {
+                    handler.debit(part1, part1Base + ADDRESS_LENGTH, data, base, TRANSFER);
+                    handler.credit(part1, part1Base + 2 * ADDRESS_LENGTH, data, base, TRANSFER);
+                } else {
+                    handler.debit(part1, part1Base + ADDRESS_LENGTH, data, base, SUPPLY);
+                }
+                break;
+            }
+            case MINTED: {
+                // operator (32), total amount (32), number of recipients n (4), n times recipient (32), amount (32)
+                requireLength(data, ADDRESS_LENGTH + AMOUNT_LENGTH + Integer.BYTES);
+                int count = data.getInt(base + ADDRESS_LENGTH + AMOUNT_LENGTH);
+                int entries = base + ADDRESS_LENGTH + AMOUNT_LENGTH + Integer.BYTES;
+                requireLength(data, entries - base + count * (ADDRESS_LENGTH + AMOUNT_LENGTH));
+                for (int i = 0; i < count; i++) {
+                    int entry = entries + i * (ADDRESS_LENGTH + AMOUNT_LENGTH);
+                    handler.credit(data, entry, data, entry + ADDRESS_LENGTH, SUPPLY);
+                }
+                break;
+            }
+            case STREAM_CREATED: {
+                // stream id (8), sender (32), recipient (32), rate per block (32), start block (8), stop block (8), withdrawn (32)
+                requireLength(data, Long.BYTES + 2 * ADDRESS_LENGTH + AMOUNT_LENGTH + 2 * Long.BYTES + AMOUNT_LENGTH);
+                int stream = base + Long.BYTES;
+                byte[] rate = new byte[AMOUNT_LENGTH];
+                data.get(stream + 2 * ADDRESS_LENGTH, rate);
+                long startBlock = data.getLong(stream + 2 * ADDRESS_LENGTH + AMOUNT_LENGTH);
+                long stopBlock = data.getLong(stream + 2 * ADDRESS_LENGTH + AMOUNT_LENGTH + Long.BYTES);
+                putAmount(new BigInteger(1, rate).multiply(BigInteger.valueOf(stopBlock - startBlock)));
+                handler.debit(data, stream, amount, 0, ESCROW);
+                break;
+            }
+            case STREAM_WITHDRAWN:
+                // stream id (8), recipient (32), amount (32)
+                requireLength(data, Long.BYTES + ADDRESS_LENGTH + AMOUNT_LENGTH);
+                handler.credit(data, base + Long.BYTES, data, base + Long.BYTES + ADDRESS_LENGTH, ESCROW);
+                break;
+            case STREAM_CANCELLED:
+            case CHANNEL_CLOSED: {
+                // id (8), sender (32), sender amount (32), recipient (32), recipient amount (32)
+                requireLength(data, Long.BYTES + 2 * (ADDRESS_LENGTH + AMOUNT_LENGTH));
+                int sender = base + Long.BYTES;
+                int recipient = sender + ADDRESS_LENGTH + AMOUNT_LENGTH;
+                handler.credit(data, sender, data, sender + ADDRESS_LENGTH, ESCROW);
+                handler.credit(data, recipient, data, recipient + ADDRESS_LENGTH, ESCROW);
+                break;
+            }
+            case VESTING_SCHEDULE_CREATED: {
+                // beneficiary (32), start (8), cliff (8), duration (8), length n of the total (1), total (n), released
+                int header = ADDRESS_LENGTH + 3 * Long.BYTES;
+                requireLength(data, header + 1);
+                int totalLength = data.get(base + header) & 0xff;
+                requireLength(data, header + 1 + totalLength);
+                byte[] total = new byte[totalLength];
+                data.get(base + header + 1, total);
+                putAmount(new BigInteger(total));
+                handler.debitOwner(amount, 0, ESCROW);
+                break;
+            }
+            case VESTING_RELEASED:
+                // beneficiary (32), amount (32)
+                requireLength(data, ADDRESS_LENGTH + AMOUNT_LENGTH);
+                handler.credit(data, base, data, base + ADDRESS_LENGTH, ESCROW);
+                break;
+            case CHANNEL_OPENED:
+                // channel id (8), sender (32), recipient (32), deposit (32), expiry block (8), signer key (32)
+                requireLength(data, Long.BYTES + 2 * ADDRESS_LENGTH + AMOUNT_LENGTH);
+                handler.debit(data, base + Long.BYTES, data, base + Long.BYTES + 2 * ADDRESS_LENGTH, ESCROW);
+                break;
+            case CLEARED: {
+                // operator (32), number of obligations (4), number of accounts n (4), n times account (32), balance (32)
+                requireLength(data, ADDRESS_LENGTH + 2 * Integer.BYTES);
+                int count = data.getInt(base + ADDRESS_LENGTH + Integer.BYTES);
+                int entries = base + ADDRESS_LENGTH + 2 * Integer.BYTES;
+                requireLength(data, entries - base + count * (ADDRESS_LENGTH + AMOUNT_LENGTH));
+                for (int i = 0; i < count; i++) {
+                    int entry = entries + i * (ADDRESS_LENGTH + AMOUNT_LENGTH);
+                    handler.setBalance(data, entry, data, entry + ADDRESS_LENGTH);
+                }
+                break;
+            }
+            case PAYOUT_CHUNK_ADDED:
+                // job id (8), creator (32), total (32), chunk index (4), number of payments (4)
+                requireLength(data, Long.BYTES + ADDRESS_LENGTH + AMOUNT_LENGTH);
+                handler.debit(data, base + Long.BYTES, data, base + Long.BYTES + ADDRESS_LENGTH, ESCROW);
+                break;
+            case PAYOUT_PROGRESS: {
+                // job id (8), payments paid so far (8), number of payments n (4), n times recipient (32), amount (32)
+                requireLength(data, 2 * Long.BYTES + Integer.BYTES);
+                int count = data.getInt(base + 2 * Long.BYTES);
+                int entries = base + 2 * Long.BYTES + Integer.BYTES;
+                requireLength(data, entries - base + count * (ADDRESS_LENGTH + AMOUNT_LENGTH));
+                for (int i = 0; i < count; i++) {
+                    int entry = entries + i * (ADDRESS_LENGTH + AMOUNT_LENGTH);
+                    handler.credit(data, entry, data, entry + ADDRESS_LENGTH, ESCROW);
+                }
+                break;
+            }
+            case AUTHORIZED_OPERATOR:
+                // operator (32), token holder (32)
+                requireLength(data, 2 * ADDRESS_LENGTH);
+                handler.authorizeOperator(data, base);
+                break;
+            case REVOKED_OPERATOR:
+                requireLength(data, 2 * ADDRESS_LENGTH);
+                handler.revokeOperator(data, base);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the block ended with the first part of an event
+     */
+    void endBlock(long blockNumber) {
+        if (pendingPart1 != null) {
+            pendingPart1 = null;
+            throw new IllegalStateException("block " + blockNumber + " ends with the first part of an event");
+        }
+    }
+
+    /**
+     * Forget the first part of an event, after a block failed to apply.
+     */
+    void reset() {
+        pendingPart1 = null;
+    }
+
+    private void putAmount(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        int length = Math.min(bytes.length, AMOUNT_LENGTH); // drops the sign byte of a 32 byte amount
+        Arrays.fill(amount.array(), (byte) 0);
+        System.arraycopy(bytes, bytes.length - length, amount.array(), AMOUNT_LENGTH - length, length);
+    }
+
+    private static void requireLength(ByteBuffer data, int length) {
+        if (data.remaining() < length) {
+            throw new IllegalStateException("event data of " + data.remaining() + " bytes, expected at least " + length);
+        }
+    }
+
+    private static void registerEvent(String topic, int event) {
+        EVENTS.put(ByteBuffer.wrap(Arrays.copyOf(topic.getBytes(StandardCharsets.UTF_8), TOPIC_LENGTH)), event);
+    }
+}
@@ -0,0 +1,313 @@
+package ATSIndexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Off-chain index of the balances and operators of one ATS contract, built from the events the contract logs, so
+ * that balance queries are answered without calling a node. Every event that changes a stored balance is applied:
+ * TokenCreated, Sent, Burned, Minted, the stream, vesting, channel and payout events and Cleared, along with
+ * AuthorizedOperator and RevokedOperator, see ATSEventDecoder. Blocks must be applied in order from the block the
+ * contract was deployed in.
+ *
+ * Balances and operator pairs are kept in memory-mapped hash tables (see MappedHashTable) under the index directory,
+ * and event data is decoded in place from the log buffers. Every change is first recorded in an undo journal (see
+ * UndoJournal), which allows
+ * - rolling back the last maxReorgDepth blocks when a reorg replaces them, see rollbackTo
+ * - resuming from the last checkpoint when the index is reopened: blocks applied after it are rolled back
+ *
+ * Reopening after a crash of the process is safe at any point, as the tables and the journal are mapped files. After
+ * a crash of the machine, only an index closed or checkpointed before it is consistent.
+ *
+ * The indexer is meant to be driven by a single thread.
+ */
+public class ATSEventIndexer implements Closeable {
+    private static final int ADDRESS_LENGTH = ATSEventDecoder.ADDRESS_LENGTH;
+    private static final int AMOUNT_LENGTH = ATSEventDecoder.AMOUNT_LENGTH;
+    private static final int HASH_LENGTH = 32;
+
+    // tables, in the order the undo journal refers to them
+    private static final int BALANCES = 0;
+    private static final int OPERATORS = 1;
+    private static final int META = 2;
+
+    private static final long OWNER_KEY = 1;
+
+    private final int maxReorgDepth;
+    private final Path checkpointPath;
+
+    private final MappedHashTable balances;
+    private final MappedHashTable operators;
+    private final MappedHashTable meta;
+    private final UndoJournal journal;
+    private final ATSEventDecoder decoder;
+    private final IndexingHandler handler = new IndexingHandler();
+
+    // scratch buffers, reused for every event
+    private final ByteBuffer balance = ByteBuffer.allocate(AMOUNT_LENGTH);
+    private final ByteBuffer metaKey = ByteBuffer.allocate(Long.BYTES);
+    private final ByteBuffer metaValue = ByteBuffer.allocate(ADDRESS_LENGTH);
+
+    private long lastBlockNumber = -1;
+    private byte[] lastBlockHash;
+
+    /**
+     * Open the index kept in the directory, creating it if needed. An existing index resumes from its last checkpoint.
+     *
+     * @param directory directory of the index files
+     * @param contractAddress address of the ATS contract whose logs are indexed
+     * @param maxReorgDepth number of blocks behind the last checkpointed block that can still be rolled back
+     */
+    public ATSEventIndexer(Path directory, byte[] contractAddress, int maxReorgDepth) throws IOException {
+        this.decoder = new ATSEventDecoder(contractAddress);
+        this.maxReorgDepth = maxReorgDepth;
+        this.checkpointPath = directory.resolve("checkpoint");
+
+        Files.createDirectories(directory);
+        balances = new MappedHashTable(directory.resolve("balances.table"), ADDRESS_LENGTH, AMOUNT_LENGTH);
+        operators = new MappedHashTable(directory.resolve("operators.table"), 2 * ADDRESS_LENGTH, 0);
+        meta = new MappedHashTable(directory.resolve("meta.table"), Long.BYTES, ADDRESS_LENGTH);
+        journal = new UndoJournal(directory.resolve("undo.journal"), new MappedHashTable[]{balances, operators, meta});
+
+        // checkpoint: last block number (8 bytes), last block hash (32 bytes)
+        if (Files.exists(checkpointPath)) {
+            ByteBuffer checkpoint = ByteBuffer.wrap(Files.readAllBytes(checkpointPath));
+            lastBlockNumber = checkpoint.getLong();
+            if (lastBlockNumber >= 0) {
+                lastBlockHash = new byte[HASH_LENGTH];
+                checkpoint.get(lastBlockHash);
+            }
+        }
+        journal.rollBack(lastBlockNumber);
+    }
+
+    /**
+     * Apply the logs of the next block. Logs of other contracts are skipped.
+     *
+     * @param blockNumber number of the block, one more than the last applied block
+     * @param blockHash hash of the block
+     * @param parentHash hash of the parent block, which must be the last applied block
+     * @param logs logs of the successful transactions of the block, in order
+     * @throws IllegalStateException if the block does not extend the last applied block, in which case the caller
+     * rolls back to the common ancestor first, or if the logs cannot have been emitted by an ATS contract
+     */
+    public void applyBlock(long blockNumber, byte[] blockHash, byte[] parentHash, List<EventLog> logs) throws IOException {
+        if (lastBlockNumber >= 0 && (blockNumber != lastBlockNumber + 1 || !Arrays.equals(parentHash, lastBlockHash))) {
+            throw new IllegalStateException("block " + blockNumber + " does not extend block " + lastBlockNumber);
+        }
+
+        journal.beginBlock(blockNumber, blockHash);
+        try {
+            for (EventLog log : logs) {
+                decoder.decode(log, handler);
+            }
+            decoder.endBlock(blockNumber);
+        } catch (RuntimeException e) {
+            // leave the index at the previous block
+            decoder.reset();
+            journal.rollBack(lastBlockNumber);
+            throw e;
+        }
+
+        lastBlockNumber = blockNumber;
+        lastBlockHash = blockHash.clone();
+    }
+
+    /**
+     * Undo the blocks after the given one, to apply the blocks of another branch on top of it. The common ancestor
+     * can be found by comparing getBlockHash with the hashes of the new branch. Rolling back also checkpoints.
+     *
+     * @throws IllegalArgumentException if the block is not one of the last blocks still in the undo journal
+     */
+    public void rollbackTo(long blockNumber) throws IOException {
+        if (blockNumber > lastBlockNumber) {
+            throw new IllegalArgumentException("block " + blockNumber + " has not been applied");
+        }
+        byte[] hash = getBlockHash(blockNumber);
+        if (hash == null) {
+            throw new IllegalArgumentException("block " + blockNumber + " is too old to be rolled back to");
+        }
+
+        journal.rollBack(blockNumber);
+        lastBlockNumber = blockNumber;
+        lastBlockHash = hash;
+        checkpoint();
+    }
+
+    /**
+     * Write the index to disk. Reopening the index resumes from here, and blocks more than maxReorgDepth before this
+     * one can no longer be rolled back.
+     */
+    public void checkpoint() throws IOException {
+        balances.force();
+        operators.force();
+        meta.force();
+        journal.force();
+
+        ByteBuffer checkpoint = ByteBuffer.allocate(Long.BYTES + HASH_LENGTH);
+        checkpoint.putLong(lastBlockNumber);
+        if (lastBlockHash != null) {
+            checkpoint.put(lastBlockHash);
+        }
+        Path written = checkpointPath.resolveSibling("checkpoint.tmp");
+        Files.write(written, checkpoint.array());
+        Files.move(written, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        journal.prune(lastBlockNumber - maxReorgDepth);
+    }
+
+    /**
+     * Returns the last applied block number, -1 if no block has been applied.
+     */
+    public long getLastBlockNumber() {
+        return lastBlockNumber;
+    }
+
+    /**
+     * Returns the hash of an applied block that can still be rolled back to, or null.
+     */
+    public byte[] getBlockHash(long blockNumber) {
+        if (blockNumber == lastBlockNumber && lastBlockHash != null) {
+            return lastBlockHash.clone();
+        }
+        return journal.getBlockHash(blockNumber);
+    }
+
+    /**
+     * Returns the stored balance of the token holder. Unlike the balanceOf view of the contract, it does not include
+     * what has accrued from streams and vesting schedules since they were last settled.
+     */
+    public BigInteger balanceOf(byte[] tokenHolder) {
+        ByteBuffer value = ByteBuffer.allocate(AMOUNT_LENGTH);
+        if (!balances.get(ByteBuffer.wrap(tokenHolder), 0, value, 0)) {
+            return BigInteger.ZERO;
+        }
+        return new BigInteger(1, value.array());
+    }
+
+    /**
+     * Copy the balance of the token holder, as an unsigned 32 byte big-endian number, without allocating.
+     *
+     * @return false if the holder has never held tokens, in which case the balance buffer is left untouched
+     */
+    public boolean balanceOf(ByteBuffer tokenHolder, int tokenHolderOffset, ByteBuffer balance, int balanceOffset) {
+        return balances.get(tokenHolder, tokenHolderOffset, balance, balanceOffset);
+    }
+
+    public boolean isOperatorFor(byte[] operator, byte[] tokenHolder) {
+        if (Arrays.equals(operator, tokenHolder)) {
+            return true;
+        }
+        ByteBuffer key = ByteBuffer.allocate(2 * ADDRESS_LENGTH).put(operator).put(tokenHolder);
+        return operators.contains(key, 0);
+    }
+
+    /**
+     * Returns the number of addresses with a stored balance, including zero balances.
+     */
+    public long getHolderCount() {
+        return balances.size();
+    }
+
+    /**
+     * Returns the sum of all balances. Tokens locked in streams, vesting schedules, channels and payout jobs are not part of it.
+     */
+    public BigInteger getHeldSupply() throws IOException {
+        BigInteger[] total = {BigInteger.ZERO};
+        byte[] value = new byte[AMOUNT_LENGTH];
+        balances.forEach((buffer, keyPosition, valuePosition) -> {
+            buffer.get(valuePosition, value);
+            total[0] = total[0].add(new BigInteger(1, value));
+        });
+        return total[0];
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpoint();
+        balances.close();
+        operators.close();
+        meta.close();
+        journal.close();
+    }
+
+    /**
+     * Applies the decoded changes to the tables, recording the previous values in the undo journal first.
+     */
+    private class IndexingHandler implements ATSEventDecoder.Handler {
+        @Override
+        public void tokenCreated(ByteBuffer owner, int ownerOffset) throws IOException {
+            metaKey.putLong(0, OWNER_KEY);
+            boolean hadOwner = meta.get(metaKey, 0, metaValue, 0);
+            journal.recordChange(META, metaKey, 0, hadOwner ? metaValue : null, 0);
+            meta.put(metaKey, 0, owner, ownerOffset);
+        }
+
+        @Override
+        public void credit(ByteBuffer holder, int holderOffset, ByteBuffer amount, int amountOffset, int counterpart) throws IOException {
+            loadBalance(holder, holderOffset);
+            if (!UInt256.add(balance, 0, amount, amountOffset)) {
+                throw new IllegalStateException("balance overflow");
+            }
+            balances.put(holder, holderOffset, balance, 0);
+        }
+
+        @Override
+        public void debit(ByteBuffer holder, int holderOffset, ByteBuffer amount, int amountOffset, int counterpart) throws IOException {
+            loadBalance(holder, holderOffset);
+            if (!UInt256.subtract(balance, 0, amount, amountOffset)) {
+                throw new IllegalStateException("debit exceeds the indexed balance, blocks are missing from the index");
+            }
+            balances.put(holder, holderOffset, balance, 0);
+        }
+
+        @Override
+        public void debitOwner(ByteBuffer amount, int amountOffset, int counterpart) throws IOException {
+            metaKey.putLong(0, OWNER_KEY);
+            if (!meta.get(metaKey, 0, metaValue, 0)) {
+                throw new IllegalStateException("owner debited before the token was created, index from the deployment block");
+            }
+            debit(metaValue, 0, amount, amountOffset, counterpart);
+        }
+
+        @Override
+        public void setBalance(ByteBuffer holder, int holderOffset, ByteBuffer value, int valueOffset) throws IOException {
+            loadBalance(holder, holderOffset);
+            balances.put(holder, holderOffset, value, valueOffset);
+        }
+
+        @Override
+        public void authorizeOperator(ByteBuffer operatorAndHolder, int offset) throws IOException {
+            if (!operators.contains(operatorAndHolder, offset)) {
+                journal.recordChange(OPERATORS, operatorAndHolder, offset, null, 0);
+                operators.put(operatorAndHolder, offset, null, 0);
+            }
+        }
+
+        @Override
+        public void revokeOperator(ByteBuffer operatorAndHolder, int offset) throws IOException {
+            if (operators.contains(operatorAndHolder, offset)) {
+                journal.recordChange(OPERATORS, operatorAndHolder, offset, operatorAndHolder, offset);
+                operators.remove(operatorAndHolder, offset);
+            }
+        }
+
+        /**
+         * Read the balance of the holder into the balance buffer, zero if absent, and journal it before it changes.
+         */
+        private void loadBalance(ByteBuffer holder, int holderOffset) throws IOException {
+            boolean present = balances.get(holder, holderOffset, balance, 0);
+            journal.recordChange(BALANCES, holder, holderOffset, present ? balance : null, 0);
+            if (!present) {
+                Arrays.fill(balance.array(), (byte) 0);
+            }
+        }
+    }
+}
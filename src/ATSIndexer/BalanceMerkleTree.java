@@ -0,0 +1,196 @@
+package ATSIndexer;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Off-chain copy of the sparse Merkle tree the ATS contract keeps over holder balances (see BalanceTree in
+ * AionTokenStandardContract). Feeding it every balance change in order yields the same root as getBalanceRoot, and it
+ * produces the inclusion proofs light clients check with verify, without a node re-executing the contract.
+ */
+public class BalanceMerkleTree {
+    private static final byte LEAF = 0x00;
+    private static final byte INTERNAL = 0x01;
+    private static final int KEY_LENGTH = 32;
+    private static final int LEAF_LENGTH = 1 + KEY_LENGTH + 32; // type, key, balance
+    private static final byte[] EMPTY_HASH = new byte[32];
+
+    private final Map<ByteBuffer, byte[]> nodes = new HashMap<>();
+    private byte[] root = EMPTY_HASH;
+
+    public byte[] getRoot() {
+        return root.clone();
+    }
+
+    /**
+     * Set the balance of a holder, mirroring the update the contract makes when it writes the holder record.
+     *
+     * @param holder 32 byte holder address
+     * @param balance new stored balance of the holder
+     */
+    public void update(byte[] holder, BigInteger balance) {
+        byte[] key = sha256(holder);
+        byte[] leaf = node(LEAF, key, fillLeadingZeros(balance.toByteArray()));
+
+        List<byte[]> path = new ArrayList<>();
+        int depth = 0;
+        byte[] current = nodes.get(position(depth, key));
+        while (current != null && current[0] == INTERNAL) {
+            path.add(current);
+            depth++;
+            current = nodes.get(position(depth, key));
+        }
+
+        byte[] hash;
+        if (current == null || Arrays.equals(leafKey(current), key)) {
+            nodes.put(position(depth, key), leaf);
+            hash = sha256(leaf);
+        } else {
+            hash = split(depth, current, leaf, key);
+        }
+
+        for (int d = depth - 1; d >= 0; d--) {
+            byte[] internal = path.get(d).clone();
+            System.arraycopy(hash, 0, internal, bit(key, d) == 0 ? 1 : 1 + KEY_LENGTH, KEY_LENGTH);
+            nodes.put(position(d, key), internal);
+            hash = sha256(internal);
+        }
+        root = hash;
+    }
+
+    /**
+     * Build the proof of the current balance of a holder, or of the absence of the holder.
+     */
+    public BalanceProof prove(byte[] holder) {
+        byte[] key = sha256(holder);
+        List<byte[]> siblings = new ArrayList<>();
+        int depth = 0;
+        byte[] current = nodes.get(position(depth, key));
+        while (current != null && current[0] == INTERNAL) {
+            int siblingOffset = bit(key, depth) == 0 ? 1 + KEY_LENGTH : 1;
+            siblings.add(Arrays.copyOfRange(current, siblingOffset, siblingOffset + KEY_LENGTH));
+            depth++;
+            current = nodes.get(position(depth, key));
+        }
+        return new BalanceProof(siblings.toArray(new byte[0][]), current == null ? null : current.clone());
+    }
+
+    /**
+     * Check that the holder has the given balance under the root. A zero balance is also proven by a path that ends
+     * in an empty subtree or in the leaf of another holder.
+     */
+    public static boolean verify(byte[] root, byte[] holder, BigInteger balance, BalanceProof proof) {
+        byte[] key = sha256(holder);
+        byte[][] siblings = proof.getSiblings();
+        byte[] leaf = proof.getTerminalLeaf();
+        if (siblings.length > 8 * KEY_LENGTH) {
+            return false;
+        }
+        // anything but a leaf, an internal node in particular, would let a proof end above the bottom of the path
+        if (leaf != null && (leaf.length != LEAF_LENGTH || leaf[0] != LEAF)) {
+            return false;
+        }
+
+        byte[] hash;
+        if (leaf == null) {
+            if (balance.signum() != 0) {
+                return false;
+            }
+            hash = EMPTY_HASH;
+        } else if (Arrays.equals(leafKey(leaf), key)) {
+            if (!new BigInteger(Arrays.copyOfRange(leaf, 1 + KEY_LENGTH, leaf.length)).equals(balance)) {
+                return false;
+            }
+            hash = sha256(leaf);
+        } else {
+            // the leaf of another holder only proves absence if it sits on the path of this key
+            if (balance.signum() != 0 || !sharesPrefix(leafKey(leaf), key, siblings.length)) {
+                return false;
+            }
+            hash = sha256(leaf);
+        }
+
+        for (int d = siblings.length - 1; d >= 0; d--) {
+            hash = (bit(key, d) == 0) ? sha256(node(INTERNAL, hash, siblings[d])) : sha256(node(INTERNAL, siblings[d], hash));
+        }
+        return Arrays.equals(hash, root);
+    }
+
+    private byte[] split(int depth, byte[] otherLeaf, byte[] leaf, byte[] key) {
+        byte[] otherKey = leafKey(otherLeaf);
+        int diff = depth;
+        while (bit(key, diff) == bit(otherKey, diff)) {
+            diff++;
+        }
+
+        nodes.put(position(diff + 1, key), leaf);
+        nodes.put(position(diff + 1, otherKey), otherLeaf);
+        byte[] leafHash = sha256(leaf);
+        byte[] otherHash = sha256(otherLeaf);
+        byte[] hash = null;
+        for (int d = diff; d >= depth; d--) {
+            byte[] childHash = (d == diff) ? leafHash : hash;
+            byte[] siblingHash = (d == diff) ? otherHash : EMPTY_HASH;
+            byte[] internal = (bit(key, d) == 0) ? node(INTERNAL, childHash, siblingHash) : node(INTERNAL, siblingHash, childHash);
+            nodes.put(position(d, key), internal);
+            hash = sha256(internal);
+        }
+        return hash;
+    }
+
+    private static boolean sharesPrefix(byte[] one, byte[] two, int bits) {
+        for (int i = 0; i < bits; i++) {
+            if (bit(one, i) != bit(two, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] leafKey(byte[] leaf) {
+        return Arrays.copyOfRange(leaf, 1, 1 + KEY_LENGTH);
+    }
+
+    private static byte[] node(byte type, byte[] first, byte[] second) {
+        return ByteBuffer.allocate(1 + first.length + second.length).put(type).put(first).put(second).array();
+    }
+
+    private static int bit(byte[] key, int index) {
+        return (key[index / 8] >> (7 - index % 8)) & 1;
+    }
+
+    private static ByteBuffer position(int depth, byte[] key) {
+        byte[] position = new byte[2 + KEY_LENGTH];
+        position[0] = (byte) (depth >> 8);
+        position[1] = (byte) depth;
+        System.arraycopy(key, 0, position, 2, depth / 8);
+        if (depth % 8 != 0) {
+            position[2 + depth / 8] = (byte) (key[depth / 8] & (0xff << (8 - depth % 8)));
+        }
+        return ByteBuffer.wrap(position);
+    }
+
+    private static byte[] fillLeadingZeros(byte[] byteArray) {
+        if (byteArray.length >= 32) {
+            return byteArray;
+        }
+        byte[] result = new byte[32];
+        System.arraycopy(byteArray, 0, result, 32 - byteArray.length, byteArray.length);
+        return result;
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
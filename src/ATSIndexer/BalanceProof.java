@@ -0,0 +1,30 @@
+package ATSIndexer;
+
+/**
+ * Proof of the balance of one token holder against the balance root of an ATS contract, as produced by
+ * BalanceMerkleTree. It lists the sibling hashes from the root down to the position of the holder key and the node
+ * found at that position: the holder leaf, the leaf of another holder sharing the path, or nothing.
+ */
+public class BalanceProof {
+    private final byte[][] siblings;
+    private final byte[] terminalLeaf;
+
+    public BalanceProof(byte[][] siblings, byte[] terminalLeaf) {
+        this.siblings = siblings;
+        this.terminalLeaf = terminalLeaf;
+    }
+
+    /**
+     * Sibling hashes, the one at index i being the sibling at depth i + 1.
+     */
+    public byte[][] getSiblings() {
+        return siblings;
+    }
+
+    /**
+     * The leaf found at the end of the path, or null if the path ends in an empty subtree.
+     */
+    public byte[] getTerminalLeaf() {
+        return terminalLeaf;
+    }
+}
@@ -0,0 +1,24 @@
+package ATSIndexer;
+
+import java.util.List;
+
+/**
+ * The logs of the successful transactions of one block, in order.
+ */
+public class BlockLogs {
+    private final long blockNumber;
+    private final List<EventLog> logs;
+
+    public BlockLogs(long blockNumber, List<EventLog> logs) {
+        this.blockNumber = blockNumber;
+        this.logs = logs;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public List<EventLog> getLogs() {
+        return logs;
+    }
+}
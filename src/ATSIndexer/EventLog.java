@@ -0,0 +1,31 @@
+package ATSIndexer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A log of a transaction as returned by a node: the address of the contract that emitted it, its topics, each padded
+ * to 32 bytes, and its data. The data is read between the position and the limit of the buffer, without copying it.
+ */
+public class EventLog {
+    private final byte[] address;
+    private final byte[][] topics;
+    private final ByteBuffer data;
+
+    public EventLog(byte[] address, byte[][] topics, ByteBuffer data) {
+        this.address = address;
+        this.topics = topics;
+        this.data = data;
+    }
+
+    public byte[] getAddress() {
+        return address;
+    }
+
+    public byte[][] getTopics() {
+        return topics;
+    }
+
+    public ByteBuffer getData() {
+        return data;
+    }
+}
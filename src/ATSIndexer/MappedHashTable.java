@@ -0,0 +1,291 @@
+package ATSIndexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Open addressing hash table with fixed length keys and values, kept in a memory-mapped file so that millions of
+ * entries live outside the Java heap and survive a restart. Keys are hashed and compared as 64 bit words, so their
+ * length must be a multiple of 8. The table is kept at most half full, counting deleted slots, and collisions are
+ * resolved by linear probing, so a lookup usually reads a single slot.
+ *
+ * Keys and values are passed as a buffer and an absolute offset into it and are never copied to the heap.
+ *
+ * The file is laid out as
+ * - header (64 bytes): magic (4 bytes), key length (4 bytes), value length (4 bytes), unused (4 bytes),
+ *   capacity (8 bytes), number of entries (8 bytes), number of deleted slots (8 bytes)
+ * - capacity slots of: state (1 byte, empty, live or deleted), key, value
+ */
+class MappedHashTable implements Closeable {
+    private static final int MAGIC = 0x41545349;
+    private static final int HEADER_LENGTH = 64;
+    private static final int KEY_LENGTH_OFFSET = 4;
+    private static final int VALUE_LENGTH_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int SIZE_OFFSET = 24;
+    private static final int DELETED_OFFSET = 32;
+
+    private static final long MIN_CAPACITY = 1024;
+    private static final long MAX_SEGMENT_LENGTH = 1L << 30; // a single mapping cannot exceed 2 GiB
+
+    private static final byte EMPTY = 0;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 2;
+
+    private final Path path;
+    private final int keyLength;
+    private final int valueLength;
+    private final int slotLength;
+    private final long slotsPerSegment;
+
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] segments;
+    private long capacity;
+    private long mask;
+    private long size;
+    private long deleted;
+
+    MappedHashTable(Path path, int keyLength, int valueLength) throws IOException {
+        this(path, keyLength, valueLength, MIN_CAPACITY);
+    }
+
+    private MappedHashTable(Path path, int keyLength, int valueLength, long initialCapacity) throws IOException {
+        if (keyLength <= 0 || keyLength % Long.BYTES != 0) {
+            throw new IllegalArgumentException("key length must be a positive multiple of 8, got " + keyLength);
+        }
+        this.path = path;
+        this.keyLength = keyLength;
+        this.valueLength = valueLength;
+        this.slotLength = 1 + keyLength + valueLength;
+        this.slotsPerSegment = MAX_SEGMENT_LENGTH / slotLength;
+        open(initialCapacity);
+    }
+
+    private void open(long initialCapacity) throws IOException {
+        boolean exists = Files.exists(path) && Files.size(path) >= HEADER_LENGTH;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_LENGTH);
+        if (exists) {
+            if (header.getInt(0) != MAGIC || header.getInt(KEY_LENGTH_OFFSET) != keyLength || header.getInt(VALUE_LENGTH_OFFSET) != valueLength) {
+                throw new IOException(path + " is not a table of " + keyLength + " byte keys and " + valueLength + " byte values");
+            }
+            capacity = header.getLong(CAPACITY_OFFSET);
+            size = header.getLong(SIZE_OFFSET);
+            deleted = header.getLong(DELETED_OFFSET);
+        } else {
+            capacity = initialCapacity;
+            size = 0;
+            deleted = 0;
+            header.putInt(0, MAGIC);
+            header.putInt(KEY_LENGTH_OFFSET, keyLength);
+            header.putInt(VALUE_LENGTH_OFFSET, valueLength);
+            header.putLong(CAPACITY_OFFSET, capacity);
+            writeCounts();
+        }
+        mask = capacity - 1;
+
+        // mapping past the end of the file extends it with zeros, that is with empty slots
+        int segmentCount = (int) ((capacity + slotsPerSegment - 1) / slotsPerSegment);
+        segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long slots = Math.min(slotsPerSegment, capacity - i * slotsPerSegment);
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_LENGTH + i * slotsPerSegment * slotLength, slots * slotLength);
+        }
+    }
+
+    int keyLength() {
+        return keyLength;
+    }
+
+    int valueLength() {
+        return valueLength;
+    }
+
+    long size() {
+        return size;
+    }
+
+    boolean contains(ByteBuffer key, int keyOffset) {
+        return find(key, keyOffset) >= 0;
+    }
+
+    /**
+     * Copy the value stored under the key into the value buffer at the given offset.
+     *
+     * @return false if the key is absent, in which case the value buffer is left untouched
+     */
+    boolean get(ByteBuffer key, int keyOffset, ByteBuffer value, int valueOffset) {
+        long slot = find(key, keyOffset);
+        if (slot < 0) {
+            return false;
+        }
+        if (valueLength > 0) {
+            value.put(valueOffset, segment(slot), position(slot) + 1 + keyLength, valueLength);
+        }
+        return true;
+    }
+
+    /**
+     * Store the value under the key. The value buffer is ignored for tables without values.
+     */
+    void put(ByteBuffer key, int keyOffset, ByteBuffer value, int valueOffset) throws IOException {
+        long slot = find(key, keyOffset);
+        if (slot < 0) {
+            if ((size + deleted + 1) * 2 > capacity) {
+                grow();
+                slot = find(key, keyOffset);
+            }
+            slot = -1 - slot;
+            MappedByteBuffer segment = segment(slot);
+            int position = position(slot);
+            if (segment.get(position) == DELETED) {
+                deleted--;
+            }
+            segment.put(position + 1, key, keyOffset, keyLength);
+            segment.put(position, LIVE);
+            size++;
+            writeCounts();
+        }
+        if (valueLength > 0) {
+            segment(slot).put(position(slot) + 1 + keyLength, value, valueOffset, valueLength);
+        }
+    }
+
+    /**
+     * @return false if the key was absent
+     */
+    boolean remove(ByteBuffer key, int keyOffset) {
+        long slot = find(key, keyOffset);
+        if (slot < 0) {
+            return false;
+        }
+        // a slot followed by an empty one ends every probe sequence through it, so it can become empty again
+        long next = (slot + 1) & mask;
+        if (segment(next).get(position(next)) == EMPTY) {
+            segment(slot).put(position(slot), EMPTY);
+        } else {
+            segment(slot).put(position(slot), DELETED);
+            deleted++;
+        }
+        size--;
+        writeCounts();
+        return true;
+    }
+
+    /**
+     * Visit every entry, in slot order.
+     */
+    void forEach(EntryVisitor visitor) throws IOException {
+        for (long slot = 0; slot < capacity; slot++) {
+            MappedByteBuffer segment = segment(slot);
+            int position = position(slot);
+            if (segment.get(position) == LIVE) {
+                visitor.visit(segment, position + 1, position + 1 + keyLength);
+            }
+        }
+    }
+
+    void force() {
+        header.force();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /**
+     * Returns the slot holding the key, or -1 - (the slot to insert it in) if the key is absent.
+     */
+    private long find(ByteBuffer key, int keyOffset) {
+        long slot = hash(key, keyOffset) & mask;
+        long firstDeleted = -1;
+        while (true) {
+            MappedByteBuffer segment = segment(slot);
+            int position = position(slot);
+            byte state = segment.get(position);
+            if (state == EMPTY) {
+                return -1 - (firstDeleted >= 0 ? firstDeleted : slot);
+            } else if (state == LIVE) {
+                if (keyEquals(segment, position + 1, key, keyOffset)) {
+                    return slot;
+                }
+            } else if (firstDeleted < 0) {
+                firstDeleted = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Rebuild the table in a new file, at twice the capacity, or at the same capacity when most of the load is made
+     * of deleted slots, and move it over the current one.
+     */
+    private void grow() throws IOException {
+        long newCapacity = (size + 1) * 4 > capacity ? capacity * 2 : capacity;
+        Path resized = path.resolveSibling(path.getFileName() + ".resize");
+        Files.deleteIfExists(resized);
+        MappedHashTable table = new MappedHashTable(resized, keyLength, valueLength, newCapacity);
+        forEach((buffer, keyPosition, valuePosition) -> table.put(buffer, keyPosition, buffer, valuePosition));
+        table.close();
+        channel.close();
+        Files.move(resized, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open(MIN_CAPACITY);
+    }
+
+    private void writeCounts() {
+        header.putLong(SIZE_OFFSET, size);
+        header.putLong(DELETED_OFFSET, deleted);
+    }
+
+    private MappedByteBuffer segment(long slot) {
+        return segments[(int) (slot / slotsPerSegment)];
+    }
+
+    private int position(long slot) {
+        return (int) (slot % slotsPerSegment) * slotLength;
+    }
+
+    private boolean keyEquals(ByteBuffer segment, int position, ByteBuffer key, int keyOffset) {
+        for (int i = 0; i < keyLength; i += Long.BYTES) {
+            if (segment.getLong(position + i) != key.getLong(keyOffset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long hash(ByteBuffer key, int keyOffset) {
+        long hash = 0;
+        for (int i = 0; i < keyLength; i += Long.BYTES) {
+            hash = (hash ^ key.getLong(keyOffset + i)) * 0x9E3779B97F4A7C15L;
+        }
+        // finalizer of murmur3, spreads the high bits of the product into the low bits used as slot index
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    interface EntryVisitor {
+        /**
+         * @param buffer buffer holding the entry
+         * @param keyPosition absolute position of the key in the buffer
+         * @param valuePosition absolute position of the value in the buffer
+         */
+        void visit(ByteBuffer buffer, int keyPosition, int valuePosition) throws IOException;
+    }
+}
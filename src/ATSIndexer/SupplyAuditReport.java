@@ -0,0 +1,114 @@
+package ATSIndexer;
+
+import java.math.BigInteger;
+
+/**
+ * Outcome of a SupplyAuditor run over the history of an ATS contract, up to its last block.
+ */
+public class SupplyAuditReport {
+    private final long lastBlockNumber;
+    private final BigInteger totalSupply;
+    private final BigInteger heldSupply;
+    private final BigInteger escrowedSupply;
+    private final BigInteger frozenSupply;
+    private final BigInteger issued;
+    private final BigInteger burned;
+    private final long holderCount;
+    private final long firstInconsistentBlock;
+    private final long firstDivergingBlock;
+
+    SupplyAuditReport(long lastBlockNumber, BigInteger totalSupply, BigInteger heldSupply, BigInteger escrowedSupply, BigInteger frozenSupply,
+                      BigInteger issued, BigInteger burned, long holderCount, long firstInconsistentBlock, long firstDivergingBlock) {
+        this.lastBlockNumber = lastBlockNumber;
+        this.totalSupply = totalSupply;
+        this.heldSupply = heldSupply;
+        this.escrowedSupply = escrowedSupply;
+        this.frozenSupply = frozenSupply;
+        this.issued = issued;
+        this.burned = burned;
+        this.holderCount = holderCount;
+        this.firstInconsistentBlock = firstInconsistentBlock;
+        this.firstDivergingBlock = firstDivergingBlock;
+    }
+
+    public long getLastBlockNumber() {
+        return lastBlockNumber;
+    }
+
+    /**
+     * Returns the initial supply plus everything minted, minus everything burned.
+     */
+    public BigInteger getTotalSupply() {
+        return totalSupply;
+    }
+
+    /**
+     * Returns the sum of the stored balances of all holders.
+     */
+    public BigInteger getHeldSupply() {
+        return heldSupply;
+    }
+
+    /**
+     * Returns the tokens locked in streams, vesting schedules, channels and payout jobs.
+     */
+    public BigInteger getEscrowedSupply() {
+        return escrowedSupply;
+    }
+
+    /**
+     * Returns the balance of the contract itself, which getLiquidSupply leaves out of the supply.
+     */
+    public BigInteger getFrozenSupply() {
+        return frozenSupply;
+    }
+
+    public BigInteger getLiquidSupply() {
+        return totalSupply.subtract(frozenSupply);
+    }
+
+    /**
+     * Returns the initial supply plus everything minted.
+     */
+    public BigInteger getIssued() {
+        return issued;
+    }
+
+    public BigInteger getBurned() {
+        return burned;
+    }
+
+    public long getHolderCount() {
+        return holderCount;
+    }
+
+    /**
+     * Returns the first block whose events break the supply invariant, held plus escrowed supply equal to the total
+     * supply with no balance below zero, or -1.
+     */
+    public long getFirstInconsistentBlock() {
+        return firstInconsistentBlock;
+    }
+
+    /**
+     * Returns the first block at which the supply views of the contract disagree with the supply computed from the
+     * events, or -1 if they agree at the last block or were not checked.
+     */
+    public long getFirstDivergingBlock() {
+        return firstDivergingBlock;
+    }
+
+    public boolean isConsistent() {
+        return firstInconsistentBlock < 0 && firstDivergingBlock < 0;
+    }
+
+    @Override
+    public String toString() {
+        return "supply audit up to block " + lastBlockNumber + (isConsistent() ? ": consistent" : ": INCONSISTENT") + "\n"
+                + "  total supply     " + totalSupply + " (issued " + issued + ", burned " + burned + ")\n"
+                + "  held supply      " + heldSupply + " over " + holderCount + " holders\n"
+                + "  escrowed supply  " + escrowedSupply + "\n"
+                + "  liquid supply    " + getLiquidSupply() + "\n"
+                + "  first inconsistent block " + firstInconsistentBlock + ", first diverging block " + firstDivergingBlock;
+    }
+}
@@ -0,0 +1,508 @@
+package ATSIndexer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Audits the supply of an ATS contract over its whole history of events. Every event keeps the held supply, the sum
+ * of all balances, plus the tokens escrowed in streams, vesting schedules, channels and payout jobs equal to the total supply,
+ * which is the initial supply plus mints minus burns. The audit
+ * - decodes the blocks in parallel, splitting the balance changes into partitions by account
+ * - replays the changes of each partition in parallel, in block order, giving the balance change of every block
+ * - finds the first block that does not keep the invariant or leaves a balance below zero
+ * - compares the computed total and liquid supply with the views of the contract at the last block, and if they
+ *   disagree, searches for the first block at which they do
+ *
+ * Both passes run as fork-join tasks in the given pool, so a full history is audited in about the time of one pass
+ * over the logs divided by the parallelism.
+ */
+public class SupplyAuditor {
+    /**
+     * The supply views of the contract at the state after a given block, as served by an archive node.
+     */
+    public interface SupplyViews {
+        BigInteger getTotalSupply(long blockNumber) throws IOException;
+
+        BigInteger getLiquidSupply(long blockNumber) throws IOException;
+    }
+
+    private static final int ADDRESS_LENGTH = ATSEventDecoder.ADDRESS_LENGTH;
+    private static final int AMOUNT_LENGTH = ATSEventDecoder.AMOUNT_LENGTH;
+
+    // balance change record: block index (4 bytes), kind (1 byte), account (32 bytes), amount (32 bytes)
+    private static final int RECORD_LENGTH = Integer.BYTES + 1 + ADDRESS_LENGTH + AMOUNT_LENGTH;
+    private static final byte CREDIT = 0;
+    private static final byte DEBIT = 1;
+    private static final byte SET = 2;
+
+    private final byte[] contractAddress;
+    private final ForkJoinPool pool;
+    private final int partitionCount;
+
+    public SupplyAuditor(byte[] contractAddress, ForkJoinPool pool) {
+        this.contractAddress = contractAddress.clone();
+        this.pool = pool;
+        this.partitionCount = 4 * pool.getParallelism();
+    }
+
+    /**
+     * @param blocks every block with logs of the contract, in order, starting with the block it was deployed in
+     * @param views views to cross-check the computed supply against, or null to check the events alone
+     */
+    public SupplyAuditReport audit(List<BlockLogs> blocks, SupplyViews views) throws IOException {
+        if (blocks.isEmpty()) {
+            throw new IllegalArgumentException("there are no blocks to audit");
+        }
+
+        int leafBlocks = Math.max(1, blocks.size() / (8 * pool.getParallelism()));
+        Decoded decoded = pool.invoke(new DecodeTask(blocks, 0, blocks.size(), leafBlocks, findOwner(blocks)));
+        Replayed replayed = pool.invoke(new ReplayTask(decoded.partitions, 0, partitionCount));
+
+        // each block must keep the invariant on its own
+        SparseSeries residual = replayed.balanceDeltas.merge(decoded.escrowDeltas).merge(decoded.supplyDeltas.negate());
+        int firstInconsistent = min(min(residual.firstNonZero(), replayed.firstNegative), decoded.firstMalformed);
+
+        long firstDiverging = -1;
+        if (views != null) {
+            int diverging = findFirstDivergingBlock(blocks, decoded, views);
+            firstDiverging = (diverging < 0) ? -1 : blocks.get(diverging).getBlockNumber();
+        }
+
+        return new SupplyAuditReport(blocks.get(blocks.size() - 1).getBlockNumber(),
+                decoded.supplyDeltas.sum(),
+                replayed.heldSupply,
+                decoded.escrowDeltas.sum(),
+                decoded.frozenDeltas.sum(),
+                decoded.issued,
+                decoded.burned,
+                replayed.holderCount,
+                (firstInconsistent < 0) ? -1 : blocks.get(firstInconsistent).getBlockNumber(),
+                firstDiverging);
+    }
+
+    /**
+     * Binary search for the first block at which the views disagree with the computed supply, assuming that once they
+     * disagree they keep disagreeing. Returns the index of the block, or -1 if they agree at the last block.
+     */
+    private int findFirstDivergingBlock(List<BlockLogs> blocks, Decoded decoded, SupplyViews views) throws IOException {
+        int last = blocks.size() - 1;
+        if (!diverges(blocks, last, decoded, views)) {
+            return -1;
+        }
+        int low = 0;
+        int high = last;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (diverges(blocks, middle, decoded, views)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private boolean diverges(List<BlockLogs> blocks, int index, Decoded decoded, SupplyViews views) throws IOException {
+        long blockNumber = blocks.get(index).getBlockNumber();
+        BigInteger totalSupply = decoded.supplyDeltas.sumUpTo(index);
+        BigInteger liquidSupply = totalSupply.subtract(decoded.frozenDeltas.sumUpTo(index));
+        return !totalSupply.equals(views.getTotalSupply(blockNumber)) || !liquidSupply.equals(views.getLiquidSupply(blockNumber));
+    }
+
+    /**
+     * The owner is named by the TokenCreated event only, and vesting schedule events debit it.
+     */
+    private byte[] findOwner(List<BlockLogs> blocks) throws IOException {
+        byte[][] owner = new byte[1][];
+        ATSEventDecoder decoder = new ATSEventDecoder(contractAddress);
+        ATSEventDecoder.Handler handler = new NoOpHandler() {
+            @Override
+            public void tokenCreated(ByteBuffer ownerBuffer, int ownerOffset) {
+                if (owner[0] == null) {
+                    owner[0] = new byte[ADDRESS_LENGTH];
+                    ownerBuffer.get(ownerOffset, owner[0]);
+                }
+            }
+        };
+        for (BlockLogs block : blocks) {
+            try {
+                for (EventLog log : block.getLogs()) {
+                    decoder.decode(log, handler);
+                }
+                decoder.endBlock(block.getBlockNumber());
+            } catch (IllegalStateException e) {
+                decoder.reset(); // reported by the audit itself
+            }
+            if (owner[0] != null) {
+                return owner[0];
+            }
+        }
+        return null;
+    }
+
+    private int partitionOf(ByteBuffer account, int offset) {
+        long hash = (account.getLong(offset) ^ account.getLong(offset + 24)) * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash >>> 32, (long) partitionCount);
+    }
+
+    private static int min(int first, int second) {
+        if (first < 0) {
+            return second;
+        }
+        return (second < 0) ? first : Math.min(first, second);
+    }
+
+    /**
+     * The balance changes of a range of blocks, split by account partition, and the per block changes of the total,
+     * escrowed and frozen supply, indexed by the position of the block in the audited list.
+     */
+    private static class Decoded {
+        private final List<List<ByteBuffer>> partitions = new ArrayList<>(); // chunks of records, in block order
+        private SparseSeries supplyDeltas = new SparseSeries();
+        private SparseSeries escrowDeltas = new SparseSeries();
+        private SparseSeries frozenDeltas = new SparseSeries();
+        private BigInteger issued = BigInteger.ZERO;
+        private BigInteger burned = BigInteger.ZERO;
+        private int firstMalformed = -1;
+
+        /**
+         * Append the decoded blocks that follow these ones.
+         */
+        private Decoded append(Decoded next) {
+            for (int p = 0; p < partitions.size(); p++) {
+                partitions.get(p).addAll(next.partitions.get(p));
+            }
+            supplyDeltas = supplyDeltas.merge(next.supplyDeltas);
+            escrowDeltas = escrowDeltas.merge(next.escrowDeltas);
+            frozenDeltas = frozenDeltas.merge(next.frozenDeltas);
+            issued = issued.add(next.issued);
+            burned = burned.add(next.burned);
+            firstMalformed = min(firstMalformed, next.firstMalformed);
+            return this;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class DecodeTask extends RecursiveTask<Decoded> {
+        private final List<BlockLogs> blocks;
+        private final int from;
+        private final int to;
+        private final int leafBlocks;
+        private final byte[] owner;
+
+        private DecodeTask(List<BlockLogs> blocks, int from, int to, int leafBlocks, byte[] owner) {
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+            this.leafBlocks = leafBlocks;
+            this.owner = owner;
+        }
+
+        @Override
+        protected Decoded compute() {
+            if (to - from > leafBlocks) {
+                int middle = (from + to) >>> 1;
+                DecodeTask right = new DecodeTask(blocks, middle, to, leafBlocks, owner);
+                right.fork();
+                Decoded left = new DecodeTask(blocks, from, middle, leafBlocks, owner).compute();
+                return left.append(right.join());
+            }
+
+            RecordingHandler handler = new RecordingHandler(owner);
+            ATSEventDecoder decoder = new ATSEventDecoder(contractAddress);
+            for (int i = from; i < to; i++) {
+                handler.blockIndex = i;
+                try {
+                    for (EventLog log : blocks.get(i).getLogs()) {
+                        decoder.decode(log, handler);
+                    }
+                    decoder.endBlock(blocks.get(i).getBlockNumber());
+                } catch (IllegalStateException e) {
+                    decoder.reset();
+                    handler.decoded.firstMalformed = min(handler.decoded.firstMalformed, i);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return handler.finish();
+        }
+    }
+
+    /**
+     * Writes every balance change as a record into the partition of its account.
+     */
+    private class RecordingHandler extends NoOpHandler {
+        private final byte[] owner;
+        private final ByteBuffer[] buffers = new ByteBuffer[partitionCount];
+        private final Decoded decoded = new Decoded();
+        private int blockIndex;
+
+        private RecordingHandler(byte[] owner) {
+            this.owner = owner;
+            for (int p = 0; p < partitionCount; p++) {
+                buffers[p] = ByteBuffer.allocate(16 * RECORD_LENGTH);
+            }
+        }
+
+        @Override
+        public void credit(ByteBuffer holder, int holderOffset, ByteBuffer amount, int amountOffset, int counterpart) {
+            BigInteger value = record(CREDIT, holder, holderOffset, amount, amountOffset);
+            if (counterpart == ATSEventDecoder.SUPPLY) {
+                decoded.supplyDeltas.add(blockIndex, value);
+                decoded.issued = decoded.issued.add(value);
+            } else if (counterpart == ATSEventDecoder.ESCROW) {
+                decoded.escrowDeltas.add(blockIndex, value.negate());
+            }
+            if (isContract(holder, holderOffset)) {
+                decoded.frozenDeltas.add(blockIndex, value);
+            }
+        }
+
+        @Override
+        public void debit(ByteBuffer holder, int holderOffset, ByteBuffer amount, int amountOffset, int counterpart) {
+            BigInteger value = record(DEBIT, holder, holderOffset, amount, amountOffset);
+            if (counterpart == ATSEventDecoder.SUPPLY) {
+                decoded.supplyDeltas.add(blockIndex, value.negate());
+                decoded.burned = decoded.burned.add(value);
+            } else if (counterpart == ATSEventDecoder.ESCROW) {
+                decoded.escrowDeltas.add(blockIndex, value);
+            }
+            if (isContract(holder, holderOffset)) {
+                decoded.frozenDeltas.add(blockIndex, value.negate());
+            }
+        }
+
+        @Override
+        public void debitOwner(ByteBuffer amount, int amountOffset, int counterpart) {
+            if (owner == null) {
+                throw new IllegalStateException("the owner is debited but the token was never created");
+            }
+            debit(ByteBuffer.wrap(owner), 0, amount, amountOffset, counterpart);
+        }
+
+        @Override
+        public void setBalance(ByteBuffer holder, int holderOffset, ByteBuffer balance, int balanceOffset) {
+            record(SET, holder, holderOffset, balance, balanceOffset);
+        }
+
+        private BigInteger record(byte kind, ByteBuffer holder, int holderOffset, ByteBuffer amount, int amountOffset) {
+            int p = partitionOf(holder, holderOffset);
+            ByteBuffer buffer = buffers[p];
+            if (buffer.remaining() < RECORD_LENGTH) {
+                buffer = ByteBuffer.allocate(2 * buffer.capacity()).put(buffer.flip());
+                buffers[p] = buffer;
+            }
+            int position = buffer.position();
+            buffer.putInt(blockIndex).put(kind).put(holder.slice(holderOffset, ADDRESS_LENGTH)).put(amount.slice(amountOffset, AMOUNT_LENGTH));
+            byte[] value = new byte[AMOUNT_LENGTH];
+            buffer.get(position + Integer.BYTES + 1 + ADDRESS_LENGTH, value);
+            return new BigInteger(1, value);
+        }
+
+        private boolean isContract(ByteBuffer holder, int holderOffset) {
+            return holder.slice(holderOffset, ADDRESS_LENGTH).equals(ByteBuffer.wrap(contractAddress));
+        }
+
+        private Decoded finish() {
+            for (ByteBuffer buffer : buffers) {
+                List<ByteBuffer> chunks = new ArrayList<>();
+                chunks.add(buffer.flip());
+                decoded.partitions.add(chunks);
+            }
+            return decoded;
+        }
+    }
+
+    /**
+     * The outcome of replaying the balance changes of a range of partitions.
+     */
+    private static class Replayed {
+        private SparseSeries balanceDeltas = new SparseSeries();
+        private BigInteger heldSupply = BigInteger.ZERO;
+        private long holderCount;
+        private int firstNegative = -1;
+
+        private Replayed combine(Replayed other) {
+            balanceDeltas = balanceDeltas.merge(other.balanceDeltas);
+            heldSupply = heldSupply.add(other.heldSupply);
+            holderCount += other.holderCount;
+            firstNegative = min(firstNegative, other.firstNegative);
+            return this;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class ReplayTask extends RecursiveTask<Replayed> {
+        private final List<List<ByteBuffer>> partitions;
+        private final int from;
+        private final int to;
+
+        private ReplayTask(List<List<ByteBuffer>> partitions, int from, int to) {
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Replayed compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                ReplayTask right = new ReplayTask(partitions, middle, to);
+                right.fork();
+                Replayed left = new ReplayTask(partitions, from, middle).compute();
+                return left.combine(right.join());
+            }
+
+            // the records of one partition are in block order, so replaying them in turn gives every balance in turn
+            Replayed replayed = new Replayed();
+            Map<ByteBuffer, BigInteger> balances = new HashMap<>();
+            byte[] amount = new byte[AMOUNT_LENGTH];
+            for (ByteBuffer chunk : partitions.get(from)) {
+                for (int position = 0; position < chunk.limit(); position += RECORD_LENGTH) {
+                    int blockIndex = chunk.getInt(position);
+                    byte kind = chunk.get(position + Integer.BYTES);
+                    ByteBuffer account = chunk.slice(position + Integer.BYTES + 1, ADDRESS_LENGTH);
+                    chunk.get(position + Integer.BYTES + 1 + ADDRESS_LENGTH, amount);
+                    BigInteger value = new BigInteger(1, amount);
+
+                    BigInteger balance = balances.get(account);
+                    BigInteger previous = (balance == null) ? BigInteger.ZERO : balance;
+                    if (kind == CREDIT) {
+                        balance = previous.add(value);
+                    } else if (kind == DEBIT) {
+                        balance = previous.subtract(value);
+                    } else {
+                        balance = value;
+                    }
+                    if (balance.signum() < 0 && replayed.firstNegative < 0) {
+                        replayed.firstNegative = blockIndex;
+                    }
+                    balances.put(account, balance);
+                    replayed.balanceDeltas.add(blockIndex, balance.subtract(previous));
+                }
+            }
+
+            for (BigInteger balance : balances.values()) {
+                replayed.heldSupply = replayed.heldSupply.add(balance);
+            }
+            replayed.holderCount = balances.size();
+            return replayed;
+        }
+    }
+
+    private static class NoOpHandler implements ATSEventDecoder.Handler {
+        @Override
+        public void tokenCreated(ByteBuffer owner, int ownerOffset) {
+        }
+
+        @Override
+        public void credit(ByteBuffer holder, int holderOffset, ByteBuffer amount, int amountOffset, int counterpart) {
+        }
+
+        @Override
+        public void debit(ByteBuffer holder, int holderOffset, ByteBuffer amount, int amountOffset, int counterpart) {
+        }
+
+        @Override
+        public void debitOwner(ByteBuffer amount, int amountOffset, int counterpart) {
+        }
+
+        @Override
+        public void setBalance(ByteBuffer holder, int holderOffset, ByteBuffer balance, int balanceOffset) {
+        }
+
+        @Override
+        public void authorizeOperator(ByteBuffer operatorAndHolder, int offset) {
+        }
+
+        @Override
+        public void revokeOperator(ByteBuffer operatorAndHolder, int offset) {
+        }
+    }
+
+    /**
+     * Amounts by block index, for the blocks where they are not zero, in block order.
+     */
+    private static class SparseSeries {
+        private int[] blocks = new int[8];
+        private BigInteger[] values = new BigInteger[8];
+        private int size;
+        private BigInteger[] cumulative;
+
+        /**
+         * Add an amount to a block at or after the last one.
+         */
+        private void add(int block, BigInteger value) {
+            if (size > 0 && blocks[size - 1] == block) {
+                values[size - 1] = values[size - 1].add(value);
+                return;
+            }
+            if (size == blocks.length) {
+                blocks = Arrays.copyOf(blocks, 2 * size);
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            blocks[size] = block;
+            values[size] = value;
+            size++;
+        }
+
+        private SparseSeries merge(SparseSeries other) {
+            SparseSeries merged = new SparseSeries();
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && blocks[i] <= other.blocks[j])) {
+                    merged.add(blocks[i], values[i]);
+                    i++;
+                } else {
+                    merged.add(other.blocks[j], other.values[j]);
+                    j++;
+                }
+            }
+            return merged;
+        }
+
+        private SparseSeries negate() {
+            SparseSeries negated = new SparseSeries();
+            for (int i = 0; i < size; i++) {
+                negated.add(blocks[i], values[i].negate());
+            }
+            return negated;
+        }
+
+        private int firstNonZero() {
+            for (int i = 0; i < size; i++) {
+                if (values[i].signum() != 0) {
+                    return blocks[i];
+                }
+            }
+            return -1;
+        }
+
+        private BigInteger sum() {
+            return sumUpTo(Integer.MAX_VALUE);
+        }
+
+        private BigInteger sumUpTo(int block) {
+            if (cumulative == null) {
+                cumulative = new BigInteger[size + 1];
+                cumulative[0] = BigInteger.ZERO;
+                for (int i = 0; i < size; i++) {
+                    cumulative[i + 1] = cumulative[i].add(values[i]);
+                }
+            }
+            int index = Arrays.binarySearch(blocks, 0, size, block);
+            int count = (index >= 0) ? index + 1 : -index - 1;
+            return cumulative[count];
+        }
+    }
+}
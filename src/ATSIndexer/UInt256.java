@@ -0,0 +1,52 @@
+package ATSIndexer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Arithmetic on unsigned 256 bit big-endian numbers stored in buffers, as four 64 bit words, without allocating.
+ */
+final class UInt256 {
+    private static final int LENGTH = 32;
+
+    private UInt256() {
+    }
+
+    /**
+     * Add the number at source into the number at target.
+     *
+     * @return false if the sum overflows 256 bits
+     */
+    static boolean add(ByteBuffer target, int targetOffset, ByteBuffer source, int sourceOffset) {
+        long carry = 0;
+        for (int i = LENGTH - Long.BYTES; i >= 0; i -= Long.BYTES) {
+            long a = target.getLong(targetOffset + i);
+            long sum = a + source.getLong(sourceOffset + i);
+            long carryOut = Long.compareUnsigned(sum, a) < 0 ? 1 : 0;
+            long withCarry = sum + carry;
+            carryOut |= (carry == 1 && withCarry == 0) ? 1 : 0;
+            target.putLong(targetOffset + i, withCarry);
+            carry = carryOut;
+        }
+        return carry == 0;
+    }
+
+    /**
+     * Subtract the number at source from the number at target.
+     *
+     * @return false if the number at source is larger, the target then holds the difference modulo 2^256
+     */
+    static boolean subtract(ByteBuffer target, int targetOffset, ByteBuffer source, int sourceOffset) {
+        long borrow = 0;
+        for (int i = LENGTH - Long.BYTES; i >= 0; i -= Long.BYTES) {
+            long a = target.getLong(targetOffset + i);
+            long b = source.getLong(sourceOffset + i);
+            long difference = a - b;
+            long borrowOut = Long.compareUnsigned(a, b) < 0 ? 1 : 0;
+            long withBorrow = difference - borrow;
+            borrowOut |= (borrow == 1 && difference == 0) ? 1 : 0;
+            target.putLong(targetOffset + i, withBorrow);
+            borrow = borrowOut;
+        }
+        return borrow == 0;
+    }
+}
@@ -0,0 +1,222 @@
+package ATSIndexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory-mapped log of the previous values of every table entry changed while applying blocks. Undoing the changes
+ * recorded after a block, newest first, restores the tables to their state at that block, which is how blocks removed
+ * by a reorg are rolled back and how the blocks applied after the last checkpoint are discarded on reopening.
+ *
+ * A change is recorded before the table is written, so the journal always covers the tables.
+ *
+ * The file is laid out as
+ * - header (8 bytes): length of the journal, records past it are ignored
+ * - block record: type 1 (1 byte), block number (8 bytes), block hash (32 bytes), followed by the changes of the block
+ * - change record: type 2 (1 byte), table index (1 byte), whether the key was present (1 byte), key,
+ *   previous value if the key was present
+ */
+class UndoJournal implements Closeable {
+    private static final int HEADER_LENGTH = Long.BYTES;
+    private static final int MIN_CAPACITY = 1 << 20;
+    private static final int HASH_LENGTH = 32;
+    private static final int BLOCK_RECORD_LENGTH = 1 + Long.BYTES + HASH_LENGTH;
+
+    private static final byte BLOCK = 1;
+    private static final byte CHANGE = 2;
+
+    private final Path path;
+    private final MappedHashTable[] tables;
+    private final List<BlockMark> marks = new ArrayList<>(); // consecutive block numbers, oldest first
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int length;
+
+    UndoJournal(Path path, MappedHashTable[] tables) throws IOException {
+        this.path = path;
+        this.tables = tables;
+        open();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileLength = channel.size();
+        map(Math.max(MIN_CAPACITY, fileLength));
+        length = (fileLength >= HEADER_LENGTH) ? (int) buffer.getLong(0) : 0;
+        if (length < HEADER_LENGTH) {
+            length = HEADER_LENGTH;
+            buffer.putLong(0, length);
+        }
+
+        marks.clear();
+        for (int position = HEADER_LENGTH; position < length; position += recordLength(position)) {
+            if (buffer.get(position) == BLOCK) {
+                byte[] hash = new byte[HASH_LENGTH];
+                buffer.get(position + 1 + Long.BYTES, hash);
+                marks.add(new BlockMark(buffer.getLong(position + 1), hash, position));
+            }
+        }
+    }
+
+    void beginBlock(long blockNumber, byte[] blockHash) throws IOException {
+        ensureCapacity(BLOCK_RECORD_LENGTH);
+        buffer.put(length, BLOCK);
+        buffer.putLong(length + 1, blockNumber);
+        buffer.put(length + 1 + Long.BYTES, blockHash, 0, HASH_LENGTH);
+        marks.add(new BlockMark(blockNumber, blockHash.clone(), length));
+        commit(BLOCK_RECORD_LENGTH);
+    }
+
+    /**
+     * Record the value a key of a table had before it is changed.
+     *
+     * @param previousValue buffer holding the previous value, null if the key was absent
+     */
+    void recordChange(int table, ByteBuffer key, int keyOffset, ByteBuffer previousValue, int valueOffset) throws IOException {
+        int keyLength = tables[table].keyLength();
+        int valueLength = (previousValue == null) ? 0 : tables[table].valueLength();
+        int recordLength = 3 + keyLength + valueLength;
+        ensureCapacity(recordLength);
+        buffer.put(length, CHANGE);
+        buffer.put(length + 1, (byte) table);
+        buffer.put(length + 2, (byte) (previousValue == null ? 0 : 1));
+        buffer.put(length + 3, key, keyOffset, keyLength);
+        if (valueLength > 0) {
+            buffer.put(length + 3 + keyLength, previousValue, valueOffset, valueLength);
+        }
+        commit(recordLength);
+    }
+
+    /**
+     * Returns the hash of a block still in the journal, or null.
+     */
+    byte[] getBlockHash(long blockNumber) {
+        int index = indexOf(blockNumber);
+        return (index < 0) ? null : marks.get(index).hash.clone();
+    }
+
+    /**
+     * Undo the changes of every block after the given one and remove them from the journal.
+     */
+    void rollBack(long blockNumber) throws IOException {
+        if (marks.isEmpty() || marks.get(marks.size() - 1).number <= blockNumber) {
+            return;
+        }
+        int first = (blockNumber < marks.get(0).number) ? 0 : indexOf(blockNumber) + 1;
+        int start = marks.get(first).position;
+
+        List<Integer> changes = new ArrayList<>();
+        for (int position = start; position < length; position += recordLength(position)) {
+            if (buffer.get(position) == CHANGE) {
+                changes.add(position);
+            }
+        }
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            undo(changes.get(i));
+        }
+
+        marks.subList(first, marks.size()).clear();
+        length = start;
+        buffer.putLong(0, length);
+    }
+
+    /**
+     * Drop the blocks before the given one, they can no longer be rolled back.
+     */
+    void prune(long firstKeptBlockNumber) throws IOException {
+        int index = indexOf(firstKeptBlockNumber);
+        if (index <= 0) {
+            return;
+        }
+        int start = marks.get(index).position;
+
+        Path pruned = path.resolveSibling(path.getFileName() + ".prune");
+        try (FileChannel out = FileChannel.open(pruned, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.allocate(HEADER_LENGTH).putLong(0, HEADER_LENGTH + length - start));
+            out.write(buffer.slice(start, length - start));
+            out.force(true);
+        }
+        channel.close();
+        Files.move(pruned, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void undo(int position) throws IOException {
+        MappedHashTable table = tables[buffer.get(position + 1)];
+        int keyPosition = position + 3;
+        if (buffer.get(position + 2) == 1) {
+            table.put(buffer, keyPosition, buffer, keyPosition + table.keyLength());
+        } else {
+            table.remove(buffer, keyPosition);
+        }
+    }
+
+    private int indexOf(long blockNumber) {
+        if (marks.isEmpty()) {
+            return -1;
+        }
+        long index = blockNumber - marks.get(0).number;
+        return (index < 0 || index >= marks.size()) ? -1 : (int) index;
+    }
+
+    private int recordLength(int position) {
+        if (buffer.get(position) == BLOCK) {
+            return BLOCK_RECORD_LENGTH;
+        }
+        MappedHashTable table = tables[buffer.get(position + 1)];
+        return 3 + table.keyLength() + (buffer.get(position + 2) == 1 ? table.valueLength() : 0);
+    }
+
+    private void ensureCapacity(int recordLength) throws IOException {
+        if ((long) length + recordLength > buffer.capacity()) {
+            map(2L * buffer.capacity());
+        }
+    }
+
+    private void map(long capacity) throws IOException {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("undo journal " + path + " is full, checkpoint more often");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    /**
+     * The length is only advanced once the record is written, so a record cut short by a crash is ignored.
+     */
+    private void commit(int recordLength) {
+        length += recordLength;
+        buffer.putLong(0, length);
+    }
+
+    private static class BlockMark {
+        private final long number;
+        private final byte[] hash;
+        private final int position;
+
+        private BlockMark(long number, byte[] hash, int position) {
+            this.number = number;
+            this.hash = hash;
+            this.position = position;
+        }
+    }
+}
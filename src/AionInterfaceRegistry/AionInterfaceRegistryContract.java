@@ -4,6 +4,7 @@ import avm.Address;
 import avm.Blockchain;
 import avm.Result;
 import org.aion.avm.tooling.abi.Callable;
+import org.aion.avm.userlib.AionList;
 import org.aion.avm.userlib.AionMap;
 import org.aion.avm.userlib.abi.ABIDecoder;
 import org.aion.avm.userlib.abi.ABIEncoder;
@@ -13,8 +14,11 @@ import java.util.Arrays;
 
 public class AionInterfaceRegistryContract {
 
-    private static AionMap<Address, AionMap<ByteArrayWrapper, Address>> interfaces; // <contract, <interface hash, implementer>>
+    private static AionMap<Address, AionMap<ByteArrayWrapper, Registration>> interfaces; // <contract, <interface hash, implementer>>
+    private static AionMap<ByteArrayWrapper, AionList<Address>> implementedTargets; // <implementer ++ interface hash, contracts it implements the interface for>
     private static AionMap<Address, Address> managers; // <address, its manager>
+    private static AionMap<ByteArrayWrapper, Address> defaultImplementers; // <interface hash, implementer for any target without one of its own>
+    private static Address governance; // sets the default implementers, the deployer unless it hands this over
 
     /**
      * Called to get the address of the manager which controls the registration of the 'target'.
@@ -49,15 +53,19 @@ public class AionInterfaceRegistryContract {
     }
 
     /**
-     * Called to get the address of the delegate implementing the interfaceHash on behalf of the 'target'.
+     * Called to get the address of the delegate implementing the interfaceHash on behalf of the 'target'. If the
+     * target has set no implementer for the interface, the default implementer of the interface is returned.
      *
      * @param target Address supporting an interface.
      * @param interfaceHash sha256 hash of the interface.
-     * @return The address of the contract which implements the interface 'interfaceHash' for 'target'
+     * @return The address of the contract which implements the interface 'interfaceHash' for 'target', or null if there is none
      */
     @Callable
     public static Address getInterfaceImplementer(Address target, byte[] interfaceHash) {
-       return interfaces.get(target).get(new ByteArrayWrapper(interfaceHash));
+        ByteArrayWrapper key = new ByteArrayWrapper(interfaceHash);
+        AionMap<ByteArrayWrapper, Registration> interfacesImplemented = interfaces.get(target);
+        Registration registration = (interfacesImplemented == null) ? null : interfacesImplemented.get(key);
+        return (registration != null) ? registration.implementer : defaultImplementers.get(key);
     }
 
     /**
@@ -65,7 +73,7 @@ public class AionInterfaceRegistryContract {
      *
      * @param target Address supporting an interface.
      * @param interfaceHash sha256 hash of the interface.
-     * @param implementer Address implementing the interface on behalf of 'target'.
+     * @param implementer Address implementing the interface on behalf of 'target', or null to remove the implementer.
      */
     @Callable
     public static void setInterfaceImplementer(Address target, byte[] interfaceHash, Address implementer) {
@@ -74,28 +82,240 @@ public class AionInterfaceRegistryContract {
         Blockchain.require(manager.equals(caller) || target.equals(caller)); // should only allow manager and target itself to set implementer
 
         // if the caller is not the implementer, call the implementer to verify it implements the AIRImplementerInterface
-        if (!implementer.equals(caller)) {
-            Result callResult = checkImplementer(implementer, "isImplementerFor", target, interfaceHash);
-            Blockchain.require(callResult != null);
-            byte[] data = callResult.getReturnData();
+        if (implementer != null && !implementer.equals(caller)) {
+            requireImplementer(implementer, target, interfaceHash);
+        }
+
+        register(target, interfaceHash, implementer);
+        AIRContractEvents.emitInterfaceImplementerSetEvent(target, interfaceHash, implementer);
+    }
+
+    /**
+     * Called to get the implementers of many interfaces at once: the implementer of interfaceHashes[i] for targets[i],
+     * as getInterfaceImplementer returns it, at index i.
+     *
+     * @param targets Addresses supporting an interface.
+     * @param interfaceHashes sha256 hash of the interface, for each target.
+     * @return The implementer for each target, null where there is none
+     */
+    @Callable
+    public static Address[] getInterfaceImplementers(Address[] targets, byte[][] interfaceHashes) {
+        Blockchain.require(targets.length == interfaceHashes.length);
+        Address[] implementers = new Address[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            implementers[i] = getInterfaceImplementer(targets[i], interfaceHashes[i]);
+        }
+        return implementers;
+    }
+
+    /**
+     * Called to set one implementer of the interface 'interfaceHash' for many targets. The caller must be each target
+     * or its manager, and an implementer other than the caller must accept each target, as in setInterfaceImplementer.
+     * A single event lists all the targets.
+     *
+     * @param targets Addresses supporting an interface.
+     * @param interfaceHash sha256 hash of the interface.
+     * @param implementer Address implementing the interface on behalf of each target, or null to remove the implementer.
+     */
+    @Callable
+    public static void setInterfaceImplementers(Address[] targets, byte[] interfaceHash, Address implementer) {
+        Address caller = Blockchain.getCaller();
+        for (Address target : targets) {
+            Blockchain.require(target.equals(caller) || getManager(target).equals(caller));
+        }
+
+        boolean verify = implementer != null && !implementer.equals(caller);
+        for (Address target : targets) {
+            if (verify) {
+                requireImplementer(implementer, target, interfaceHash);
+            }
+            register(target, interfaceHash, implementer);
+        }
+        AIRContractEvents.emitInterfaceImplementersSetEvent(interfaceHash, implementer, targets);
+    }
+
+    /**
+     * Called to set one manager for many targets. The caller must be each target or its current manager. A single
+     * event lists all the targets.
+     *
+     * @param targets Addresses supporting an interface.
+     * @param newManager Address of the manager for each target.
+     */
+    @Callable
+    public static void setManagers(Address[] targets, Address newManager) {
+        Address caller = Blockchain.getCaller();
+        for (Address target : targets) {
+            Blockchain.require(caller.equals(target) || caller.equals(getManager(target)));
+        }
 
-            ABIDecoder decoder = new ABIDecoder(data);
-            boolean result = decoder.decodeOneBoolean();
-            Blockchain.require(result);
+        for (Address target : targets) {
+            if (target.equals(newManager)) {
+                managers.remove(target);
+            } else {
+                managers.put(target, newManager);
+            }
         }
+        AIRContractEvents.emitManagersChangedEvent(newManager, targets);
+    }
 
-        // set up inner interfaces map
-        AionMap<ByteArrayWrapper, Address> interfacesImplemented;
-        if (interfaces.containsKey(target)) {
-            interfacesImplemented = interfaces.get(target);
+    /**
+     * Called to get the default implementer of the interface 'interfaceHash'.
+     *
+     * @param interfaceHash sha256 hash of the interface.
+     * @return The address of the contract which implements the interface for every target without an implementer of its own, or null
+     */
+    @Callable
+    public static Address getDefaultInterfaceImplementer(byte[] interfaceHash) {
+        return defaultImplementers.get(new ByteArrayWrapper(interfaceHash));
+    }
+
+    /**
+     * Called to set the default implementer of the interface 'interfaceHash'. It implements the interface for every
+     * target that has not set an implementer of its own, so that targets sharing one implementer need no state or
+     * transaction each, however many there are.
+     *
+     * Only the governance address can call this, see getGovernance. A default reaches targets that never agreed to it,
+     * so the governance address is trusted to only make defaults of implementers that serve any target. A target that
+     * does not want the default sets an implementer of its own, itself for example, which always takes precedence.
+     *
+     * @param interfaceHash sha256 hash of the interface.
+     * @param implementer Address implementing the interface, or null to remove the default.
+     */
+    @Callable
+    public static void setDefaultInterfaceImplementer(byte[] interfaceHash, Address implementer) {
+        Blockchain.require(Blockchain.getCaller().equals(governance));
+
+        if (implementer == null) {
+            defaultImplementers.remove(new ByteArrayWrapper(interfaceHash));
         } else {
+            defaultImplementers.put(new ByteArrayWrapper(interfaceHash), implementer);
+        }
+        AIRContractEvents.emitDefaultInterfaceImplementerSetEvent(interfaceHash, implementer);
+    }
+
+    /**
+     * Called to get the address allowed to set default implementers. It is the deployer of the registry until the
+     * governance is handed over, to a multisig or governance contract for example.
+     *
+     * @return the governance address.
+     */
+    @Callable
+    public static Address getGovernance() {
+        return governance;
+    }
+
+    /**
+     * Called to hand the right to set default implementers over to 'newGovernance'. Only the current governance
+     * address can call this.
+     *
+     * @param newGovernance Address allowed to set default implementers from now on.
+     */
+    @Callable
+    public static void setGovernance(Address newGovernance) {
+        Blockchain.require(Blockchain.getCaller().equals(governance) && newGovernance != null);
+        governance = newGovernance;
+        AIRContractEvents.emitGovernanceChangedEvent(newGovernance);
+    }
+
+    /**
+     * Called to get the number of contracts for which 'implementer' is the registered implementer of the interface
+     * 'interfaceHash'. Contracts that only use it as the default implementer are not counted.
+     *
+     * @param implementer Address implementing the interface.
+     * @param interfaceHash sha256 hash of the interface.
+     * @return The number of contracts
+     */
+    @Callable
+    public static int getImplementedTargetCount(Address implementer, byte[] interfaceHash) {
+        AionList<Address> targets = implementedTargets.get(reverseKey(implementer, interfaceHash));
+        return (targets == null) ? 0 : targets.size();
+    }
+
+    /**
+     * Called to get a page of the contracts for which 'implementer' is the registered implementer of the interface
+     * 'interfaceHash', for example to find the contracts to move off an implementer. Removing a contract moves the last
+     * contract into its place, so pages read across transactions that remove contracts may skip or repeat some.
+     *
+     * @param implementer Address implementing the interface.
+     * @param interfaceHash sha256 hash of the interface.
+     * @param offset index of the first contract of the page.
+     * @param count maximum number of contracts to return.
+     * @return The contracts of the page, fewer than 'count' at the end
+     */
+    @Callable
+    public static Address[] getImplementedTargets(Address implementer, byte[] interfaceHash, int offset, int count) {
+        Blockchain.require(offset >= 0 && count >= 0);
+        AionList<Address> targets = implementedTargets.get(reverseKey(implementer, interfaceHash));
+        int size = (targets == null) ? 0 : targets.size();
+        int end = (count > size - offset) ? size : offset + count;
+
+        Address[] page = new Address[Math.max(0, end - offset)];
+        for (int i = 0; i < page.length; i++) {
+            page[i] = targets.get(offset + i);
+        }
+        return page;
+    }
+
+    /**
+     * Sets the implementer of an interface for the target, keeping the list of targets of each implementer in step. A
+     * target is appended to the list of its new implementer and swapped out of the list of its old one, by moving the
+     * last target of that list into its place, so both take the same work however many targets an implementer has.
+     */
+    private static void register(Address target, byte[] interfaceHash, Address implementer) {
+        ByteArrayWrapper key = new ByteArrayWrapper(interfaceHash);
+        AionMap<ByteArrayWrapper, Registration> interfacesImplemented = interfaces.get(target);
+        if (interfacesImplemented == null) {
             interfacesImplemented = new AionMap<>();
+            interfaces.put(target, interfacesImplemented);
         }
 
-        // put new interface and implementer into the map
-        interfacesImplemented.put(new ByteArrayWrapper(interfaceHash), implementer);
-        interfaces.put(target, interfacesImplemented);
-        AIRContractEvents.emitInterfaceImplementerSetEvent(target, interfaceHash, implementer);
+        Registration old = interfacesImplemented.get(key);
+        if (old != null) {
+            if (old.implementer.equals(implementer)) {
+                return;
+            }
+            ByteArrayWrapper oldReverseKey = reverseKey(old.implementer, interfaceHash);
+            AionList<Address> targets = implementedTargets.get(oldReverseKey);
+            Address last = targets.remove(targets.size() - 1);
+            if (old.position < targets.size()) {
+                targets.set(old.position, last);
+                interfaces.get(last).get(key).position = old.position;
+            }
+            if (targets.isEmpty()) {
+                implementedTargets.remove(oldReverseKey);
+            }
+            interfacesImplemented.remove(key);
+        }
+
+        if (implementer != null) {
+            ByteArrayWrapper newReverseKey = reverseKey(implementer, interfaceHash);
+            AionList<Address> targets = implementedTargets.get(newReverseKey);
+            if (targets == null) {
+                targets = new AionList<>();
+                implementedTargets.put(newReverseKey, targets);
+            }
+            interfacesImplemented.put(key, new Registration(implementer, targets.size()));
+            targets.add(target);
+        } else if (interfacesImplemented.isEmpty()) {
+            interfaces.remove(target);
+        }
+    }
+
+    private static ByteArrayWrapper reverseKey(Address implementer, byte[] interfaceHash) {
+        return new ByteArrayWrapper(ByteArrayHelpers.concatenate(implementer.unwrap(), interfaceHash));
+    }
+
+    /**
+     * Reverts unless the implementer accepts to implement the interface for the target
+     */
+    private static void requireImplementer(Address implementer, Address target, byte[] interfaceHash) {
+        Result callResult = checkImplementer(implementer, "isImplementerFor", target, interfaceHash);
+        Blockchain.require(callResult != null);
+        byte[] data = callResult.getReturnData();
+
+        ABIDecoder decoder = new ABIDecoder(data);
+        boolean result = decoder.decodeOneBoolean();
+        Blockchain.require(result);
     }
 
     /**
@@ -116,27 +336,79 @@ public class AionInterfaceRegistryContract {
     static {
         managers = new AionMap<>();
         interfaces = new AionMap<>();
+        implementedTargets = new AionMap<>();
+        defaultImplementers = new AionMap<>();
+        governance = Blockchain.getCaller();
     }
 
     /**
-     * Events that this contract emits.
+     * Events that this contract emits. The event name is the first topic, and the target or manager, interface hash and
+     * delegate of an event are topics as well, so that clients can filter the logs of the targets and interfaces they
+     * follow.
+     * Topics are 32 bytes: a removed delegate is written as zeros. The data holds the targets of batch events only.
      */
 
     public static class AIRContractEvents {
         private static String EmitInterfaceImplementerSetEventString = "InterfaceImplementerSetEvent";
         private static String EmitManagerChangedEventString = "ManagerChangedEvent";
+        private static String EmitDefaultInterfaceImplementerSetEventString = "DefaultInterfaceImplementerSetEvent";
+        private static String EmitInterfaceImplementersSetEventString = "InterfaceImplementersSetEvent";
+        private static String EmitManagersChangedEventString = "ManagersChangedEvent";
+        private static String EmitGovernanceChangedEventString = "GovernanceChangedEvent";
 
-        public static void emitInterfaceImplementerSetEvent(Address target, byte[] interfaceHash, Address delegate) {
-            byte[][] data = new byte[3][];
-            data[0] = target.unwrap();
-            data[1] = interfaceHash;
-            data[2] = delegate.unwrap();
+        private static final byte[] NO_DATA = new byte[0];
 
-            Blockchain.log(EmitInterfaceImplementerSetEventString.getBytes(), ByteArrayHelpers.concatenateMultiple(data));
+        public static void emitInterfaceImplementerSetEvent(Address target, byte[] interfaceHash, Address delegate) {
+            Blockchain.log(EmitInterfaceImplementerSetEventString.getBytes(), target.unwrap(), interfaceHash, delegateTopic(delegate), NO_DATA);
         }
 
         public static void emitManagerChangedEvent(Address target, Address newManager) {
-            Blockchain.log(EmitManagerChangedEventString.getBytes(), ByteArrayHelpers.concatenate(target.unwrap(), newManager.unwrap()));
+            Blockchain.log(EmitManagerChangedEventString.getBytes(), target.unwrap(), newManager.unwrap(), NO_DATA);
+        }
+
+        public static void emitInterfaceImplementersSetEvent(byte[] interfaceHash, Address delegate, Address[] targets) {
+            Blockchain.log(EmitInterfaceImplementersSetEventString.getBytes(), interfaceHash, delegateTopic(delegate), concatenateAddresses(targets));
+        }
+
+        public static void emitManagersChangedEvent(Address newManager, Address[] targets) {
+            Blockchain.log(EmitManagersChangedEventString.getBytes(), newManager.unwrap(), concatenateAddresses(targets));
+        }
+
+        public static void emitDefaultInterfaceImplementerSetEvent(byte[] interfaceHash, Address delegate) {
+            Blockchain.log(EmitDefaultInterfaceImplementerSetEventString.getBytes(), interfaceHash, delegateTopic(delegate), NO_DATA);
+        }
+
+        public static void emitGovernanceChangedEvent(Address newGovernance) {
+            Blockchain.log(EmitGovernanceChangedEventString.getBytes(), newGovernance.unwrap(), NO_DATA);
+        }
+
+        private static byte[] delegateTopic(Address delegate) {
+            return (delegate == null) ? new byte[Address.LENGTH] : delegate.unwrap();
+        }
+
+        /**
+         * Returns the addresses, copied into one array at once rather than one address at a time.
+         */
+        private static byte[] concatenateAddresses(Address[] addresses) {
+            byte[] result = new byte[addresses.length * Address.LENGTH];
+            for (int i = 0; i < addresses.length; i++) {
+                System.arraycopy(addresses[i].unwrap(), 0, result, i * Address.LENGTH, Address.LENGTH);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The implementer of an interface for a contract, and the index of the contract in the list of contracts of the
+     * implementer.
+     */
+    public static class Registration {
+        private Address implementer;
+        private int position;
+
+        Registration(Address implementer, int position) {
+            this.implementer = implementer;
+            this.position = position;
         }
     }
 
@@ -160,7 +432,7 @@ public class AionInterfaceRegistryContract {
 
         @Override
         public int hashCode(){
-            return 1;
+            return Arrays.hashCode(this.bytes);
         }
 
         byte[] getBytes() {
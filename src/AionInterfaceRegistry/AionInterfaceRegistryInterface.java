@@ -10,5 +10,23 @@ public interface AionInterfaceRegistryInterface {
 
     public Address getInterfaceImplementer(Address target, byte[] interfaceHash);
 
-    public void setInterfaceImplementer(Address target, byte[] interfaceHash, Address delegate);
+    public void setInterfaceImplementer(Address target, byte[] interfaceHash, Address implementer);
+
+    public Address getDefaultInterfaceImplementer(byte[] interfaceHash);
+
+    public void setDefaultInterfaceImplementer(byte[] interfaceHash, Address implementer);
+
+    public Address getGovernance();
+
+    public void setGovernance(Address newGovernance);
+
+    public Address[] getInterfaceImplementers(Address[] targets, byte[][] interfaceHashes);
+
+    public void setInterfaceImplementers(Address[] targets, byte[] interfaceHash, Address implementer);
+
+    public void setManagers(Address[] targets, Address newManager);
+
+    public int getImplementedTargetCount(Address implementer, byte[] interfaceHash);
+
+    public Address[] getImplementedTargets(Address implementer, byte[] interfaceHash, int offset, int count);
 }
@@ -0,0 +1,512 @@
+package AionMultiToken;
+
+import avm.Address;
+import avm.Blockchain;
+import avm.Result;
+import org.aion.avm.tooling.abi.Callable;
+import org.aion.avm.userlib.AionBuffer;
+import org.aion.avm.userlib.AionList;
+import org.aion.avm.userlib.AionMap;
+import org.aion.avm.userlib.abi.ABIDecoder;
+import org.aion.avm.userlib.abi.ABIEncoder;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * A ledger holding many tokens in one contract. Tokens are identified by the id returned from createToken, and every
+ * record of a token is stored under a key namespaced by that id, so a new token costs one transaction instead of a
+ * deployment and an AIR registration of its own.
+ */
+public class AionMultiTokenContract {
+
+    /** ==================================== Multi-Token Contract State ==================================== **/
+    private static long tokenCount;
+    private static Address MultiTokenContractAddress;
+    private static Address AionInterfaceRegistryAddress;
+    private static Address zeroAddress = new Address("00000000000000000000000000000000".getBytes());
+
+    private static final String InterfaceName = "AIP004MultiToken";
+    private static final int MAX_AMOUNT_BITS = 255; // amounts are logged as signed 32-byte values
+
+    /** ==================================== Token Management ==================================== **/
+
+    /**
+     * Create a new token in this ledger. The caller receives the initial supply, which is fixed: tokens can be burned
+     * but not minted.
+     *
+     * @param name name of the token
+     * @param symbol symbol of the token
+     * @param granularity smallest part of the token that's not divisible
+     * @param initialSupply number of tokens given to the caller, more than zero and less than 2^255
+     * @return id of the new token
+     */
+    @Callable
+    public static long createToken(String name, String symbol, int granularity, byte[] initialSupply) {
+        Address caller = Blockchain.getCaller();
+        BigInteger supply = new BigInteger(initialSupply);
+
+        Blockchain.require(name.length() > 0);
+        Blockchain.require(symbol.length() > 0);
+        Blockchain.require(granularity >= 1);
+        Blockchain.require(supply.signum() > 0 && supply.bitLength() <= MAX_AMOUNT_BITS); // every amount fits its 32-byte slot
+        Blockchain.require(supply.mod(BigInteger.valueOf(granularity)).equals(BigInteger.ZERO));
+
+        tokenCount++;
+        long tokenId = tokenCount;
+        TokenInformation token = new TokenInformation(granularity, supply, name, symbol);
+        Blockchain.putStorage(tokenKey(tokenId), token.encode());
+        Blockchain.putStorage(balanceKey(tokenId, caller), supply.toByteArray());
+
+        MultiTokenContractEvents.emitTokenCreatedEvent(tokenId, caller, supply);
+        return tokenId;
+    }
+
+    /**
+     * Returns the number of tokens created in this ledger, token ids run from 1 to this number.
+     */
+    @Callable
+    public static long getTokenCount() {
+        return tokenCount;
+    }
+
+    /** ==================================== Basic Token Functionality ==================================== **/
+
+    @Callable
+    public static String getName(long tokenId) {
+        return getToken(tokenId).name;
+    }
+
+    @Callable
+    public static String getSymbol(long tokenId) {
+        return getToken(tokenId).symbol;
+    }
+
+    @Callable
+    public static int getGranularity(long tokenId) {
+        return getToken(tokenId).granularity;
+    }
+
+    @Callable
+    public static byte[] getTotalSupply(long tokenId) {
+        return getToken(tokenId).totalSupply.toByteArray();
+    }
+
+    /**
+     * Get the balance of the account with address tokenHolder for the given token.
+     *
+     * @param tokenId id of the token
+     * @param tokenHolder Address for which the balance is returned
+     * @return Amount of the token held by tokenHolder.
+     */
+    @Callable
+    public static byte[] balanceOf(long tokenId, Address tokenHolder) {
+        return getBalance(tokenId, tokenHolder).toByteArray();
+    }
+
+    /** ==================================== Operator Functionality ==================================== **/
+
+    /**
+     * Set a third party operator address as an operator of caller for every token of this ledger.
+     *
+     * @param operator Address to set as a operator of caller.
+     */
+    @Callable
+    public static void authorizeOperator(Address operator) {
+        Address caller = Blockchain.getCaller();
+        Blockchain.require(!caller.equals(operator)); // there is no point setting oneself as operator
+
+        AionList<Address> operators = getOperators(caller);
+        if (!operators.contains(operator)) {
+            operators.add(operator);
+            putOperators(caller, operators);
+        }
+
+        MultiTokenContractEvents.emitAuthorizedOperatorEvent(operator, caller);
+    }
+
+    /**
+     * Remove the right of the operator address from being an operator of caller.
+     *
+     * @param operator Address to revoke as an operator for caller
+     */
+    @Callable
+    public static void revokeOperator(Address operator) {
+        Address caller = Blockchain.getCaller();
+        Blockchain.require(!caller.equals(operator)); // there is no point setting oneself as operator
+
+        AionList<Address> operators = getOperators(caller);
+        if (operators.remove(operator)) {
+            putOperators(caller, operators);
+        }
+
+        MultiTokenContractEvents.emitRevokedOperatorEvent(operator, caller);
+    }
+
+    /**
+     * Indicates whether the operator address is an operator of the tokenHolder address.
+     */
+    @Callable
+    public static boolean isOperatorFor(Address operator, Address tokenHolder) {
+        return operator.equals(tokenHolder) || getOperators(tokenHolder).contains(operator);
+    }
+
+    /** ==================================== Token Transfers ==================================== **/
+
+    /**
+     * Send the amount of the token from the caller to the recipient
+     */
+    @Callable
+    public static void send(long tokenId, Address to, byte[] amount, byte[] senderData) {
+        Address caller = Blockchain.getCaller();
+        doSend(tokenId, caller, caller, to, new BigInteger(amount), senderData, new byte[0]);
+    }
+
+    /**
+     * Send the amount of the token on behalf of the address 'from' to the address 'to'
+     */
+    @Callable
+    public static void operatorSend(long tokenId, Address from, Address to, byte[] amount, byte[] senderData, byte[] operatorData) {
+        Address caller = Blockchain.getCaller();
+        Blockchain.require(isOperatorFor(caller, from));
+        doSend(tokenId, caller, from, to, new BigInteger(amount), senderData, operatorData);
+    }
+
+    /**
+     * Send several amounts, possibly of different tokens, from the caller in one transaction. The caller's balance of
+     * each distinct token is read and written once, and a single event lists every transfer of the batch.
+     *
+     * @param tokenIds ids of the tokens to send
+     * @param recipients token recipients
+     * @param amounts number of tokens to send to the recipient at the same index
+     * @param senderData information of the transfers
+     */
+    @Callable
+    public static void sendBatch(long[] tokenIds, Address[] recipients, byte[][] amounts, byte[] senderData) {
+        Address caller = Blockchain.getCaller();
+        Blockchain.require(tokenIds.length > 0 && tokenIds.length == recipients.length && tokenIds.length == amounts.length);
+
+        AionMap<Long, BigInteger> senderBalances = new AionMap<>();
+        BigInteger[] values = new BigInteger[amounts.length];
+        for (int i = 0; i < tokenIds.length; i++) {
+            long tokenId = tokenIds[i];
+            values[i] = new BigInteger(amounts[i]);
+            checkTransfer(getToken(tokenId), recipients[i], values[i]);
+            Blockchain.require(!recipients[i].equals(caller)); // the sender balance is only written once per token
+
+            BigInteger senderBalance = senderBalances.get(tokenId);
+            if (senderBalance == null) {
+                senderBalance = getBalance(tokenId, caller);
+            }
+            senderBalance = senderBalance.subtract(values[i]);
+            Blockchain.require(senderBalance.signum() > -1); // amounts must not exceed the sender balance
+            senderBalances.put(tokenId, senderBalance);
+
+            Blockchain.putStorage(balanceKey(tokenId, recipients[i]), getBalance(tokenId, recipients[i]).add(values[i]).toByteArray());
+        }
+
+        for (Long tokenId : senderBalances.keySet()) {
+            Blockchain.putStorage(balanceKey(tokenId, caller), senderBalances.get(tokenId).toByteArray());
+        }
+
+        MultiTokenContractEvents.emitSentBatchEvent(caller, tokenIds, recipients, values, senderData);
+    }
+
+    /**
+     * Burn the amount of the token from the caller address
+     */
+    @Callable
+    public static void burn(long tokenId, byte[] amount, byte[] senderData) {
+        Address caller = Blockchain.getCaller();
+        TokenInformation token = getToken(tokenId);
+        BigInteger value = new BigInteger(amount);
+        Blockchain.require(value.signum() > -1); // amount must not be negative, 0 is okay
+        Blockchain.require(satisfyGranularity(token, value)); // amount must be a multiple of the token granularity
+
+        BigInteger senderBalance = getBalance(tokenId, caller);
+        Blockchain.require(senderBalance.compareTo(value) > -1); // amount must be greater or equal to sender balance
+        Blockchain.putStorage(balanceKey(tokenId, caller), senderBalance.subtract(value).toByteArray());
+
+        token.totalSupply = token.totalSupply.subtract(value);
+        Blockchain.putStorage(tokenKey(tokenId), token.encode());
+
+        MultiTokenContractEvents.emitBurnedEvent(tokenId, caller, value, senderData);
+    }
+
+    /** ==================================== Inner methods ==================================== **/
+
+    /**
+     * The internal send implementation
+     */
+    private static void doSend(long tokenId, Address operator, Address from, Address to, BigInteger amount, byte[] data, byte[] operatorData) {
+        checkTransfer(getToken(tokenId), to, amount);
+        Blockchain.require(!from.equals(to)); // a self transfer would write the same balance twice
+
+        BigInteger senderBalance = getBalance(tokenId, from);
+        Blockchain.require(senderBalance.compareTo(amount) > -1); // amount must be greater or equal to sender balance
+
+        Blockchain.putStorage(balanceKey(tokenId, from), senderBalance.subtract(amount).toByteArray());
+        Blockchain.putStorage(balanceKey(tokenId, to), getBalance(tokenId, to).add(amount).toByteArray());
+
+        MultiTokenContractEvents.emitSentEvent(tokenId, operator, from, to, amount, data, operatorData);
+    }
+
+    private static void checkTransfer(TokenInformation token, Address to, BigInteger amount) {
+        Blockchain.require(satisfyGranularity(token, amount)); // amount must be a multiple of the token granularity
+        Blockchain.require(amount.signum() > -1); // amount must not be negative, 0 is okay
+        Blockchain.require(!to.equals(zeroAddress)); // forbid sending to zero address (burning)
+        Blockchain.require(!to.equals(MultiTokenContractAddress)); // forbid sending to the ledger itself
+    }
+
+    private static boolean satisfyGranularity(TokenInformation token, BigInteger number) {
+        return number.mod(BigInteger.valueOf(token.granularity)).equals(BigInteger.ZERO);
+    }
+
+    private static TokenInformation getToken(long tokenId) {
+        byte[] data = Blockchain.getStorage(tokenKey(tokenId));
+        Blockchain.require(data != null); // the token must exist
+        return TokenInformation.decode(data);
+    }
+
+    private static BigInteger getBalance(long tokenId, Address tokenHolder) {
+        byte[] data = Blockchain.getStorage(balanceKey(tokenId, tokenHolder));
+        if (data == null) {
+            return BigInteger.ZERO;
+        }
+        return new BigInteger(data);
+    }
+
+    private static AionList<Address> getOperators(Address tokenHolder) {
+        AionList<Address> operators = new AionList<>();
+        byte[] data = Blockchain.getStorage(operatorsKey(tokenHolder));
+        if (data != null) {
+            for (int i = 0; i < data.length; i = i + Address.LENGTH) {
+                operators.add(new Address(Arrays.copyOfRange(data, i, i + Address.LENGTH)));
+            }
+        }
+        return operators;
+    }
+
+    private static void putOperators(Address tokenHolder, AionList<Address> operators) {
+        if (operators.isEmpty()) {
+            Blockchain.putStorage(operatorsKey(tokenHolder), null);
+            return;
+        }
+
+        AionBuffer buffer = AionBuffer.allocate(operators.size() * Address.LENGTH);
+        for (Address operator : operators) {
+            buffer.putAddress(operator);
+        }
+        Blockchain.putStorage(operatorsKey(tokenHolder), buffer.getArray());
+    }
+
+    private static byte[] tokenKey(long tokenId) {
+        return storageKey("token", AionBuffer.allocate(Long.BYTES).putLong(tokenId).getArray());
+    }
+
+    private static byte[] balanceKey(long tokenId, Address tokenHolder) {
+        return storageKey("balance", AionBuffer.allocate(Long.BYTES + Address.LENGTH).putLong(tokenId).putAddress(tokenHolder).getArray());
+    }
+
+    private static byte[] operatorsKey(Address tokenHolder) {
+        return storageKey("operators", tokenHolder.unwrap());
+    }
+
+    /**
+     * Returns the storage key of a record, which is the hash of its namespace and id.
+     */
+    private static byte[] storageKey(String namespace, byte[] id) {
+        return Blockchain.sha256(ByteArrayHelpers.concatenate(namespace.getBytes(), id));
+    }
+
+    /**
+     * Initialization code executed once at the Dapp deployment. Expect 1 argument:
+     *  - Address of the AIR contract the ledger registers itself with
+     */
+    static {
+        ABIDecoder decoder = new ABIDecoder(Blockchain.getData());
+        AionInterfaceRegistryAddress = decoder.decodeOneAddress();
+        Blockchain.require(AionInterfaceRegistryAddress != null);
+
+        MultiTokenContractAddress = Blockchain.getAddress();
+
+        // register the contract in the provided AIR contract
+        byte[][] arguments = new byte[4][];
+        arguments[0] = ABIEncoder.encodeOneString("setInterfaceImplementer");
+        arguments[1] = ABIEncoder.encodeOneAddress(MultiTokenContractAddress);
+        arguments[2] = ABIEncoder.encodeOneByteArray(Blockchain.sha256(InterfaceName.getBytes()));
+        arguments[3] = ABIEncoder.encodeOneAddress(MultiTokenContractAddress);
+
+        Result result = Blockchain.call(AionInterfaceRegistryAddress, BigInteger.ZERO, ByteArrayHelpers.concatenateMultiple(arguments), 10_000_000);
+        Blockchain.require(result != null && result.isSuccess());
+    }
+
+    /**
+     * Events that this contract emits.
+     */
+
+    public static class MultiTokenContractEvents {
+        private static String EmitTokenCreatedEventString = "TokenCreatedEvent";
+        private static String EmitSentEventString = "SentEvent";
+        private static String EmitSentBatchEventString = "SentBatchEvent";
+        private static String EmitBurnedEventString = "BurnedEvent";
+        private static String EmitAuthorizedOperatorEventString = "AuthorizedOperatorEvent";
+        private static String EmitRevokedOperatorEventString = "RevokedOperatorEvent";
+
+        public static void emitTokenCreatedEvent(long tokenId, Address tokenOwner, BigInteger initialSupply) {
+            AionBuffer buffer = AionBuffer.allocate(Long.BYTES + Address.LENGTH + 32)
+                    .putLong(tokenId)
+                    .putAddress(tokenOwner)
+                    .put(ByteArrayHelpers.fillLeadingZeros(initialSupply.toByteArray()));
+            Blockchain.log(EmitTokenCreatedEventString.getBytes(),
+                    "tokenId".getBytes(),
+                    "owner".getBytes(),
+                    "initialSupply".getBytes(),
+                    buffer.getArray());
+        }
+
+        /**
+         * The data is laid out as tokenId (8 bytes), operator, from, to (32 bytes each), amount (32 bytes),
+         * senderData length (4 bytes), senderData and operatorData.
+         */
+        public static void emitSentEvent(long tokenId, Address operator, Address from, Address to, BigInteger amount, byte[] senderData, byte[] operatorData) {
+            AionBuffer buffer = AionBuffer.allocate(Long.BYTES + 3 * Address.LENGTH + 32 + 4 + senderData.length + operatorData.length)
+                    .putLong(tokenId)
+                    .putAddress(operator)
+                    .putAddress(from)
+                    .putAddress(to)
+                    .put(ByteArrayHelpers.fillLeadingZeros(amount.toByteArray()))
+                    .putInt(senderData.length)
+                    .put(senderData)
+                    .put(operatorData);
+            Blockchain.log(EmitSentEventString.getBytes(),
+                    "tokenId".getBytes(),
+                    "from".getBytes(),
+                    "to".getBytes(),
+                    buffer.getArray());
+        }
+
+        /**
+         * The data is laid out as sender (32 bytes), number of transfers n (4 bytes), n times tokenId (8 bytes),
+         * recipient (32 bytes) and amount (32 bytes), then senderData.
+         */
+        public static void emitSentBatchEvent(Address from, long[] tokenIds, Address[] recipients, BigInteger[] amounts, byte[] senderData) {
+            AionBuffer buffer = AionBuffer.allocate(Address.LENGTH + 4 + tokenIds.length * (Long.BYTES + Address.LENGTH + 32) + senderData.length);
+            buffer.putAddress(from);
+            buffer.putInt(tokenIds.length);
+            for (int i = 0; i < tokenIds.length; i++) {
+                buffer.putLong(tokenIds[i]);
+                buffer.putAddress(recipients[i]);
+                buffer.put(ByteArrayHelpers.fillLeadingZeros(amounts[i].toByteArray()));
+            }
+            buffer.put(senderData);
+            Blockchain.log(EmitSentBatchEventString.getBytes(),
+                    "from".getBytes(),
+                    "transfers".getBytes(),
+                    buffer.getArray());
+        }
+
+        public static void emitBurnedEvent(long tokenId, Address from, BigInteger amount, byte[] senderData) {
+            AionBuffer buffer = AionBuffer.allocate(Long.BYTES + Address.LENGTH + 32 + senderData.length)
+                    .putLong(tokenId)
+                    .putAddress(from)
+                    .put(ByteArrayHelpers.fillLeadingZeros(amount.toByteArray()))
+                    .put(senderData);
+            Blockchain.log(EmitBurnedEventString.getBytes(),
+                    "tokenId".getBytes(),
+                    "from".getBytes(),
+                    buffer.getArray());
+        }
+
+        public static void emitAuthorizedOperatorEvent(Address operator, Address tokenHolder) {
+            Blockchain.log(EmitAuthorizedOperatorEventString.getBytes(),
+                    "operator".getBytes(),
+                    "tokenHolder".getBytes(),
+                    ByteArrayHelpers.concatenate(operator.unwrap(), tokenHolder.unwrap()));
+        }
+
+        public static void emitRevokedOperatorEvent(Address operator, Address tokenHolder) {
+            Blockchain.log(EmitRevokedOperatorEventString.getBytes(),
+                    "operator".getBytes(),
+                    "tokenHolder".getBytes(),
+                    ByteArrayHelpers.concatenate(operator.unwrap(), tokenHolder.unwrap()));
+        }
+    }
+
+    /**
+     * The metadata of a token, stored under the key derived from the token id with the following encoding format
+     * - byte[0:3]: granularity
+     * - byte[4]: length n of the total supply
+     * - byte[5:5+n-1]: total supply
+     * - 2 bytes: length m of the name, followed by m bytes of name
+     * - every byte after: symbol
+     */
+    private static class TokenInformation {
+        private final int granularity;
+        private BigInteger totalSupply;
+        private final String name;
+        private final String symbol;
+
+        private TokenInformation(int granularity, BigInteger totalSupply, String name, String symbol) {
+            this.granularity = granularity;
+            this.totalSupply = totalSupply;
+            this.name = name;
+            this.symbol = symbol;
+        }
+
+        private byte[] encode() {
+            byte[] supplyBytes = totalSupply.toByteArray();
+            byte[] nameBytes = name.getBytes();
+            byte[] symbolBytes = symbol.getBytes();
+            return AionBuffer.allocate(4 + 1 + supplyBytes.length + 2 + nameBytes.length + symbolBytes.length)
+                    .putInt(granularity)
+                    .putByte((byte) supplyBytes.length)
+                    .put(supplyBytes)
+                    .putShort((short) nameBytes.length)
+                    .put(nameBytes)
+                    .put(symbolBytes)
+                    .getArray();
+        }
+
+        private static TokenInformation decode(byte[] data) {
+            AionBuffer buffer = AionBuffer.wrap(data);
+            int granularity = buffer.getInt();
+            byte[] supplyBytes = new byte[buffer.getByte() & 0xff];
+            buffer.get(supplyBytes);
+            byte[] nameBytes = new byte[buffer.getShort() & 0xffff];
+            buffer.get(nameBytes);
+            byte[] symbolBytes = new byte[data.length - (4 + 1 + supplyBytes.length + 2 + nameBytes.length)];
+            buffer.get(symbolBytes);
+            return new TokenInformation(granularity, new BigInteger(supplyBytes), new String(nameBytes), new String(symbolBytes));
+        }
+    }
+
+    /**
+     * Helper class for manipulating byte arrays.
+     */
+
+    public static class ByteArrayHelpers {
+        public static byte[] concatenate(byte[] one, byte[] two) {
+            byte[] result = new byte[one.length + two.length];
+            System.arraycopy(one, 0, result, 0, one.length);
+            System.arraycopy(two, 0, result, one.length, two.length);
+            return result;
+        }
+
+        public static byte[] concatenateMultiple(byte[][] bytes) {
+            byte[] result = new byte[0];
+            for (byte[] bytes1: bytes) {
+                result = concatenate(result, bytes1);
+            }
+            return result;
+        }
+
+        public static byte[] fillLeadingZeros(byte[] byteArray) {
+            if (byteArray.length >= 32) {
+                return byteArray;
+            }
+
+            return AionBuffer.allocate(32).put(new byte[32 - byteArray.length]).put(byteArray).getArray();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package AionMultiToken;
+
+import avm.Address;
+
+public interface AionMultiTokenInterface {
+
+    /**
+     * Token management
+     */
+
+    public long createToken(String name, String symbol, int granularity, byte[] initialSupply);
+
+    public long getTokenCount();
+
+    /**
+     * Basic token functionality
+     */
+
+    public String getName(long tokenId);
+
+    public String getSymbol(long tokenId);
+
+    public int getGranularity(long tokenId);
+
+    public byte[] getTotalSupply(long tokenId);
+
+    public byte[] balanceOf(long tokenId, Address tokenHolder);
+
+    /**
+     * Operators, shared by all tokens of the ledger
+     */
+
+    public void authorizeOperator(Address operator);
+
+    public void revokeOperator(Address operator);
+
+    public boolean isOperatorFor(Address operator, Address tokenHolder);
+
+    /**
+     * Token transfers
+     */
+
+    public void send(long tokenId, Address to, byte[] amount, byte[] senderData);
+
+    public void operatorSend(long tokenId, Address from, Address to, byte[] amount, byte[] senderData, byte[] operatorData);
+
+    public void sendBatch(long[] tokenIds, Address[] recipients, byte[][] amounts, byte[] senderData);
+
+    public void burn(long tokenId, byte[] amount, byte[] senderData);
+}
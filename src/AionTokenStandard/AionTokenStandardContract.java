@@ -6,6 +6,7 @@ import avm.Result;
 import org.aion.avm.tooling.abi.Callable;
 import org.aion.avm.userlib.AionBuffer;
 import org.aion.avm.userlib.AionList;
+import org.aion.avm.userlib.AionMap;
 import org.aion.avm.userlib.abi.ABIDecoder;
 import org.aion.avm.userlib.abi.ABIEncoder;
 
@@ -18,13 +19,38 @@ public class AionTokenStandardContract {
     private static String tokenName;
     private static String tokenSymbol;
     private static BigInteger tokenTotalSupply;
+    private static BigInteger tokenSupplyCap; // null while the supply is not capped
+    private static long streamCount;
+    private static long channelCount;
+    private static long payoutJobCount;
+    private static byte[] balanceRoot = new byte[32]; // root of the BalanceTree, all zero while it is empty
     private static int tokenGranularity;
+    private static long hookStipend; // energy limit of a call to a token holder hook, unless the holder set its own
     private static Address owner;
     private static Address ATSContractAddress;
     private static Address AionInterfaceRegistryAddress;
     private static Address zeroAddress = new Address("00000000000000000000000000000000".getBytes());
 
     private static final String InterfaceName = "AIP004Token";
+    private static final byte PACKED_SEND_SELECTOR = 0x01;
+    private static final long PAYOUT_ENERGY_RESERVE = 100_000L; // left for storing the job and logging its progress
+    private static final long PAYOUT_LOG_ENERGY_PER_ENTRY = 1_000L; // logging one paid entry in the progress event
+    private static final int MAX_AMOUNT_BITS = 255; // amounts are logged and stored as signed 32-byte values
+    private static final int MAX_INCOMING_STREAMS = 16; // every send, burn and balanceOf of a recipient settles them all
+
+    /**
+     * ed25519 encodings of the points of small order with the sign bit of x cleared: 0, 1, the two of order 8, p - 1,
+     * and the non-canonical p and p + 1. Anyone can make a signature that verifies under such a key.
+     */
+    private static final byte[][] SMALL_ORDER_KEYS = {
+            fromHex("0000000000000000000000000000000000000000000000000000000000000000"),
+            fromHex("0100000000000000000000000000000000000000000000000000000000000000"),
+            fromHex("26e8958fc2b227b045c3f489f2ef98f0d5dfac05d3c63339b13802886d53fc05"),
+            fromHex("c7176a703d4dd84fba3c0b760d10670f2a2053fa2c39ccc64ec7fd7792ac037a"),
+            fromHex("ecffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff7f"),
+            fromHex("edffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff7f"),
+            fromHex("eeffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff7f"),
+    };
 
     /** ==================================== Basic Token Functionality ==================================== **/
 
@@ -68,12 +94,23 @@ public class AionTokenStandardContract {
      */
     @Callable
     public static byte[] balanceOf(Address tokenHolder) {
+        BigInteger pending = pendingAccruals(tokenHolder);
+
         byte[] data = Blockchain.getStorage(tokenHolder.unwrap());
         if (data == null) {
-            return BigInteger.ZERO.toByteArray();
+            return pending.toByteArray();
         }
 
-        return TokenHolderInformation.decodeBalance(data).toByteArray();
+        return TokenHolderInformation.decodeBalance(data).add(pending).toByteArray();
+    }
+
+    /**
+     * Returns the root of the sparse Merkle tree committing to the stored balance of every token holder, see
+     * BalanceTree. Amounts accrued from streams or vesting schedules are committed once they are settled.
+     */
+    @Callable
+    public static byte[] getBalanceRoot() {
+        return balanceRoot;
     }
 
     /** ==================================== ERC-777 Operator Functionality ==================================== **/
@@ -86,7 +123,7 @@ public class AionTokenStandardContract {
     @Callable
     public static void authorizeOperator(Address operator) {
         Address caller = Blockchain.getCaller();
-        Blockchain.require(caller != operator); // there is no point setting oneself as operator
+        Blockchain.require(!caller.equals(operator)); // there is no point setting oneself as operator
         byte[] callerBytes = caller.unwrap();
 
         byte[] data = Blockchain.getStorage(callerBytes);
@@ -98,6 +135,9 @@ public class AionTokenStandardContract {
         } else {
             BigInteger balance = TokenHolderInformation.decodeBalance(data);
             AionList<Address> operators = TokenHolderInformation.decodeOperators(data);
+            if (!operators.contains(operator)) {
+                operators.add(operator);
+            }
             Blockchain.putStorage(callerBytes, TokenHolderInformation.encode(balance, operators));
         }
 
@@ -112,7 +152,7 @@ public class AionTokenStandardContract {
     @Callable
     public static void revokeOperator(Address operator) {
         Address caller = Blockchain.getCaller();
-        Blockchain.require(caller != operator); // there is no point setting oneself as operator
+        Blockchain.require(!caller.equals(operator)); // there is no point setting oneself as operator
         byte[] callerBytes = caller.unwrap();
 
         byte[] data = Blockchain.getStorage(callerBytes);
@@ -122,6 +162,8 @@ public class AionTokenStandardContract {
             BigInteger balance = TokenHolderInformation.decodeBalance(data);
             Blockchain.putStorage(callerBytes, TokenHolderInformation.encode(balance, operators));
         }
+
+        ATSContractEvents.emitRevokedOperatorEvent(operator, caller);
     }
 
     /**
@@ -160,6 +202,30 @@ public class AionTokenStandardContract {
         doSend(caller, caller, to, new BigInteger(amount), senderData, new byte[0]);
     }
 
+    /**
+     * Send tokens from the caller, with the arguments packed into one byte array to keep call data small:
+     * - byte[0]: selector, PACKED_SEND_SELECTOR
+     * - byte[1:32]: recipient address
+     * - the amount, as an unsigned LEB128 varint of at most 9 bytes
+     * - optionally, the length of senderData as a varint followed by senderData; without it senderData is empty
+     *
+     * Amounts that do not fit in 63 bits have to be sent with send.
+     *
+     * @param packed the packed arguments
+     */
+    @Callable
+    public static void sendPacked(byte[] packed) {
+        PackedCursor cursor = new PackedCursor(packed);
+        Blockchain.require(cursor.readByte() == PACKED_SEND_SELECTOR);
+        Address to = cursor.readAddress();
+        long amount = cursor.readVarint();
+        byte[] senderData = cursor.hasRemaining() ? cursor.readBytes(cursor.readLength()) : new byte[0];
+        Blockchain.require(!cursor.hasRemaining()); // reject trailing bytes
+
+        Address caller = Blockchain.getCaller();
+        doSend(caller, caller, to, BigInteger.valueOf(amount), senderData, new byte[0]);
+    }
+
     /**
      * Send the amount of token on behalf of the address 'from' to the address 'to'
      *
@@ -227,6 +293,660 @@ public class AionTokenStandardContract {
         }
     }
 
+    /** ==================================== Token Issuance ==================================== **/
+
+    /**
+     * Returns the maximum total supply that minting can reach, or an empty array if the supply is not capped.
+     */
+    @Callable
+    public static byte[] getSupplyCap() {
+        if (tokenSupplyCap == null) {
+            return new byte[0];
+        }
+        return tokenSupplyCap.toByteArray();
+    }
+
+    /**
+     * Cap the total supply that can be reached by minting. Only the owner can call this. Once set, the cap can only
+     * be lowered, and never below the current total supply.
+     *
+     * @param cap maximum total supply
+     */
+    @Callable
+    public static void setSupplyCap(byte[] cap) {
+        Blockchain.require(Blockchain.getCaller().equals(owner));
+
+        BigInteger newCap = new BigInteger(cap);
+        Blockchain.require(newCap.compareTo(tokenTotalSupply) > -1); // cap must not be below the current supply
+        Blockchain.require(tokenSupplyCap == null || newCap.compareTo(tokenSupplyCap) < 1); // cap can not be raised
+        tokenSupplyCap = newCap;
+    }
+
+    /**
+     * Create new tokens and give them to the recipient. Only the owner can call this.
+     *
+     * @param to token recipient
+     * @param amount number of tokens to mint
+     * @param senderData information of the minting
+     */
+    @Callable
+    public static void mint(Address to, byte[] amount, byte[] senderData) {
+        Address caller = Blockchain.getCaller();
+        Blockchain.require(caller.equals(owner));
+
+        BigInteger value = new BigInteger(amount);
+        Blockchain.require(value.signum() > -1);
+        increaseTotalSupply(value);
+        doMint(caller, to, value, senderData);
+
+        ATSContractEvents.emitMintedEvent(caller, new Address[]{to}, new BigInteger[]{value}, value, senderData);
+    }
+
+    /**
+     * Create new tokens for many recipients at once. Only the owner can call this. The total supply is updated once
+     * and a single Minted event lists every recipient of the batch.
+     *
+     * @param recipients token recipients
+     * @param amounts number of tokens to mint for the recipient at the same index
+     * @param senderData information of the minting
+     */
+    @Callable
+    public static void mintBatch(Address[] recipients, byte[][] amounts, byte[] senderData) {
+        Address caller = Blockchain.getCaller();
+        Blockchain.require(caller.equals(owner));
+        Blockchain.require(recipients.length > 0 && recipients.length == amounts.length);
+
+        BigInteger[] values = new BigInteger[amounts.length];
+        BigInteger total = BigInteger.ZERO;
+        for (int i = 0; i < recipients.length; i++) {
+            values[i] = new BigInteger(amounts[i]);
+            Blockchain.require(values[i].signum() > -1);
+            total = total.add(values[i]);
+        }
+        // the new supply bounds every amount of the batch, before any of them is stored or logged
+        increaseTotalSupply(total);
+        for (int i = 0; i < recipients.length; i++) {
+            doMint(caller, recipients[i], values[i], senderData);
+        }
+
+        ATSContractEvents.emitMintedEvent(caller, recipients, values, total, senderData);
+    }
+
+    /** ==================================== Streaming Payments ==================================== **/
+
+    /**
+     * Lock a deposit of the caller that is streamed to the recipient at a fixed rate per block, starting at
+     * startBlock and ending at stopBlock. Nothing is transferred per block, the streamed amount is computed from the
+     * block number whenever the recipient's balance is read, withdrawn or spent.
+     *
+     * A recipient has at most MAX_INCOMING_STREAMS streams at a time, so that streams opened by others cannot make its
+     * transfers run out of energy. The recipient can cancel streams it does not want to free their places.
+     *
+     * @param recipient address receiving the stream
+     * @param ratePerBlock number of tokens streamed per block
+     * @param startBlock block number from which tokens start streaming
+     * @param stopBlock block number at which the whole deposit has been streamed
+     * @return id of the new stream
+     */
+    @Callable
+    public static long createStream(Address recipient, byte[] ratePerBlock, long startBlock, long stopBlock) {
+        Address caller = Blockchain.getCaller();
+        BigInteger rate = new BigInteger(ratePerBlock);
+        Blockchain.require(rate.signum() > 0);
+        Blockchain.require(satisfyGranularity(rate)); // every streamed amount must be a multiple of the set tokenGranularity
+        Blockchain.require(startBlock >= 0 && stopBlock > startBlock);
+        Blockchain.require(!recipient.equals(caller));
+        Blockchain.require(!recipient.equals(zeroAddress));
+        Blockchain.require(!recipient.equals(ATSContractAddress));
+        long[] incoming = getIncomingStreams(recipient);
+        Blockchain.require(incoming.length < MAX_INCOMING_STREAMS);
+
+        StreamInformation stream = new StreamInformation(caller, recipient, rate, startBlock, stopBlock, BigInteger.ZERO);
+        debitBalance(caller, stream.deposit());
+
+        streamCount++;
+        long streamId = streamCount;
+        Blockchain.putStorage(streamKey(streamId), stream.encode());
+
+        long[] updated = Arrays.copyOf(incoming, incoming.length + 1);
+        updated[incoming.length] = streamId;
+        putIncomingStreams(recipient, updated);
+
+        ATSContractEvents.emitStreamCreatedEvent(streamId, stream);
+        return streamId;
+    }
+
+    /**
+     * Returns the stream record, encoded as described in StreamInformation, or null if there is no such stream.
+     */
+    @Callable
+    public static byte[] getStream(long streamId) {
+        return Blockchain.getStorage(streamKey(streamId));
+    }
+
+    /**
+     * Returns the amount of the stream that has been streamed but not yet withdrawn by the recipient.
+     */
+    @Callable
+    public static byte[] getStreamWithdrawable(long streamId) {
+        byte[] data = Blockchain.getStorage(streamKey(streamId));
+        if (data == null) {
+            return BigInteger.ZERO.toByteArray();
+        }
+        return StreamInformation.decode(data).withdrawableAt(Blockchain.getBlockNumber()).toByteArray();
+    }
+
+    /**
+     * Move the streamed amount of a stream into the recipient's balance. Only the recipient can call this.
+     */
+    @Callable
+    public static void withdrawFromStream(long streamId) {
+        byte[] data = Blockchain.getStorage(streamKey(streamId));
+        Blockchain.require(data != null);
+        StreamInformation stream = StreamInformation.decode(data);
+        Blockchain.require(Blockchain.getCaller().equals(stream.recipient));
+
+        creditBalance(stream.recipient, settleStream(streamId, stream));
+        if (stream.isPaidOut()) {
+            removeStream(streamId, stream.recipient);
+        }
+    }
+
+    /**
+     * End a stream. The recipient receives what has been streamed so far and the rest of the deposit goes back to
+     * the sender. Either the sender or the recipient can call this.
+     */
+    @Callable
+    public static void cancelStream(long streamId) {
+        byte[] data = Blockchain.getStorage(streamKey(streamId));
+        Blockchain.require(data != null);
+        StreamInformation stream = StreamInformation.decode(data);
+        Address caller = Blockchain.getCaller();
+        Blockchain.require(caller.equals(stream.sender) || caller.equals(stream.recipient));
+
+        BigInteger recipientAmount = stream.withdrawableAt(Blockchain.getBlockNumber());
+        BigInteger senderAmount = stream.deposit().subtract(stream.withdrawn).subtract(recipientAmount);
+        removeStream(streamId, stream.recipient);
+
+        creditBalance(stream.recipient, recipientAmount);
+        creditBalance(stream.sender, senderAmount);
+
+        ATSContractEvents.emitStreamCancelledEvent(streamId, stream, senderAmount, recipientAmount);
+    }
+
+    /** ==================================== Vesting Schedules ==================================== **/
+
+    /**
+     * Lock tokens of the owner in a vesting schedule for the beneficiary. Nothing vests before the cliff, after which
+     * the total vests linearly from start until start + duration. Vested tokens are not released by separate
+     * transactions, they are computed from the block timestamp whenever the beneficiary's balance is read or spent.
+     * Only the owner can call this, and a beneficiary can only have one schedule at a time.
+     *
+     * @param beneficiary address receiving the vested tokens
+     * @param total number of tokens to vest
+     * @param start block timestamp at which vesting starts
+     * @param cliff number of seconds after start before anything vests
+     * @param duration number of seconds after start at which everything has vested, start + duration must fit a long
+     */
+    @Callable
+    public static void createVestingSchedule(Address beneficiary, byte[] total, long start, long cliff, long duration) {
+        Address caller = Blockchain.getCaller();
+        Blockchain.require(caller.equals(owner));
+
+        BigInteger totalAmount = new BigInteger(total);
+        Blockchain.require(totalAmount.signum() > 0);
+        Blockchain.require(satisfyGranularity(totalAmount)); // total must be a multiple of the set tokenGranularity
+        Blockchain.require(start >= 0 && duration > 0 && cliff >= 0 && cliff <= duration);
+        Blockchain.require(start <= Long.MAX_VALUE - duration); // the end of the schedule must not overflow
+        Blockchain.require(!beneficiary.equals(caller));
+        Blockchain.require(!beneficiary.equals(zeroAddress));
+        Blockchain.require(!beneficiary.equals(ATSContractAddress));
+        Blockchain.require(Blockchain.getStorage(vestingKey(beneficiary)) == null); // one schedule per beneficiary
+
+        VestingSchedule schedule = new VestingSchedule(start, cliff, duration, totalAmount, BigInteger.ZERO);
+        debitBalance(caller, totalAmount);
+        Blockchain.putStorage(vestingKey(beneficiary), schedule.encode());
+
+        ATSContractEvents.emitVestingScheduleCreatedEvent(beneficiary, schedule);
+    }
+
+    /**
+     * Returns the vesting schedule of the beneficiary, encoded as described in VestingSchedule, or null if there is none.
+     */
+    @Callable
+    public static byte[] getVestingSchedule(Address beneficiary) {
+        return Blockchain.getStorage(vestingKey(beneficiary));
+    }
+
+    /**
+     * Returns the amount that has vested for the beneficiary but is not part of its stored balance yet.
+     */
+    @Callable
+    public static byte[] getReleasableAmount(Address beneficiary) {
+        byte[] data = Blockchain.getStorage(vestingKey(beneficiary));
+        if (data == null) {
+            return BigInteger.ZERO.toByteArray();
+        }
+        return VestingSchedule.decode(data).releasableAt(Blockchain.getBlockTimestamp()).toByteArray();
+    }
+
+    /** ==================================== Payment Channels ==================================== **/
+
+    /**
+     * Open a unidirectional payment channel by locking a deposit of the caller for the recipient. Payments are made
+     * off-chain with vouchers over a cumulative amount, signed with the given ed25519 key, and the recipient settles
+     * the channel once with the latest voucher through closeChannel.
+     *
+     * @param recipient address that can close the channel with a voucher
+     * @param deposit number of tokens locked in the channel
+     * @param signerPublicKey ed25519 public key vouchers are signed with, which must not be a point of small order
+     * @param expiryBlock block number after which the sender can reclaim an unclosed channel
+     * @return id of the new channel
+     */
+    @Callable
+    public static long openChannel(Address recipient, byte[] deposit, byte[] signerPublicKey, long expiryBlock) {
+        Address caller = Blockchain.getCaller();
+        BigInteger depositAmount = new BigInteger(deposit);
+        Blockchain.require(depositAmount.signum() > 0);
+        Blockchain.require(satisfyGranularity(depositAmount)); // deposit must be a multiple of the set tokenGranularity
+        Blockchain.require(signerPublicKey.length == 32);
+        Blockchain.require(!isSmallOrderKey(signerPublicKey)); // vouchers for such a key could be forged by anyone
+        Blockchain.require(expiryBlock > Blockchain.getBlockNumber());
+        Blockchain.require(!recipient.equals(caller));
+        Blockchain.require(!recipient.equals(zeroAddress));
+        Blockchain.require(!recipient.equals(ATSContractAddress));
+
+        debitBalance(caller, depositAmount);
+
+        channelCount++;
+        long channelId = channelCount;
+        ChannelInformation channel = new ChannelInformation(caller, recipient, depositAmount, expiryBlock, signerPublicKey);
+        Blockchain.putStorage(channelKey(channelId), channel.encode());
+
+        ATSContractEvents.emitChannelOpenedEvent(channelId, channel);
+        return channelId;
+    }
+
+    /**
+     * Returns the channel record, encoded as described in ChannelInformation, or null if there is no such channel.
+     */
+    @Callable
+    public static byte[] getChannel(long channelId) {
+        return Blockchain.getStorage(channelKey(channelId));
+    }
+
+    /**
+     * Settle a channel with a voucher. Only the recipient can call this. A voucher is the signature of
+     * ATS contract address (32 bytes) + channel id (8 bytes) + amount filled to 32 bytes, made with the channel's
+     * signer key. The recipient receives the amount and the rest of the deposit goes back to the sender.
+     *
+     * @param channelId id of the channel
+     * @param amount cumulative amount of the voucher
+     * @param signature ed25519 signature of the voucher
+     */
+    @Callable
+    public static void closeChannel(long channelId, byte[] amount, byte[] signature) {
+        byte[] data = Blockchain.getStorage(channelKey(channelId));
+        Blockchain.require(data != null);
+        ChannelInformation channel = ChannelInformation.decode(data);
+        Blockchain.require(Blockchain.getCaller().equals(channel.recipient));
+
+        BigInteger recipientAmount = new BigInteger(amount);
+        Blockchain.require(recipientAmount.signum() > -1 && recipientAmount.compareTo(channel.deposit) < 1);
+        Blockchain.require(satisfyGranularity(recipientAmount)); // amount must be a multiple of the set tokenGranularity
+        Blockchain.require(Blockchain.edVerify(voucherMessage(channelId, recipientAmount), signature, channel.signerPublicKey));
+
+        BigInteger senderAmount = channel.deposit.subtract(recipientAmount);
+        Blockchain.putStorage(channelKey(channelId), null);
+        creditBalance(channel.recipient, recipientAmount);
+        creditBalance(channel.sender, senderAmount);
+
+        ATSContractEvents.emitChannelClosedEvent(channelId, channel, senderAmount, recipientAmount);
+    }
+
+    /**
+     * Return the whole deposit of a channel that the recipient did not close before it expired. Only the sender can
+     * call this.
+     */
+    @Callable
+    public static void reclaimChannel(long channelId) {
+        byte[] data = Blockchain.getStorage(channelKey(channelId));
+        Blockchain.require(data != null);
+        ChannelInformation channel = ChannelInformation.decode(data);
+        Blockchain.require(Blockchain.getCaller().equals(channel.sender));
+        Blockchain.require(Blockchain.getBlockNumber() > channel.expiryBlock);
+
+        Blockchain.putStorage(channelKey(channelId), null);
+        creditBalance(channel.sender, channel.deposit);
+
+        ATSContractEvents.emitChannelClosedEvent(channelId, channel, channel.deposit, BigInteger.ZERO);
+    }
+
+    /** ==================================== Clearing ==================================== **/
+
+    /**
+     * Settle a batch of obligations by their net effect. Every obligation moves amounts[i] from froms[i] to tos[i],
+     * and the caller must be froms[i] or one of its operators. The obligations are netted per account in memory, so
+     * each distinct account is read once and written at most once, however many obligations it takes part in. Token
+     * holder hooks are not called and a single Cleared event lists the resulting balances instead of one Sent event
+     * per obligation.
+     *
+     * @param froms token holders paying
+     * @param tos token recipients
+     * @param amounts number of tokens of the obligation at the same index
+     * @param operatorData information from the operator
+     */
+    @Callable
+    public static void clear(Address[] froms, Address[] tos, byte[][] amounts, byte[] operatorData) {
+        Address caller = Blockchain.getCaller();
+        Blockchain.require(froms.length > 0 && froms.length == tos.length && froms.length == amounts.length);
+
+        AionMap<Address, byte[]> records = new AionMap<>();
+        AionMap<Address, BigInteger> netPositions = new AionMap<>();
+        AionList<Address> accounts = new AionList<>();
+        for (int i = 0; i < froms.length; i++) {
+            BigInteger amount = new BigInteger(amounts[i]);
+            Blockchain.require(satisfyGranularity(amount)); // amount must be a multiple of the set tokenGranularity
+            Blockchain.require(amount.signum() > -1); // amount must not be negative, 0 is okay
+            Blockchain.require(!tos[i].equals(zeroAddress)); // forbid sending to zero address (burning)
+            Blockchain.require(!tos[i].equals(ATSContractAddress)); // forbid sending to ATS contract itself
+
+            loadForClearing(froms[i], records, netPositions, accounts);
+            loadForClearing(tos[i], records, netPositions, accounts);
+
+            // the payer must have authorized the caller
+            byte[] fromData = records.get(froms[i]);
+            Blockchain.require(caller.equals(froms[i]) || (fromData != null && TokenHolderInformation.decodeOperators(fromData).contains(caller)));
+
+            netPositions.put(froms[i], netPositions.get(froms[i]).subtract(amount));
+            netPositions.put(tos[i], netPositions.get(tos[i]).add(amount));
+        }
+
+        AionList<Address> changedAccounts = new AionList<>();
+        AionList<BigInteger> changedBalances = new AionList<>();
+        for (Address account : accounts) {
+            BigInteger netPosition = netPositions.get(account);
+            if (netPosition.signum() == 0) {
+                continue;
+            }
+
+            byte[] data = records.get(account);
+            BigInteger balance = BigInteger.ZERO;
+            AionList<Address> operators = new AionList<>();
+            if (data != null) {
+                balance = TokenHolderInformation.decodeBalance(data);
+                operators = TokenHolderInformation.decodeOperators(data);
+            }
+            if (netPosition.signum() < 0) {
+                balance = balance.add(settleAccruals(account));
+            }
+
+            BigInteger newBalance = balance.add(netPosition);
+            Blockchain.require(newBalance.signum() > -1); // net payments must not exceed the account balance
+            putHolderInformation(account, newBalance, operators);
+
+            changedAccounts.add(account);
+            changedBalances.add(newBalance);
+        }
+
+        ATSContractEvents.emitClearedEvent(caller, froms.length, changedAccounts, changedBalances, operatorData);
+    }
+
+    /** ==================================== Payout Jobs ==================================== **/
+
+    /**
+     * Start a payout job of the caller, a list of payments too long to make in one transaction. The caller adds the
+     * payments in chunks with addPayoutChunk, which locks their tokens, and anyone can then pay them out over as many
+     * transactions as it takes with continueJob.
+     *
+     * @return id of the new job
+     */
+    @Callable
+    public static long createPayoutJob() {
+        payoutJobCount++;
+        long jobId = payoutJobCount;
+        PayoutJob job = new PayoutJob(Blockchain.getCaller(), 0, 0, 0, 0, 0, BigInteger.ZERO);
+        Blockchain.putStorage(payoutJobKey(jobId), job.encode());
+
+        ATSContractEvents.emitPayoutJobCreatedEvent(jobId, job.creator);
+        return jobId;
+    }
+
+    /**
+     * Append payments to a payout job and lock their total from the caller's balance until they are paid out. Only
+     * the creator of the job can call this, at any time, also while the job is being paid out.
+     *
+     * @param jobId id of the job
+     * @param recipients token recipients
+     * @param amounts number of tokens to pay to the recipient at the same index
+     */
+    @Callable
+    public static void addPayoutChunk(long jobId, Address[] recipients, byte[][] amounts) {
+        byte[] data = Blockchain.getStorage(payoutJobKey(jobId));
+        Blockchain.require(data != null);
+        PayoutJob job = PayoutJob.decode(data);
+        Blockchain.require(Blockchain.getCaller().equals(job.creator));
+        Blockchain.require(recipients.length > 0 && recipients.length == amounts.length);
+
+        AionBuffer chunk = AionBuffer.allocate(recipients.length * (Address.LENGTH + 32));
+        BigInteger total = BigInteger.ZERO;
+        for (int i = 0; i < recipients.length; i++) {
+            BigInteger amount = new BigInteger(amounts[i]);
+            Blockchain.require(amount.signum() > -1); // amount must not be negative, 0 is okay
+            Blockchain.require(satisfyGranularity(amount)); // amount must be a multiple of the set tokenGranularity
+            Blockchain.require(!recipients[i].equals(zeroAddress));
+            Blockchain.require(!recipients[i].equals(ATSContractAddress));
+            chunk.putAddress(recipients[i]);
+            chunk.put(ByteArrayHelpers.fillLeadingZeros(amount.toByteArray()));
+            total = total.add(amount);
+        }
+        debitBalance(job.creator, total);
+
+        int chunkIndex = job.chunkCount;
+        Blockchain.putStorage(payoutChunkKey(jobId, chunkIndex), chunk.getArray());
+        job.chunkCount++;
+        job.entryCount += recipients.length;
+        job.escrow = job.escrow.add(total);
+        Blockchain.putStorage(payoutJobKey(jobId), job.encode());
+
+        ATSContractEvents.emitPayoutChunkAddedEvent(jobId, job.creator, chunkIndex, recipients.length, total);
+    }
+
+    /**
+     * Pay out the next payments of a payout job for as long as the energy of the transaction lasts, then store where
+     * it stopped so that the next call carries on from there. Anyone can call this, with any energy limit: payments
+     * stop while enough energy remains to store the job and log the progress, judged from the costliest payment of the
+     * call so far, so only a limit too low for a single payment makes the transaction fail. Token holder hooks are
+     * not called and a single PayoutProgress event lists the payments made.
+     *
+     * @param jobId id of the job
+     * @return number of payments of the job still to be paid out
+     */
+    @Callable
+    public static long continueJob(long jobId) {
+        byte[] data = Blockchain.getStorage(payoutJobKey(jobId));
+        Blockchain.require(data != null);
+        PayoutJob job = PayoutJob.decode(data);
+        if (job.paidCount == job.entryCount) {
+            return 0;
+        }
+
+        AionList<Address> recipients = new AionList<>();
+        AionList<BigInteger> amounts = new AionList<>();
+        byte[] chunk = null;
+        long costliestPayment = 0;
+        long remaining = Blockchain.getRemainingEnergy();
+        while (job.paidCount < job.entryCount
+                && remaining > PAYOUT_ENERGY_RESERVE + recipients.size() * PAYOUT_LOG_ENERGY_PER_ENTRY + costliestPayment) {
+            if (chunk == null) {
+                chunk = Blockchain.getStorage(payoutChunkKey(jobId, job.nextChunk));
+            }
+            AionBuffer entry = AionBuffer.wrap(Arrays.copyOfRange(chunk, job.nextEntry * (Address.LENGTH + 32), (job.nextEntry + 1) * (Address.LENGTH + 32)));
+            Address recipient = entry.getAddress();
+            byte[] amountBytes = new byte[32];
+            entry.get(amountBytes);
+            BigInteger amount = new BigInteger(amountBytes);
+
+            creditBalance(recipient, amount);
+            job.escrow = job.escrow.subtract(amount);
+            job.paidCount++;
+            job.nextEntry++;
+            recipients.add(recipient);
+            amounts.add(amount);
+
+            if (job.nextEntry * (Address.LENGTH + 32) == chunk.length) {
+                Blockchain.putStorage(payoutChunkKey(jobId, job.nextChunk), null);
+                job.nextChunk++;
+                job.nextEntry = 0;
+                chunk = null;
+            }
+
+            long left = Blockchain.getRemainingEnergy();
+            costliestPayment = Math.max(costliestPayment, remaining - left);
+            remaining = left;
+        }
+        Blockchain.require(recipients.size() > 0); // the energy limit must allow at least one payment
+
+        Blockchain.putStorage(payoutJobKey(jobId), job.encode());
+        ATSContractEvents.emitPayoutProgressEvent(jobId, job.paidCount, recipients, amounts);
+        return job.entryCount - job.paidCount;
+    }
+
+    /**
+     * Returns the payout job record, encoded as described in PayoutJob, or null if there is no such job.
+     */
+    @Callable
+    public static byte[] getPayoutJob(long jobId) {
+        return Blockchain.getStorage(payoutJobKey(jobId));
+    }
+
+    /** ==================================== Token Holder Hooks ==================================== **/
+
+    /**
+     * Set the energy limit of calls to the tokensToSend and tokensReceived hooks of the caller, overriding the stipend
+     * the token was deployed with. A hook contract that needs less energy than the stipend makes transfers involving
+     * it cheaper to reserve for, one that needs more can still be called.
+     *
+     * @param stipend energy limit of a hook call, or 0 to use the stipend of the token again
+     */
+    @Callable
+    public static void setHookStipend(long stipend) {
+        Blockchain.require(stipend > -1);
+        byte[] key = hookStipendKey(Blockchain.getCaller());
+        if (stipend == 0) {
+            Blockchain.putStorage(key, null);
+        } else {
+            Blockchain.putStorage(key, AionBuffer.allocate(Long.BYTES).putLong(stipend).getArray());
+        }
+    }
+
+    /**
+     * Returns the energy limit of calls to the hooks of the holder.
+     */
+    @Callable
+    public static long getHookStipend(Address holder) {
+        byte[] data = Blockchain.getStorage(hookStipendKey(holder));
+        if (data == null) {
+            return hookStipend;
+        }
+        return AionBuffer.wrap(data).getLong();
+    }
+
+    /** ==================================== Deferred Notifications ==================================== **/
+
+    /**
+     * Have the tokensReceived notifications of the caller queued in this contract instead of calling its hook during
+     * each transfer and mint, which makes the cost of sending to the caller independent of its hook. The queue is
+     * delivered with drainNotifications. Turning this off keeps the notifications already queued until they are
+     * drained.
+     *
+     * @param enabled whether to queue the notifications of the caller
+     */
+    @Callable
+    public static void setDeferredNotifications(boolean enabled) {
+        Address caller = Blockchain.getCaller();
+        byte[] data = Blockchain.getStorage(notificationQueueKey(caller));
+        NotificationQueue queue = (data == null) ? new NotificationQueue(false, 0, 0) : NotificationQueue.decode(data);
+        queue.enabled = enabled;
+        if (!enabled && queue.head == queue.tail) {
+            Blockchain.putStorage(notificationQueueKey(caller), null);
+        } else {
+            Blockchain.putStorage(notificationQueueKey(caller), queue.encode());
+        }
+    }
+
+    /**
+     * Returns the number of notifications queued for the holder.
+     */
+    @Callable
+    public static long getNotificationCount(Address holder) {
+        byte[] data = Blockchain.getStorage(notificationQueueKey(holder));
+        if (data == null) {
+            return 0;
+        }
+        NotificationQueue queue = NotificationQueue.decode(data);
+        return queue.tail - queue.head;
+    }
+
+    /**
+     * Deliver the oldest queued notifications of a holder, in order, with a single call of its
+     * tokensReceivedBatch(Address[] operators, Address[] froms, byte[][] amounts, byte[][] userData, byte[][] operatorData)
+     * method, which gets whatever energy the transaction has left. The notifications are removed from the queue only if
+     * that call succeeds. Anyone can call this.
+     *
+     * @param holder holder whose notifications to deliver
+     * @param maxCount maximum number of notifications to deliver
+     * @return number of notifications still queued for the holder
+     */
+    @Callable
+    public static long drainNotifications(Address holder, int maxCount) {
+        byte[] data = Blockchain.getStorage(notificationQueueKey(holder));
+        Blockchain.require(data != null);
+        NotificationQueue queue = NotificationQueue.decode(data);
+        int count = (int) Math.min(maxCount, queue.tail - queue.head);
+        Blockchain.require(count > 0);
+
+        Address[] operators = new Address[count];
+        Address[] froms = new Address[count];
+        byte[][] amounts = new byte[count][];
+        byte[][] userData = new byte[count][];
+        byte[][] operatorData = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            byte[] key = notificationKey(holder, queue.head);
+            byte[] stored = Blockchain.getStorage(key);
+            AionBuffer notification = AionBuffer.wrap(stored);
+            operators[i] = notification.getAddress();
+            froms[i] = notification.getAddress();
+            byte[] amount = new byte[32];
+            notification.get(amount);
+            amounts[i] = new BigInteger(amount).toByteArray();
+            userData[i] = new byte[notification.getInt()];
+            notification.get(userData[i]);
+            operatorData[i] = new byte[stored.length - 2 * Address.LENGTH - 32 - Integer.BYTES - userData[i].length];
+            notification.get(operatorData[i]);
+
+            Blockchain.putStorage(key, null);
+            queue.head++;
+        }
+        if (!queue.enabled && queue.head == queue.tail) {
+            Blockchain.putStorage(notificationQueueKey(holder), null);
+        } else {
+            Blockchain.putStorage(notificationQueueKey(holder), queue.encode());
+        }
+
+        byte[][] arguments = new byte[6][];
+        arguments[0] = ABIEncoder.encodeOneString("tokensReceivedBatch");
+        arguments[1] = ABIEncoder.encodeOneAddressArray(operators);
+        arguments[2] = ABIEncoder.encodeOneAddressArray(froms);
+        arguments[3] = ABIEncoder.encodeOne2DByteArray(amounts);
+        arguments[4] = ABIEncoder.encodeOne2DByteArray(userData);
+        arguments[5] = ABIEncoder.encodeOne2DByteArray(operatorData);
+        Result result = callHook(holder, "tokensReceivedBatch", ByteArrayHelpers.concatenateMultiple(arguments), Blockchain.getRemainingEnergy());
+        Blockchain.require(result != null && result.isSuccess());
+
+        return queue.tail - queue.head;
+    }
+
     /** ==================================== Cross-chain Functionality ==================================== **/
 
     /**
@@ -234,7 +954,12 @@ public class AionTokenStandardContract {
      */
     @Callable
     public static byte[] getLiquidSupply() {
-        return tokenTotalSupply.subtract(TokenHolderInformation.decodeBalance(Blockchain.getStorage(ATSContractAddress.unwrap()))).toByteArray();
+        byte[] data = Blockchain.getStorage(ATSContractAddress.unwrap());
+        if (data == null) {
+            return tokenTotalSupply.toByteArray();
+        }
+
+        return tokenTotalSupply.subtract(TokenHolderInformation.decodeBalance(data)).toByteArray();
     }
 
     @Callable
@@ -269,6 +994,7 @@ public class AionTokenStandardContract {
         Blockchain.require(amount.signum() > -1); // amount must not be negative, 0 is okay
         Blockchain.require(!to.equals(zeroAddress)); // forbid sending to zero address (burning)
         Blockchain.require(!to.equals(ATSContractAddress)); // forbid sending to ATS contract itself
+        Blockchain.require(!from.equals(to)); // a self send would write the record read before settling over the settled one
 
         // check sender info
         BigInteger senderOriginalBalance;
@@ -281,6 +1007,7 @@ public class AionTokenStandardContract {
             senderOriginalBalance = TokenHolderInformation.decodeBalance(fromData);
             senderOriginalOperators = TokenHolderInformation.decodeOperators(fromData);
         }
+        senderOriginalBalance = senderOriginalBalance.add(settleAccruals(from));
 
         // check receiver info
         BigInteger receiverOriginalBalance;
@@ -302,17 +1029,14 @@ public class AionTokenStandardContract {
             Result result = callTokenHolder(from, "tokensToSend", operator, from, to, amount, data, operatorData);
             Blockchain.require(result != null && result.isSuccess());
         }
-        if (isRegularAddress(to)) {
-            Result result2 = callTokenHolder(to, "tokensReceived", operator, from, to, amount, data, operatorData);
-            Blockchain.require(result2 != null && result2.isSuccess());
-        }
+        notifyRecipient(operator, from, to, amount, data, operatorData);
 
         // do the transfer
         BigInteger senderAfterBalance = senderOriginalBalance.subtract(amount);
-        Blockchain.putStorage(from.unwrap(), TokenHolderInformation.encode(senderAfterBalance, senderOriginalOperators));
+        putHolderInformation(from, senderAfterBalance, senderOriginalOperators);
 
         BigInteger receiverAfterBalance = receiverOriginalBalance.add(amount);
-        Blockchain.putStorage(to.unwrap(), TokenHolderInformation.encode(receiverAfterBalance, receiverOriginalOperators));
+        putHolderInformation(to, receiverAfterBalance, receiverOriginalOperators);
 
         // emit sent event
         ATSContractEvents.emitSentEvent(operator, from, to, amount, data, operatorData);
@@ -336,6 +1060,7 @@ public class AionTokenStandardContract {
             senderOriginalBalance = TokenHolderInformation.decodeBalance(fromData);
             senderOriginalOperators = TokenHolderInformation.decodeOperators(fromData);
         }
+        senderOriginalBalance = senderOriginalBalance.add(settleAccruals(from));
 
         // check transfer requirements
         Blockchain.require(senderOriginalBalance.compareTo(amount) > -1); // amount must be greater or equal to sender balance
@@ -348,7 +1073,7 @@ public class AionTokenStandardContract {
 
         // do the transfer
         BigInteger senderAfterBalance = senderOriginalBalance.subtract(amount);
-        Blockchain.putStorage(from.unwrap(), TokenHolderInformation.encode(senderAfterBalance, senderOriginalOperators));
+        putHolderInformation(from, senderAfterBalance, senderOriginalOperators);
 
         tokenTotalSupply = tokenTotalSupply.subtract(amount);
 
@@ -357,23 +1082,334 @@ public class AionTokenStandardContract {
     }
 
     /**
-     * Setup arguments and calls token holder informing the token transfer
+     * The internal mint implementation, credits the recipient without touching the total supply
      */
-    private static Result callTokenHolder(Address contractToCall, String methodName, Address operator, Address from, Address to, BigInteger amount, byte[] data, byte[] operatorData) {
-        byte[][] arguments = new byte[7][];
-        arguments[0] = ABIEncoder.encodeOneString(methodName);
-        arguments[1] = ABIEncoder.encodeOneAddress(operator);
-        arguments[2] = ABIEncoder.encodeOneAddress(from);
-        arguments[3] = ABIEncoder.encodeOneAddress(to);
-        arguments[4] = ABIEncoder.encodeOneByteArray(amount.toByteArray());
-        arguments[5] = ABIEncoder.encodeOneByteArray(data);
-        arguments[6] = ABIEncoder.encodeOneByteArray(operatorData);
+    private static void doMint(Address operator, Address to, BigInteger amount, byte[] data) {
+        Blockchain.require(satisfyGranularity(amount)); // amount must be a multiple of the set tokenGranularity
+        Blockchain.require(amount.signum() > -1); // amount must not be negative, 0 is okay
+        Blockchain.require(!to.equals(zeroAddress)); // forbid minting to zero address
+        Blockchain.require(!to.equals(ATSContractAddress)); // forbid minting to ATS contract itself
 
-        return Blockchain.call(contractToCall, BigInteger.ZERO, ByteArrayHelpers.concatenateMultiple(arguments), 10_000_000);
+        notifyRecipient(operator, zeroAddress, to, amount, data, new byte[0]);
+
+        creditBalance(to, amount);
     }
 
     /**
-     * Return true if the given address is a contract, false otherwise.
+     * Add newly minted tokens to the total supply, enforcing the supply cap if one is set, and the bound every amount
+     * must keep to fit its 32-byte slot.
+     */
+    private static void increaseTotalSupply(BigInteger amount) {
+        BigInteger newTotalSupply = tokenTotalSupply.add(amount);
+        Blockchain.require(tokenSupplyCap == null || newTotalSupply.compareTo(tokenSupplyCap) < 1);
+        Blockchain.require(newTotalSupply.bitLength() <= MAX_AMOUNT_BITS);
+        tokenTotalSupply = newTotalSupply;
+    }
+
+    /**
+     * Read the record of an account taking part in a clearing batch, the first time the account is seen.
+     */
+    private static void loadForClearing(Address account, AionMap<Address, byte[]> records, AionMap<Address, BigInteger> netPositions, AionList<Address> accounts) {
+        if (!netPositions.containsKey(account)) {
+            records.put(account, Blockchain.getStorage(account.unwrap()));
+            netPositions.put(account, BigInteger.ZERO);
+            accounts.add(account);
+        }
+    }
+
+    /**
+     * Store the holder record with a changed balance, keeping the balance commitment up to date.
+     */
+    private static void putHolderInformation(Address holder, BigInteger balance, AionList<Address> operators) {
+        byte[] record = TokenHolderInformation.encode(balance, operators);
+        Blockchain.putStorage(holder.unwrap(), record);
+        BalanceTree.update(holder, balance);
+    }
+
+    /**
+     * Add the amount to the stored balance of the holder.
+     */
+    private static void creditBalance(Address holder, BigInteger amount) {
+        byte[] data = Blockchain.getStorage(holder.unwrap());
+        if (data == null) {
+            putHolderInformation(holder, amount, new AionList<>());
+        } else {
+            BigInteger balance = TokenHolderInformation.decodeBalance(data).add(amount);
+            putHolderInformation(holder, balance, TokenHolderInformation.decodeOperators(data));
+        }
+    }
+
+    /**
+     * Subtract the amount from the balance of the holder, after settling what has accrued to the holder.
+     */
+    private static void debitBalance(Address holder, BigInteger amount) {
+        byte[] data = Blockchain.getStorage(holder.unwrap());
+        BigInteger balance = settleAccruals(holder);
+        AionList<Address> operators = new AionList<>();
+        if (data != null) {
+            balance = balance.add(TokenHolderInformation.decodeBalance(data));
+            operators = TokenHolderInformation.decodeOperators(data);
+        }
+
+        Blockchain.require(balance.compareTo(amount) > -1); // amount must be greater or equal to holder balance
+        putHolderInformation(holder, balance.subtract(amount), operators);
+    }
+
+    /**
+     * Returns what has accrued to the holder but is not part of its stored balance yet.
+     */
+    private static BigInteger pendingAccruals(Address holder) {
+        BigInteger pending = BigInteger.ZERO;
+        long blockNumber = Blockchain.getBlockNumber();
+        for (long streamId : getIncomingStreams(holder)) {
+            byte[] data = Blockchain.getStorage(streamKey(streamId));
+            pending = pending.add(StreamInformation.decode(data).withdrawableAt(blockNumber));
+        }
+
+        byte[] vestingData = Blockchain.getStorage(vestingKey(holder));
+        if (vestingData != null) {
+            pending = pending.add(VestingSchedule.decode(vestingData).releasableAt(Blockchain.getBlockTimestamp()));
+        }
+        return pending;
+    }
+
+    /**
+     * Mark everything that has accrued to the holder as paid out and return the amount, which the caller must add to
+     * the holder balance it writes.
+     */
+    private static BigInteger settleAccruals(Address holder) {
+        BigInteger settled = BigInteger.ZERO;
+        long[] incoming = getIncomingStreams(holder);
+        long[] remaining = new long[incoming.length];
+        int remainingCount = 0;
+        for (long streamId : incoming) {
+            StreamInformation stream = StreamInformation.decode(Blockchain.getStorage(streamKey(streamId)));
+            settled = settled.add(settleStream(streamId, stream));
+            if (stream.isPaidOut()) {
+                Blockchain.putStorage(streamKey(streamId), null);
+            } else {
+                remaining[remainingCount++] = streamId;
+            }
+        }
+        // the streams paid out are removed from the list all at once
+        if (remainingCount < incoming.length) {
+            putIncomingStreams(holder, Arrays.copyOf(remaining, remainingCount));
+        }
+        return settled.add(settleVesting(holder));
+    }
+
+    /**
+     * Mark the releasable amount of the holder's vesting schedule as released and return it, removing the schedule
+     * once everything is released.
+     */
+    private static BigInteger settleVesting(Address beneficiary) {
+        byte[] data = Blockchain.getStorage(vestingKey(beneficiary));
+        if (data == null) {
+            return BigInteger.ZERO;
+        }
+
+        VestingSchedule schedule = VestingSchedule.decode(data);
+        BigInteger amount = schedule.releasableAt(Blockchain.getBlockTimestamp());
+        if (amount.signum() == 0) {
+            return amount;
+        }
+
+        schedule.released = schedule.released.add(amount);
+        if (schedule.released.equals(schedule.total)) {
+            Blockchain.putStorage(vestingKey(beneficiary), null);
+        } else {
+            Blockchain.putStorage(vestingKey(beneficiary), schedule.encode());
+        }
+
+        ATSContractEvents.emitVestingReleasedEvent(beneficiary, amount);
+        return amount;
+    }
+
+    /**
+     * Mark the streamed amount of a stream as withdrawn and return it. A stream that is fully paid out is left for the
+     * caller to remove.
+     */
+    private static BigInteger settleStream(long streamId, StreamInformation stream) {
+        long blockNumber = Blockchain.getBlockNumber();
+        BigInteger amount = stream.withdrawableAt(blockNumber);
+        if (amount.signum() == 0) {
+            return amount;
+        }
+
+        stream.withdrawn = stream.withdrawn.add(amount);
+        if (!stream.isPaidOut()) {
+            Blockchain.putStorage(streamKey(streamId), stream.encode());
+        }
+
+        ATSContractEvents.emitStreamWithdrawnEvent(streamId, stream.recipient, amount);
+        return amount;
+    }
+
+    private static void removeStream(long streamId, Address recipient) {
+        Blockchain.putStorage(streamKey(streamId), null);
+
+        long[] incoming = getIncomingStreams(recipient);
+        long[] updated = new long[incoming.length - 1];
+        int j = 0;
+        for (long id : incoming) {
+            if (id != streamId) {
+                updated[j++] = id;
+            }
+        }
+        putIncomingStreams(recipient, updated);
+    }
+
+    /**
+     * Returns the ids of the streams paying out to the recipient.
+     */
+    private static long[] getIncomingStreams(Address recipient) {
+        byte[] data = Blockchain.getStorage(storageKey("incomingStreams", recipient.unwrap()));
+        if (data == null) {
+            return new long[0];
+        }
+
+        AionBuffer buffer = AionBuffer.wrap(data);
+        long[] streamIds = new long[data.length / Long.BYTES];
+        for (int i = 0; i < streamIds.length; i++) {
+            streamIds[i] = buffer.getLong();
+        }
+        return streamIds;
+    }
+
+    private static void putIncomingStreams(Address recipient, long[] streamIds) {
+        byte[] key = storageKey("incomingStreams", recipient.unwrap());
+        if (streamIds.length == 0) {
+            Blockchain.putStorage(key, null);
+            return;
+        }
+
+        AionBuffer buffer = AionBuffer.allocate(streamIds.length * Long.BYTES);
+        for (long streamId : streamIds) {
+            buffer.putLong(streamId);
+        }
+        Blockchain.putStorage(key, buffer.getArray());
+    }
+
+    private static byte[] vestingKey(Address beneficiary) {
+        return storageKey("vesting", beneficiary.unwrap());
+    }
+
+    private static byte[] channelKey(long channelId) {
+        return storageKey("channel", AionBuffer.allocate(Long.BYTES).putLong(channelId).getArray());
+    }
+
+    /**
+     * Returns the message a channel voucher signs, binding the amount to this contract and channel.
+     */
+    private static byte[] voucherMessage(long channelId, BigInteger amount) {
+        return AionBuffer.allocate(Address.LENGTH + Long.BYTES + 32)
+                .putAddress(ATSContractAddress)
+                .putLong(channelId)
+                .put(ByteArrayHelpers.fillLeadingZeros(amount.toByteArray()))
+                .getArray();
+    }
+
+    private static boolean isSmallOrderKey(byte[] publicKey) {
+        for (byte[] smallOrderKey : SMALL_ORDER_KEYS) {
+            boolean matches = (publicKey[31] & 0x7f) == smallOrderKey[31];
+            for (int i = 0; matches && i < 31; i++) {
+                matches = publicKey[i] == smallOrderKey[i];
+            }
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static byte[] payoutJobKey(long jobId) {
+        return storageKey("payoutJob", AionBuffer.allocate(Long.BYTES).putLong(jobId).getArray());
+    }
+
+    private static byte[] payoutChunkKey(long jobId, int chunkIndex) {
+        return storageKey("payoutChunk", AionBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(jobId).putInt(chunkIndex).getArray());
+    }
+
+    private static byte[] hookStipendKey(Address holder) {
+        return storageKey("hookStipend", holder.unwrap());
+    }
+
+    private static byte[] notificationQueueKey(Address holder) {
+        return storageKey("notificationQueue", holder.unwrap());
+    }
+
+    private static byte[] notificationKey(Address holder, long index) {
+        return storageKey("notification", AionBuffer.allocate(Address.LENGTH + Long.BYTES).putAddress(holder).putLong(index).getArray());
+    }
+
+    private static byte[] streamKey(long streamId) {
+        return storageKey("stream", AionBuffer.allocate(Long.BYTES).putLong(streamId).getArray());
+    }
+
+    /**
+     * Returns the storage key of a record other than a token holder record. Token holder records are stored under the
+     * holder address itself, every other record is stored under the hash of its namespace and id.
+     */
+    private static byte[] storageKey(String namespace, byte[] id) {
+        return Blockchain.sha256(ByteArrayHelpers.concatenate(namespace.getBytes(), id));
+    }
+
+    /**
+     * Setup arguments and calls token holder informing the token transfer
+     */
+    private static Result callTokenHolder(Address contractToCall, String methodName, Address operator, Address from, Address to, BigInteger amount, byte[] data, byte[] operatorData) {
+        byte[][] arguments = new byte[7][];
+        arguments[0] = ABIEncoder.encodeOneString(methodName);
+        arguments[1] = ABIEncoder.encodeOneAddress(operator);
+        arguments[2] = ABIEncoder.encodeOneAddress(from);
+        arguments[3] = ABIEncoder.encodeOneAddress(to);
+        arguments[4] = ABIEncoder.encodeOneByteArray(amount.toByteArray());
+        arguments[5] = ABIEncoder.encodeOneByteArray(data);
+        arguments[6] = ABIEncoder.encodeOneByteArray(operatorData);
+
+        return callHook(contractToCall, methodName, ByteArrayHelpers.concatenateMultiple(arguments), getHookStipend(contractToCall));
+    }
+
+    /**
+     * Call a hook of a token holder with the given energy limit and log the energy the call used, for tuning the
+     * stipends.
+     */
+    private static Result callHook(Address holder, String methodName, byte[] data, long energyLimit) {
+        long remaining = Blockchain.getRemainingEnergy();
+        Result result = Blockchain.call(holder, BigInteger.ZERO, data, energyLimit);
+        ATSContractEvents.emitHookEnergyEvent(holder, methodName, energyLimit, remaining - Blockchain.getRemainingEnergy());
+        return result;
+    }
+
+    /**
+     * Inform the recipient of tokens, through its notification queue if it defers notifications, otherwise through its
+     * tokensReceived hook if it is a contract.
+     */
+    private static void notifyRecipient(Address operator, Address from, Address to, BigInteger amount, byte[] data, byte[] operatorData) {
+        byte[] queueData = Blockchain.getStorage(notificationQueueKey(to));
+        NotificationQueue queue = (queueData == null) ? null : NotificationQueue.decode(queueData);
+        if (queue != null && queue.enabled) {
+            byte[] notification = ByteArrayHelpers.concatenateMultiple(new byte[][]{
+                    operator.unwrap(), from.unwrap(), ATSContractEvents.encodeAmountAndData(amount, data, operatorData)});
+            Blockchain.putStorage(notificationKey(to, queue.tail), notification);
+            queue.tail++;
+            Blockchain.putStorage(notificationQueueKey(to), queue.encode());
+        } else if (isRegularAddress(to)) {
+            Result result = callTokenHolder(to, "tokensReceived", operator, from, to, amount, data, operatorData);
+            Blockchain.require(result != null && result.isSuccess());
+        }
+    }
+
+    /**
+     * Return true if the given address is a contract, false otherwise.
      * todo: we only want to call functions of TokenHolderInterface if the address is a contract, need a way to decide this.
      * todo: need to change this, but for now we are using contracts that implements TokenHolderInterface for testing
      */
@@ -385,16 +1421,18 @@ public class AionTokenStandardContract {
      * Initializing the total supply by giving all the tokens to the contract creator.
      */
     private static void initializeTotalSupply(BigInteger totalSupply) {
-        Blockchain.putStorage(owner.unwrap(), TokenHolderInformation.encode(totalSupply, new AionList<>()));
-        //ATSContractEvents.emitTokenCreatedEvent(totalSupply, owner);
+        putHolderInformation(owner, totalSupply, new AionList<>());
+        ATSContractEvents.emitTokenCreatedEvent(owner, totalSupply);
     }
 
     /**
-     * Initialization code executed once at the Dapp deployment. Expect 4 arguments:
+     * Initialization code executed once at the Dapp deployment. Expect 6 arguments:
      *  - Name of the token (String)
      *  - Symbol of the token (String)
      *  - Granularity of the token (int)
      *  - Total supply of the token (byte[] representation)
+     *  - Address of the AIR contract the token registers in (Address)
+     *  - Energy limit of a call to a token holder hook (long)
      */
     static {
         ABIDecoder decoder = new ABIDecoder(Blockchain.getData());
@@ -403,13 +1441,16 @@ public class AionTokenStandardContract {
         tokenGranularity = decoder.decodeOneInteger();
         tokenTotalSupply = new BigInteger(decoder.decodeOneByteArray());
         AionInterfaceRegistryAddress = decoder.decodeOneAddress();
+        hookStipend = decoder.decodeOneLong();
         owner = Blockchain.getCaller();
 
         Blockchain.require(tokenName.length() > 0);
         Blockchain.require(tokenSymbol.length() > 0);
         Blockchain.require(tokenGranularity >= 1);
         Blockchain.require(tokenTotalSupply.signum() > -1);
+        Blockchain.require(tokenTotalSupply.bitLength() <= MAX_AMOUNT_BITS); // bounds every balance and transferred amount
         Blockchain.require(AionInterfaceRegistryAddress != null);
+        Blockchain.require(hookStipend > 0);
 
         // setup inner data structures
         ATSContractAddress = Blockchain.getAddress();
@@ -422,7 +1463,7 @@ public class AionTokenStandardContract {
         arguments[2] = ABIEncoder.encodeOneByteArray(Blockchain.sha256(InterfaceName.getBytes()));
         arguments[3] = ABIEncoder.encodeOneAddress(ATSContractAddress);
 
-        Result result = Blockchain.call(AionInterfaceRegistryAddress, BigInteger.ZERO, ByteArrayHelpers.concatenateMultiple(arguments), 10_000_000);
+        Result result = Blockchain.call(AionInterfaceRegistryAddress, BigInteger.ZERO, ByteArrayHelpers.concatenateMultiple(arguments), Blockchain.getRemainingEnergy());
         Blockchain.require(result != null && result.isSuccess());
     }
 
@@ -437,9 +1478,28 @@ public class AionTokenStandardContract {
         private static String EmitBurnedEventStringPart1 = "BurnedEventPart1";
         private static String EmitBurnedEventStringPart2 = "BurnedEventPart2";
 
+        private static String EmitMintedEventString = "MintedEvent";
+
+        private static String EmitStreamCreatedEventString = "StreamCreatedEvent";
+        private static String EmitStreamWithdrawnEventString = "StreamWithdrawnEvent";
+        private static String EmitStreamCancelledEventString = "StreamCancelledEvent";
+
+        private static String EmitVestingScheduleCreatedEventString = "VestingScheduleCreatedEvent";
+        private static String EmitVestingReleasedEventString = "VestingReleasedEvent";
+
+        private static String EmitChannelOpenedEventString = "ChannelOpenedEvent";
+        private static String EmitChannelClosedEventString = "ChannelClosedEvent";
+
+        private static String EmitClearedEventString = "ClearedEvent";
+
+        private static String EmitPayoutJobCreatedEventString = "PayoutJobCreatedEvent";
+        private static String EmitPayoutChunkAddedEventString = "PayoutChunkAddedEvent";
+        private static String EmitPayoutProgressEventString = "PayoutProgressEvent";
+
         private static String EmitAuthorizedOperatorEventString = "AuthorizedOperatorEvent";
         private static String EmitRevokedOperatorEventString = "RevokedOperatorEvent";
         private static String EmitTokenCreatedEventString = "TokenCreatedEvent";
+        private static String EmitHookEnergyEventString = "HookEnergyEvent";
 
         public static void emitSentEvent(Address operator, Address from, Address to, BigInteger amount, byte[] senderData, byte[] operatorData) {
             byte[][] data = new byte[3][];
@@ -452,15 +1512,12 @@ public class AionTokenStandardContract {
                     "to".getBytes(),
                     ByteArrayHelpers.concatenateMultiple(data));
 
-            byte[][] data2 = new byte[3][];
-            data2[0] = amount.toByteArray();
-            data2[1] = senderData;
-            data2[2] = operatorData;
+            byte[] data2 = encodeAmountAndData(amount, senderData, operatorData);
             Blockchain.log(EmitSentEventStringPart2.getBytes(),
                     "amount".getBytes(),
                     "senderData".getBytes(),
                     "operatorData".getBytes(),
-                    ByteArrayHelpers.concatenateMultiple(data2));
+                    data2);
         }
 
         public static void emitBurnedEvent(Address operator, Address from, BigInteger amount, byte[] senderData, byte[] operatorData) {
@@ -472,15 +1529,200 @@ public class AionTokenStandardContract {
                     "from".getBytes(),
                     ByteArrayHelpers.concatenateMultiple(data));
 
-            byte[][] data2 = new byte[3][];
-            data2[0] = amount.toByteArray();
-            data2[1] = senderData;
-            data2[2] = operatorData;
+            byte[] data2 = encodeAmountAndData(amount, senderData, operatorData);
             Blockchain.log(EmitBurnedEventStringPart2.getBytes(),
                     "amount".getBytes(),
                     "senderData".getBytes(),
                     "operatorData".getBytes(),
-                    ByteArrayHelpers.concatenateMultiple(data2));
+                    data2);
+        }
+
+        /**
+         * Data of the second part of the Sent and Burned events, laid out as
+         * - amount (32 bytes), length n of senderData (4 bytes)
+         * - senderData (n bytes)
+         * - operatorData (every byte after)
+         */
+        private static byte[] encodeAmountAndData(BigInteger amount, byte[] senderData, byte[] operatorData) {
+            return AionBuffer.allocate(32 + 4 + senderData.length + operatorData.length)
+                    .put(ByteArrayHelpers.fillLeadingZeros(amount.toByteArray()))
+                    .putInt(senderData.length)
+                    .put(senderData)
+                    .put(operatorData)
+                    .getArray();
+        }
+
+        /**
+         * One event for a whole mint batch, the data is laid out as
+         * - operator (32 bytes), total amount (32 bytes), number of recipients n (4 bytes)
+         * - n times: recipient (32 bytes), amount (32 bytes)
+         * - senderData
+         */
+        public static void emitMintedEvent(Address operator, Address[] recipients, BigInteger[] amounts, BigInteger totalAmount, byte[] senderData) {
+            AionBuffer buffer = AionBuffer.allocate(Address.LENGTH + 32 + 4 + recipients.length * (Address.LENGTH + 32) + senderData.length);
+            buffer.putAddress(operator);
+            buffer.put(ByteArrayHelpers.fillLeadingZeros(totalAmount.toByteArray()));
+            buffer.putInt(recipients.length);
+            for (int i = 0; i < recipients.length; i++) {
+                buffer.putAddress(recipients[i]);
+                buffer.put(ByteArrayHelpers.fillLeadingZeros(amounts[i].toByteArray()));
+            }
+            buffer.put(senderData);
+
+            Blockchain.log(EmitMintedEventString.getBytes(),
+                    "operator".getBytes(),
+                    "totalAmount".getBytes(),
+                    "recipients".getBytes(),
+                    buffer.getArray());
+        }
+
+        public static void emitStreamCreatedEvent(long streamId, StreamInformation stream) {
+            byte[][] data = new byte[2][];
+            data[0] = AionBuffer.allocate(Long.BYTES).putLong(streamId).getArray();
+            data[1] = stream.encode();
+            Blockchain.log(EmitStreamCreatedEventString.getBytes(),
+                    "streamId".getBytes(),
+                    "stream".getBytes(),
+                    ByteArrayHelpers.concatenateMultiple(data));
+        }
+
+        public static void emitStreamWithdrawnEvent(long streamId, Address recipient, BigInteger amount) {
+            byte[][] data = new byte[3][];
+            data[0] = AionBuffer.allocate(Long.BYTES).putLong(streamId).getArray();
+            data[1] = recipient.unwrap();
+            data[2] = ByteArrayHelpers.fillLeadingZeros(amount.toByteArray());
+            Blockchain.log(EmitStreamWithdrawnEventString.getBytes(),
+                    "streamId".getBytes(),
+                    "recipient".getBytes(),
+                    "amount".getBytes(),
+                    ByteArrayHelpers.concatenateMultiple(data));
+        }
+
+        public static void emitStreamCancelledEvent(long streamId, StreamInformation stream, BigInteger senderAmount, BigInteger recipientAmount) {
+            byte[][] data = new byte[5][];
+            data[0] = AionBuffer.allocate(Long.BYTES).putLong(streamId).getArray();
+            data[1] = stream.sender.unwrap();
+            data[2] = ByteArrayHelpers.fillLeadingZeros(senderAmount.toByteArray());
+            data[3] = stream.recipient.unwrap();
+            data[4] = ByteArrayHelpers.fillLeadingZeros(recipientAmount.toByteArray());
+            Blockchain.log(EmitStreamCancelledEventString.getBytes(),
+                    "streamId".getBytes(),
+                    "sender".getBytes(),
+                    "recipient".getBytes(),
+                    ByteArrayHelpers.concatenateMultiple(data));
+        }
+
+        public static void emitVestingScheduleCreatedEvent(Address beneficiary, VestingSchedule schedule) {
+            Blockchain.log(EmitVestingScheduleCreatedEventString.getBytes(),
+                    "beneficiary".getBytes(),
+                    "schedule".getBytes(),
+                    ByteArrayHelpers.concatenate(beneficiary.unwrap(), schedule.encode()));
+        }
+
+        public static void emitVestingReleasedEvent(Address beneficiary, BigInteger amount) {
+            Blockchain.log(EmitVestingReleasedEventString.getBytes(),
+                    "beneficiary".getBytes(),
+                    "amount".getBytes(),
+                    ByteArrayHelpers.concatenate(beneficiary.unwrap(), ByteArrayHelpers.fillLeadingZeros(amount.toByteArray())));
+        }
+
+        public static void emitChannelOpenedEvent(long channelId, ChannelInformation channel) {
+            Blockchain.log(EmitChannelOpenedEventString.getBytes(),
+                    "channelId".getBytes(),
+                    "channel".getBytes(),
+                    ByteArrayHelpers.concatenate(AionBuffer.allocate(Long.BYTES).putLong(channelId).getArray(), channel.encode()));
+        }
+
+        public static void emitChannelClosedEvent(long channelId, ChannelInformation channel, BigInteger senderAmount, BigInteger recipientAmount) {
+            byte[][] data = new byte[5][];
+            data[0] = AionBuffer.allocate(Long.BYTES).putLong(channelId).getArray();
+            data[1] = channel.sender.unwrap();
+            data[2] = ByteArrayHelpers.fillLeadingZeros(senderAmount.toByteArray());
+            data[3] = channel.recipient.unwrap();
+            data[4] = ByteArrayHelpers.fillLeadingZeros(recipientAmount.toByteArray());
+            Blockchain.log(EmitChannelClosedEventString.getBytes(),
+                    "channelId".getBytes(),
+                    "sender".getBytes(),
+                    "recipient".getBytes(),
+                    ByteArrayHelpers.concatenateMultiple(data));
+        }
+
+        /**
+         * One event for a whole clearing batch, the data is laid out as
+         * - operator (32 bytes), number of obligations (4 bytes), number of changed accounts n (4 bytes)
+         * - n times: account (32 bytes), new balance (32 bytes)
+         * - operatorData
+         */
+        public static void emitClearedEvent(Address operator, int obligationCount, AionList<Address> accounts, AionList<BigInteger> balances, byte[] operatorData) {
+            AionBuffer buffer = AionBuffer.allocate(Address.LENGTH + 4 + 4 + accounts.size() * (Address.LENGTH + 32) + operatorData.length);
+            buffer.putAddress(operator);
+            buffer.putInt(obligationCount);
+            buffer.putInt(accounts.size());
+            for (int i = 0; i < accounts.size(); i++) {
+                buffer.putAddress(accounts.get(i));
+                buffer.put(ByteArrayHelpers.fillLeadingZeros(balances.get(i).toByteArray()));
+            }
+            buffer.put(operatorData);
+
+            Blockchain.log(EmitClearedEventString.getBytes(),
+                    "operator".getBytes(),
+                    "balances".getBytes(),
+                    buffer.getArray());
+        }
+
+        /**
+         * The data is laid out as job id (8 bytes), creator (32 bytes)
+         */
+        public static void emitPayoutJobCreatedEvent(long jobId, Address creator) {
+            byte[] data = AionBuffer.allocate(Long.BYTES + Address.LENGTH)
+                    .putLong(jobId)
+                    .putAddress(creator)
+                    .getArray();
+            Blockchain.log(EmitPayoutJobCreatedEventString.getBytes(),
+                    "jobId".getBytes(),
+                    "creator".getBytes(),
+                    data);
+        }
+
+        /**
+         * The data is laid out as
+         * - job id (8 bytes), creator (32 bytes), total amount of the chunk (32 bytes)
+         * - chunk index (4 bytes), number of payments in the chunk (4 bytes)
+         */
+        public static void emitPayoutChunkAddedEvent(long jobId, Address creator, int chunkIndex, int entryCount, BigInteger total) {
+            byte[] data = AionBuffer.allocate(Long.BYTES + Address.LENGTH + 32 + 2 * Integer.BYTES)
+                    .putLong(jobId)
+                    .putAddress(creator)
+                    .put(ByteArrayHelpers.fillLeadingZeros(total.toByteArray()))
+                    .putInt(chunkIndex)
+                    .putInt(entryCount)
+                    .getArray();
+            Blockchain.log(EmitPayoutChunkAddedEventString.getBytes(),
+                    "jobId".getBytes(),
+                    "creator".getBytes(),
+                    "total".getBytes(),
+                    data);
+        }
+
+        /**
+         * One event for the payments of a continueJob call, the data is laid out as
+         * - job id (8 bytes), number of payments of the job paid out so far (8 bytes), number of payments n (4 bytes)
+         * - n times: recipient (32 bytes), amount (32 bytes)
+         */
+        public static void emitPayoutProgressEvent(long jobId, long paidCount, AionList<Address> recipients, AionList<BigInteger> amounts) {
+            AionBuffer buffer = AionBuffer.allocate(2 * Long.BYTES + 4 + recipients.size() * (Address.LENGTH + 32));
+            buffer.putLong(jobId);
+            buffer.putLong(paidCount);
+            buffer.putInt(recipients.size());
+            for (int i = 0; i < recipients.size(); i++) {
+                buffer.putAddress(recipients.get(i));
+                buffer.put(ByteArrayHelpers.fillLeadingZeros(amounts.get(i).toByteArray()));
+            }
+
+            Blockchain.log(EmitPayoutProgressEventString.getBytes(),
+                    "jobId".getBytes(),
+                    "payments".getBytes(),
+                    buffer.getArray());
         }
 
         public static void emitAuthorizedOperatorEvent(Address operator, Address tokenHolder) {
@@ -497,30 +1739,52 @@ public class AionTokenStandardContract {
                     ByteArrayHelpers.concatenate(operator.unwrap(), tokenHolder.unwrap()));
         }
 
+        /**
+         * The energy a call to a token holder hook used, the data is laid out as
+         * - holder (32 bytes), energy limit of the call (8 bytes), energy used (8 bytes)
+         */
+        public static void emitHookEnergyEvent(Address holder, String methodName, long energyLimit, long energyUsed) {
+            Blockchain.log(EmitHookEnergyEventString.getBytes(),
+                    methodName.getBytes(),
+                    AionBuffer.allocate(Address.LENGTH + 2 * Long.BYTES).putAddress(holder).putLong(energyLimit).putLong(energyUsed).getArray());
+        }
+
         public static void emitTokenCreatedEvent(Address contractOwner, BigInteger totalSupply){
             Blockchain.log(EmitTokenCreatedEventString.getBytes(),
                     "owner".getBytes(),
                     "totalSupply".getBytes(),
-                    ByteArrayHelpers.concatenate(contractOwner.unwrap(), totalSupply.toByteArray()));
+                    ByteArrayHelpers.concatenate(contractOwner.unwrap(), ByteArrayHelpers.fillLeadingZeros(totalSupply.toByteArray())));
         }
     }
 
     /**
      * When storing this object in the key-value store, we will use the following encoding format
+     * - byte[0]: layout version, see COMPACT_LAYOUT_VERSION
+     * - byte[1]: length n of the token balance
+     * - byte[2:2+n-1]: token balance, as returned by BigInteger.toByteArray()
+     * - every 32 bytes after: an operator address
+     *
+     * Records written before the layout version was introduced use the legacy format
      * - byte[0:31]: token balance
      * - every 32 bytes after: an operator address
      *
-     * The first two fields of byte[] will be filled to 32 bytes length in order to store these values in a consistent
-     * manner, making decoding very simple.
+     * The legacy balance is a non-negative number filled to 32 bytes, so its first byte is always in 0x00..0x7f. A
+     * version byte with the high bit set can therefore never be mistaken for a legacy record. Both layouts are decoded,
+     * but records are only ever encoded in the current layout, so a legacy record is migrated the next time a transfer
+     * or an operator change writes it, and no migration pass over all holders is needed.
      */
     private static class TokenHolderInformation {
-        private static final int TOKEN_BALANCE_LENGTH = 32;
+        private static final int LEGACY_TOKEN_BALANCE_LENGTH = 32;
+        private static final byte COMPACT_LAYOUT_VERSION = (byte) 0x81;
+        private static final int COMPACT_HEADER_LENGTH = 2;
 
         private static byte[] encode(BigInteger balance, AionList<Address> operators) {
-            byte[] balanceBytes = ByteArrayHelpers.fillLeadingZeros(balance.toByteArray());
+            byte[] balanceBytes = balance.toByteArray();
 
-            AionBuffer buffer = AionBuffer.allocate(balanceBytes.length + operators.size() * Address.LENGTH);
+            AionBuffer buffer = AionBuffer.allocate(COMPACT_HEADER_LENGTH + balanceBytes.length + operators.size() * Address.LENGTH);
 
+            buffer.putByte(COMPACT_LAYOUT_VERSION);
+            buffer.putByte((byte) balanceBytes.length);
             buffer.put(balanceBytes);
 
             for (Address operator: operators) {
@@ -531,17 +1795,467 @@ public class AionTokenStandardContract {
         }
 
         private static BigInteger decodeBalance(byte[] data) {
-            return new BigInteger(Arrays.copyOfRange(data, 0, TOKEN_BALANCE_LENGTH));
+            if (isLegacyLayout(data)) {
+                return new BigInteger(Arrays.copyOfRange(data, 0, LEGACY_TOKEN_BALANCE_LENGTH));
+            }
+            return new BigInteger(Arrays.copyOfRange(data, COMPACT_HEADER_LENGTH, operatorsOffset(data)));
         }
 
         private static AionList<Address> decodeOperators(byte[] data) {
             AionList<Address> operators = new AionList<>();
 
-            for (int i = TOKEN_BALANCE_LENGTH; i < data.length; i = i + Address.LENGTH) {
+            for (int i = operatorsOffset(data); i < data.length; i = i + Address.LENGTH) {
                 operators.add(new Address(Arrays.copyOfRange(data, i, i + Address.LENGTH)));
             }
             return operators;
         }
+
+        private static boolean isLegacyLayout(byte[] data) {
+            return data[0] >= 0;
+        }
+
+        /**
+         * Returns the index of the first operator address, which is also the end of the balance field.
+         */
+        private static int operatorsOffset(byte[] data) {
+            if (isLegacyLayout(data)) {
+                return LEGACY_TOKEN_BALANCE_LENGTH;
+            }
+            Blockchain.require(data[0] == COMPACT_LAYOUT_VERSION); // reject layouts this contract does not know about
+            return COMPACT_HEADER_LENGTH + (data[1] & 0xff);
+        }
+    }
+
+    /**
+     * A payment stream, stored under the key derived from its id with the following encoding format
+     * - byte[0:31]: sender address
+     * - byte[32:63]: recipient address
+     * - byte[64:95]: tokens streamed per block
+     * - byte[96:103]: start block
+     * - byte[104:111]: stop block
+     * - byte[112:143]: tokens already withdrawn by the recipient
+     */
+    private static class StreamInformation {
+        private final Address sender;
+        private final Address recipient;
+        private final BigInteger ratePerBlock;
+        private final long startBlock;
+        private final long stopBlock;
+        private BigInteger withdrawn;
+
+        private StreamInformation(Address sender, Address recipient, BigInteger ratePerBlock, long startBlock, long stopBlock, BigInteger withdrawn) {
+            this.sender = sender;
+            this.recipient = recipient;
+            this.ratePerBlock = ratePerBlock;
+            this.startBlock = startBlock;
+            this.stopBlock = stopBlock;
+            this.withdrawn = withdrawn;
+        }
+
+        private BigInteger deposit() {
+            return ratePerBlock.multiply(BigInteger.valueOf(stopBlock - startBlock));
+        }
+
+        private boolean isPaidOut() {
+            return withdrawn.equals(deposit());
+        }
+
+        private BigInteger withdrawableAt(long blockNumber) {
+            if (blockNumber <= startBlock) {
+                return BigInteger.ZERO;
+            }
+            long elapsed = Math.min(blockNumber, stopBlock) - startBlock;
+            return ratePerBlock.multiply(BigInteger.valueOf(elapsed)).subtract(withdrawn);
+        }
+
+        private byte[] encode() {
+            return AionBuffer.allocate(2 * Address.LENGTH + 32 + 2 * Long.BYTES + 32)
+                    .putAddress(sender)
+                    .putAddress(recipient)
+                    .put(ByteArrayHelpers.fillLeadingZeros(ratePerBlock.toByteArray()))
+                    .putLong(startBlock)
+                    .putLong(stopBlock)
+                    .put(ByteArrayHelpers.fillLeadingZeros(withdrawn.toByteArray()))
+                    .getArray();
+        }
+
+        private static StreamInformation decode(byte[] data) {
+            AionBuffer buffer = AionBuffer.wrap(data);
+            Address sender = buffer.getAddress();
+            Address recipient = buffer.getAddress();
+            byte[] rate = new byte[32];
+            buffer.get(rate);
+            long startBlock = buffer.getLong();
+            long stopBlock = buffer.getLong();
+            byte[] withdrawn = new byte[32];
+            buffer.get(withdrawn);
+            return new StreamInformation(sender, recipient, new BigInteger(rate), startBlock, stopBlock, new BigInteger(withdrawn));
+        }
+    }
+
+    /**
+     * A vesting schedule, stored under the key derived from the beneficiary address with the following encoding format
+     * - byte[0:7]: start timestamp
+     * - byte[8:15]: cliff, in seconds after start
+     * - byte[16:23]: duration, in seconds after start
+     * - byte[24]: length n of the total
+     * - byte[25:25+n-1]: total number of tokens to vest
+     * - every byte after: number of tokens already released
+     */
+    private static class VestingSchedule {
+        private static final int HEADER_LENGTH = 3 * Long.BYTES + 1;
+
+        private final long start;
+        private final long cliff;
+        private final long duration;
+        private final BigInteger total;
+        private BigInteger released;
+
+        private VestingSchedule(long start, long cliff, long duration, BigInteger total, BigInteger released) {
+            this.start = start;
+            this.cliff = cliff;
+            this.duration = duration;
+            this.total = total;
+            this.released = released;
+        }
+
+        /**
+         * Returns the vested amount that has not been released, rounded down to a multiple of the granularity. Times are
+         * compared as seconds after start, which cannot overflow for a timestamp and start that are not negative.
+         */
+        private BigInteger releasableAt(long timestamp) {
+            BigInteger vested;
+            if (timestamp < start || timestamp - start < cliff) {
+                vested = BigInteger.ZERO;
+            } else if (timestamp - start >= duration) {
+                vested = total;
+            } else {
+                vested = total.multiply(BigInteger.valueOf(timestamp - start)).divide(BigInteger.valueOf(duration));
+                vested = vested.subtract(vested.mod(BigInteger.valueOf(tokenGranularity)));
+            }
+            return vested.subtract(released);
+        }
+
+        private byte[] encode() {
+            byte[] totalBytes = total.toByteArray();
+            byte[] releasedBytes = released.toByteArray();
+            return AionBuffer.allocate(HEADER_LENGTH + totalBytes.length + releasedBytes.length)
+                    .putLong(start)
+                    .putLong(cliff)
+                    .putLong(duration)
+                    .putByte((byte) totalBytes.length)
+                    .put(totalBytes)
+                    .put(releasedBytes)
+                    .getArray();
+        }
+
+        private static VestingSchedule decode(byte[] data) {
+            AionBuffer buffer = AionBuffer.wrap(data);
+            long start = buffer.getLong();
+            long cliff = buffer.getLong();
+            long duration = buffer.getLong();
+            int totalLength = buffer.getByte() & 0xff;
+            BigInteger total = new BigInteger(Arrays.copyOfRange(data, HEADER_LENGTH, HEADER_LENGTH + totalLength));
+            BigInteger released = new BigInteger(Arrays.copyOfRange(data, HEADER_LENGTH + totalLength, data.length));
+            return new VestingSchedule(start, cliff, duration, total, released);
+        }
+    }
+
+    /**
+     * A payment channel, stored under the key derived from its id with the following encoding format
+     * - byte[0:31]: sender address
+     * - byte[32:63]: recipient address
+     * - byte[64:95]: deposit
+     * - byte[96:103]: expiry block
+     * - byte[104:135]: ed25519 public key vouchers are signed with
+     */
+    private static class ChannelInformation {
+        private final Address sender;
+        private final Address recipient;
+        private final BigInteger deposit;
+        private final long expiryBlock;
+        private final byte[] signerPublicKey;
+
+        private ChannelInformation(Address sender, Address recipient, BigInteger deposit, long expiryBlock, byte[] signerPublicKey) {
+            this.sender = sender;
+            this.recipient = recipient;
+            this.deposit = deposit;
+            this.expiryBlock = expiryBlock;
+            this.signerPublicKey = signerPublicKey;
+        }
+
+        private byte[] encode() {
+            return AionBuffer.allocate(2 * Address.LENGTH + 32 + Long.BYTES + 32)
+                    .putAddress(sender)
+                    .putAddress(recipient)
+                    .put(ByteArrayHelpers.fillLeadingZeros(deposit.toByteArray()))
+                    .putLong(expiryBlock)
+                    .put(signerPublicKey)
+                    .getArray();
+        }
+
+        private static ChannelInformation decode(byte[] data) {
+            AionBuffer buffer = AionBuffer.wrap(data);
+            Address sender = buffer.getAddress();
+            Address recipient = buffer.getAddress();
+            byte[] deposit = new byte[32];
+            buffer.get(deposit);
+            long expiryBlock = buffer.getLong();
+            byte[] signerPublicKey = new byte[32];
+            buffer.get(signerPublicKey);
+            return new ChannelInformation(sender, recipient, new BigInteger(deposit), expiryBlock, signerPublicKey);
+        }
+    }
+
+    /**
+     * The notification queue of a holder, stored under the key derived from the holder address with the following
+     * encoding format
+     * - byte[0]: 1 if notifications of the holder are queued, 0 if the queue is only kept until it is drained
+     * - byte[1:8]: index of the oldest queued notification
+     * - byte[9:16]: index the next notification is queued at
+     *
+     * Each notification is stored under the key derived from the holder address and its index, as
+     * operator (32 bytes), from (32 bytes), followed by the amount and data as laid out in the Sent event.
+     */
+    private static class NotificationQueue {
+        private boolean enabled;
+        private long head;
+        private long tail;
+
+        private NotificationQueue(boolean enabled, long head, long tail) {
+            this.enabled = enabled;
+            this.head = head;
+            this.tail = tail;
+        }
+
+        private byte[] encode() {
+            return AionBuffer.allocate(1 + 2 * Long.BYTES)
+                    .putByte(enabled ? (byte) 1 : (byte) 0)
+                    .putLong(head)
+                    .putLong(tail)
+                    .getArray();
+        }
+
+        private static NotificationQueue decode(byte[] data) {
+            AionBuffer buffer = AionBuffer.wrap(data);
+            return new NotificationQueue(buffer.getByte() == 1, buffer.getLong(), buffer.getLong());
+        }
+    }
+
+    /**
+     * A payout job, stored under the key derived from its id with the following encoding format
+     * - byte[0:31]: creator address
+     * - byte[32:35]: number of chunks added
+     * - byte[36:39]: index of the chunk holding the next payment
+     * - byte[40:43]: index of the next payment within its chunk
+     * - byte[44:51]: number of payments added
+     * - byte[52:59]: number of payments paid out
+     * - byte[60:91]: tokens locked for the payments not paid out yet
+     *
+     * Each chunk is stored under the key derived from the job id and the chunk index, as a sequence of
+     * recipient address (32 bytes), amount (32 bytes), and removed once it is paid out.
+     */
+    private static class PayoutJob {
+        private final Address creator;
+        private int chunkCount;
+        private int nextChunk;
+        private int nextEntry;
+        private long entryCount;
+        private long paidCount;
+        private BigInteger escrow;
+
+        private PayoutJob(Address creator, int chunkCount, int nextChunk, int nextEntry, long entryCount, long paidCount, BigInteger escrow) {
+            this.creator = creator;
+            this.chunkCount = chunkCount;
+            this.nextChunk = nextChunk;
+            this.nextEntry = nextEntry;
+            this.entryCount = entryCount;
+            this.paidCount = paidCount;
+            this.escrow = escrow;
+        }
+
+        private byte[] encode() {
+            return AionBuffer.allocate(Address.LENGTH + 3 * Integer.BYTES + 2 * Long.BYTES + 32)
+                    .putAddress(creator)
+                    .putInt(chunkCount)
+                    .putInt(nextChunk)
+                    .putInt(nextEntry)
+                    .putLong(entryCount)
+                    .putLong(paidCount)
+                    .put(ByteArrayHelpers.fillLeadingZeros(escrow.toByteArray()))
+                    .getArray();
+        }
+
+        private static PayoutJob decode(byte[] data) {
+            AionBuffer buffer = AionBuffer.wrap(data);
+            Address creator = buffer.getAddress();
+            int chunkCount = buffer.getInt();
+            int nextChunk = buffer.getInt();
+            int nextEntry = buffer.getInt();
+            long entryCount = buffer.getLong();
+            long paidCount = buffer.getLong();
+            byte[] escrow = new byte[32];
+            buffer.get(escrow);
+            return new PayoutJob(creator, chunkCount, nextChunk, nextEntry, entryCount, paidCount, new BigInteger(escrow));
+        }
+    }
+
+    /**
+     * A sparse Merkle tree over the balances of all token holders, indexed by the sha256 hash of the holder address.
+     * A holder leaf is stored at the shallowest depth at which no other leaf shares its subtree, so updating a
+     * balance costs one storage read and write per level, about log2(number of holders), instead of 256.
+     *
+     * Every node is stored under the key derived from its depth and the leading depth bits of the path to it, encoded as
+     * - leaf: byte[0] = 0x00, byte[1:32] = sha256(holder address), byte[33:64] = balance filled to 32 bytes
+     * - internal: byte[0] = 0x01, byte[1:32] = hash of the left child, byte[33:64] = hash of the right child
+     *
+     * The hash of a node is the sha256 hash of its encoding, and an empty subtree hashes to 32 zero bytes. Leaves are
+     * never removed, a holder whose balance drops to zero keeps a leaf with a zero balance, which keeps the shape of
+     * the tree, and so the root, determined by the set of holders alone.
+     */
+    private static class BalanceTree {
+        private static final byte LEAF = 0x00;
+        private static final byte INTERNAL = 0x01;
+        private static final byte[] EMPTY_HASH = new byte[32];
+
+        private static void update(Address holder, BigInteger balance) {
+            byte[] key = Blockchain.sha256(holder.unwrap());
+            byte[] leaf = node(LEAF, key, ByteArrayHelpers.fillLeadingZeros(balance.toByteArray()));
+
+            // walk down to the position of the holder leaf, remembering the internal nodes on the way
+            AionList<byte[]> path = new AionList<>();
+            int depth = 0;
+            byte[] current = Blockchain.getStorage(positionKey(depth, key));
+            while (current != null && current[0] == INTERNAL) {
+                path.add(current);
+                depth++;
+                current = Blockchain.getStorage(positionKey(depth, key));
+            }
+
+            byte[] hash;
+            if (current == null || Arrays.equals(Arrays.copyOfRange(current, 1, 33), key)) {
+                Blockchain.putStorage(positionKey(depth, key), leaf);
+                hash = Blockchain.sha256(leaf);
+            } else {
+                hash = split(depth, current, leaf, key);
+            }
+
+            // walk back up, replacing the child hash on the side of the holder key
+            for (int d = depth - 1; d >= 0; d--) {
+                byte[] internal = path.get(d);
+                System.arraycopy(hash, 0, internal, bit(key, d) == 0 ? 1 : 33, 32);
+                Blockchain.putStorage(positionKey(d, key), internal);
+                hash = Blockchain.sha256(internal);
+            }
+            balanceRoot = hash;
+        }
+
+        /**
+         * Replace the leaf of another holder found at depth by internal nodes down to the first bit at which both
+         * keys differ, below which the two leaves are stored. Returns the hash of the new subtree.
+         */
+        private static byte[] split(int depth, byte[] otherLeaf, byte[] leaf, byte[] key) {
+            byte[] otherKey = Arrays.copyOfRange(otherLeaf, 1, 33);
+            int diff = depth;
+            while (bit(key, diff) == bit(otherKey, diff)) {
+                diff++;
+            }
+
+            Blockchain.putStorage(positionKey(diff + 1, key), leaf);
+            Blockchain.putStorage(positionKey(diff + 1, otherKey), otherLeaf);
+            byte[] leafHash = Blockchain.sha256(leaf);
+            byte[] otherHash = Blockchain.sha256(otherLeaf);
+            byte[] hash = null;
+            for (int d = diff; d >= depth; d--) {
+                byte[] childHash = (d == diff) ? leafHash : hash;
+                byte[] siblingHash = (d == diff) ? otherHash : EMPTY_HASH;
+                byte[] internal = (bit(key, d) == 0) ? node(INTERNAL, childHash, siblingHash) : node(INTERNAL, siblingHash, childHash);
+                Blockchain.putStorage(positionKey(d, key), internal);
+                hash = Blockchain.sha256(internal);
+            }
+            return hash;
+        }
+
+        private static byte[] node(byte type, byte[] first, byte[] second) {
+            return AionBuffer.allocate(1 + first.length + second.length).putByte(type).put(first).put(second).getArray();
+        }
+
+        private static int bit(byte[] key, int index) {
+            return (key[index / 8] >> (7 - index % 8)) & 1;
+        }
+
+        /**
+         * Returns the storage key of the node at depth on the path to key, made of the depth and the first depth bits of key.
+         */
+        private static byte[] positionKey(int depth, byte[] key) {
+            byte[] position = new byte[2 + 32];
+            position[0] = (byte) (depth >> 8);
+            position[1] = (byte) depth;
+            System.arraycopy(key, 0, position, 2, depth / 8);
+            if (depth % 8 != 0) {
+                position[2 + depth / 8] = (byte) (key[depth / 8] & (0xff << (8 - depth % 8)));
+            }
+            return storageKey("balanceTree", position);
+        }
+    }
+
+    /**
+     * Reads the arguments of a packed call in place, moving a position through the array instead of splitting it.
+     */
+    private static class PackedCursor {
+        private final byte[] data;
+        private int position;
+
+        private PackedCursor(byte[] data) {
+            this.data = data;
+            this.position = 0;
+        }
+
+        private boolean hasRemaining() {
+            return position < data.length;
+        }
+
+        private byte readByte() {
+            Blockchain.require(position < data.length);
+            return data[position++];
+        }
+
+        private Address readAddress() {
+            Blockchain.require(data.length - position >= Address.LENGTH);
+            position += Address.LENGTH;
+            return new Address(Arrays.copyOfRange(data, position - Address.LENGTH, position));
+        }
+
+        private byte[] readBytes(int length) {
+            Blockchain.require(length >= 0 && data.length - position >= length);
+            position += length;
+            return Arrays.copyOfRange(data, position - length, position);
+        }
+
+        /**
+         * Reads an unsigned LEB128 varint of at most 9 bytes, which always fits in a non-negative long.
+         */
+        private long readVarint() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                Blockchain.require(shift <= 56);
+                b = readByte();
+                value |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        /**
+         * Reads the varint length of the bytes that follow it, which must be no more than the bytes remaining.
+         */
+        private int readLength() {
+            long length = readVarint();
+            Blockchain.require(length <= data.length - position);
+            return (int) length;
+        }
     }
 
     /**
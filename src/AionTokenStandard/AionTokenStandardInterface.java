@@ -12,11 +12,13 @@ public interface AionTokenStandardInterface {
 
     public String getSymbol();
 
-    public int granularity();
+    public int getGranularity();
 
-    public long totalSupply();
+    public byte[] getTotalSupply();
 
-    public long balanceOf(Address address);
+    public byte[] balanceOf(Address tokenHolder);
+
+    public byte[] getBalanceRoot();
 
     /**
      * ERC-777 operator
@@ -32,23 +34,109 @@ public interface AionTokenStandardInterface {
      * Token management
      */
 
-    public void send(Address to, long amount, byte[] data);
+    public void send(Address to, byte[] amount, byte[] senderData);
+
+    public void sendPacked(byte[] packed);
+
+    public void burn(byte[] amount, byte[] senderData);
+
+    public void operatorSend(Address from, Address to, byte[] amount, byte[] senderData, byte[] operatorData);
+
+    public void operatorBurn(Address from, byte[] amount, byte[] senderData, byte[] operatorData);
+
+    /**
+     * Token issuance
+     */
+
+    public byte[] getSupplyCap();
+
+    public void setSupplyCap(byte[] cap);
+
+    public void mint(Address to, byte[] amount, byte[] senderData);
+
+    public void mintBatch(Address[] recipients, byte[][] amounts, byte[] senderData);
+
+    /**
+     * Streaming payments
+     */
+
+    public long createStream(Address recipient, byte[] ratePerBlock, long startBlock, long stopBlock);
+
+    public byte[] getStream(long streamId);
+
+    public byte[] getStreamWithdrawable(long streamId);
+
+    public void withdrawFromStream(long streamId);
+
+    public void cancelStream(long streamId);
+
+    /**
+     * Vesting schedules
+     */
+
+    public void createVestingSchedule(Address beneficiary, byte[] total, long start, long cliff, long duration);
+
+    public byte[] getVestingSchedule(Address beneficiary);
+
+    public byte[] getReleasableAmount(Address beneficiary);
+
+    /**
+     * Payment channels
+     */
+
+    public long openChannel(Address recipient, byte[] deposit, byte[] signerPublicKey, long expiryBlock);
+
+    public byte[] getChannel(long channelId);
+
+    public void closeChannel(long channelId, byte[] amount, byte[] signature);
+
+    public void reclaimChannel(long channelId);
+
+    /**
+     * Clearing
+     */
+
+    public void clear(Address[] froms, Address[] tos, byte[][] amounts, byte[] operatorData);
+
+    /**
+     * Payout jobs
+     */
+
+    public long createPayoutJob();
+
+    public void addPayoutChunk(long jobId, Address[] recipients, byte[][] amounts);
+
+    public long continueJob(long jobId);
+
+    public byte[] getPayoutJob(long jobId);
+
+    /**
+     * Token holder hooks
+     */
+
+    public void setHookStipend(long stipend);
+
+    public long getHookStipend(Address holder);
+
+    /**
+     * Deferred notifications
+     */
 
-    public void burn(long amount);
+    public void setDeferredNotifications(boolean enabled);
 
-    public void operatorSend(Address from, Address to, long amount, byte[] data, byte[] operatorData);
+    public long getNotificationCount(Address holder);
 
-    public void operatorBurn(Address from, long amount, byte[] operatorData);
+    public long drainNotifications(Address holder, int maxCount);
 
     /**
      * Cross-chain functionalities
      */
 
-    public long liquidSupply();
+    public byte[] getLiquidSupply();
 
-    public void thaw(Address localRecipient, long amount, byte[] bridgeId, byte[] bridgeData, byte[] removeSender, byte[] remoteData);
+    public void thaw(Address localRecipient, byte[] amount, byte[] bridgeId, byte[] bridgeData, byte[] removeSender, byte[] remoteData);
 
-    public void freeze(byte[] remoteRecipient, long amount, byte[] bridgeId, byte[] localData);
+    public void freeze(byte[] remoteRecipient, byte[] amount, byte[] bridgeId, byte[] localData);
 
-    public void operatorFreeze(Address localSender, byte[] remoteRecipient, long amount, byte[] bridgeId, byte[] localData);
+    public void operatorFreeze(Address localSender, byte[] remoteRecipient, byte[] amount, byte[] bridgeId, byte[] localData);
 }
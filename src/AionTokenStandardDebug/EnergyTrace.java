@@ -0,0 +1,78 @@
+package AionTokenStandardDebug;
+
+import avm.Blockchain;
+import org.aion.avm.userlib.AionBuffer;
+
+/**
+ * Attributes the energy of a traced operation to the phase it was spent in, from the differences of the remaining
+ * energy. Each call of enter closes the current phase and opens the next, so every unit of energy between start
+ * and finish lands in exactly one phase, nested sections included. Reading the remaining energy costs a little
+ * energy itself, which is counted in the phase being closed.
+ *
+ * Only AionTokenStandardTracingContract calls this, see TracingContractGenerator for where. Each traced operation
+ * logs one EnergyTraceEvent, with the operation as topic and the data a sequence of phase id (1 byte), energy
+ * (8 bytes), for the phases that used any energy.
+ */
+public class EnergyTrace {
+    static final byte OTHER = 0; // argument checks and everything not in another phase
+    static final byte STORAGE_READ = 1;
+    static final byte DECODE = 2; // TokenHolderInformation decoding
+    static final byte ACCRUALS = 3; // settling streams and vesting
+    static final byte ARITHMETIC = 4; // BigInteger balance math
+    static final byte HOOK = 5; // calls to tokensToSend and tokensReceived
+    static final byte ENCODE = 6; // TokenHolderInformation encoding
+    static final byte STORAGE_WRITE = 7;
+    static final byte BALANCE_TREE = 8;
+    static final byte EVENT_ENCODE = 9;
+    static final byte LOG = 10;
+    private static final int PHASE_COUNT = 11;
+
+    private static String EmitEnergyTraceEventString = "EnergyTraceEvent";
+
+    private static long[] phaseCosts;
+    private static int depth; // operations traced inside a hook of a traced operation are counted in HOOK
+    private static byte currentPhase;
+    private static long lastRemaining;
+
+    static void start() {
+        depth++;
+        if (depth == 1) {
+            phaseCosts = new long[PHASE_COUNT];
+            currentPhase = OTHER;
+            lastRemaining = Blockchain.getRemainingEnergy();
+        }
+    }
+
+    static void enter(byte phase) {
+        if (depth != 1) {
+            return;
+        }
+        long remaining = Blockchain.getRemainingEnergy();
+        phaseCosts[currentPhase] += lastRemaining - remaining;
+        currentPhase = phase;
+        lastRemaining = remaining;
+    }
+
+    static void finish(String operation) {
+        enter(OTHER);
+        depth--;
+        if (depth > 0) {
+            return;
+        }
+
+        int used = 0;
+        for (long cost : phaseCosts) {
+            if (cost > 0) {
+                used++;
+            }
+        }
+        AionBuffer buffer = AionBuffer.allocate(used * (1 + Long.BYTES));
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            if (phaseCosts[i] > 0) {
+                buffer.putByte((byte) i).putLong(phaseCosts[i]);
+            }
+        }
+        phaseCosts = null;
+        Blockchain.log(EmitEnergyTraceEventString.getBytes(), operation.getBytes(), buffer.getArray());
+    }
+}
@@ -0,0 +1,160 @@
+package AionTokenStandardDebug;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Generates AionTokenStandardTracingContract, the debug build of AionTokenStandardContract: a copy of the contract
+ * with EnergyTrace calls at the phase boundaries of doSend, doBurn, the holder hooks and the event emitters. The
+ * production contract carries no tracing code at all. Run it from the root of the repository after changing the
+ * contract, and commit the result:
+ *
+ *   java AionTokenStandardDebug.TracingContractGenerator
+ *
+ * ATSEnergyTraceTest fails while the tracing contract is out of date. The marks below are found by the statements
+ * they trace, and generating fails if one of them is no longer there, so that a change to the contract cannot
+ * silently leave a phase untraced.
+ */
+public class TracingContractGenerator {
+    public static final String CONTRACT = "src/AionTokenStandard/AionTokenStandardContract.java";
+    public static final String OUTPUT = "src/AionTokenStandardDebug/AionTokenStandardTracingContract.java";
+
+    private static final String SEND = "private static void doSend(";
+    private static final String BURN = "private static void doBurn (";
+    private static final String PUT_HOLDER = "private static void putHolderInformation(";
+    private static final String CALL_HOLDER = "private static Result callTokenHolder(";
+    private static final String NOTIFY = "private static void notifyRecipient(";
+    private static final String SENT_EVENT = "public static void emitSentEvent(";
+    private static final String BURNED_EVENT = "public static void emitBurnedEvent(";
+
+    private static final Mark[] MARKS = {
+            atStart(SEND, "EnergyTrace.start();"),
+            before(SEND, "byte\\[\\] \\w+Data = Blockchain\\.getStorage\\(", "EnergyTrace.enter(EnergyTrace.STORAGE_READ);"),
+            before(SEND, "if \\(\\w+Data == null\\)", "EnergyTrace.enter(EnergyTrace.DECODE);"),
+            before(SEND, "settleAccruals\\(", "EnergyTrace.enter(EnergyTrace.ACCRUALS);"),
+            before(SEND, "Blockchain\\.require\\(senderOriginalBalance\\.compareTo\\(", "EnergyTrace.enter(EnergyTrace.ARITHMETIC);"),
+            before(SEND, "BigInteger \\w+AfterBalance = ", "EnergyTrace.enter(EnergyTrace.ARITHMETIC);"),
+            after(SEND, "ATSContractEvents\\.emitSentEvent\\(", "EnergyTrace.finish(\"send\");"),
+
+            atStart(BURN, "EnergyTrace.start();"),
+            before(BURN, "byte\\[\\] \\w+Data = Blockchain\\.getStorage\\(", "EnergyTrace.enter(EnergyTrace.STORAGE_READ);"),
+            before(BURN, "if \\(\\w+Data == null\\)", "EnergyTrace.enter(EnergyTrace.DECODE);"),
+            before(BURN, "settleAccruals\\(", "EnergyTrace.enter(EnergyTrace.ACCRUALS);"),
+            before(BURN, "Blockchain\\.require\\(senderOriginalBalance\\.compareTo\\(", "EnergyTrace.enter(EnergyTrace.ARITHMETIC);"),
+            before(BURN, "BigInteger \\w+AfterBalance = ", "EnergyTrace.enter(EnergyTrace.ARITHMETIC);"),
+            before(BURN, "tokenTotalSupply = tokenTotalSupply\\.subtract\\(", "EnergyTrace.enter(EnergyTrace.ARITHMETIC);"),
+            after(BURN, "ATSContractEvents\\.emitBurnedEvent\\(", "EnergyTrace.finish(\"burn\");"),
+
+            before(PUT_HOLDER, "TokenHolderInformation\\.encode\\(", "EnergyTrace.enter(EnergyTrace.ENCODE);"),
+            before(PUT_HOLDER, "Blockchain\\.putStorage\\(", "EnergyTrace.enter(EnergyTrace.STORAGE_WRITE);"),
+            before(PUT_HOLDER, "BalanceTree\\.update\\(", "EnergyTrace.enter(EnergyTrace.BALANCE_TREE);"),
+
+            atStart(CALL_HOLDER, "EnergyTrace.enter(EnergyTrace.HOOK);"),
+            atStart(NOTIFY, "EnergyTrace.enter(EnergyTrace.HOOK);"),
+
+            before(SENT_EVENT, "byte\\[\\](\\[\\])? data2? = ", "EnergyTrace.enter(EnergyTrace.EVENT_ENCODE);"),
+            before(SENT_EVENT, "Blockchain\\.log\\(", "EnergyTrace.enter(EnergyTrace.LOG);"),
+            before(BURNED_EVENT, "byte\\[\\](\\[\\])? data2? = ", "EnergyTrace.enter(EnergyTrace.EVENT_ENCODE);"),
+            before(BURNED_EVENT, "Blockchain\\.log\\(", "EnergyTrace.enter(EnergyTrace.LOG);"),
+    };
+
+    public static void main(String[] args) throws IOException {
+        Path root = Paths.get(args.length > 0 ? args[0] : ".");
+        String source = new String(Files.readAllBytes(root.resolve(CONTRACT)), StandardCharsets.UTF_8);
+        Files.write(root.resolve(OUTPUT), generate(source).getBytes(StandardCharsets.UTF_8));
+        System.out.println("generated " + root.resolve(OUTPUT));
+    }
+
+    /**
+     * Returns the source of the tracing contract.
+     *
+     * @throws IllegalStateException if a traced method or statement is not in the contract
+     */
+    public static String generate(String contractSource) {
+        List<String> lines = new ArrayList<>(List.of(contractSource.split("\n", -1)));
+        for (Mark mark : MARKS) {
+            int start = findMethod(lines, mark.method);
+            String indentation = indentationOf(lines.get(start));
+            int end = start + 1;
+            while (!lines.get(end).equals(indentation + "}")) {
+                end++;
+            }
+
+            int found = 0;
+            for (int i = start; i < end; i++) {
+                if (lines.get(i).contains("EnergyTrace.") || !mark.statement.matcher(lines.get(i)).find()) {
+                    continue;
+                }
+                String line = lines.get(i);
+                String statementIndentation = (mark.after && line.trim().endsWith("{")) ? indentationOf(line) + "    " : indentationOf(line);
+                int at = i;
+                if (mark.after) {
+                    while (!lines.get(at).trim().endsWith(";") && !lines.get(at).trim().endsWith("{")) {
+                        at++; // a statement spanning several lines
+                    }
+                    at++;
+                }
+                lines.add(at, statementIndentation + mark.trace);
+                end++;
+                i++;
+                found++;
+            }
+            if (found == 0) {
+                throw new IllegalStateException("no statement matching " + mark.statement + " in " + mark.method + ", update the marks of TracingContractGenerator");
+            }
+        }
+
+        return String.join("\n", lines)
+                .replace("package AionTokenStandard;\n", "package AionTokenStandardDebug;\n\n"
+                        + "// Generated by TracingContractGenerator from " + CONTRACT + ", do not edit.\n")
+                .replaceAll("\\bAionTokenStandardContract\\b", "AionTokenStandardTracingContract");
+    }
+
+    private static int findMethod(List<String> lines, String method) {
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).contains(method)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException(method + " is not in the contract, update the marks of TracingContractGenerator");
+    }
+
+    private static String indentationOf(String line) {
+        return line.substring(0, line.length() - line.stripLeading().length());
+    }
+
+    private static Mark before(String method, String statement, String trace) {
+        return new Mark(method, Pattern.compile(statement), false, trace);
+    }
+
+    private static Mark after(String method, String statement, String trace) {
+        return new Mark(method, Pattern.compile(statement), true, trace);
+    }
+
+    private static Mark atStart(String method, String trace) {
+        return new Mark(method, Pattern.compile(Pattern.quote(method)), true, trace);
+    }
+
+    /**
+     * A trace call to insert before or after every statement of a method matching a pattern.
+     */
+    private static class Mark {
+        private final String method;
+        private final Pattern statement;
+        private final boolean after;
+        private final String trace;
+
+        private Mark(String method, Pattern statement, boolean after, String trace) {
+            this.method = method;
+            this.statement = statement;
+            this.after = after;
+            this.trace = trace;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package HelperContracts;
+
+import avm.Address;
+import avm.Blockchain;
+import org.aion.avm.tooling.abi.Callable;
+import org.aion.avm.userlib.AionBuffer;
+import org.aion.avm.userlib.AionList;
+import org.aion.avm.userlib.AionMap;
+import org.aion.avm.userlib.abi.ABIDecoder;
+
+/**
+ * A token holder that counts the deposits it receives from each sender, meant as a starting point for receivers of
+ * many deposits. It builds no strings and prints nothing: a notification costs one storage read and one storage write
+ * of a fixed-size record, and a batch of notifications one of each per distinct sender. That storage is the whole
+ * difference to TokenHolderContract, which keeps no state.
+ *
+ * The deposits of a sender are stored under the sender address itself, as
+ * - byte[0:7]: number of deposits
+ * - byte[8:39]: total amount, filled to 32 bytes
+ * Records are updated in place, so a deposit allocates nothing and costs the same however large the total is. A
+ * deposit that would take a total to 2^255 or more is rejected.
+ *
+ * Only notifications from the token given at deployment are counted.
+ */
+public class DepositReceiverContract {
+    private static final int RECORD_LENGTH = Long.BYTES + 32;
+
+    private static Address token;
+
+    @Callable
+    public static void tokensReceived(Address operator, Address from, Address to, byte[] amount, byte[] userData, byte[] operatorData) {
+        Blockchain.require(Blockchain.getCaller().equals(token));
+        byte[] record = readRecord(from);
+        addDeposit(record, amount);
+        Blockchain.putStorage(from.unwrap(), record);
+    }
+
+    /**
+     * Count the notifications the token queued for this contract, reading and writing the record of each sender once.
+     */
+    @Callable
+    public static void tokensReceivedBatch(Address[] operators, Address[] froms, byte[][] amounts, byte[][] userData, byte[][] operatorData) {
+        Blockchain.require(Blockchain.getCaller().equals(token));
+        Blockchain.require(froms.length == amounts.length);
+
+        AionList<Address> senders = new AionList<>();
+        AionMap<Address, byte[]> records = new AionMap<>();
+        for (int i = 0; i < froms.length; i++) {
+            byte[] record = records.get(froms[i]);
+            if (record == null) {
+                record = readRecord(froms[i]);
+                senders.add(froms[i]);
+                records.put(froms[i], record);
+            }
+            addDeposit(record, amounts[i]);
+        }
+        for (Address sender : senders) {
+            Blockchain.putStorage(sender.unwrap(), records.get(sender));
+        }
+    }
+
+    @Callable
+    public static void tokensToSend(Address operator, Address from, Address to, byte[] amount, byte[] userData, byte[] operatorData) {
+    }
+
+    /**
+     * Returns the deposits of each sender, as number of deposits (8 bytes), total amount filled to 32 bytes, in the
+     * order of the senders.
+     */
+    @Callable
+    public static byte[] getDeposits(Address[] senders) {
+        AionBuffer buffer = AionBuffer.allocate(senders.length * RECORD_LENGTH);
+        for (Address sender : senders) {
+            buffer.put(readRecord(sender));
+        }
+        return buffer.getArray();
+    }
+
+    private static byte[] readRecord(Address sender) {
+        byte[] record = Blockchain.getStorage(sender.unwrap());
+        return (record == null) ? new byte[RECORD_LENGTH] : record;
+    }
+
+    /**
+     * Counts one deposit of 'amount', a non-negative BigInteger.toByteArray() value, in 'record'.
+     */
+    private static void addDeposit(byte[] record, byte[] amount) {
+        Blockchain.require(amount.length == 0 || amount[0] >= 0);
+        Blockchain.require(amount.length <= 32 || (amount.length == 33 && amount[0] == 0));
+
+        AionBuffer.wrap(record).putLong(AionBuffer.wrap(record).getLong() + 1);
+
+        int carry = 0;
+        for (int i = 1; i <= 32; i++) {
+            int sum = (record[RECORD_LENGTH - i] & 0xff) + carry;
+            if (i <= amount.length) {
+                sum += amount[amount.length - i] & 0xff;
+            }
+            record[RECORD_LENGTH - i] = (byte) sum;
+            carry = sum >>> 8;
+        }
+        Blockchain.require(carry == 0 && record[Long.BYTES] >= 0); // the total stays below 2^255
+    }
+
+    static {
+        ABIDecoder decoder = new ABIDecoder(Blockchain.getData());
+        token = decoder.decodeOneAddress();
+        Blockchain.require(token != null);
+    }
+}
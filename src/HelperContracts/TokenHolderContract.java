@@ -23,6 +23,13 @@ public class TokenHolderContract {
                 + " ]");
     }
 
+    @Callable
+    public static void tokensReceivedBatch(Address[] operators, Address[] froms, byte[][] amounts, byte[][] userData, byte[][] operatorData) {
+        for (int i = 0; i < operators.length; i++) {
+            tokensReceived(operators[i], froms[i], Blockchain.getAddress(), amounts[i], userData[i], operatorData[i]);
+        }
+    }
+
     @Callable
     public static void tokensToSend(Address operator, Address from, Address to, byte[] amount, byte[] userData, byte[] operatorData) {
         Blockchain.println("TOKENS TO SEND: " + name
@@ -6,5 +6,7 @@ public interface TokenHolderInterface {
 
     public void tokensReceived(Address operator, Address from, Address to, long amount, byte[] userData, byte[] operatorData);
 
+    public void tokensReceivedBatch(Address[] operators, Address[] froms, byte[][] amounts, byte[][] userData, byte[][] operatorData);
+
     public void tokensToSend(Address operator, Address from, Address to, long amount, byte[] userData, byte[] operatorData);
 }
@@ -0,0 +1,285 @@
+import ATSClient.AionTokenStandardClient;
+import ATSClient.BulkSubmitter;
+import ATSClient.SubmittedTransfer;
+import ATSClient.TransactionNode;
+import ATSClient.TransactionSigner;
+import ATSClient.Transfer;
+import AionInterfaceRegistry.AionInterfaceRegistryContract;
+import AionTokenStandard.AionTokenStandardContract;
+import avm.Address;
+import org.aion.avm.core.util.ABIUtil;
+import org.aion.avm.tooling.AvmRule;
+import org.aion.kernel.AvmTransactionResult;
+import org.aion.vm.api.interfaces.TransactionResult;
+import org.junit.*;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ATSBulkSubmitterTest {
+    @Rule
+    public AvmRule avmRule = new AvmRule(false);
+
+    private long energyLimit = 10_000_000L;
+    private long energyPrice = 1L;
+
+    private AionTokenStandardClient client = new AionTokenStandardClient();
+    private ExecutorService executor = Executors.newCachedThreadPool();
+    private AvmRuleNode node = new AvmRuleNode();
+
+    private Address ATSOwnerAddress;
+    private Address ATSDappAddress;
+    private BigInteger ATSTotalSupply = new BigInteger("1000000000000000000000000");
+
+    @Before
+    public void deployContracts() {
+        Address deployer = avmRule.getPreminedAccount();
+        Address AIRDappAddress = avmRule.deploy(deployer, BigInteger.ZERO, avmRule.getDappBytes(AionInterfaceRegistryContract.class, null), energyLimit, energyPrice).getDappAddress();
+
+        ATSOwnerAddress = avmRule.getRandomAddress(BigInteger.valueOf(1_000_000_000_000L));
+        byte[] txData = avmRule.getDappBytes(AionTokenStandardContract.class, ABIUtil.encodeDeploymentArguments("Aion Token", "ATS", 1, ATSTotalSupply.toByteArray(), AIRDappAddress, 10_000_000L));
+        ATSDappAddress = avmRule.deploy(ATSOwnerAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getDappAddress();
+    }
+
+    @After
+    public void shutDownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPipelinedTransfersOverFlakyConnection() throws Exception {
+        node.failureRate = 0.1;
+        BulkSubmitter submitter = newSubmitter(32);
+
+        Address operatedHolder = avmRule.getRandomAddress(BigInteger.valueOf(1_000_000_000L));
+        callAsHolder(ATSOwnerAddress, client.send(operatedHolder, 1_000_000L, new byte[0]).toByteArray());
+        callAsHolder(operatedHolder, client.authorizeOperator(ATSOwnerAddress).toByteArray());
+        long firstNonce = node.getNonce(ATSOwnerAddress);
+
+        Address[] recipients = newRecipients(20);
+        List<Transfer> transfers = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            BigInteger amount = BigInteger.valueOf(1 + i % 7);
+            if (i % 4 == 0) {
+                transfers.add(Transfer.operatorSend(operatedHolder, recipients[i % recipients.length], amount, new byte[0], new byte[]{1}));
+            } else {
+                transfers.add(Transfer.send(recipients[i % recipients.length], amount, new byte[]{(byte) i}));
+            }
+        }
+
+        long start = System.nanoTime();
+        List<SubmittedTransfer> outcomes = submitter.submit(transfers);
+        System.out.println(String.format("submitted %d transfers in %.1f ms, %d attempts", transfers.size(), (System.nanoTime() - start) / 1e6,
+                outcomes.stream().mapToInt(SubmittedTransfer::getAttempts).sum()));
+
+        for (int i = 0; i < outcomes.size(); i++) {
+            Assert.assertEquals(SubmittedTransfer.Status.SUCCESS, outcomes.get(i).getStatus());
+            Assert.assertEquals(firstNonce + i, outcomes.get(i).getNonce());
+        }
+        Assert.assertEquals(firstNonce + transfers.size(), node.getNonce(ATSOwnerAddress));
+        assertBalances(transfers, recipients);
+    }
+
+    @Test
+    public void testRevertedTransferUsesItsNonce() throws Exception {
+        BulkSubmitter submitter = newSubmitter(8);
+        Address[] recipients = newRecipients(3);
+        List<Transfer> transfers = new ArrayList<>();
+        transfers.add(Transfer.send(recipients[0], BigInteger.TEN, new byte[0]));
+        transfers.add(Transfer.send(recipients[1], ATSTotalSupply.add(BigInteger.ONE), new byte[0]));
+        transfers.add(Transfer.send(recipients[2], BigInteger.TEN, new byte[0]));
+
+        List<SubmittedTransfer> outcomes = submitter.submit(transfers);
+        Assert.assertEquals(SubmittedTransfer.Status.SUCCESS, outcomes.get(0).getStatus());
+        Assert.assertEquals(SubmittedTransfer.Status.REVERTED, outcomes.get(1).getStatus());
+        Assert.assertEquals(SubmittedTransfer.Status.SUCCESS, outcomes.get(2).getStatus());
+        Assert.assertEquals(outcomes.get(0).getNonce() + 2, outcomes.get(2).getNonce());
+        Assert.assertEquals(BigInteger.ZERO, balanceOf(recipients[1]));
+    }
+
+    @Test
+    public void testRejectedTransactionStopsTheBatch() throws Exception {
+        BulkSubmitter submitter = newSubmitter(4);
+        submitter.setRetries(2, 1);
+        node.timeoutMillis = 200;
+        node.rejectedNonce = node.getNonce(ATSOwnerAddress) + 10;
+
+        Address[] recipients = newRecipients(5);
+        List<Transfer> transfers = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            transfers.add(Transfer.send(recipients[i % recipients.length], BigInteger.ONE, new byte[0]));
+        }
+
+        List<SubmittedTransfer> outcomes = submitter.submit(transfers);
+        List<Transfer> unsent = new ArrayList<>();
+        for (int i = 0; i < outcomes.size(); i++) {
+            SubmittedTransfer.Status status = outcomes.get(i).getStatus();
+            if (i < 10) {
+                Assert.assertEquals(SubmittedTransfer.Status.SUCCESS, status);
+            } else {
+                Assert.assertNotEquals(SubmittedTransfer.Status.SUCCESS, status);
+                unsent.add(outcomes.get(i).getTransfer());
+            }
+        }
+        Assert.assertEquals(SubmittedTransfer.Status.NOT_SUBMITTED, outcomes.get(outcomes.size() - 1).getStatus());
+
+        // the next batch starts again from the nonce of the rejected transaction
+        node.rejectedNonce = -1;
+        outcomes = submitter.submit(unsent);
+        for (SubmittedTransfer outcome : outcomes) {
+            Assert.assertEquals(SubmittedTransfer.Status.SUCCESS, outcome.getStatus());
+        }
+        Assert.assertEquals(node.getNonce(ATSOwnerAddress) - unsent.size(), outcomes.get(0).getNonce());
+        assertBalances(transfers, recipients);
+    }
+
+    private BulkSubmitter newSubmitter(int window) {
+        BulkSubmitter submitter = new BulkSubmitter(node, new StandInSigner(ATSOwnerAddress), ATSDappAddress, executor, window);
+        submitter.setEnergy(energyLimit, energyPrice);
+        submitter.setRetries(10, 1);
+        return submitter;
+    }
+
+    private Address[] newRecipients(int count) {
+        Address[] recipients = new Address[count];
+        for (int i = 0; i < count; i++) {
+            recipients[i] = avmRule.getRandomAddress(BigInteger.ZERO);
+        }
+        return recipients;
+    }
+
+    private void callAsHolder(Address holder, byte[] txData) {
+        TransactionResult result = avmRule.call(holder, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, result.getResultCode());
+    }
+
+    private BigInteger balanceOf(Address holder) {
+        byte[] txData = client.balanceOf(holder).toByteArray();
+        return AionTokenStandardClient.decodeBalanceOf(avmRule.call(ATSOwnerAddress, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult().getReturnData());
+    }
+
+    private void assertBalances(List<Transfer> transfers, Address[] recipients) {
+        Map<Address, BigInteger> expected = new HashMap<>();
+        for (Transfer transfer : transfers) {
+            expected.merge(transfer.getTo(), transfer.getAmount(), BigInteger::add);
+        }
+        for (Address recipient : recipients) {
+            Assert.assertEquals(expected.getOrDefault(recipient, BigInteger.ZERO), balanceOf(recipient));
+        }
+    }
+
+    /**
+     * Packs the transaction without signing it, as the stand-in node does not check signatures: sender (32 bytes),
+     * nonce, destination (32 bytes), energy limit, energy price, data.
+     */
+    private static class StandInSigner implements TransactionSigner {
+        private final Address sender;
+
+        private StandInSigner(Address sender) {
+            this.sender = sender;
+        }
+
+        @Override
+        public Address getAddress() {
+            return sender;
+        }
+
+        @Override
+        public byte[] sign(long nonce, Address to, BigInteger value, byte[] data, long energyLimit, long energyPrice) {
+            return ByteBuffer.allocate(88 + data.length).put(sender.unwrap()).putLong(nonce).put(to.unwrap()).putLong(energyLimit).putLong(energyPrice).put(data).array();
+        }
+    }
+
+    /**
+     * Stands in for a node. Transactions are mined in nonce order for each sender, whatever order they arrive in, each
+     * one by an AvmRule call. A share of the sends fails before or after the transaction is accepted, as over a flaky
+     * connection, and a transaction that is not mined in time is dropped from the pool.
+     */
+    private class AvmRuleNode implements TransactionNode {
+        private final Map<Address, Long> nonces = new HashMap<>();
+        private final Map<Address, Map<Long, byte[]>> pools = new HashMap<>();
+        private final Map<Address, Map<Long, Boolean>> results = new HashMap<>();
+        private volatile double failureRate;
+        private volatile long rejectedNonce = -1;
+        private volatile long timeoutMillis = 5_000;
+
+        @Override
+        public synchronized long getNonce(Address account) {
+            return nonces.getOrDefault(account, 0L);
+        }
+
+        @Override
+        public boolean sendAndWait(byte[] signedTransaction) throws IOException {
+            ByteBuffer transaction = ByteBuffer.wrap(signedTransaction);
+            Address sender = readAddress(transaction);
+            long nonce = transaction.getLong();
+            if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                throw new IOException("connection reset before the transaction was sent");
+            }
+
+            Boolean result;
+            synchronized (this) {
+                if (nonce == rejectedNonce) {
+                    throw new IOException("transaction rejected");
+                }
+                Map<Long, Boolean> senderResults = results.computeIfAbsent(sender, s -> new HashMap<>());
+                if (!senderResults.containsKey(nonce)) {
+                    pools.computeIfAbsent(sender, s -> new HashMap<>()).put(nonce, signedTransaction);
+                    mine(sender);
+                }
+                long deadline = System.currentTimeMillis() + timeoutMillis;
+                while ((result = senderResults.get(nonce)) == null) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        pools.get(sender).remove(nonce);
+                        throw new IOException("transaction " + nonce + " not mined in time");
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+            }
+
+            if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                throw new IOException("connection reset before the receipt was read");
+            }
+            return result;
+        }
+
+        private void mine(Address sender) {
+            Map<Long, byte[]> pool = pools.get(sender);
+            long nonce = getNonce(sender);
+            byte[] next;
+            while ((next = pool.remove(nonce)) != null) {
+                ByteBuffer transaction = ByteBuffer.wrap(next, 40, next.length - 40);
+                Address to = readAddress(transaction);
+                long energyLimit = transaction.getLong();
+                long energyPrice = transaction.getLong();
+                byte[] data = new byte[transaction.remaining()];
+                transaction.get(data);
+
+                TransactionResult result = avmRule.call(sender, to, BigInteger.ZERO, data, energyLimit, energyPrice).getTransactionResult();
+                results.get(sender).put(nonce, AvmTransactionResult.Code.SUCCESS.equals(result.getResultCode()));
+                nonce++;
+                nonces.put(sender, nonce);
+            }
+            notifyAll();
+        }
+
+        private Address readAddress(ByteBuffer buffer) {
+            byte[] address = new byte[32];
+            buffer.get(address);
+            return new Address(address);
+        }
+    }
+}
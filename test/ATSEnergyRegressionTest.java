@@ -0,0 +1,287 @@
+import AionInterfaceRegistry.AionInterfaceRegistryContract;
+import AionTokenStandard.AionTokenStandardContract;
+import HelperContracts.TokenHolderContract;
+import avm.Address;
+import org.aion.avm.core.util.ABIUtil;
+import org.aion.avm.tooling.AvmRule;
+import org.aion.kernel.AvmTransactionResult;
+import org.aion.vm.api.interfaces.TransactionResult;
+import org.junit.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.spec.NamedParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Energy regression gate for the ATS contract. It runs a fixed scenario that calls every callable once and compares
+ * the energy used by each call with the baseline in test/ATSEnergyBaseline.properties.
+ *
+ * Skipped unless a mode is given:
+ * - -Dats.energy=check compares against the baseline. It fails if a call uses more than the baseline plus the
+ *   tolerance, or if a call has no baseline yet. It prints a per-method diff either way.
+ * - -Dats.energy=record runs the scenario and overwrites the baseline file. Commit the result with the change that
+ *   caused it, so that reviewers can see the energy difference.
+ *
+ * Other settings: ats.energy.tolerance, the allowed increase as a fraction of the baseline (default 0.02), and
+ * ats.energy.baseline, the path of the baseline file.
+ *
+ * All accounts are contracts deployed in a fixed order, so their addresses, and with them the storage layout and
+ * the transaction data, are the same on every run.
+ */
+public class ATSEnergyRegressionTest {
+    @Rule
+    public AvmRule avmRule = new AvmRule(false);
+
+    private long energyLimit = 10_000_000L;
+    private long energyPrice = 1L;
+
+    private Address deployer = avmRule.getPreminedAccount();
+
+    private final String mode = System.getProperty("ats.energy");
+    private final double tolerance = Double.parseDouble(System.getProperty("ats.energy.tolerance", "0.02"));
+    private final Path baselinePath = Paths.get(System.getProperty("ats.energy.baseline", "test/ATSEnergyBaseline.properties"));
+
+    private Address AIRDappAddress;
+    private Address ATSDappAddress;
+    private Address ATSOwnerAddress;
+    private Address tokenHolder1Address;
+    private Address tokenHolder2Address;
+
+    private final BigInteger ATSTotalSupply = BigInteger.valueOf(1_000_000);
+
+    // energy used per scenario step, in the order the steps ran
+    private final Map<String, Long> measured = new LinkedHashMap<>();
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue("check".equals(mode) || "record".equals(mode));
+
+        ATSOwnerAddress = deployTokenHolder("owner of ATS");
+        tokenHolder1Address = deployTokenHolder("token holder 1");
+        tokenHolder2Address = deployTokenHolder("token holder 2");
+
+        byte[] txData = avmRule.getDappBytes(AionInterfaceRegistryContract.class, null);
+        AIRDappAddress = avmRule.deploy(deployer, BigInteger.ZERO, txData, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(AIRDappAddress);
+
+        byte[] txData2 = avmRule.getDappBytes(AionTokenStandardContract.class, ABIUtil.encodeDeploymentArguments("energy", "NRG", 1, ATSTotalSupply.toByteArray(), AIRDappAddress, 10_000_000L));
+        ATSDappAddress = avmRule.deploy(ATSOwnerAddress, BigInteger.ZERO, txData2, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(ATSDappAddress);
+    }
+
+    @Test
+    public void testEnergyAgainstBaseline() throws IOException, GeneralSecurityException {
+        runScenario();
+
+        if ("record".equals(mode)) {
+            writeBaseline();
+            System.out.println("recorded " + measured.size() + " energy baselines to " + baselinePath);
+            return;
+        }
+
+        Properties baseline = readBaseline();
+        List<String> failures = new ArrayList<>();
+        System.out.println(String.format("%-36s %10s %10s %9s %8s  %s", "call", "baseline", "measured", "diff", "diff %", "status"));
+        for (Map.Entry<String, Long> entry : measured.entrySet()) {
+            String name = entry.getKey();
+            long energy = entry.getValue();
+            String recorded = baseline.getProperty(name);
+            if (recorded == null) {
+                System.out.println(String.format("%-36s %10s %10d %9s %8s  %s", name, "-", energy, "-", "-", "NO BASELINE"));
+                failures.add(name + " has no baseline");
+                continue;
+            }
+
+            long expected = Long.parseLong(recorded.trim());
+            long diff = energy - expected;
+            double ratio = (expected == 0) ? 0 : (double) diff / expected;
+            String status = "ok";
+            if (energy > expected * (1 + tolerance)) {
+                status = "REGRESSION";
+                failures.add(String.format("%s uses %d energy, %d more than the baseline of %d", name, energy, diff, expected));
+            } else if (energy < expected * (1 - tolerance)) {
+                status = "improved, re-record the baseline";
+            }
+            System.out.println(String.format("%-36s %10d %10d %+9d %+7.2f%%  %s", name, expected, energy, diff, ratio * 100, status));
+        }
+        for (String name : baseline.stringPropertyNames()) {
+            if (!measured.containsKey(name)) {
+                System.out.println(String.format("%-36s %10s %10s %9s %8s  %s", name, baseline.getProperty(name), "-", "-", "-", "not in the scenario any more"));
+            }
+        }
+
+        Assert.assertTrue("energy regressions (tolerance " + tolerance + "), run with -Dats.energy=record if expected:\n"
+                + String.join("\n", failures), failures.isEmpty());
+    }
+
+    /**
+     * Call every callable once, in a fixed order and with fixed arguments.
+     */
+    private void runScenario() throws GeneralSecurityException {
+        measure("getName", call(ATSOwnerAddress, "getName"));
+        measure("getSymbol", call(ATSOwnerAddress, "getSymbol"));
+        measure("getTotalSupply", call(ATSOwnerAddress, "getTotalSupply"));
+        measure("getLiquidSupply", call(ATSOwnerAddress, "getLiquidSupply"));
+        measure("getGranularity", call(ATSOwnerAddress, "getGranularity"));
+        measure("balanceOf", call(ATSOwnerAddress, "balanceOf", ATSOwnerAddress));
+        measure("getBalanceRoot", call(ATSOwnerAddress, "getBalanceRoot"));
+
+        // transfers
+        measure("send.newRecipient", call(ATSOwnerAddress, "send", tokenHolder1Address, BigInteger.valueOf(10_000).toByteArray(), new byte[0]));
+        measure("send.existingRecipient", call(ATSOwnerAddress, "send", tokenHolder1Address, BigInteger.valueOf(10_000).toByteArray(), new byte[0]));
+        measure("send.withData", call(ATSOwnerAddress, "send", tokenHolder1Address, BigInteger.valueOf(10_000).toByteArray(), new byte[64]));
+        measure("sendPacked", call(ATSOwnerAddress, "sendPacked", packSend(tokenHolder2Address, 10_000)));
+        measure("burn", call(tokenHolder1Address, "burn", BigInteger.valueOf(100).toByteArray(), new byte[0]));
+
+        // operators
+        measure("authorizeOperator", call(tokenHolder1Address, "authorizeOperator", tokenHolder2Address));
+        measure("isOperatorFor", call(tokenHolder1Address, "isOperatorFor", tokenHolder2Address, tokenHolder1Address));
+        measure("operatorSend", call(tokenHolder2Address, "operatorSend", tokenHolder1Address, ATSOwnerAddress, BigInteger.valueOf(100).toByteArray(), new byte[0], new byte[0]));
+        measure("operatorBurn", call(tokenHolder2Address, "operatorBurn", tokenHolder1Address, BigInteger.valueOf(100).toByteArray(), new byte[0], new byte[0]));
+        measure("revokeOperator", call(tokenHolder1Address, "revokeOperator", tokenHolder2Address));
+
+        // issuance
+        measure("getSupplyCap", call(ATSOwnerAddress, "getSupplyCap"));
+        measure("setSupplyCap", call(ATSOwnerAddress, "setSupplyCap", BigInteger.valueOf(10_000_000).toByteArray()));
+        measure("mint", call(ATSOwnerAddress, "mint", tokenHolder2Address, BigInteger.valueOf(1_000).toByteArray(), new byte[0]));
+        measure("mintBatch", call(ATSOwnerAddress, "mintBatch", new Address[]{tokenHolder1Address, tokenHolder2Address},
+                new byte[][]{BigInteger.valueOf(1_000).toByteArray(), BigInteger.valueOf(2_000).toByteArray()}, new byte[0]));
+
+        // streams
+        TransactionResult createStream = call(ATSOwnerAddress, "createStream", tokenHolder1Address, BigInteger.ONE.toByteArray(), 0L, 1_000L);
+        measure("createStream", createStream);
+        long streamId = (long) ABIUtil.decodeOneObject(createStream.getReturnData());
+        measure("getStream", call(ATSOwnerAddress, "getStream", streamId));
+        measure("getStreamWithdrawable", call(ATSOwnerAddress, "getStreamWithdrawable", streamId));
+        measure("balanceOf.streamRecipient", call(tokenHolder1Address, "balanceOf", tokenHolder1Address));
+        measure("withdrawFromStream", call(tokenHolder1Address, "withdrawFromStream", streamId));
+        measure("cancelStream", call(ATSOwnerAddress, "cancelStream", streamId));
+
+        // vesting
+        measure("createVestingSchedule", call(ATSOwnerAddress, "createVestingSchedule", tokenHolder2Address, BigInteger.valueOf(1_000).toByteArray(), 0L, 0L, 1L));
+        measure("getVestingSchedule", call(ATSOwnerAddress, "getVestingSchedule", tokenHolder2Address));
+        measure("getReleasableAmount", call(ATSOwnerAddress, "getReleasableAmount", tokenHolder2Address));
+        measure("send.releasingVested", call(tokenHolder2Address, "send", ATSOwnerAddress, BigInteger.valueOf(100).toByteArray(), new byte[0]));
+
+        // channels
+        KeyPair signer = fixedSignerKey();
+        byte[] encodedKey = signer.getPublic().getEncoded();
+        byte[] publicKey = Arrays.copyOfRange(encodedKey, encodedKey.length - 32, encodedKey.length);
+        TransactionResult openChannel = call(ATSOwnerAddress, "openChannel", tokenHolder1Address, BigInteger.valueOf(1_000).toByteArray(), publicKey, Long.MAX_VALUE);
+        measure("openChannel", openChannel);
+        long channelId = (long) ABIUtil.decodeOneObject(openChannel.getReturnData());
+        measure("getChannel", call(ATSOwnerAddress, "getChannel", channelId));
+        BigInteger voucherAmount = BigInteger.valueOf(400);
+        measure("closeChannel", call(tokenHolder1Address, "closeChannel", channelId, voucherAmount.toByteArray(), signVoucher(signer, channelId, voucherAmount)));
+
+        // clearing: tokenHolder1Address and tokenHolder2Address owe each other, ATSOwnerAddress operates for both
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, call(tokenHolder1Address, "authorizeOperator", ATSOwnerAddress).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, call(tokenHolder2Address, "authorizeOperator", ATSOwnerAddress).getResultCode());
+        measure("clear", call(ATSOwnerAddress, "clear", new Address[]{tokenHolder1Address, tokenHolder2Address}, new Address[]{tokenHolder2Address, tokenHolder1Address},
+                new byte[][]{BigInteger.valueOf(150).toByteArray(), BigInteger.valueOf(120).toByteArray()}, new byte[0]));
+    }
+
+    private void measure(String name, TransactionResult result) {
+        Assert.assertEquals(name, AvmTransactionResult.Code.SUCCESS, result.getResultCode());
+        measured.put(name, result.getEnergyUsed());
+    }
+
+    private Properties readBaseline() throws IOException {
+        Properties baseline = new Properties();
+        if (Files.exists(baselinePath)) {
+            try (Reader reader = Files.newBufferedReader(baselinePath, StandardCharsets.UTF_8)) {
+                baseline.load(reader);
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * Write the baseline in scenario order, without the timestamp Properties.store adds, so that diffs of the file
+     * only show energy changes.
+     */
+    private void writeBaseline() throws IOException {
+        try (Writer writer = Files.newBufferedWriter(baselinePath, StandardCharsets.UTF_8)) {
+            writer.write("# Energy used by each call of the ATSEnergyRegressionTest scenario.\n");
+            writer.write("# Do not edit by hand, regenerate with -Dats.energy=record.\n");
+            for (Map.Entry<String, Long> entry : measured.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+            }
+        }
+    }
+
+    private Address deployTokenHolder(String name) {
+        byte[] txData = avmRule.getDappBytes(TokenHolderContract.class, ABIUtil.encodeDeploymentArguments(name));
+        Address address = avmRule.deploy(deployer, BigInteger.ZERO, txData, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(address);
+        avmRule.balanceTransfer(deployer, address, BigInteger.valueOf(1_000_000_000L), energyLimit, energyPrice);
+        return address;
+    }
+
+    /**
+     * The same ed25519 key on every run, so that the public key and signatures in the transaction data do not change.
+     */
+    private KeyPair fixedSignerKey() throws GeneralSecurityException {
+        SecureRandom seed = SecureRandom.getInstance("SHA1PRNG");
+        seed.setSeed(1L);
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("Ed25519");
+        generator.initialize(NamedParameterSpec.ED25519, seed);
+        return generator.generateKeyPair();
+    }
+
+    /**
+     * Signs ATS contract address + channel id + amount filled to 32 bytes, the voucher closeChannel verifies.
+     */
+    private byte[] signVoucher(KeyPair signer, long channelId, BigInteger amount) throws GeneralSecurityException {
+        byte[] amountBytes = amount.toByteArray();
+        byte[] message = new byte[Address.LENGTH + Long.BYTES + 32];
+        System.arraycopy(ATSDappAddress.unwrap(), 0, message, 0, Address.LENGTH);
+        for (int i = 0; i < Long.BYTES; i++) {
+            message[Address.LENGTH + i] = (byte) (channelId >>> (8 * (Long.BYTES - 1 - i)));
+        }
+        System.arraycopy(amountBytes, 0, message, message.length - amountBytes.length, amountBytes.length);
+
+        Signature signature = Signature.getInstance("Ed25519");
+        signature.initSign(signer.getPrivate());
+        signature.update(message);
+        return signature.sign();
+    }
+
+    /**
+     * Packs the arguments of sendPacked without senderData: selector, recipient and varint amount.
+     */
+    private byte[] packSend(Address to, long amount) {
+        byte[] packed = new byte[1 + Address.LENGTH + 10];
+        packed[0] = 0x01;
+        System.arraycopy(to.unwrap(), 0, packed, 1, Address.LENGTH);
+        int position = 1 + Address.LENGTH;
+        while ((amount & ~0x7fL) != 0) {
+            packed[position++] = (byte) ((amount & 0x7f) | 0x80);
+            amount >>>= 7;
+        }
+        packed[position++] = (byte) amount;
+        return Arrays.copyOf(packed, position);
+    }
+
+    private TransactionResult call(Address caller, String methodName, Object... arguments) {
+        byte[] txData = ABIUtil.encodeMethodArguments(methodName, arguments);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+}
@@ -0,0 +1,208 @@
+import AionInterfaceRegistry.AionInterfaceRegistryContract;
+import AionTokenStandard.AionTokenStandardContract;
+import AionTokenStandardDebug.AionTokenStandardTracingContract;
+import AionTokenStandardDebug.EnergyTrace;
+import AionTokenStandardDebug.TracingContractGenerator;
+import HelperContracts.TokenHolderContract;
+import avm.Address;
+import org.aion.avm.core.util.ABIUtil;
+import org.aion.avm.tooling.AvmRule;
+import org.aion.kernel.AvmTransactionResult;
+import org.aion.vm.api.interfaces.IExecutionLog;
+import org.aion.vm.api.interfaces.TransactionResult;
+import org.junit.*;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs a small transfer workload on AionTokenStandardTracingContract, the debug build of the ATS contract, and
+ * aggregates its EnergyTraceEvents per operation and phase.
+ */
+public class ATSEnergyTraceTest {
+    @Rule
+    public AvmRule avmRule = new AvmRule(false);
+
+    private long energyLimit = 10_000_000L;
+    private long energyPrice = 1L;
+
+    private Address deployer = avmRule.getPreminedAccount();
+
+    private Address AIRDappAddress;
+    private Address ATSDappAddress;
+    private Address ATSOwnerAddress;
+    private Address[] holders;
+
+    // the phase ids of EnergyTrace
+    private static final String[] PHASE_NAMES = {"other", "storageRead", "decode", "accruals", "arithmetic", "hook",
+            "encode", "storageWrite", "balanceTree", "eventEncode", "log"};
+
+    @Before
+    public void setup() {
+        byte[] txData = avmRule.getDappBytes(TokenHolderContract.class, ABIUtil.encodeDeploymentArguments("owner of ATS"));
+        ATSOwnerAddress = avmRule.deploy(deployer, BigInteger.ZERO, txData, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(ATSOwnerAddress);
+        avmRule.balanceTransfer(deployer, ATSOwnerAddress, BigInteger.valueOf(1_000_000_000L), energyLimit, energyPrice);
+
+        byte[] txData2 = avmRule.getDappBytes(AionInterfaceRegistryContract.class, null);
+        AIRDappAddress = avmRule.deploy(deployer, BigInteger.ZERO, txData2, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(AIRDappAddress);
+
+        ATSDappAddress = deployATS(AionTokenStandardTracingContract.class, EnergyTrace.class);
+
+        holders = new Address[20];
+        for (int i = 0; i < holders.length; i++) {
+            holders[i] = avmRule.getRandomAddress(BigInteger.valueOf(1_000_000_000L));
+        }
+    }
+
+    @Test
+    public void testTracingContractIsUpToDate() throws IOException {
+        String source = new String(Files.readAllBytes(Paths.get(TracingContractGenerator.CONTRACT)), StandardCharsets.UTF_8);
+        String checkedIn = new String(Files.readAllBytes(Paths.get(TracingContractGenerator.OUTPUT)), StandardCharsets.UTF_8);
+        Assert.assertEquals("the tracing contract is out of date, run AionTokenStandardDebug.TracingContractGenerator",
+                TracingContractGenerator.generate(source), checkedIn);
+    }
+
+    @Test
+    public void testProductionContractDoesNotTrace() {
+        Address productionDappAddress = deployATS(AionTokenStandardContract.class);
+        byte[] txData = ABIUtil.encodeMethodArguments("send", holders[0], BigInteger.TEN.toByteArray(), new byte[0]);
+        TransactionResult txResult = avmRule.call(ATSOwnerAddress, productionDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        Assert.assertEquals(0, new EnergyTraceAggregator().add(txResult));
+    }
+
+    @Test
+    public void testTraceWorkload() {
+        EnergyTraceAggregator aggregator = new EnergyTraceAggregator();
+
+        // sends to new holders, then sends between holders and burns
+        for (Address holder : holders) {
+            TransactionResult txResult = callSend(holder, BigInteger.valueOf(1_000), ATSOwnerAddress);
+            Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+            Assert.assertEquals(1, aggregator.add(txResult));
+        }
+        for (int i = 0; i < holders.length; i++) {
+            TransactionResult txResult = callSend(holders[(i + 1) % holders.length], BigInteger.valueOf(10), holders[i]);
+            Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+            Assert.assertEquals(1, aggregator.add(txResult));
+
+            TransactionResult txResult2 = callBurn(BigInteger.ONE, holders[i]);
+            Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+            Assert.assertEquals(1, aggregator.add(txResult2));
+        }
+
+        System.out.println(aggregator.report());
+        Assert.assertEquals(2 * holders.length, aggregator.count("send"));
+        Assert.assertEquals(holders.length, aggregator.count("burn"));
+        Assert.assertTrue(aggregator.total("send", "storageWrite") > 0);
+        Assert.assertTrue(aggregator.total("send", "log") > 0);
+    }
+
+    /**
+     * Collects the EnergyTraceEvents of transaction results and sums them per operation and phase.
+     */
+    private static class EnergyTraceAggregator {
+        private static final byte[] TRACE_TOPIC = "EnergyTraceEvent".getBytes(StandardCharsets.UTF_8);
+
+        private final Map<String, long[]> totals = new TreeMap<>(); // <operation, energy per phase>
+        private final Map<String, long[]> maxima = new TreeMap<>();
+        private final Map<String, Integer> counts = new TreeMap<>();
+
+        /**
+         * @return the number of traces found in the result
+         */
+        private int add(TransactionResult result) {
+            int found = 0;
+            for (IExecutionLog log : result.getSideEffects().getExecutionLogs()) {
+                if (log.getTopics().size() == 2 && isTopic(log.getTopics().get(0), TRACE_TOPIC)) {
+                    String operation = topicString(log.getTopics().get(1));
+                    long[] total = totals.computeIfAbsent(operation, key -> new long[PHASE_NAMES.length]);
+                    long[] max = maxima.computeIfAbsent(operation, key -> new long[PHASE_NAMES.length]);
+                    counts.merge(operation, 1, Integer::sum);
+
+                    long traced = 0;
+                    ByteBuffer data = ByteBuffer.wrap(log.getData());
+                    while (data.hasRemaining()) {
+                        int phase = data.get();
+                        long energy = data.getLong();
+                        total[phase] += energy;
+                        max[phase] = Math.max(max[phase], energy);
+                        traced += energy;
+                    }
+                    Assert.assertTrue("traced more energy than the transaction used", traced <= result.getEnergyUsed());
+                    found++;
+                }
+            }
+            return found;
+        }
+
+        private int count(String operation) {
+            return counts.getOrDefault(operation, 0);
+        }
+
+        private long total(String operation, String phase) {
+            long[] total = totals.get(operation);
+            return (total == null) ? 0 : total[Arrays.asList(PHASE_NAMES).indexOf(phase)];
+        }
+
+        private String report() {
+            StringBuilder report = new StringBuilder(String.format("%-10s %-12s %8s %10s %10s %7s%n", "operation", "phase", "calls", "mean", "max", "share"));
+            for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+                String operation = entry.getKey();
+                long[] total = entry.getValue();
+                long sum = Arrays.stream(total).sum();
+                int count = counts.get(operation);
+                for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+                    if (total[phase] > 0) {
+                        report.append(String.format("%-10s %-12s %8d %10d %10d %6.1f%%%n", operation, PHASE_NAMES[phase], count,
+                                total[phase] / count, maxima.get(operation)[phase], 100.0 * total[phase] / sum));
+                    }
+                }
+            }
+            return report.toString();
+        }
+
+        /**
+         * Topics are padded to 32 bytes with zeros.
+         */
+        private static boolean isTopic(byte[] topic, byte[] expected) {
+            return topic.length >= expected.length && Arrays.equals(Arrays.copyOf(topic, expected.length), expected)
+                    && topicString(topic).length() == expected.length;
+        }
+
+        private static String topicString(byte[] topic) {
+            int length = topic.length;
+            while (length > 0 && topic[length - 1] == 0) {
+                length--;
+            }
+            return new String(topic, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /** ========= ATS Contract Calling Methods========= */
+    private TransactionResult callSend(Address to, BigInteger amount, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("send", to, amount.toByteArray(), new byte[0]);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callBurn(BigInteger amount, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("burn", amount.toByteArray(), new byte[0]);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private Address deployATS(Class<?> contract, Class<?>... otherClasses) {
+        byte[] txData = avmRule.getDappBytes(contract, ABIUtil.encodeDeploymentArguments("traced", "TRC", 1, BigInteger.valueOf(1_000_000).toByteArray(), AIRDappAddress, 10_000_000L), otherClasses);
+        Address dappAddress = avmRule.deploy(ATSOwnerAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(dappAddress);
+        return dappAddress;
+    }
+}
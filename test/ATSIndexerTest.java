@@ -0,0 +1,429 @@
+import ATSIndexer.ATSEventIndexer;
+import ATSIndexer.EventLog;
+import AionInterfaceRegistry.AionInterfaceRegistryContract;
+import AionTokenStandard.AionTokenStandardContract;
+import HelperContracts.TokenHolderContract;
+import avm.Address;
+import org.aion.avm.core.util.ABIUtil;
+import org.aion.avm.tooling.AvmRule;
+import org.aion.kernel.AvmTransactionResult;
+import org.aion.vm.api.interfaces.IExecutionLog;
+import org.aion.vm.api.interfaces.TransactionResult;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class ATSIndexerTest {
+    @Rule
+    public AvmRule avmRule = new AvmRule(false);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Random random = new Random(42);
+
+    private byte[] contract = randomAddress();
+    private byte[] owner = randomAddress();
+    private byte[] holder1 = randomAddress();
+    private byte[] holder2 = randomAddress();
+
+    private long blockNumber = 0;
+
+    @Test
+    public void testTransfersAndBurns() throws IOException {
+        try (ATSEventIndexer indexer = new ATSEventIndexer(folder.newFolder().toPath(), contract, 10)) {
+            applyBlock(indexer, tokenCreated(owner, 1_000));
+            applyBlock(indexer, sent(owner, owner, holder1, 300), sent(holder1, holder1, holder2, 100));
+            applyBlock(indexer, burned(holder2, holder2, 40), minted(owner, new byte[][]{holder1, holder2}, new long[]{5, 7}));
+
+            Assert.assertEquals(BigInteger.valueOf(700), indexer.balanceOf(owner));
+            Assert.assertEquals(BigInteger.valueOf(205), indexer.balanceOf(holder1));
+            Assert.assertEquals(BigInteger.valueOf(67), indexer.balanceOf(holder2));
+            Assert.assertEquals(BigInteger.ZERO, indexer.balanceOf(randomAddress()));
+            Assert.assertEquals(3, indexer.getHolderCount());
+            Assert.assertEquals(BigInteger.valueOf(972), indexer.getHeldSupply());
+            Assert.assertEquals(blockNumber, indexer.getLastBlockNumber());
+        }
+    }
+
+    @Test
+    public void testEscrowEvents() throws IOException {
+        try (ATSEventIndexer indexer = new ATSEventIndexer(folder.newFolder().toPath(), contract, 10)) {
+            applyBlock(indexer, tokenCreated(owner, 1_000));
+            applyBlock(indexer, streamCreated(1, owner, holder1, 10, 5, 15), channelOpened(1, owner, holder2, 50));
+            Assert.assertEquals(BigInteger.valueOf(850), indexer.balanceOf(owner));
+
+            applyBlock(indexer, streamWithdrawn(1, holder1, 30), streamCancelled(1, owner, 60, holder1, 10));
+            applyBlock(indexer, channelClosed(1, owner, 15, holder2, 35));
+            Assert.assertEquals(BigInteger.valueOf(925), indexer.balanceOf(owner));
+            Assert.assertEquals(BigInteger.valueOf(40), indexer.balanceOf(holder1));
+            Assert.assertEquals(BigInteger.valueOf(35), indexer.balanceOf(holder2));
+
+            applyBlock(indexer, vestingScheduleCreated(holder2, 100), vestingReleased(holder2, 25));
+            Assert.assertEquals(BigInteger.valueOf(825), indexer.balanceOf(owner));
+            Assert.assertEquals(BigInteger.valueOf(60), indexer.balanceOf(holder2));
+
+            applyBlock(indexer, cleared(owner, new byte[][]{owner, holder1}, new long[]{800, 65}));
+            Assert.assertEquals(BigInteger.valueOf(800), indexer.balanceOf(owner));
+            Assert.assertEquals(BigInteger.valueOf(65), indexer.balanceOf(holder1));
+
+            applyBlock(indexer, payoutChunkAdded(1, owner, 0, 2, 30), payoutProgress(1, 1, new byte[][]{holder1}, new long[]{10}));
+            applyBlock(indexer, payoutProgress(1, 2, new byte[][]{holder2}, new long[]{20}));
+            Assert.assertEquals(BigInteger.valueOf(770), indexer.balanceOf(owner));
+            Assert.assertEquals(BigInteger.valueOf(75), indexer.balanceOf(holder1));
+            Assert.assertEquals(BigInteger.valueOf(80), indexer.balanceOf(holder2));
+        }
+    }
+
+    @Test
+    public void testOperators() throws IOException {
+        try (ATSEventIndexer indexer = new ATSEventIndexer(folder.newFolder().toPath(), contract, 10)) {
+            applyBlock(indexer, tokenCreated(owner, 1_000), operatorEvent("AuthorizedOperatorEvent", holder1, owner));
+            Assert.assertTrue(indexer.isOperatorFor(holder1, owner));
+            Assert.assertFalse(indexer.isOperatorFor(owner, holder1));
+            Assert.assertTrue(indexer.isOperatorFor(owner, owner));
+
+            applyBlock(indexer, operatorEvent("RevokedOperatorEvent", holder1, owner));
+            Assert.assertFalse(indexer.isOperatorFor(holder1, owner));
+        }
+    }
+
+    @Test
+    public void testLogsOfOtherContractsAreSkipped() throws IOException {
+        try (ATSEventIndexer indexer = new ATSEventIndexer(folder.newFolder().toPath(), contract, 10)) {
+            EventLog foreign = tokenCreated(owner, 1_000);
+            applyBlock(indexer, new EventLog(randomAddress(), foreign.getTopics(), foreign.getData()));
+            Assert.assertEquals(BigInteger.ZERO, indexer.balanceOf(owner));
+            Assert.assertEquals(0, indexer.getHolderCount());
+        }
+    }
+
+    @Test
+    public void testInconsistentBlockLeavesIndexUnchanged() throws IOException {
+        try (ATSEventIndexer indexer = new ATSEventIndexer(folder.newFolder().toPath(), contract, 10)) {
+            applyBlock(indexer, tokenCreated(owner, 1_000));
+
+            // the second transfer spends more than holder1 was given
+            try {
+                applyBlock(indexer, sent(owner, owner, holder1, 10), sent(holder1, holder1, holder2, 20));
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            Assert.assertEquals(1, indexer.getLastBlockNumber());
+            Assert.assertEquals(BigInteger.valueOf(1_000), indexer.balanceOf(owner));
+            Assert.assertEquals(1, indexer.getHolderCount());
+
+            // a block not extending the last block is refused
+            try {
+                indexer.applyBlock(3, hash(3), hash(2), Collections.emptyList());
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testReorgRollback() throws IOException {
+        try (ATSEventIndexer indexer = new ATSEventIndexer(folder.newFolder().toPath(), contract, 10)) {
+            applyBlock(indexer, tokenCreated(owner, 1_000));
+            applyBlock(indexer, sent(owner, owner, holder1, 100));
+            long forkBlock = blockNumber;
+            applyBlock(indexer, sent(owner, owner, holder2, 200), operatorEvent("AuthorizedOperatorEvent", holder2, holder1));
+            applyBlock(indexer, cleared(owner, new byte[][]{holder1}, new long[]{0}), burned(owner, owner, 1));
+
+            indexer.rollbackTo(forkBlock);
+            Assert.assertEquals(forkBlock, indexer.getLastBlockNumber());
+            Assert.assertArrayEquals(hash(forkBlock), indexer.getBlockHash(forkBlock));
+            Assert.assertEquals(BigInteger.valueOf(900), indexer.balanceOf(owner));
+            Assert.assertEquals(BigInteger.valueOf(100), indexer.balanceOf(holder1));
+            Assert.assertEquals(BigInteger.ZERO, indexer.balanceOf(holder2));
+            Assert.assertFalse(indexer.isOperatorFor(holder2, holder1));
+            Assert.assertEquals(2, indexer.getHolderCount());
+
+            // the other branch
+            blockNumber = forkBlock;
+            applyBlock(indexer, sent(holder1, holder1, holder2, 60));
+            Assert.assertEquals(BigInteger.valueOf(40), indexer.balanceOf(holder1));
+            Assert.assertEquals(BigInteger.valueOf(60), indexer.balanceOf(holder2));
+        }
+    }
+
+    @Test
+    public void testRollbackIsLimitedToReorgDepth() throws IOException {
+        try (ATSEventIndexer indexer = new ATSEventIndexer(folder.newFolder().toPath(), contract, 2)) {
+            applyBlock(indexer, tokenCreated(owner, 1_000));
+            for (int i = 0; i < 5; i++) {
+                applyBlock(indexer, sent(owner, owner, holder1, 1));
+            }
+            indexer.checkpoint();
+
+            Assert.assertNotNull(indexer.getBlockHash(blockNumber - 2));
+            Assert.assertNull(indexer.getBlockHash(blockNumber - 3));
+            try {
+                indexer.rollbackTo(blockNumber - 3);
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            indexer.rollbackTo(blockNumber - 2);
+            Assert.assertEquals(BigInteger.valueOf(3), indexer.balanceOf(holder1));
+        }
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        ATSEventIndexer indexer = new ATSEventIndexer(directory, contract, 10);
+        applyBlock(indexer, tokenCreated(owner, 1_000));
+        applyBlock(indexer, sent(owner, owner, holder1, 100));
+        indexer.checkpoint();
+        long checkpointBlock = blockNumber;
+
+        // blocks applied after the checkpoint by an indexer that never closes, as if the process crashed
+        applyBlock(indexer, sent(owner, owner, holder2, 200));
+        applyBlock(indexer, burned(holder1, holder1, 50));
+
+        try (ATSEventIndexer reopened = new ATSEventIndexer(directory, contract, 10)) {
+            Assert.assertEquals(checkpointBlock, reopened.getLastBlockNumber());
+            Assert.assertEquals(BigInteger.valueOf(900), reopened.balanceOf(owner));
+            Assert.assertEquals(BigInteger.valueOf(100), reopened.balanceOf(holder1));
+            Assert.assertEquals(BigInteger.ZERO, reopened.balanceOf(holder2));
+
+            blockNumber = checkpointBlock;
+            applyBlock(reopened, sent(holder1, holder1, holder2, 100));
+            Assert.assertEquals(BigInteger.valueOf(100), reopened.balanceOf(holder2));
+        }
+
+        try (ATSEventIndexer reopened = new ATSEventIndexer(directory, contract, 10)) {
+            Assert.assertEquals(checkpointBlock + 1, reopened.getLastBlockNumber());
+            Assert.assertEquals(BigInteger.ZERO, reopened.balanceOf(holder1));
+        }
+    }
+
+    @Test
+    public void testManyHolders() throws IOException {
+        int holderCount = 200_000;
+        int transfersPerBlock = 1_000;
+        byte[][] holders = new byte[holderCount][];
+        for (int i = 0; i < holderCount; i++) {
+            holders[i] = randomAddress();
+        }
+
+        try (ATSEventIndexer indexer = new ATSEventIndexer(folder.newFolder().toPath(), contract, 10)) {
+            applyBlock(indexer, tokenCreated(owner, holderCount * 10L));
+            long start = System.nanoTime();
+            for (int i = 0; i < holderCount; i += transfersPerBlock) {
+                List<EventLog> logs = new ArrayList<>();
+                for (int j = i; j < i + transfersPerBlock; j++) {
+                    logs.addAll(Arrays.asList(sent(owner, owner, holders[j], 10)));
+                }
+                applyBlock(indexer, logs.toArray(new EventLog[0]));
+            }
+            long applied = System.nanoTime() - start;
+
+            ByteBuffer keys = ByteBuffer.allocate(holderCount * 32);
+            for (byte[] holder : holders) {
+                keys.put(holder);
+            }
+            ByteBuffer balance = ByteBuffer.allocate(32);
+            start = System.nanoTime();
+            for (int i = 0; i < holderCount; i++) {
+                Assert.assertTrue(indexer.balanceOf(keys, i * 32, balance, 0));
+                Assert.assertEquals(10, balance.getLong(24));
+            }
+            long looked = System.nanoTime() - start;
+
+            System.out.println("applied " + holderCount + " transfers in " + applied / 1_000_000 + " ms, "
+                    + looked / holderCount + " ns per balance lookup");
+            Assert.assertEquals(holderCount + 1, indexer.getHolderCount());
+            Assert.assertEquals(BigInteger.ZERO, indexer.balanceOf(owner));
+        }
+    }
+
+    @Test
+    public void testMatchesContract() throws IOException {
+        long energyLimit = 10_000_000L;
+        long energyPrice = 1L;
+        Address deployer = avmRule.getPreminedAccount();
+
+        byte[] txData = avmRule.getDappBytes(TokenHolderContract.class, ABIUtil.encodeDeploymentArguments("owner of ATS"));
+        Address ATSOwnerAddress = avmRule.deploy(deployer, BigInteger.ZERO, txData, energyLimit, energyPrice).getDappAddress();
+        avmRule.balanceTransfer(deployer, ATSOwnerAddress, BigInteger.valueOf(1_000_000_000L), energyLimit, energyPrice);
+        Address AIRDappAddress = avmRule.deploy(deployer, BigInteger.ZERO, avmRule.getDappBytes(AionInterfaceRegistryContract.class, null), energyLimit, energyPrice).getDappAddress();
+
+        byte[] txData2 = avmRule.getDappBytes(AionTokenStandardContract.class, ABIUtil.encodeDeploymentArguments("indexed", "IDX", 1, BigInteger.valueOf(1_000_000).toByteArray(), AIRDappAddress, 10_000_000L));
+        AvmRule.ResultWrapper deployment = avmRule.deploy(ATSOwnerAddress, BigInteger.ZERO, txData2, energyLimit, energyPrice);
+        Address ATSDappAddress = deployment.getDappAddress();
+        Assert.assertNotNull(ATSDappAddress);
+
+        Address[] holders = new Address[5];
+        for (int i = 0; i < holders.length; i++) {
+            holders[i] = avmRule.getRandomAddress(BigInteger.valueOf(1_000_000_000L));
+        }
+
+        try (ATSEventIndexer indexer = new ATSEventIndexer(folder.newFolder().toPath(), ATSDappAddress.unwrap(), 10)) {
+            // one block per transaction, every log comes from the ATS contract as no holder is a hooked contract
+            List<TransactionResult> results = new ArrayList<>();
+            results.add(deployment.getTransactionResult());
+            for (int i = 0; i < holders.length; i++) {
+                results.add(avmRule.call(ATSOwnerAddress, ATSDappAddress, BigInteger.ZERO, ABIUtil.encodeMethodArguments("send", holders[i], BigInteger.valueOf(1_000 * (i + 1)).toByteArray(), new byte[]{1, 2}), energyLimit, energyPrice).getTransactionResult());
+            }
+            results.add(avmRule.call(holders[0], ATSDappAddress, BigInteger.ZERO, ABIUtil.encodeMethodArguments("authorizeOperator", holders[1]), energyLimit, energyPrice).getTransactionResult());
+            results.add(avmRule.call(holders[1], ATSDappAddress, BigInteger.ZERO, ABIUtil.encodeMethodArguments("operatorSend", holders[0], holders[2], BigInteger.valueOf(300).toByteArray(), new byte[0], new byte[]{3}), energyLimit, energyPrice).getTransactionResult());
+            results.add(avmRule.call(holders[0], ATSDappAddress, BigInteger.ZERO, ABIUtil.encodeMethodArguments("revokeOperator", holders[1]), energyLimit, energyPrice).getTransactionResult());
+            results.add(avmRule.call(holders[3], ATSDappAddress, BigInteger.ZERO, ABIUtil.encodeMethodArguments("burn", BigInteger.valueOf(500).toByteArray(), new byte[0]), energyLimit, energyPrice).getTransactionResult());
+
+            for (TransactionResult result : results) {
+                Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, result.getResultCode());
+                List<EventLog> logs = new ArrayList<>();
+                for (IExecutionLog log : result.getSideEffects().getExecutionLogs()) {
+                    logs.add(new EventLog(ATSDappAddress.unwrap(), log.getTopics().toArray(new byte[0][]), ByteBuffer.wrap(log.getData())));
+                }
+                blockNumber++;
+                indexer.applyBlock(blockNumber, hash(blockNumber), hash(blockNumber - 1), logs);
+            }
+
+            for (Address holder : new Address[]{ATSOwnerAddress, holders[0], holders[1], holders[2], holders[3], holders[4]}) {
+                byte[] txData3 = ABIUtil.encodeMethodArguments("balanceOf", holder);
+                byte[] balance = avmRule.call(deployer, ATSDappAddress, BigInteger.ZERO, txData3, energyLimit, energyPrice).getTransactionResult().getReturnData();
+                Assert.assertEquals(new BigInteger((byte[]) ABIUtil.decodeOneObject(balance)), indexer.balanceOf(holder.unwrap()));
+            }
+            Assert.assertFalse(indexer.isOperatorFor(holders[1].unwrap(), holders[0].unwrap()));
+            Assert.assertEquals(BigInteger.valueOf(1_000_000 - 500), indexer.getHeldSupply());
+        }
+    }
+
+    /** ========= Events, encoded as ATSContractEvents does ========= */
+    private EventLog tokenCreated(byte[] owner, long totalSupply) {
+        return log("TokenCreatedEvent", ByteBuffer.allocate(64).put(owner).put(amount(totalSupply)));
+    }
+
+    private EventLog[] sent(byte[] operator, byte[] from, byte[] to, long amount) {
+        return new EventLog[]{
+                log("SentEventPart1", ByteBuffer.allocate(96).put(operator).put(from).put(to)),
+                log("SentEventPart2", ByteBuffer.allocate(36).put(amount(amount)).putInt(0))};
+    }
+
+    private EventLog[] burned(byte[] operator, byte[] from, long amount) {
+        return new EventLog[]{
+                log("BurnedEventPart1", ByteBuffer.allocate(64).put(operator).put(from)),
+                log("BurnedEventPart2", ByteBuffer.allocate(36).put(amount(amount)).putInt(0))};
+    }
+
+    private EventLog minted(byte[] operator, byte[][] recipients, long[] amounts) {
+        ByteBuffer data = ByteBuffer.allocate(68 + recipients.length * 64).put(operator).put(amount(Arrays.stream(amounts).sum())).putInt(recipients.length);
+        for (int i = 0; i < recipients.length; i++) {
+            data.put(recipients[i]).put(amount(amounts[i]));
+        }
+        return log("MintedEvent", data);
+    }
+
+    private EventLog streamCreated(long streamId, byte[] sender, byte[] recipient, long ratePerBlock, long startBlock, long stopBlock) {
+        return log("StreamCreatedEvent", ByteBuffer.allocate(152).putLong(streamId).put(sender).put(recipient).put(amount(ratePerBlock)).putLong(startBlock).putLong(stopBlock).put(amount(0)));
+    }
+
+    private EventLog streamWithdrawn(long streamId, byte[] recipient, long amount) {
+        return log("StreamWithdrawnEvent", ByteBuffer.allocate(72).putLong(streamId).put(recipient).put(amount(amount)));
+    }
+
+    private EventLog streamCancelled(long streamId, byte[] sender, long senderAmount, byte[] recipient, long recipientAmount) {
+        return log("StreamCancelledEvent", ByteBuffer.allocate(136).putLong(streamId).put(sender).put(amount(senderAmount)).put(recipient).put(amount(recipientAmount)));
+    }
+
+    private EventLog channelOpened(long channelId, byte[] sender, byte[] recipient, long deposit) {
+        return log("ChannelOpenedEvent", ByteBuffer.allocate(144).putLong(channelId).put(sender).put(recipient).put(amount(deposit)).putLong(1_000).put(new byte[32]));
+    }
+
+    private EventLog channelClosed(long channelId, byte[] sender, long senderAmount, byte[] recipient, long recipientAmount) {
+        return log("ChannelClosedEvent", ByteBuffer.allocate(136).putLong(channelId).put(sender).put(amount(senderAmount)).put(recipient).put(amount(recipientAmount)));
+    }
+
+    private EventLog vestingScheduleCreated(byte[] beneficiary, long total) {
+        byte[] totalBytes = BigInteger.valueOf(total).toByteArray();
+        byte[] releasedBytes = BigInteger.ZERO.toByteArray();
+        return log("VestingScheduleCreatedEvent", ByteBuffer.allocate(32 + 25 + totalBytes.length + releasedBytes.length)
+                .put(beneficiary).putLong(0).putLong(0).putLong(100).put((byte) totalBytes.length).put(totalBytes).put(releasedBytes));
+    }
+
+    private EventLog vestingReleased(byte[] beneficiary, long amount) {
+        return log("VestingReleasedEvent", ByteBuffer.allocate(64).put(beneficiary).put(amount(amount)));
+    }
+
+    private EventLog payoutChunkAdded(long jobId, byte[] creator, int chunkIndex, int entryCount, long total) {
+        return log("PayoutChunkAddedEvent", ByteBuffer.allocate(80).putLong(jobId).put(creator).put(amount(total)).putInt(chunkIndex).putInt(entryCount));
+    }
+
+    private EventLog payoutProgress(long jobId, long paidCount, byte[][] recipients, long[] amounts) {
+        ByteBuffer data = ByteBuffer.allocate(20 + recipients.length * 64).putLong(jobId).putLong(paidCount).putInt(recipients.length);
+        for (int i = 0; i < recipients.length; i++) {
+            data.put(recipients[i]).put(amount(amounts[i]));
+        }
+        return log("PayoutProgressEvent", data);
+    }
+
+    private EventLog cleared(byte[] operator, byte[][] accounts, long[] balances) {
+        ByteBuffer data = ByteBuffer.allocate(40 + accounts.length * 64).put(operator).putInt(accounts.length).putInt(accounts.length);
+        for (int i = 0; i < accounts.length; i++) {
+            data.put(accounts[i]).put(amount(balances[i]));
+        }
+        return log("ClearedEvent", data);
+    }
+
+    private EventLog operatorEvent(String event, byte[] operator, byte[] tokenHolder) {
+        return log(event, ByteBuffer.allocate(64).put(operator).put(tokenHolder));
+    }
+
+    private EventLog log(String event, ByteBuffer data) {
+        byte[][] topics = new byte[][]{Arrays.copyOf(event.getBytes(StandardCharsets.UTF_8), 32)};
+        return new EventLog(contract, topics, data.flip());
+    }
+
+    /**
+     * Apply the events logged by a single call, such as those returned by sent, as the next block.
+     */
+    private void applyBlock(ATSEventIndexer indexer, EventLog[] events) throws IOException {
+        applyBlock(indexer, (Object[]) events);
+    }
+
+    /**
+     * Apply the events as the next block.
+     */
+    private void applyBlock(ATSEventIndexer indexer, Object... events) throws IOException {
+        List<EventLog> logs = new ArrayList<>();
+        for (Object event : events) {
+            if (event instanceof EventLog[]) {
+                logs.addAll(Arrays.asList((EventLog[]) event));
+            } else {
+                logs.add((EventLog) event);
+            }
+        }
+        blockNumber++;
+        indexer.applyBlock(blockNumber, hash(blockNumber), hash(blockNumber - 1), logs);
+    }
+
+    private static byte[] amount(long amount) {
+        return ByteBuffer.allocate(32).putLong(24, amount).array();
+    }
+
+    private static byte[] hash(long blockNumber) {
+        return ByteBuffer.allocate(32).putLong(blockNumber).put((byte) 0x77).array();
+    }
+
+    private byte[] randomAddress() {
+        byte[] address = new byte[32];
+        random.nextBytes(address);
+        return address;
+    }
+}
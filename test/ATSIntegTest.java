@@ -27,6 +27,7 @@ public class ATSIntegTest {
     private final String ATSSymbol = "my ats symbol";
     private final int ATSGranularity = 1;
     private final BigInteger ATSTotalSupply = BigInteger.valueOf(1_000_000);
+    private final long ATSHookStipend = 10_000_000L;
 
     // helpers
     private Address AIRDappAddress;
@@ -55,7 +56,7 @@ public class ATSIntegTest {
         Assert.assertNotNull(AIRDappAddress);
 
         // deploy ATS
-        byte[] txData2 = avmRule.getDappBytes(AionTokenStandardContract.class, ABIUtil.encodeDeploymentArguments(ATSName, ATSSymbol, ATSGranularity, ATSTotalSupply.toByteArray(), AIRDappAddress));
+        byte[] txData2 = avmRule.getDappBytes(AionTokenStandardContract.class, ABIUtil.encodeDeploymentArguments(ATSName, ATSSymbol, ATSGranularity, ATSTotalSupply.toByteArray(), AIRDappAddress, ATSHookStipend));
         ATSDappAddress = avmRule.deploy(ATSOwnerAddress, BigInteger.ZERO, txData2, energyLimit, energyPrice).getDappAddress();
         Assert.assertNotNull(ATSDappAddress);
 
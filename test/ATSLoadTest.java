@@ -0,0 +1,362 @@
+import AionInterfaceRegistry.AionInterfaceRegistryContract;
+import AionTokenStandard.AionTokenStandardContract;
+import avm.Address;
+import org.aion.avm.core.util.ABIUtil;
+import org.aion.avm.tooling.AvmRule;
+import org.aion.kernel.AvmTransactionResult;
+import org.aion.vm.api.interfaces.TransactionResult;
+import org.junit.*;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Load generator for the ATS contract. It is skipped unless run with -Dats.load=true, for example
+ * mvn test -Dtest=ATSLoadTest -Dats.load=true
+ *
+ * For each holder count it deploys a fresh ATS contract, gives the holders Zipf-distributed balances and operator
+ * counts, then replays a random mix of send, operatorSend, burn and authorizeOperator. For every operation it reports
+ * the throughput and the p50/p99/max of energy used and latency. Latency is measured around AvmRule.call, so it
+ * includes the time AvmRule takes outside the contract; it is only comparable between runs on the same machine.
+ *
+ * Settings (system properties):
+ * - ats.load.holders: comma separated holder counts, default 100,1000,5000
+ * - ats.load.operations: operations replayed per holder count, default 2000
+ * - ats.load.mix: relative weight of each operation, default send=60,operatorSend=20,burn=10,authorizeOperator=10
+ * - ats.load.zipf: Zipf exponent of balances, operator counts and sender activity, default 1.1
+ * - ats.load.maxOperators: largest number of operators of one holder at population, default 8
+ * - ats.load.seed: random seed, default 1
+ */
+public class ATSLoadTest {
+    @Rule
+    public AvmRule avmRule = new AvmRule(false);
+
+    private long energyLimit = 10_000_000L;
+    private long energyPrice = 1L;
+
+    private Address deployer = avmRule.getPreminedAccount();
+    private Address AIRDappAddress;
+
+    private final int[] holderCounts = parseHolderCounts(System.getProperty("ats.load.holders", "100,1000,5000"));
+    private final int operationCount = Integer.getInteger("ats.load.operations", 2000);
+    private final Map<String, Integer> operationMix = parseMix(System.getProperty("ats.load.mix", "send=60,operatorSend=20,burn=10,authorizeOperator=10"));
+    private final double zipfExponent = Double.parseDouble(System.getProperty("ats.load.zipf", "1.1"));
+    private final int maxOperators = Integer.getInteger("ats.load.maxOperators", 8);
+    private final Random random = new Random(Long.getLong("ats.load.seed", 1L));
+
+    // state of the current run
+    private Address ATSDappAddress;
+    private Address[] holders;
+    private long[] balances; // what the contract is expected to hold for each holder
+    private List<int[]> operatorPairs; // {holder, operator}
+    private Set<Long> authorized;
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue(Boolean.getBoolean("ats.load"));
+
+        byte[] txData = avmRule.getDappBytes(AionInterfaceRegistryContract.class, null);
+        AIRDappAddress = avmRule.deploy(deployer, BigInteger.ZERO, txData, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(AIRDappAddress);
+    }
+
+    @Test
+    public void testLoad() {
+        System.out.println(String.format("%8s %-18s %7s %6s %9s %10s %10s %10s %9s %9s %9s",
+                "holders", "operation", "count", "failed", "ops/s", "energy p50", "energy p99", "energy max", "us p50", "us p99", "us max"));
+
+        for (int holderCount : holderCounts) {
+            populate(holderCount);
+            Map<String, OperationStats> stats = replay();
+
+            for (OperationStats operationStats : stats.values()) {
+                System.out.println(String.format("%8d %s", holderCount, operationStats.report()));
+                Assert.assertEquals(operationStats.name + " failed", 0, operationStats.failed);
+            }
+        }
+    }
+
+    /**
+     * Deploy a new ATS contract and give 'holderCount' holders Zipf-distributed balances and operator counts. None of
+     * these transactions are measured.
+     */
+    private void populate(int holderCount) {
+        long supplyPerHolder = 1_000_000L;
+        BigInteger totalSupply = BigInteger.valueOf(supplyPerHolder * holderCount);
+        byte[] txData = avmRule.getDappBytes(AionTokenStandardContract.class, ABIUtil.encodeDeploymentArguments("load test", "LOAD", 1, totalSupply.toByteArray(), AIRDappAddress, 10_000_000L));
+        ATSDappAddress = avmRule.deploy(deployer, BigInteger.ZERO, txData, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(ATSDappAddress);
+
+        holders = new Address[holderCount];
+        balances = new long[holderCount];
+        operatorPairs = new ArrayList<>();
+        authorized = new HashSet<>();
+
+        // rank i holds a share of the supply proportional to 1 / (i + 1)^s
+        double[] weights = ZipfDistribution.weights(holderCount, zipfExponent);
+        for (int i = 0; i < holderCount; i++) {
+            holders[i] = avmRule.getRandomAddress(BigInteger.valueOf(1_000_000_000_000L));
+            balances[i] = (long) (weights[i] * supplyPerHolder * holderCount);
+            if (balances[i] > 0) {
+                assertSuccess(callSend(holders[i], BigInteger.valueOf(balances[i]), deployer));
+            }
+        }
+
+        ZipfDistribution operatorCounts = new ZipfDistribution(maxOperators + 1, zipfExponent, random);
+        for (int holder = 0; holder < holderCount; holder++) {
+            int count = Math.min(operatorCounts.sample(), holderCount - 1); // rank 0 is no operator at all
+            for (int j = 0; j < count; j++) {
+                int operator = random.nextInt(holderCount);
+                if (operator != holder && authorized.add(pairKey(holder, operator))) {
+                    assertSuccess(callAuthorizeOperator(holders[operator], holders[holder]));
+                    operatorPairs.add(new int[]{holder, operator});
+                }
+            }
+        }
+    }
+
+    private Map<String, OperationStats> replay() {
+        Map<String, OperationStats> stats = new LinkedHashMap<>();
+        String[] names = new String[operationMix.size()];
+        int[] cumulativeWeights = new int[operationMix.size()];
+        int totalWeight = 0;
+        int index = 0;
+        for (Map.Entry<String, Integer> entry : operationMix.entrySet()) {
+            totalWeight += entry.getValue();
+            names[index] = entry.getKey();
+            cumulativeWeights[index++] = totalWeight;
+            stats.put(entry.getKey(), new OperationStats(entry.getKey()));
+        }
+
+        // the rich holders are also the active ones
+        ZipfDistribution activity = new ZipfDistribution(holders.length, zipfExponent, random);
+        for (int i = 0; i < operationCount; i++) {
+            int pick = random.nextInt(totalWeight);
+            int operation = 0;
+            while (cumulativeWeights[operation] <= pick) {
+                operation++;
+            }
+            runOperation(names[operation], activity, stats.get(names[operation]));
+        }
+        return stats;
+    }
+
+    private void runOperation(String name, ZipfDistribution activity, OperationStats stats) {
+        switch (name) {
+            case "send": {
+                int from = pickFunded(activity);
+                int to = random.nextInt(holders.length);
+                long amount = pickAmount(from);
+                if (from == to) { // a self-send does not move anything
+                    to = (to + 1) % holders.length;
+                }
+                long start = System.nanoTime();
+                TransactionResult result = callSend(holders[to], BigInteger.valueOf(amount), holders[from]);
+                stats.record(result, System.nanoTime() - start);
+                moveBalance(result, from, to, amount);
+                break;
+            }
+            case "operatorSend": {
+                if (operatorPairs.isEmpty()) {
+                    return;
+                }
+                int[] pair = operatorPairs.get(random.nextInt(operatorPairs.size()));
+                if (balances[pair[0]] == 0) {
+                    return;
+                }
+                int to = random.nextInt(holders.length);
+                if (to == pair[0]) {
+                    to = (to + 1) % holders.length;
+                }
+                long amount = pickAmount(pair[0]);
+                long start = System.nanoTime();
+                TransactionResult result = callOperatorSend(holders[pair[0]], holders[to], BigInteger.valueOf(amount), holders[pair[1]]);
+                stats.record(result, System.nanoTime() - start);
+                moveBalance(result, pair[0], to, amount);
+                break;
+            }
+            case "burn": {
+                int from = pickFunded(activity);
+                long amount = pickAmount(from);
+                long start = System.nanoTime();
+                TransactionResult result = callBurn(BigInteger.valueOf(amount), holders[from]);
+                stats.record(result, System.nanoTime() - start);
+                if (result.getResultCode() == AvmTransactionResult.Code.SUCCESS) {
+                    balances[from] -= amount;
+                }
+                break;
+            }
+            case "authorizeOperator": {
+                int holder = activity.sample();
+                int operator = random.nextInt(holders.length);
+                if (operator == holder || !authorized.add(pairKey(holder, operator))) {
+                    return;
+                }
+                long start = System.nanoTime();
+                TransactionResult result = callAuthorizeOperator(holders[operator], holders[holder]);
+                stats.record(result, System.nanoTime() - start);
+                operatorPairs.add(new int[]{holder, operator});
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("unknown operation in ats.load.mix: " + name);
+        }
+    }
+
+    /**
+     * Pick an active holder, skipping the ones that ran out of tokens.
+     */
+    private int pickFunded(ZipfDistribution activity) {
+        int holder = activity.sample();
+        while (balances[holder] == 0) {
+            holder = (holder + 1) % holders.length;
+        }
+        return holder;
+    }
+
+    private long pickAmount(int holder) {
+        return 1 + (long) (random.nextDouble() * Math.min(balances[holder], 1_000L));
+    }
+
+    private void moveBalance(TransactionResult result, int from, int to, long amount) {
+        if (result.getResultCode() == AvmTransactionResult.Code.SUCCESS) {
+            balances[from] -= amount;
+            balances[to] += amount;
+        }
+    }
+
+    private long pairKey(int holder, int operator) {
+        return ((long) holder << 32) | operator;
+    }
+
+    private void assertSuccess(TransactionResult result) {
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, result.getResultCode());
+    }
+
+    private static int[] parseHolderCounts(String value) {
+        return Arrays.stream(value.split(",")).mapToInt(count -> Integer.parseInt(count.trim())).toArray();
+    }
+
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split("=");
+            mix.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+
+    /**
+     * Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^s.
+     */
+    private static class ZipfDistribution {
+        private final double[] cumulative;
+        private final Random random;
+
+        private ZipfDistribution(int n, double exponent, Random random) {
+            double[] weights = weights(n, exponent);
+            this.cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += weights[i];
+                cumulative[i] = sum;
+            }
+            this.random = random;
+        }
+
+        private static double[] weights(int n, double exponent) {
+            double[] weights = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                weights[i] = 1.0 / Math.pow(i + 1, exponent);
+                sum += weights[i];
+            }
+            for (int i = 0; i < n; i++) {
+                weights[i] /= sum;
+            }
+            return weights;
+        }
+
+        private int sample() {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+            return Math.min((rank < 0) ? -rank - 1 : rank, cumulative.length - 1);
+        }
+    }
+
+    /**
+     * Energy and latency of every call of one operation.
+     */
+    private static class OperationStats {
+        private final String name;
+        private final List<Long> energy = new ArrayList<>();
+        private final List<Long> latencyNanos = new ArrayList<>();
+        private int failed;
+
+        private OperationStats(String name) {
+            this.name = name;
+        }
+
+        private void record(TransactionResult result, long nanos) {
+            if (result.getResultCode() != AvmTransactionResult.Code.SUCCESS) {
+                failed++;
+            }
+            energy.add(result.getEnergyUsed());
+            latencyNanos.add(nanos);
+        }
+
+        private String report() {
+            long[] energySorted = sorted(energy);
+            long[] latencySorted = sorted(latencyNanos);
+            long totalNanos = Arrays.stream(latencySorted).sum();
+            double throughput = (totalNanos == 0) ? 0 : latencySorted.length * 1e9 / totalNanos;
+            return String.format("%-18s %7d %6d %9.1f %10d %10d %10d %9d %9d %9d", name, energySorted.length, failed, throughput,
+                    percentile(energySorted, 50), percentile(energySorted, 99), percentile(energySorted, 100),
+                    percentile(latencySorted, 50) / 1000, percentile(latencySorted, 99) / 1000, percentile(latencySorted, 100) / 1000);
+        }
+
+        private static long[] sorted(List<Long> values) {
+            long[] array = values.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(array);
+            return array;
+        }
+
+        /**
+         * Nearest-rank percentile, 0 if nothing was recorded.
+         */
+        private static long percentile(long[] sorted, int percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(rank, 1) - 1];
+        }
+    }
+
+    /** ========= ATS Contract Calling Methods========= */
+    private TransactionResult callSend(Address to, BigInteger amount, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("send", to, amount.toByteArray(), new byte[0]);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callOperatorSend(Address from, Address to, BigInteger amount, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("operatorSend", from, to, amount.toByteArray(), new byte[0], new byte[0]);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callBurn(BigInteger amount, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("burn", amount.toByteArray(), new byte[0]);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callAuthorizeOperator(Address operator, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("authorizeOperator", operator);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+}
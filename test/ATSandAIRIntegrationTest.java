@@ -1,3 +1,4 @@
+import ATSIndexer.BalanceMerkleTree;
 import AionInterfaceRegistry.AionInterfaceRegistryContract;
 import AionTokenStandard.AionTokenStandardContract;
 import HelperContracts.TokenHolderContract;
@@ -6,10 +7,17 @@ import org.aion.avm.core.util.ABIUtil;
 import org.aion.avm.tooling.AvmRule;
 import org.aion.avm.tooling.hash.HashUtils;
 import org.aion.kernel.AvmTransactionResult;
+import org.aion.vm.api.interfaces.IExecutionLog;
 import org.aion.vm.api.interfaces.TransactionResult;
 import org.junit.*;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Arrays;
 
 public class ATSandAIRIntegrationTest {
     @Rule
@@ -26,6 +34,7 @@ public class ATSandAIRIntegrationTest {
     private final String ATSSymbol = "my ats symbol";
     private final int ATSGranularity = 1;
     private final BigInteger ATSTotalSupply = BigInteger.valueOf(1_000_000);
+    private final long ATSHookStipend = 10_000_000L;
 
     // helpers
     private Address AIRDappAddress;
@@ -52,7 +61,7 @@ public class ATSandAIRIntegrationTest {
         Assert.assertNotNull(AIRDappAddress);
 
         // deploy ATS
-        byte[] txData2 = avmRule.getDappBytes(AionTokenStandardContract.class, ABIUtil.encodeDeploymentArguments(ATSName, ATSSymbol, ATSGranularity, ATSTotalSupply.toByteArray(), AIRDappAddress));
+        byte[] txData2 = avmRule.getDappBytes(AionTokenStandardContract.class, ABIUtil.encodeDeploymentArguments(ATSName, ATSSymbol, ATSGranularity, ATSTotalSupply.toByteArray(), AIRDappAddress, ATSHookStipend));
         ATSDappAddress = avmRule.deploy(ATSOwnerAddress, BigInteger.ZERO, txData2, energyLimit, energyPrice).getDappAddress();
         Assert.assertNotNull(ATSDappAddress);
 
@@ -99,6 +108,15 @@ public class ATSandAIRIntegrationTest {
         Assert.assertEquals(ATSTotalSupply, decodedResult);
     }
 
+    @Test
+    public void testGetLiquidSupply() {
+        TransactionResult txResult = callGetLiquidSupply(deployer);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+
+        BigInteger decodedResult = new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult.getReturnData()));
+        Assert.assertEquals(ATSTotalSupply, decodedResult);
+    }
+
     @Test
     public void testGetGranularity() {
         TransactionResult txResult = callGetGranularity(deployer);
@@ -117,6 +135,25 @@ public class ATSandAIRIntegrationTest {
         Assert.assertEquals(BigInteger.ZERO, decodedResult);
     }
 
+    @Test
+    public void testTotalSupplyMustFitIn255Bits() {
+        // every amount is logged in a signed 32-byte slot
+        BigInteger tooLarge = BigInteger.ONE.shiftLeft(255);
+        byte[] txData = avmRule.getDappBytes(AionTokenStandardContract.class, ABIUtil.encodeDeploymentArguments(ATSName, ATSSymbol, ATSGranularity, tooLarge.toByteArray(), AIRDappAddress, ATSHookStipend));
+        TransactionResult txResult = avmRule.deploy(ATSOwnerAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+
+        // the largest supply can be deployed and sent in full
+        BigInteger largest = tooLarge.subtract(BigInteger.ONE);
+        byte[] txData2 = avmRule.getDappBytes(AionTokenStandardContract.class, ABIUtil.encodeDeploymentArguments(ATSName, ATSSymbol, ATSGranularity, largest.toByteArray(), AIRDappAddress, ATSHookStipend));
+        Address token = avmRule.deploy(ATSOwnerAddress, BigInteger.ZERO, txData2, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(token);
+
+        byte[] txData3 = ABIUtil.encodeMethodArguments("send", tokenHolder1Address, largest.toByteArray(), new byte[0]);
+        TransactionResult txResult3 = avmRule.call(ATSOwnerAddress, token, BigInteger.ZERO, txData3, energyLimit, energyPrice).getTransactionResult();
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+    }
+
     @Test
     public void testCheckBalanceOfOwnerUponDappDeployment() {
         TransactionResult txResult = callBalanceOf(ATSOwnerAddress, ATSOwnerAddress);
@@ -359,6 +396,589 @@ public class ATSandAIRIntegrationTest {
         Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult2.getResultCode());
     }
 
+    @Test
+    public void testMint() {
+        BigInteger tokensToMint = BigInteger.valueOf(500);
+        byte[] senderData = "minting 500 tokens to tokenHolder1Address".getBytes();
+
+        TransactionResult txResult = callMint(tokenHolder1Address, tokensToMint.toByteArray(), senderData, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+
+        // check token balance of tokenHolder1Address
+        TransactionResult txResult2 = callBalanceOf(tokenHolder1Address, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+
+        BigInteger decodedResult = new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult2.getReturnData()));
+        Assert.assertEquals(tokensToMint, decodedResult);
+
+        // check the increase in totalSupply
+        TransactionResult txResult3 = callGetTotalSupply(ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+
+        BigInteger decodedResult2 = new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult3.getReturnData()));
+        Assert.assertEquals(ATSTotalSupply.add(tokensToMint), decodedResult2);
+    }
+
+    @Test
+    public void testMintBatch() {
+        Address[] recipients = new Address[]{tokenHolder1Address, tokenHolder2Address, tokenHolder1Address};
+        byte[][] amounts = new byte[][]{BigInteger.valueOf(100).toByteArray(), BigInteger.valueOf(200).toByteArray(), BigInteger.valueOf(300).toByteArray()};
+
+        TransactionResult txResult = callMintBatch(recipients, amounts, new byte[0], ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+
+        // tokenHolder1Address appears twice in the batch
+        TransactionResult txResult2 = callBalanceOf(tokenHolder1Address, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+        Assert.assertEquals(BigInteger.valueOf(400), new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult2.getReturnData())));
+
+        TransactionResult txResult3 = callBalanceOf(tokenHolder2Address, tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+        Assert.assertEquals(BigInteger.valueOf(200), new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult3.getReturnData())));
+
+        TransactionResult txResult4 = callGetTotalSupply(ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult4.getResultCode());
+        Assert.assertEquals(ATSTotalSupply.add(BigInteger.valueOf(600)), new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult4.getReturnData())));
+    }
+
+    @Test
+    public void testMintByNonOwner() {
+        TransactionResult txResult = callMint(tokenHolder1Address, BigInteger.valueOf(100).toByteArray(), new byte[0], tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+    }
+
+    @Test
+    public void testMintedSupplyMustFitIn255Bits() {
+        BigInteger limit = BigInteger.ONE.shiftLeft(255);
+
+        // a supply of 2^255 no longer fits a signed 32-byte slot
+        TransactionResult txResult = callMint(tokenHolder1Address, limit.subtract(ATSTotalSupply).toByteArray(), new byte[0], ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+
+        // a negative amount can not make up for a too large one in a batch
+        BigInteger huge = BigInteger.ONE.shiftLeft(300);
+        TransactionResult txResult2 = callMintBatch(new Address[]{tokenHolder1Address, tokenHolder2Address}, new byte[][]{huge.toByteArray(), huge.negate().toByteArray()}, new byte[0], ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult2.getResultCode());
+
+        TransactionResult txResult3 = callMint(tokenHolder1Address, limit.subtract(ATSTotalSupply).subtract(BigInteger.ONE).toByteArray(), new byte[0], ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+        Assert.assertEquals(limit.subtract(ATSTotalSupply).subtract(BigInteger.ONE), getBalance(tokenHolder1Address));
+    }
+
+    @Test
+    public void testMintAboveSupplyCap() {
+        BigInteger cap = ATSTotalSupply.add(BigInteger.valueOf(1000));
+
+        TransactionResult txResult = callSetSupplyCap(cap.toByteArray(), ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+
+        // minting up to the cap is fine
+        TransactionResult txResult2 = callMint(tokenHolder1Address, BigInteger.valueOf(1000).toByteArray(), new byte[0], ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+
+        // one more token exceeds the cap
+        TransactionResult txResult3 = callMint(tokenHolder1Address, BigInteger.ONE.toByteArray(), new byte[0], ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult3.getResultCode());
+
+        // the cap can not be raised again
+        TransactionResult txResult4 = callSetSupplyCap(cap.add(BigInteger.ONE).toByteArray(), ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult4.getResultCode());
+    }
+
+    @Test
+    public void testCreateAndCancelStream() {
+        BigInteger ratePerBlock = BigInteger.valueOf(2);
+        BigInteger deposit = ratePerBlock.multiply(BigInteger.valueOf(100_000));
+
+        // stream 2 tokens per block from ATSOwnerAddress to tokenHolder1Address during blocks 0 to 100000
+        TransactionResult txResult = callCreateStream(tokenHolder1Address, ratePerBlock.toByteArray(), 0, 100_000, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        long streamId = (long) ABIUtil.decodeOneObject(txResult.getReturnData());
+
+        // the deposit is locked
+        Assert.assertEquals(ATSTotalSupply.subtract(deposit), getBalance(ATSOwnerAddress));
+
+        // what has streamed since block 0 already counts towards the balance of tokenHolder1Address
+        BigInteger streamed = getBalance(tokenHolder1Address);
+        Assert.assertTrue(streamed.signum() > 0 && streamed.compareTo(deposit) < 0);
+        Assert.assertEquals(BigInteger.ZERO, streamed.mod(ratePerBlock));
+        TransactionResult txResult2 = callGetStreamWithdrawable(streamId, tokenHolder1Address);
+        Assert.assertEquals(streamed, new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult2.getReturnData())));
+
+        TransactionResult txResult3 = callCancelStream(streamId, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+
+        // what was streamed went to tokenHolder1Address, the rest of the deposit is back with the sender
+        BigInteger recipientBalance = getBalance(tokenHolder1Address);
+        Assert.assertTrue(recipientBalance.compareTo(streamed) >= 0 && recipientBalance.compareTo(deposit) < 0);
+        Assert.assertEquals(ATSTotalSupply.subtract(recipientBalance), getBalance(ATSOwnerAddress));
+
+        // a cancelled stream can not be cancelled again
+        TransactionResult txResult4 = callCancelStream(streamId, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult4.getResultCode());
+    }
+
+    @Test
+    public void testSendToSelfWithActiveStream() {
+        BigInteger ratePerBlock = BigInteger.valueOf(2);
+        TransactionResult txResult = callCreateStream(tokenHolder1Address, ratePerBlock.toByteArray(), 0, 100_000, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        long streamId = (long) ABIUtil.decodeOneObject(txResult.getReturnData());
+        BigInteger streamed = getBalance(tokenHolder1Address);
+        Assert.assertTrue(streamed.signum() > 0);
+
+        // settling the stream into the sender record must not be undone by writing the recipient record
+        TransactionResult txResult2 = callSend(tokenHolder1Address, ratePerBlock.toByteArray(), new byte[0], tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult2.getResultCode());
+
+        TransactionResult txResult3 = callSend(tokenHolder2Address, streamed.toByteArray(), new byte[0], tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+        TransactionResult txResult4 = callCancelStream(streamId, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult4.getResultCode());
+        Assert.assertEquals(ATSTotalSupply, getBalance(ATSOwnerAddress).add(getBalance(tokenHolder1Address)).add(getBalance(tokenHolder2Address)));
+    }
+
+    @Test
+    public void testCancelStreamBeforeItStarts() {
+        TransactionResult txResult = callCreateStream(tokenHolder1Address, BigInteger.TEN.toByteArray(), Long.MAX_VALUE / 2, Long.MAX_VALUE / 2 + 100, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        long streamId = (long) ABIUtil.decodeOneObject(txResult.getReturnData());
+        Assert.assertEquals(BigInteger.ZERO, getBalance(tokenHolder1Address));
+
+        // the recipient can cancel a stream it does not want, the whole deposit goes back
+        TransactionResult txResult2 = callCancelStream(streamId, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+        Assert.assertEquals(ATSTotalSupply, getBalance(ATSOwnerAddress));
+        Assert.assertEquals(BigInteger.ZERO, getBalance(tokenHolder1Address));
+    }
+
+    @Test
+    public void testStreamedTokensCanBeSent() {
+        BigInteger deposit = BigInteger.valueOf(1000);
+
+        // a stream of blocks 0 to 1 has been fully streamed by now
+        TransactionResult txResult = callCreateStream(tokenHolder1Address, deposit.toByteArray(), 0, 1, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        long streamId = (long) ABIUtil.decodeOneObject(txResult.getReturnData());
+        Assert.assertEquals(deposit, getBalance(tokenHolder1Address));
+
+        // the send settles the stream and removes it
+        TransactionResult txResult2 = callSend(tokenHolder2Address, deposit.toByteArray(), new byte[0], tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+        Assert.assertEquals(deposit, getBalance(tokenHolder2Address));
+        Assert.assertEquals(BigInteger.ZERO, getBalance(tokenHolder1Address));
+
+        TransactionResult txResult3 = callCancelStream(streamId, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult3.getResultCode());
+    }
+
+    @Test
+    public void testIncomingStreamsAreCapped() {
+        // fill the places of tokenHolder1Address with streams that have been fully streamed by now
+        int maxIncomingStreams = 16;
+        for (int i = 0; i < maxIncomingStreams; i++) {
+            TransactionResult txResult = callCreateStream(tokenHolder1Address, BigInteger.ONE.toByteArray(), 0, 1, ATSOwnerAddress);
+            Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        }
+        TransactionResult txResult = callCreateStream(tokenHolder1Address, BigInteger.ONE.toByteArray(), 0, 1, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+
+        // a send settles every stream and frees their places
+        TransactionResult txResult2 = callSend(tokenHolder2Address, BigInteger.ONE.toByteArray(), new byte[0], tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+        Assert.assertEquals(BigInteger.valueOf(maxIncomingStreams - 1), getBalance(tokenHolder1Address));
+
+        TransactionResult txResult3 = callCreateStream(tokenHolder1Address, BigInteger.ONE.toByteArray(), 0, 1, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+    }
+
+    @Test
+    public void testCreateStreamWithoutDeposit() {
+        TransactionResult txResult = callCreateStream(tokenHolder2Address, BigInteger.ONE.toByteArray(), 0, 1000, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+    }
+
+    @Test
+    public void testVestedTokensCanBeSent() {
+        BigInteger total = BigInteger.valueOf(1000);
+
+        // a schedule that started at timestamp 0 and has fully vested by now
+        TransactionResult txResult = callCreateVestingSchedule(tokenHolder1Address, total.toByteArray(), 0, 0, 1, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+
+        TransactionResult txResult2 = callBalanceOf(tokenHolder1Address, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+        Assert.assertEquals(total, new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult2.getReturnData())));
+
+        // the vested tokens are released by the send itself
+        TransactionResult txResult3 = callSend(tokenHolder2Address, total.toByteArray(), new byte[0], tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+
+        TransactionResult txResult4 = callBalanceOf(tokenHolder2Address, tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult4.getResultCode());
+        Assert.assertEquals(total, new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult4.getReturnData())));
+
+        TransactionResult txResult5 = callBalanceOf(tokenHolder1Address, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult5.getResultCode());
+        Assert.assertEquals(BigInteger.ZERO, new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult5.getReturnData())));
+    }
+
+    @Test
+    public void testUnvestedTokensCanNotBeSent() {
+        BigInteger total = BigInteger.valueOf(1000);
+
+        // a schedule that starts far in the future
+        TransactionResult txResult = callCreateVestingSchedule(tokenHolder1Address, total.toByteArray(), Long.MAX_VALUE / 2, 100, 1000, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+
+        TransactionResult txResult2 = callBalanceOf(tokenHolder1Address, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+        Assert.assertEquals(BigInteger.ZERO, new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult2.getReturnData())));
+
+        TransactionResult txResult3 = callSend(tokenHolder2Address, BigInteger.ONE.toByteArray(), new byte[0], tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult3.getResultCode());
+    }
+
+    @Test
+    public void testCreateVestingScheduleThatWouldOverflow() {
+        // start + duration does not fit a long, the schedule would have vested everything from the start
+        TransactionResult txResult = callCreateVestingSchedule(tokenHolder1Address, BigInteger.valueOf(1000).toByteArray(), Long.MAX_VALUE - 10, 0, 11, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+
+        TransactionResult txResult2 = callCreateVestingSchedule(tokenHolder1Address, BigInteger.valueOf(1000).toByteArray(), Long.MAX_VALUE - 10, 0, 10, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+
+        TransactionResult txResult3 = callBalanceOf(tokenHolder1Address, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+        Assert.assertEquals(BigInteger.ZERO, new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult3.getReturnData())));
+    }
+
+    @Test
+    public void testCreateVestingScheduleByNonOwner() {
+        TransactionResult txResult = callCreateVestingSchedule(tokenHolder2Address, BigInteger.ONE.toByteArray(), 0, 0, 1, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+    }
+
+    @Test
+    public void testOpenChannelLocksDeposit() throws GeneralSecurityException {
+        BigInteger deposit = BigInteger.valueOf(1000);
+        KeyPair signer = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+
+        TransactionResult txResult = callOpenChannel(tokenHolder1Address, deposit.toByteArray(), rawPublicKey(signer), Long.MAX_VALUE, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        long channelId = (long) ABIUtil.decodeOneObject(txResult.getReturnData());
+
+        Assert.assertEquals(ATSTotalSupply.subtract(deposit), getBalance(ATSOwnerAddress));
+
+        // the channel has not expired, so the sender can not take the deposit back
+        TransactionResult txResult3 = callReclaimChannel(channelId, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult3.getResultCode());
+    }
+
+    @Test
+    public void testOpenChannelWithSmallOrderKey() {
+        byte[] identity = new byte[32];
+        identity[0] = 1;
+        byte[] orderEight = fromHex("26e8958fc2b227b045c3f489f2ef98f0d5dfac05d3c63339b13802886d53fc05");
+        byte[] nonCanonicalZero = new byte[32];
+        Arrays.fill(nonCanonicalZero, (byte) 0xff);
+        nonCanonicalZero[0] = (byte) 0xed;
+        nonCanonicalZero[31] = (byte) 0x7f;
+        byte[] signedOrderFour = new byte[32];
+        signedOrderFour[31] = (byte) 0x80;
+
+        for (byte[] key : new byte[][]{new byte[32], identity, orderEight, nonCanonicalZero, signedOrderFour}) {
+            TransactionResult txResult = callOpenChannel(tokenHolder1Address, BigInteger.valueOf(1000).toByteArray(), key, Long.MAX_VALUE, ATSOwnerAddress);
+            Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+        }
+        Assert.assertEquals(ATSTotalSupply, getBalance(ATSOwnerAddress));
+    }
+
+    @Test
+    public void testCloseChannelWithValidVoucher() throws GeneralSecurityException {
+        KeyPair signer = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        TransactionResult txResult = callOpenChannel(tokenHolder1Address, BigInteger.valueOf(1000).toByteArray(), rawPublicKey(signer), Long.MAX_VALUE, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        long channelId = (long) ABIUtil.decodeOneObject(txResult.getReturnData());
+
+        BigInteger amount = BigInteger.valueOf(300);
+        TransactionResult txResult2 = callCloseChannel(channelId, amount.toByteArray(), signVoucher(signer, channelId, amount), tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+
+        Assert.assertEquals(amount, getBalance(tokenHolder1Address));
+        Assert.assertEquals(ATSTotalSupply.subtract(amount), getBalance(ATSOwnerAddress));
+
+        // the channel is gone, so the voucher can not be used twice
+        TransactionResult txResult3 = callCloseChannel(channelId, amount.toByteArray(), signVoucher(signer, channelId, amount), tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult3.getResultCode());
+        Assert.assertEquals(amount, getBalance(tokenHolder1Address));
+    }
+
+    @Test
+    public void testCloseChannelWithInvalidVoucher() throws GeneralSecurityException {
+        KeyPair signer = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        TransactionResult txResult = callOpenChannel(tokenHolder1Address, BigInteger.valueOf(1000).toByteArray(), rawPublicKey(signer), Long.MAX_VALUE, ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        long channelId = (long) ABIUtil.decodeOneObject(txResult.getReturnData());
+
+        BigInteger amount = BigInteger.valueOf(500);
+        byte[] tamperedSignature = signVoucher(signer, channelId, amount);
+        tamperedSignature[0] ^= 0x01;
+        TransactionResult txResult2 = callCloseChannel(channelId, amount.toByteArray(), tamperedSignature, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult2.getResultCode());
+
+        // a valid voucher for a smaller amount can not be replayed for a larger one
+        TransactionResult txResult3 = callCloseChannel(channelId, amount.toByteArray(), signVoucher(signer, channelId, BigInteger.valueOf(100)), tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult3.getResultCode());
+
+        // tokenHolder1Address did not receive anything
+        Assert.assertEquals(BigInteger.ZERO, getBalance(tokenHolder1Address));
+    }
+
+    @Test
+    public void testClearNetsObligations() {
+        // give both token holders some tokens and let ATSOwnerAddress operate for them
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSend(tokenHolder1Address, BigInteger.valueOf(100).toByteArray(), new byte[0], ATSOwnerAddress).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSend(tokenHolder2Address, BigInteger.valueOf(100).toByteArray(), new byte[0], ATSOwnerAddress).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callAuthorizeOperator(ATSOwnerAddress, tokenHolder1Address).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callAuthorizeOperator(ATSOwnerAddress, tokenHolder2Address).getResultCode());
+
+        // tokenHolder1Address owes 150 to tokenHolder2Address, which owes 120 back: only the net 30 moves. Gross,
+        // the first obligation exceeds the balance of tokenHolder1Address, netted it does not.
+        Address[] froms = new Address[]{tokenHolder1Address, tokenHolder2Address};
+        Address[] tos = new Address[]{tokenHolder2Address, tokenHolder1Address};
+        byte[][] amounts = new byte[][]{BigInteger.valueOf(150).toByteArray(), BigInteger.valueOf(120).toByteArray()};
+
+        TransactionResult txResult = callClear(froms, tos, amounts, new byte[0], ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+
+        TransactionResult txResult2 = callBalanceOf(tokenHolder1Address, tokenHolder1Address);
+        Assert.assertEquals(BigInteger.valueOf(70), new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult2.getReturnData())));
+
+        TransactionResult txResult3 = callBalanceOf(tokenHolder2Address, tokenHolder2Address);
+        Assert.assertEquals(BigInteger.valueOf(130), new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult3.getReturnData())));
+    }
+
+    @Test
+    public void testClearRequiresAuthorization() {
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSend(tokenHolder1Address, BigInteger.valueOf(100).toByteArray(), new byte[0], ATSOwnerAddress).getResultCode());
+
+        // tokenHolder2Address is not an operator of tokenHolder1Address
+        Address[] froms = new Address[]{tokenHolder1Address};
+        Address[] tos = new Address[]{tokenHolder2Address};
+        byte[][] amounts = new byte[][]{BigInteger.valueOf(50).toByteArray()};
+
+        TransactionResult txResult = callClear(froms, tos, amounts, new byte[0], tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+    }
+
+    @Test
+    public void testPayoutJobResumesAcrossCalls() {
+        TransactionResult txResult = callCreatePayoutJob(ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        long jobId = (long) ABIUtil.decodeOneObject(txResult.getReturnData());
+
+        // the job is announced with its id and creator
+        Assert.assertEquals(1, txResult.getSideEffects().getExecutionLogs().size());
+        IExecutionLog created = txResult.getSideEffects().getExecutionLogs().get(0);
+        byte[] topic = "PayoutJobCreatedEvent".getBytes();
+        Assert.assertArrayEquals(topic, Arrays.copyOf(created.getTopics().get(0), topic.length));
+        Assert.assertArrayEquals(ByteBuffer.allocate(Long.BYTES + Address.LENGTH).putLong(jobId).put(ATSOwnerAddress.unwrap()).array(), created.getData());
+
+        // two chunks of 20 payments of 10 tokens each, to new holders
+        Address[] recipients = new Address[40];
+        for (int chunk = 0; chunk < 2; chunk++) {
+            Address[] chunkRecipients = new Address[20];
+            byte[][] chunkAmounts = new byte[20][];
+            for (int i = 0; i < 20; i++) {
+                byte[] address = new byte[32];
+                address[0] = (byte) chunk;
+                address[31] = (byte) (i + 1);
+                chunkRecipients[i] = new Address(address);
+                chunkAmounts[i] = BigInteger.TEN.toByteArray();
+                recipients[chunk * 20 + i] = chunkRecipients[i];
+            }
+            TransactionResult txResult2 = callAddPayoutChunk(jobId, chunkRecipients, chunkAmounts, ATSOwnerAddress);
+            Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+        }
+
+        // the payments are locked
+        TransactionResult txResult3 = callBalanceOf(ATSOwnerAddress, ATSOwnerAddress);
+        Assert.assertEquals(ATSTotalSupply.subtract(BigInteger.valueOf(400)), new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult3.getReturnData())));
+
+        // anyone can carry the job on, each call pays what its energy limit allows
+        long left = 40;
+        int calls = 0;
+        while (left > 0) {
+            TransactionResult txResult4 = callContinueJob(jobId, tokenHolder1Address, 600_000L);
+            Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult4.getResultCode());
+            long stillLeft = (long) ABIUtil.decodeOneObject(txResult4.getReturnData());
+            Assert.assertTrue(stillLeft < left);
+            left = stillLeft;
+            calls++;
+        }
+        Assert.assertTrue(calls > 1);
+
+        for (Address recipient : recipients) {
+            TransactionResult txResult5 = callBalanceOf(recipient, recipient);
+            Assert.assertEquals(BigInteger.TEN, new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult5.getReturnData())));
+        }
+
+        // a finished job has nothing left to pay
+        TransactionResult txResult6 = callContinueJob(jobId, tokenHolder1Address, energyLimit);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult6.getResultCode());
+        Assert.assertEquals(0L, (long) ABIUtil.decodeOneObject(txResult6.getReturnData()));
+    }
+
+    @Test
+    public void testPayoutChunkByNonCreator() {
+        TransactionResult txResult = callCreatePayoutJob(ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        long jobId = (long) ABIUtil.decodeOneObject(txResult.getReturnData());
+
+        Address[] recipients = new Address[]{tokenHolder2Address};
+        byte[][] amounts = new byte[][]{BigInteger.TEN.toByteArray()};
+        TransactionResult txResult2 = callAddPayoutChunk(jobId, recipients, amounts, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult2.getResultCode());
+    }
+
+    @Test
+    public void testHookStipendOverride() {
+        TransactionResult txResult = callGetHookStipend(tokenHolder1Address, deployer);
+        Assert.assertEquals(ATSHookStipend, (long) ABIUtil.decodeOneObject(txResult.getReturnData()));
+
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetHookStipend(50_000L, tokenHolder1Address).getResultCode());
+        TransactionResult txResult2 = callGetHookStipend(tokenHolder1Address, deployer);
+        Assert.assertEquals(50_000L, (long) ABIUtil.decodeOneObject(txResult2.getReturnData()));
+
+        // the override is per holder
+        TransactionResult txResult3 = callGetHookStipend(tokenHolder2Address, deployer);
+        Assert.assertEquals(ATSHookStipend, (long) ABIUtil.decodeOneObject(txResult3.getReturnData()));
+
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetHookStipend(0L, tokenHolder1Address).getResultCode());
+        TransactionResult txResult4 = callGetHookStipend(tokenHolder1Address, deployer);
+        Assert.assertEquals(ATSHookStipend, (long) ABIUtil.decodeOneObject(txResult4.getReturnData()));
+
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callSetHookStipend(-1L, tokenHolder1Address).getResultCode());
+    }
+
+    @Test
+    public void testDeferredNotificationsAreDrainedInBatches() {
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetDeferredNotifications(true, tokenHolder1Address).getResultCode());
+
+        // transfers and mints to tokenHolder1Address queue a notification each
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSend(tokenHolder1Address, BigInteger.valueOf(100).toByteArray(), new byte[]{1}, ATSOwnerAddress).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSend(tokenHolder1Address, BigInteger.valueOf(200).toByteArray(), new byte[0], ATSOwnerAddress).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callMint(tokenHolder1Address, BigInteger.valueOf(300).toByteArray(), new byte[0], ATSOwnerAddress).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSend(tokenHolder2Address, BigInteger.valueOf(100).toByteArray(), new byte[0], ATSOwnerAddress).getResultCode());
+
+        TransactionResult txResult = callGetNotificationCount(tokenHolder1Address, deployer);
+        Assert.assertEquals(3L, (long) ABIUtil.decodeOneObject(txResult.getReturnData()));
+        TransactionResult txResult2 = callGetNotificationCount(tokenHolder2Address, deployer);
+        Assert.assertEquals(0L, (long) ABIUtil.decodeOneObject(txResult2.getReturnData()));
+
+        // anyone can deliver them, a batch at a time
+        TransactionResult txResult3 = callDrainNotifications(tokenHolder1Address, 2, tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+        Assert.assertEquals(1L, (long) ABIUtil.decodeOneObject(txResult3.getReturnData()));
+
+        // turning deferral off keeps the queued notification until it is drained
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetDeferredNotifications(false, tokenHolder1Address).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSend(tokenHolder1Address, BigInteger.valueOf(100).toByteArray(), new byte[0], ATSOwnerAddress).getResultCode());
+
+        TransactionResult txResult4 = callDrainNotifications(tokenHolder1Address, 2, tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult4.getResultCode());
+        Assert.assertEquals(0L, (long) ABIUtil.decodeOneObject(txResult4.getReturnData()));
+
+        TransactionResult txResult5 = callDrainNotifications(tokenHolder1Address, 2, tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult5.getResultCode());
+
+        TransactionResult txResult6 = callBalanceOf(tokenHolder1Address, tokenHolder1Address);
+        Assert.assertEquals(BigInteger.valueOf(700), new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult6.getReturnData())));
+    }
+
+    @Test
+    public void testBalanceRootMatchesOffChainTree() {
+        BalanceMerkleTree tree = new BalanceMerkleTree();
+        tree.update(ATSOwnerAddress.unwrap(), ATSTotalSupply);
+
+        TransactionResult txResult = callGetBalanceRoot(deployer);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        Assert.assertArrayEquals(tree.getRoot(), (byte[]) ABIUtil.decodeOneObject(txResult.getReturnData()));
+
+        BigInteger tokensToSend = BigInteger.valueOf(100);
+        TransactionResult txResult2 = callSend(tokenHolder1Address, tokensToSend.toByteArray(), new byte[0], ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+        tree.update(ATSOwnerAddress.unwrap(), ATSTotalSupply.subtract(tokensToSend));
+        tree.update(tokenHolder1Address.unwrap(), tokensToSend);
+
+        TransactionResult txResult3 = callGetBalanceRoot(deployer);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+        byte[] root = (byte[]) ABIUtil.decodeOneObject(txResult3.getReturnData());
+        Assert.assertArrayEquals(tree.getRoot(), root);
+        Assert.assertTrue(BalanceMerkleTree.verify(root, tokenHolder1Address.unwrap(), tokensToSend, tree.prove(tokenHolder1Address.unwrap())));
+    }
+
+    @Test
+    public void testSendPacked() {
+        long tokensToSend = 300; // takes two varint bytes
+
+        TransactionResult txResult = callSendPacked(packSend(tokenHolder1Address, tokensToSend, "packed".getBytes()), ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+
+        TransactionResult txResult2 = callSendPacked(packSend(tokenHolder1Address, tokensToSend, new byte[0]), ATSOwnerAddress);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+
+        TransactionResult txResult3 = callBalanceOf(tokenHolder1Address, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+        Assert.assertEquals(BigInteger.valueOf(2 * tokensToSend), new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult3.getReturnData())));
+    }
+
+    @Test
+    public void testSendPackedMalformed() {
+        byte[] packed = packSend(tokenHolder1Address, 100, "data".getBytes());
+
+        // unknown selector
+        byte[] wrongSelector = packed.clone();
+        wrongSelector[0] = 0x7f;
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callSendPacked(wrongSelector, ATSOwnerAddress).getResultCode());
+
+        // senderData shorter than its length
+        byte[] truncated = java.util.Arrays.copyOf(packed, packed.length - 1);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callSendPacked(truncated, ATSOwnerAddress).getResultCode());
+
+        // a senderData length of 2^32 + 4, which an int cast would take for 4
+        java.io.ByteArrayOutputStream overlong = new java.io.ByteArrayOutputStream();
+        overlong.write(packed, 0, 1 + Address.LENGTH + 1); // selector, recipient and the one-byte amount
+        writeVarint(overlong, (1L << 32) + 4);
+        overlong.write("data".getBytes(), 0, 4);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callSendPacked(overlong.toByteArray(), ATSOwnerAddress).getResultCode());
+        Assert.assertEquals(BigInteger.ZERO, getBalance(tokenHolder1Address));
+    }
+
+    /**
+     * Packs the arguments of sendPacked: selector, recipient, varint amount, varint senderData length and senderData.
+     */
+    private byte[] packSend(Address to, long amount, byte[] senderData) {
+        java.io.ByteArrayOutputStream packed = new java.io.ByteArrayOutputStream();
+        packed.write(0x01);
+        packed.write(to.unwrap(), 0, Address.LENGTH);
+        writeVarint(packed, amount);
+        if (senderData.length > 0) {
+            writeVarint(packed, senderData.length);
+            packed.write(senderData, 0, senderData.length);
+        }
+        return packed.toByteArray();
+    }
+
+    private void writeVarint(java.io.ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
     /** ========= ATS Contract Calling Methods========= */
     private TransactionResult callGetName(Address caller) {
         byte[] txData = ABIUtil.encodeMethodArguments("getName");
@@ -375,11 +995,22 @@ public class ATSandAIRIntegrationTest {
         return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
     }
 
+    private TransactionResult callGetLiquidSupply(Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getLiquidSupply");
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
     private TransactionResult callGetGranularity(Address caller) {
         byte[] txData = ABIUtil.encodeMethodArguments("getGranularity");
         return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
     }
 
+    private BigInteger getBalance(Address tokenHolder) {
+        TransactionResult txResult = callBalanceOf(tokenHolder, tokenHolder);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        return new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult.getReturnData()));
+    }
+
     private TransactionResult callBalanceOf(Address tokenHolder, Address caller) {
         byte[] txData = ABIUtil.encodeMethodArguments("balanceOf", tokenHolder);
         return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
@@ -420,6 +1051,138 @@ public class ATSandAIRIntegrationTest {
         return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
     }
 
+    private TransactionResult callMint(Address to, byte[] amount, byte[] data, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("mint", to, amount, data);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callMintBatch(Address[] recipients, byte[][] amounts, byte[] data, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("mintBatch", recipients, amounts, data);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callSetSupplyCap(byte[] cap, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("setSupplyCap", cap);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callCreateStream(Address recipient, byte[] ratePerBlock, long startBlock, long stopBlock, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("createStream", recipient, ratePerBlock, startBlock, stopBlock);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetStreamWithdrawable(long streamId, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getStreamWithdrawable", streamId);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callCancelStream(long streamId, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("cancelStream", streamId);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callCreateVestingSchedule(Address beneficiary, byte[] total, long start, long cliff, long duration, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("createVestingSchedule", beneficiary, total, start, cliff, duration);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callOpenChannel(Address recipient, byte[] deposit, byte[] signerPublicKey, long expiryBlock, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("openChannel", recipient, deposit, signerPublicKey, expiryBlock);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callCloseChannel(long channelId, byte[] amount, byte[] signature, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("closeChannel", channelId, amount, signature);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private static byte[] rawPublicKey(KeyPair keyPair) {
+        byte[] encoded = keyPair.getPublic().getEncoded(); // X.509, the raw key is the last 32 bytes
+        return Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length);
+    }
+
+    private byte[] signVoucher(KeyPair keyPair, long channelId, BigInteger amount) throws GeneralSecurityException {
+        byte[] paddedAmount = amount.toByteArray();
+        byte[] message = ByteBuffer.allocate(Address.LENGTH + Long.BYTES + 32)
+                .put(ATSDappAddress.unwrap())
+                .putLong(channelId)
+                .put(new byte[32 - paddedAmount.length])
+                .put(paddedAmount)
+                .array();
+        Signature signature = Signature.getInstance("Ed25519");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(message);
+        return signature.sign();
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private TransactionResult callReclaimChannel(long channelId, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("reclaimChannel", channelId);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callClear(Address[] froms, Address[] tos, byte[][] amounts, byte[] operatorData, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("clear", froms, tos, amounts, operatorData);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callCreatePayoutJob(Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("createPayoutJob");
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callAddPayoutChunk(long jobId, Address[] recipients, byte[][] amounts, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("addPayoutChunk", jobId, recipients, amounts);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callContinueJob(long jobId, Address caller, long energy) {
+        byte[] txData = ABIUtil.encodeMethodArguments("continueJob", jobId);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energy, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callSetHookStipend(long stipend, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("setHookStipend", stipend);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetHookStipend(Address holder, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getHookStipend", holder);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callSetDeferredNotifications(boolean enabled, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("setDeferredNotifications", enabled);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetNotificationCount(Address holder, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getNotificationCount", holder);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callDrainNotifications(Address holder, int maxCount, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("drainNotifications", holder, maxCount);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetBalanceRoot(Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getBalanceRoot");
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callSendPacked(byte[] packed, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("sendPacked", packed);
+        return avmRule.call(caller, ATSDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
     /** ========= AIR Contract Calling Methods========= */
     private TransactionResult callSetManager(Address target, Address newManager, Address caller) {
         byte[] txData = ABIUtil.encodeMethodArguments("setManager", target, newManager);
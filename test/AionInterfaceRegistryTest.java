@@ -4,6 +4,7 @@ import avm.Address;
 import org.aion.avm.core.util.ABIUtil;
 import org.aion.avm.tooling.AvmRule;
 import org.aion.avm.tooling.hash.HashUtils;
+import org.aion.avm.userlib.abi.ABIEncoder;
 import org.aion.kernel.AvmTransactionResult;
 import org.aion.vm.api.interfaces.TransactionResult;
 import org.junit.*;
@@ -176,6 +177,162 @@ public class AionInterfaceRegistryTest {
         Assert.assertEquals(Hex.toHexString(contract1Address.unwrap()) , Hex.toHexString(((Address) ABIUtil.decodeOneObject(txResult9.getReturnData())).unwrap()));
     }
 
+    @Test
+    public void testDefaultInterfaceImplementer() {
+        byte[] interfaceHash = generateInterfaceHash("Interface1");
+
+        // no implementer has been set for contract1Address
+        TransactionResult txResult1 = callGetInterfaceImplementer(contract1Address, interfaceHash, contract1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult1.getResultCode());
+        Assert.assertNull(ABIUtil.decodeOneObject(txResult1.getReturnData()));
+
+        // the deployer, the governance address, sets contract3Address as the default implementer of "Interface1"
+        TransactionResult txResult2 = callSetDefaultInterfaceImplementer(interfaceHash, contract3Address, deployer);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+        Assert.assertEquals(contract3Address, ABIUtil.decodeOneObject(callGetDefaultInterfaceImplementer(interfaceHash).getReturnData()));
+
+        // contract2Address sets an implementer of its own
+        TransactionResult txResult3 = callSetInterfaceImplementer(contract2Address, interfaceHash, contract1Address, contract2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+
+        TransactionResult txResult4 = callGetInterfaceImplementer(contract1Address, interfaceHash, contract1Address);
+        Assert.assertEquals(Hex.toHexString(contract3Address.unwrap()), Hex.toHexString(((Address) ABIUtil.decodeOneObject(txResult4.getReturnData())).unwrap()));
+
+        TransactionResult txResult5 = callGetInterfaceImplementer(contract2Address, interfaceHash, contract1Address);
+        Assert.assertEquals(Hex.toHexString(contract1Address.unwrap()), Hex.toHexString(((Address) ABIUtil.decodeOneObject(txResult5.getReturnData())).unwrap()));
+
+        // other interfaces have no default
+        TransactionResult txResult6 = callGetInterfaceImplementer(contract1Address, generateInterfaceHash("Interface2"), contract1Address);
+        Assert.assertNull(ABIUtil.decodeOneObject(txResult6.getReturnData()));
+
+        // remove the default
+        TransactionResult txResult7 = callSetDefaultInterfaceImplementer(interfaceHash, null, deployer);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult7.getResultCode());
+
+        TransactionResult txResult8 = callGetInterfaceImplementer(contract1Address, interfaceHash, contract1Address);
+        Assert.assertNull(ABIUtil.decodeOneObject(txResult8.getReturnData()));
+        TransactionResult txResult9 = callGetInterfaceImplementer(contract2Address, interfaceHash, contract1Address);
+        Assert.assertEquals(Hex.toHexString(contract1Address.unwrap()), Hex.toHexString(((Address) ABIUtil.decodeOneObject(txResult9.getReturnData())).unwrap()));
+    }
+
+    @Test
+    public void testSetDefaultInterfaceImplementerOnlyByGovernance() {
+        byte[] interfaceHash = generateInterfaceHash("Interface1");
+        Assert.assertEquals(deployer, ABIUtil.decodeOneObject(callGetGovernance().getReturnData()));
+
+        // a target cannot set the default for every other target
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callSetDefaultInterfaceImplementer(interfaceHash, contract3Address, contract1Address).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callSetGovernance(contract1Address, contract1Address).getResultCode());
+
+        // the deployer hands the governance over to contract1Address
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetGovernance(contract1Address, deployer).getResultCode());
+        Assert.assertEquals(contract1Address, ABIUtil.decodeOneObject(callGetGovernance().getReturnData()));
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callSetDefaultInterfaceImplementer(interfaceHash, contract3Address, deployer).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetDefaultInterfaceImplementer(interfaceHash, contract3Address, contract1Address).getResultCode());
+
+        // the default applies to targets that never registered or changed their manager
+        Assert.assertEquals(contract3Address, ABIUtil.decodeOneObject(callGetInterfaceImplementer(contract2Address, interfaceHash, contract2Address).getReturnData()));
+
+        // a target opts out by registering an implementer of its own
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetInterfaceImplementer(contract2Address, interfaceHash, contract2Address, contract2Address).getResultCode());
+        Assert.assertEquals(contract2Address, ABIUtil.decodeOneObject(callGetInterfaceImplementer(contract2Address, interfaceHash, contract2Address).getReturnData()));
+    }
+
+    @Test
+    public void testSetManagers() {
+        // contract2Address and contract3Address hand their registration to contract1Address
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetManager(contract2Address, contract1Address, contract2Address).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetManager(contract3Address, contract1Address, contract3Address).getResultCode());
+
+        // contract1Address hands all three to the deployer in one call
+        TransactionResult txResult1 = callSetManagers(new Address[]{contract1Address, contract2Address, contract3Address}, deployer, contract1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult1.getResultCode());
+
+        for (Address target : new Address[]{contract1Address, contract2Address, contract3Address}) {
+            Address result = (Address) ABIUtil.decodeOneObject(callGetManager(target, deployer).getReturnData());
+            Assert.assertEquals(Hex.toHexString(deployer.unwrap()), Hex.toHexString(result.unwrap()));
+        }
+
+        // the deployer manages contract3Address but not deployer2, so nothing changes
+        Address deployer2 = avmRule.getRandomAddress(BigInteger.ZERO);
+        TransactionResult txResult2 = callSetManagers(new Address[]{contract3Address, deployer2}, contract1Address, deployer);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult2.getResultCode());
+
+        Address result = (Address) ABIUtil.decodeOneObject(callGetManager(contract3Address, deployer).getReturnData());
+        Assert.assertEquals(Hex.toHexString(deployer.unwrap()), Hex.toHexString(result.unwrap()));
+    }
+
+    @Test
+    public void testSetAndGetInterfaceImplementers() {
+        byte[] interfaceHash = generateInterfaceHash("Interface1");
+
+        // contract1Address manages contract2Address
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetManager(contract2Address, contract1Address, contract2Address).getResultCode());
+
+        // contract1Address sets contract3Address as the implementer for itself and contract2Address
+        TransactionResult txResult1 = callSetInterfaceImplementers(new Address[]{contract1Address, contract2Address}, interfaceHash, contract3Address, contract1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult1.getResultCode());
+
+        // contract1Address does not manage contract3Address
+        TransactionResult txResult2 = callSetInterfaceImplementers(new Address[]{contract1Address, contract3Address}, interfaceHash, contract2Address, contract1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult2.getResultCode());
+
+        Address[] targets = new Address[]{contract1Address, contract2Address, contract3Address, contract1Address};
+        byte[][] interfaceHashes = new byte[][]{interfaceHash, interfaceHash, interfaceHash, generateInterfaceHash("Interface2")};
+        TransactionResult txResult3 = callGetInterfaceImplementers(targets, interfaceHashes);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+
+        Address[] result = (Address[]) ABIUtil.decodeOneObject(txResult3.getReturnData());
+        Assert.assertEquals(4, result.length);
+        Assert.assertEquals(Hex.toHexString(contract3Address.unwrap()), Hex.toHexString(result[0].unwrap()));
+        Assert.assertEquals(Hex.toHexString(contract3Address.unwrap()), Hex.toHexString(result[1].unwrap()));
+        Assert.assertNull(result[2]);
+        Assert.assertNull(result[3]);
+    }
+
+    @Test
+    public void testImplementedTargets() {
+        byte[] interfaceHash = generateInterfaceHash("Interface1");
+
+        // contract3Address implements "Interface1" for all three contracts
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetInterfaceImplementer(contract1Address, interfaceHash, contract3Address, contract1Address).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetInterfaceImplementer(contract2Address, interfaceHash, contract3Address, contract2Address).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetInterfaceImplementer(contract3Address, interfaceHash, contract3Address, contract3Address).getResultCode());
+
+        Assert.assertEquals(3, ABIUtil.decodeOneObject(callGetImplementedTargetCount(contract3Address, interfaceHash).getReturnData()));
+        assertImplementedTargets(contract3Address, interfaceHash, 0, 2, contract1Address, contract2Address);
+        assertImplementedTargets(contract3Address, interfaceHash, 2, 5, contract3Address);
+        assertImplementedTargets(contract3Address, interfaceHash, 5, 1);
+        assertImplementedTargets(contract3Address, generateInterfaceHash("Interface2"), 0, 10);
+
+        // contract1Address moves to itself, contract3Address is moved into its place
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetInterfaceImplementer(contract1Address, interfaceHash, contract1Address, contract1Address).getResultCode());
+        assertImplementedTargets(contract3Address, interfaceHash, 0, 10, contract3Address, contract2Address);
+        assertImplementedTargets(contract1Address, interfaceHash, 0, 10, contract1Address);
+
+        // contract3Address moves to contract1Address from its new place
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callSetInterfaceImplementer(contract3Address, interfaceHash, contract1Address, contract3Address).getResultCode());
+        assertImplementedTargets(contract3Address, interfaceHash, 0, 10, contract2Address);
+        assertImplementedTargets(contract1Address, interfaceHash, 0, 10, contract1Address, contract3Address);
+
+        // contract2Address removes its implementer
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callRemoveInterfaceImplementer(contract2Address, interfaceHash, contract2Address).getResultCode());
+        Assert.assertEquals(0, ABIUtil.decodeOneObject(callGetImplementedTargetCount(contract3Address, interfaceHash).getReturnData()));
+        assertImplementedTargets(contract3Address, interfaceHash, 0, 10);
+        Assert.assertNull(ABIUtil.decodeOneObject(callGetInterfaceImplementer(contract2Address, interfaceHash, contract2Address).getReturnData()));
+    }
+
+    private void assertImplementedTargets(Address implementer, byte[] interfaceHash, int offset, int count, Address... expected) {
+        TransactionResult txResult = callGetImplementedTargets(implementer, interfaceHash, offset, count);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+
+        Address[] result = (Address[]) ABIUtil.decodeOneObject(txResult.getReturnData());
+        Assert.assertEquals(expected.length, result.length);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(Hex.toHexString(expected[i].unwrap()), Hex.toHexString(result[i].unwrap()));
+        }
+    }
+
     /** ========= AIR Contract Calling Methods========= */
     private TransactionResult callSetManager(Address target, Address newManager, Address caller) {
         byte[] txData = ABIUtil.encodeMethodArguments("setManager", target, newManager);
@@ -197,6 +354,60 @@ public class AionInterfaceRegistryTest {
         return avmRule.call(caller, dappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
     }
 
+    private TransactionResult callSetManagers(Address[] targets, Address newManager, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("setManagers", targets, newManager);
+        return avmRule.call(caller, dappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callSetInterfaceImplementers(Address[] targets, byte[] interfaceHash, Address implementer, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("setInterfaceImplementers", targets, interfaceHash, implementer);
+        return avmRule.call(caller, dappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetInterfaceImplementers(Address[] targets, byte[][] interfaceHashes) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getInterfaceImplementers", targets, interfaceHashes);
+        return avmRule.call(deployer, dappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callRemoveInterfaceImplementer(Address target, byte[] interfaceHash, Address caller) {
+        // encoded by hand, as ABIUtil cannot encode a null implementer
+        byte[] txData = AionInterfaceRegistryContract.ByteArrayHelpers.concatenateMultiple(new byte[][]{
+                ABIEncoder.encodeOneString("setInterfaceImplementer"), ABIEncoder.encodeOneAddress(target), ABIEncoder.encodeOneByteArray(interfaceHash), ABIEncoder.encodeOneAddress(null)});
+        return avmRule.call(caller, dappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetImplementedTargetCount(Address implementer, byte[] interfaceHash) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getImplementedTargetCount", implementer, interfaceHash);
+        return avmRule.call(deployer, dappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetImplementedTargets(Address implementer, byte[] interfaceHash, int offset, int count) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getImplementedTargets", implementer, interfaceHash, offset, count);
+        return avmRule.call(deployer, dappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetDefaultInterfaceImplementer(byte[] interfaceHash) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getDefaultInterfaceImplementer", interfaceHash);
+        return avmRule.call(deployer, dappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetGovernance() {
+        byte[] txData = ABIUtil.encodeMethodArguments("getGovernance");
+        return avmRule.call(deployer, dappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callSetGovernance(Address newGovernance, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("setGovernance", newGovernance);
+        return avmRule.call(caller, dappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callSetDefaultInterfaceImplementer(byte[] interfaceHash, Address implementer, Address caller) {
+        // encoded by hand, as ABIUtil cannot encode a null implementer
+        byte[] txData = AionInterfaceRegistryContract.ByteArrayHelpers.concatenateMultiple(new byte[][]{
+                ABIEncoder.encodeOneString("setDefaultInterfaceImplementer"), ABIEncoder.encodeOneByteArray(interfaceHash), ABIEncoder.encodeOneAddress(implementer)});
+        return avmRule.call(caller, dappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
     /**
      * use sha256 hash for hashcode generation
      */
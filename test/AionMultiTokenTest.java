@@ -0,0 +1,218 @@
+import AionInterfaceRegistry.AionInterfaceRegistryContract;
+import AionMultiToken.AionMultiTokenContract;
+import avm.Address;
+import org.aion.avm.core.util.ABIUtil;
+import org.aion.avm.tooling.AvmRule;
+import org.aion.kernel.AvmTransactionResult;
+import org.aion.vm.api.interfaces.TransactionResult;
+import org.junit.*;
+
+import java.math.BigInteger;
+
+public class AionMultiTokenTest {
+    @Rule
+    public AvmRule avmRule = new AvmRule(true);
+
+    private long energyLimit = 10_000_000L;
+    private long energyPrice = 1L;
+
+    private Address deployer = avmRule.getPreminedAccount();
+
+    private Address AIRDappAddress;
+    private Address multiTokenDappAddress;
+
+    private Address tokenHolder1Address;
+    private Address tokenHolder2Address;
+
+    @Before
+    public void setup() {
+        // deploy AIR
+        byte[] txData = avmRule.getDappBytes(AionInterfaceRegistryContract.class, null);
+        AIRDappAddress = avmRule.deploy(deployer, BigInteger.ZERO, txData, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(AIRDappAddress);
+
+        // deploy the multi-token ledger
+        byte[] txData2 = avmRule.getDappBytes(AionMultiTokenContract.class, ABIUtil.encodeDeploymentArguments(AIRDappAddress));
+        multiTokenDappAddress = avmRule.deploy(deployer, BigInteger.ZERO, txData2, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(multiTokenDappAddress);
+
+        tokenHolder1Address = avmRule.getRandomAddress(BigInteger.valueOf(1_000_000_000L));
+        tokenHolder2Address = avmRule.getRandomAddress(BigInteger.valueOf(1_000_000_000L));
+    }
+
+    @Test
+    public void testCreateToken() {
+        BigInteger supply = BigInteger.valueOf(1_000_000);
+
+        TransactionResult txResult = callCreateToken("token one", "ONE", 1, supply.toByteArray(), tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        long tokenId = (long) ABIUtil.decodeOneObject(txResult.getReturnData());
+        Assert.assertEquals(1L, tokenId);
+
+        TransactionResult txResult2 = callGetName(tokenId, tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+        Assert.assertEquals("token one", ABIUtil.decodeOneObject(txResult2.getReturnData()));
+
+        TransactionResult txResult3 = callBalanceOf(tokenId, tokenHolder1Address, tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+        Assert.assertEquals(supply, new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult3.getReturnData())));
+
+        // the symbol is everything after the name in the token record
+        TransactionResult txResult4 = callGetSymbol(tokenId, tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult4.getResultCode());
+        Assert.assertEquals("ONE", ABIUtil.decodeOneObject(txResult4.getReturnData()));
+
+        long tokenId2 = createToken("a longer token name", "LONGER", tokenHolder1Address);
+        TransactionResult txResult5 = callGetSymbol(tokenId2, tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult5.getResultCode());
+        Assert.assertEquals("LONGER", ABIUtil.decodeOneObject(txResult5.getReturnData()));
+    }
+
+    @Test
+    public void testCreateTokenSupplyBounds() {
+        // the supply must be positive and fit the 32-byte amount of the events
+        BigInteger largest = BigInteger.ONE.shiftLeft(255).subtract(BigInteger.ONE);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callCreateToken("largest", "MAX", 1, largest.toByteArray(), tokenHolder1Address).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callCreateToken("too large", "BIG", 1, largest.add(BigInteger.ONE).toByteArray(), tokenHolder1Address).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callCreateToken("much too large", "BIG", 1, BigInteger.ONE.shiftLeft(2048).toByteArray(), tokenHolder1Address).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callCreateToken("empty", "NONE", 1, BigInteger.ZERO.toByteArray(), tokenHolder1Address).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callCreateToken("negative", "NEG", 1, BigInteger.ONE.negate().toByteArray(), tokenHolder1Address).getResultCode());
+    }
+
+    @Test
+    public void testGetNameOfUnknownToken() {
+        TransactionResult txResult = callGetName(42, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+    }
+
+    @Test
+    public void testSendKeepsTokensApart() {
+        long token1 = createToken("token one", "ONE", tokenHolder1Address);
+        long token2 = createToken("token two", "TWO", tokenHolder1Address);
+
+        TransactionResult txResult = callSend(token1, tokenHolder2Address, BigInteger.valueOf(100).toByteArray(), new byte[0], tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+
+        Assert.assertEquals(BigInteger.valueOf(100), getBalance(token1, tokenHolder2Address));
+        Assert.assertEquals(BigInteger.ZERO, getBalance(token2, tokenHolder2Address));
+        Assert.assertEquals(BigInteger.valueOf(999_900), getBalance(token1, tokenHolder1Address));
+        Assert.assertEquals(BigInteger.valueOf(1_000_000), getBalance(token2, tokenHolder1Address));
+    }
+
+    @Test
+    public void testSendBatchAcrossTokens() {
+        long token1 = createToken("token one", "ONE", tokenHolder1Address);
+        long token2 = createToken("token two", "TWO", tokenHolder1Address);
+
+        long[] tokenIds = new long[]{token1, token2, token1};
+        Address[] recipients = new Address[]{tokenHolder2Address, tokenHolder2Address, tokenHolder2Address};
+        byte[][] amounts = new byte[][]{BigInteger.valueOf(10).toByteArray(), BigInteger.valueOf(20).toByteArray(), BigInteger.valueOf(30).toByteArray()};
+
+        TransactionResult txResult = callSendBatch(tokenIds, recipients, amounts, new byte[0], tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+
+        Assert.assertEquals(BigInteger.valueOf(40), getBalance(token1, tokenHolder2Address));
+        Assert.assertEquals(BigInteger.valueOf(20), getBalance(token2, tokenHolder2Address));
+        Assert.assertEquals(BigInteger.valueOf(999_960), getBalance(token1, tokenHolder1Address));
+        Assert.assertEquals(BigInteger.valueOf(999_980), getBalance(token2, tokenHolder1Address));
+    }
+
+    @Test
+    public void testSendBatchInsufficientBalance() {
+        long token1 = createToken("token one", "ONE", tokenHolder1Address);
+
+        long[] tokenIds = new long[]{token1, token1};
+        Address[] recipients = new Address[]{tokenHolder2Address, tokenHolder2Address};
+        byte[][] amounts = new byte[][]{BigInteger.valueOf(600_000).toByteArray(), BigInteger.valueOf(600_000).toByteArray()};
+
+        TransactionResult txResult = callSendBatch(tokenIds, recipients, amounts, new byte[0], tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+    }
+
+    @Test
+    public void testOperatorSendAndBurn() {
+        long token1 = createToken("token one", "ONE", tokenHolder1Address);
+
+        // tokenHolder2Address is not an operator yet
+        TransactionResult txResult = callOperatorSend(token1, tokenHolder1Address, tokenHolder2Address, BigInteger.TEN.toByteArray(), tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+
+        TransactionResult txResult2 = callAuthorizeOperator(tokenHolder2Address, tokenHolder1Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult2.getResultCode());
+
+        TransactionResult txResult3 = callOperatorSend(token1, tokenHolder1Address, tokenHolder2Address, BigInteger.TEN.toByteArray(), tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult3.getResultCode());
+        Assert.assertEquals(BigInteger.TEN, getBalance(token1, tokenHolder2Address));
+
+        TransactionResult txResult4 = callBurn(token1, BigInteger.TEN.toByteArray(), tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult4.getResultCode());
+        Assert.assertEquals(BigInteger.ZERO, getBalance(token1, tokenHolder2Address));
+
+        TransactionResult txResult5 = callGetTotalSupply(token1, tokenHolder2Address);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult5.getResultCode());
+        Assert.assertEquals(BigInteger.valueOf(999_990), new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult5.getReturnData())));
+    }
+
+    private long createToken(String name, String symbol, Address caller) {
+        TransactionResult txResult = callCreateToken(name, symbol, 1, BigInteger.valueOf(1_000_000).toByteArray(), caller);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        return (long) ABIUtil.decodeOneObject(txResult.getReturnData());
+    }
+
+    private BigInteger getBalance(long tokenId, Address tokenHolder) {
+        TransactionResult txResult = callBalanceOf(tokenId, tokenHolder, tokenHolder);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        return new BigInteger((byte[]) ABIUtil.decodeOneObject(txResult.getReturnData()));
+    }
+
+    /** ========= Multi-Token Contract Calling Methods========= */
+    private TransactionResult callCreateToken(String name, String symbol, int granularity, byte[] initialSupply, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("createToken", name, symbol, granularity, initialSupply);
+        return avmRule.call(caller, multiTokenDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetName(long tokenId, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getName", tokenId);
+        return avmRule.call(caller, multiTokenDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetSymbol(long tokenId, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getSymbol", tokenId);
+        return avmRule.call(caller, multiTokenDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetTotalSupply(long tokenId, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getTotalSupply", tokenId);
+        return avmRule.call(caller, multiTokenDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callBalanceOf(long tokenId, Address tokenHolder, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("balanceOf", tokenId, tokenHolder);
+        return avmRule.call(caller, multiTokenDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callAuthorizeOperator(Address operator, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("authorizeOperator", operator);
+        return avmRule.call(caller, multiTokenDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callSend(long tokenId, Address to, byte[] amount, byte[] data, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("send", tokenId, to, amount, data);
+        return avmRule.call(caller, multiTokenDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callOperatorSend(long tokenId, Address from, Address to, byte[] amount, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("operatorSend", tokenId, from, to, amount, new byte[0], new byte[0]);
+        return avmRule.call(caller, multiTokenDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callSendBatch(long[] tokenIds, Address[] recipients, byte[][] amounts, byte[] data, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("sendBatch", tokenIds, recipients, amounts, data);
+        return avmRule.call(caller, multiTokenDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callBurn(long tokenId, byte[] amount, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("burn", tokenId, amount, new byte[0]);
+        return avmRule.call(caller, multiTokenDappAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+}
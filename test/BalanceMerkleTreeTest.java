@@ -0,0 +1,121 @@
+import ATSIndexer.BalanceMerkleTree;
+import ATSIndexer.BalanceProof;
+import org.junit.*;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+public class BalanceMerkleTreeTest {
+    private Random random = new Random(42);
+
+    @Test
+    public void testEmptyTree() {
+        BalanceMerkleTree tree = new BalanceMerkleTree();
+        Assert.assertArrayEquals(new byte[32], tree.getRoot());
+
+        // absence of any holder proves a zero balance
+        byte[] holder = randomAddress();
+        BalanceProof proof = tree.prove(holder);
+        Assert.assertTrue(BalanceMerkleTree.verify(tree.getRoot(), holder, BigInteger.ZERO, proof));
+        Assert.assertFalse(BalanceMerkleTree.verify(tree.getRoot(), holder, BigInteger.ONE, proof));
+    }
+
+    @Test
+    public void testProofsOfManyHolders() {
+        BalanceMerkleTree tree = new BalanceMerkleTree();
+        byte[][] holders = new byte[500][];
+        BigInteger[] balances = new BigInteger[holders.length];
+        for (int i = 0; i < holders.length; i++) {
+            holders[i] = randomAddress();
+            balances[i] = BigInteger.valueOf(random.nextInt(1_000_000));
+            tree.update(holders[i], balances[i]);
+        }
+
+        for (int i = 0; i < holders.length; i++) {
+            BalanceProof proof = tree.prove(holders[i]);
+            Assert.assertTrue(BalanceMerkleTree.verify(tree.getRoot(), holders[i], balances[i], proof));
+            Assert.assertFalse(BalanceMerkleTree.verify(tree.getRoot(), holders[i], balances[i].add(BigInteger.ONE), proof));
+        }
+
+        // a holder that was never written has a zero balance
+        byte[] stranger = randomAddress();
+        Assert.assertTrue(BalanceMerkleTree.verify(tree.getRoot(), stranger, BigInteger.ZERO, tree.prove(stranger)));
+    }
+
+    @Test
+    public void testInternalNodeIsNotALeaf() {
+        BalanceMerkleTree tree = new BalanceMerkleTree();
+        byte[] holder1 = randomAddress();
+        byte[] holder2 = randomAddress();
+        tree.update(holder1, BigInteger.valueOf(5));
+        tree.update(holder2, BigInteger.valueOf(7));
+        BalanceProof proof = tree.prove(holder1);
+        Assert.assertTrue(BalanceMerkleTree.verify(tree.getRoot(), holder1, BigInteger.valueOf(5), proof));
+
+        // rebuild the root node from the first sibling and the hash below it, and pass it as the leaf of an empty path
+        byte[] below = hashBelowRoot(proof.getTerminalLeaf(), proof.getSiblings(), holder1);
+        boolean left = (sha256(holder1)[0] & 0x80) == 0;
+        byte[] root = new byte[1 + 32 + 32];
+        root[0] = 0x01;
+        System.arraycopy(left ? below : proof.getSiblings()[0], 0, root, 1, 32);
+        System.arraycopy(left ? proof.getSiblings()[0] : below, 0, root, 33, 32);
+        Assert.assertArrayEquals(tree.getRoot(), sha256(root));
+
+        BalanceProof forged = new BalanceProof(new byte[0][], root);
+        Assert.assertFalse(BalanceMerkleTree.verify(tree.getRoot(), holder1, BigInteger.ZERO, forged));
+        Assert.assertFalse(BalanceMerkleTree.verify(tree.getRoot(), randomAddress(), BigInteger.ZERO, forged));
+    }
+
+    @Test
+    public void testRootDependsOnFinalBalancesOnly() {
+        byte[] holder1 = randomAddress();
+        byte[] holder2 = randomAddress();
+        byte[] holder3 = randomAddress();
+
+        BalanceMerkleTree tree1 = new BalanceMerkleTree();
+        tree1.update(holder1, BigInteger.valueOf(5));
+        tree1.update(holder2, BigInteger.valueOf(7));
+        tree1.update(holder3, BigInteger.valueOf(1));
+        tree1.update(holder1, BigInteger.valueOf(10));
+
+        BalanceMerkleTree tree2 = new BalanceMerkleTree();
+        tree2.update(holder3, BigInteger.valueOf(1));
+        tree2.update(holder1, BigInteger.valueOf(10));
+        tree2.update(holder2, BigInteger.valueOf(7));
+
+        Assert.assertArrayEquals(tree1.getRoot(), tree2.getRoot());
+    }
+
+    /**
+     * Returns the hash of the child of the root on the path of the holder, from the leaf and siblings of its proof.
+     */
+    private static byte[] hashBelowRoot(byte[] leaf, byte[][] siblings, byte[] holder) {
+        byte[] key = sha256(holder);
+        byte[] hash = sha256(leaf);
+        for (int d = siblings.length - 1; d >= 1; d--) {
+            byte[] node = new byte[1 + 32 + 32];
+            node[0] = 0x01;
+            boolean left = (key[d / 8] >> (7 - d % 8) & 1) == 0;
+            System.arraycopy(left ? hash : siblings[d], 0, node, 1, 32);
+            System.arraycopy(left ? siblings[d] : hash, 0, node, 33, 32);
+            hash = sha256(node);
+        }
+        return hash;
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private byte[] randomAddress() {
+        byte[] address = new byte[32];
+        random.nextBytes(address);
+        return address;
+    }
+}
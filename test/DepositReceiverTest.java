@@ -0,0 +1,162 @@
+import HelperContracts.DepositReceiverContract;
+import HelperContracts.TokenHolderContract;
+import avm.Address;
+import org.aion.avm.core.util.ABIUtil;
+import org.aion.avm.tooling.AvmRule;
+import org.aion.kernel.AvmTransactionResult;
+import org.aion.vm.api.interfaces.TransactionResult;
+import org.junit.*;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Tests DepositReceiverContract and compares the energy its hooks use with TokenHolderContract. The token is stood in
+ * for by an account that calls the hooks directly, the way ATS calls them.
+ */
+public class DepositReceiverTest {
+    @Rule
+    public AvmRule avmRule = new AvmRule(false);
+
+    private long energyLimit = 10_000_000L;
+    private long energyPrice = 1L;
+
+    private Address deployer = avmRule.getPreminedAccount();
+    private Address token = avmRule.getRandomAddress(BigInteger.valueOf(1_000_000_000_000L));
+    private Address sender1 = avmRule.getRandomAddress(BigInteger.ZERO);
+    private Address sender2 = avmRule.getRandomAddress(BigInteger.ZERO);
+
+    private Address receiverAddress;
+    private Address tokenHolderAddress;
+
+    @Before
+    public void setup() {
+        byte[] txData = avmRule.getDappBytes(DepositReceiverContract.class, ABIUtil.encodeDeploymentArguments(token));
+        receiverAddress = avmRule.deploy(deployer, BigInteger.ZERO, txData, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(receiverAddress);
+
+        byte[] txData2 = avmRule.getDappBytes(TokenHolderContract.class, ABIUtil.encodeDeploymentArguments("token holder"));
+        tokenHolderAddress = avmRule.deploy(deployer, BigInteger.ZERO, txData2, energyLimit, energyPrice).getDappAddress();
+        Assert.assertNotNull(tokenHolderAddress);
+    }
+
+    @Test
+    public void testCountsDepositsPerSender() {
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callTokensReceived(receiverAddress, sender1, 100, token).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callTokensReceived(receiverAddress, sender1, 50, token).getResultCode());
+
+        Address[] froms = new Address[]{sender2, sender1, sender2};
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callTokensReceivedBatch(receiverAddress, froms, new long[]{1, 2, 3}, token).getResultCode());
+
+        TransactionResult txResult = callGetDeposits(new Address[]{sender1, sender2, deployer});
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        ByteBuffer deposits = ByteBuffer.wrap((byte[]) ABIUtil.decodeOneObject(txResult.getReturnData()));
+        assertDeposits(deposits, 3, 152);
+        assertDeposits(deposits, 2, 4);
+        assertDeposits(deposits, 0, 0);
+        Assert.assertFalse(deposits.hasRemaining());
+    }
+
+    @Test
+    public void testOnlyTheTokenIsCounted() {
+        TransactionResult txResult = callTokensReceived(receiverAddress, sender1, 100, deployer);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult.getResultCode());
+
+        TransactionResult txResult2 = callTokensReceivedBatch(receiverAddress, new Address[]{sender1}, new long[]{100}, deployer);
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, txResult2.getResultCode());
+    }
+
+    @Test
+    public void testTotalsAreBoundedTo255Bits() {
+        BigInteger largest = BigInteger.ONE.shiftLeft(255).subtract(BigInteger.ONE);
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, callTokensReceived(receiverAddress, sender1, largest.toByteArray(), token).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callTokensReceived(receiverAddress, sender1, BigInteger.ONE.toByteArray(), token).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callTokensReceived(receiverAddress, sender2, BigInteger.ONE.shiftLeft(255).toByteArray(), token).getResultCode());
+        Assert.assertEquals(AvmTransactionResult.Code.FAILED_REVERT, callTokensReceived(receiverAddress, sender2, BigInteger.valueOf(-1).toByteArray(), token).getResultCode());
+
+        TransactionResult txResult = callGetDeposits(new Address[]{sender1, sender2});
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, txResult.getResultCode());
+        ByteBuffer deposits = ByteBuffer.wrap((byte[]) ABIUtil.decodeOneObject(txResult.getReturnData()));
+        Assert.assertEquals(1, deposits.getLong());
+        byte[] totalBytes = new byte[32];
+        deposits.get(totalBytes);
+        Assert.assertEquals(largest, new BigInteger(totalBytes));
+        assertDeposits(deposits, 0, 0);
+    }
+
+    @Test
+    public void testEnergyComparedToTokenHolderContract() {
+        int batchSize = 10;
+        Address[] froms = new Address[batchSize];
+        long[] amounts = new long[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            froms[i] = (i % 2 == 0) ? sender1 : sender2;
+            amounts[i] = 100 + i;
+        }
+
+        long[] receiverEnergy = new long[3];
+        long[] tokenHolderEnergy = new long[3];
+        Address[] receivers = new Address[]{receiverAddress, tokenHolderAddress};
+        long[][] energy = new long[][]{receiverEnergy, tokenHolderEnergy};
+        for (int i = 0; i < receivers.length; i++) {
+            energy[i][0] = energyUsed(callTokensReceived(receivers[i], sender1, 100, token)); // first deposit of the sender
+            energy[i][1] = energyUsed(callTokensReceived(receivers[i], sender1, 100, token));
+            energy[i][2] = energyUsed(callTokensReceivedBatch(receivers[i], froms, amounts, token));
+        }
+
+        // TokenHolderContract keeps no state, the difference is the storage that counting takes
+        System.out.println(String.format("%-44s %18s %18s", "energy used", "DepositReceiver", "TokenHolder"));
+        System.out.println(String.format("%-44s %18d %18d", "tokensReceived, first deposit of a sender", receiverEnergy[0], tokenHolderEnergy[0]));
+        System.out.println(String.format("%-44s %18d %18d", "tokensReceived, later deposit", receiverEnergy[1], tokenHolderEnergy[1]));
+        System.out.println(String.format("%-44s %18d %18d", "tokensReceivedBatch of " + batchSize + ", 2 senders", receiverEnergy[2], tokenHolderEnergy[2]));
+        System.out.println(String.format("%-44s %18d %18d", "  per notification", receiverEnergy[2] / batchSize, tokenHolderEnergy[2] / batchSize));
+
+        // a batch writes each sender once, so it costs less than one call per notification
+        Assert.assertTrue(receiverEnergy[2] < batchSize * receiverEnergy[1]);
+
+        // records have a fixed size, so a deposit costs the same once the total has grown large
+        energyUsed(callTokensReceived(receiverAddress, sender1, BigInteger.ONE.shiftLeft(200).toByteArray(), token));
+        Assert.assertEquals(receiverEnergy[1], energyUsed(callTokensReceived(receiverAddress, sender1, 100, token)));
+    }
+
+    private void assertDeposits(ByteBuffer deposits, long count, long total) {
+        Assert.assertEquals(count, deposits.getLong());
+        byte[] totalBytes = new byte[32];
+        deposits.get(totalBytes);
+        Assert.assertEquals(BigInteger.valueOf(total), new BigInteger(totalBytes));
+    }
+
+    private long energyUsed(TransactionResult result) {
+        Assert.assertEquals(AvmTransactionResult.Code.SUCCESS, result.getResultCode());
+        return result.getEnergyUsed();
+    }
+
+    private TransactionResult callTokensReceived(Address receiver, Address from, long amount, Address caller) {
+        return callTokensReceived(receiver, from, BigInteger.valueOf(amount).toByteArray(), caller);
+    }
+
+    private TransactionResult callTokensReceived(Address receiver, Address from, byte[] amount, Address caller) {
+        byte[] txData = ABIUtil.encodeMethodArguments("tokensReceived", caller, from, receiver, amount, new byte[0], new byte[0]);
+        return avmRule.call(caller, receiver, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callTokensReceivedBatch(Address receiver, Address[] froms, long[] amounts, Address caller) {
+        Address[] operators = new Address[froms.length];
+        byte[][] amountBytes = new byte[froms.length][];
+        byte[][] userData = new byte[froms.length][];
+        byte[][] operatorData = new byte[froms.length][];
+        for (int i = 0; i < froms.length; i++) {
+            operators[i] = caller;
+            amountBytes[i] = BigInteger.valueOf(amounts[i]).toByteArray();
+            userData[i] = new byte[0];
+            operatorData[i] = new byte[0];
+        }
+        byte[] txData = ABIUtil.encodeMethodArguments("tokensReceivedBatch", operators, froms, amountBytes, userData, operatorData);
+        return avmRule.call(caller, receiver, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+
+    private TransactionResult callGetDeposits(Address[] senders) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getDeposits", (Object) senders);
+        return avmRule.call(deployer, receiverAddress, BigInteger.ZERO, txData, energyLimit, energyPrice).getTransactionResult();
+    }
+}
@@ -0,0 +1,279 @@
+import ATSIndexer.BlockLogs;
+import ATSIndexer.EventLog;
+import ATSIndexer.SupplyAuditReport;
+import ATSIndexer.SupplyAuditor;
+import org.junit.*;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class SupplyAuditorTest {
+    private Random random = new Random(42);
+
+    private byte[] contract = randomAddress();
+    private byte[] owner = randomAddress();
+    private byte[] holder1 = randomAddress();
+    private byte[] holder2 = randomAddress();
+
+    private List<BlockLogs> blocks = new ArrayList<>();
+    private SupplyAuditor auditor = new SupplyAuditor(contract, new ForkJoinPool(4));
+
+    @Test
+    public void testConsistentHistory() throws IOException {
+        addBlock(tokenCreated(owner, 1_000));
+        addBlock(sent(owner, owner, holder1, 300), sent(holder1, holder1, holder2, 100));
+        addBlock(burned(holder2, holder2, 40), minted(owner, new byte[][]{holder1, holder2}, new long[]{5, 7}));
+        addBlock(streamCreated(1, owner, holder1, 10, 5, 15), channelOpened(1, owner, holder2, 50));
+        addBlock(streamWithdrawn(1, holder1, 30), channelClosed(1, owner, 15, holder2, 35));
+        addBlock(sent(holder1, holder1, contract, 20));
+
+        SupplyAuditReport report = auditor.audit(blocks, null);
+        Assert.assertTrue(report.toString(), report.isConsistent());
+        Assert.assertEquals(BigInteger.valueOf(972), report.getTotalSupply());
+        Assert.assertEquals(BigInteger.valueOf(1_012), report.getIssued());
+        Assert.assertEquals(BigInteger.valueOf(40), report.getBurned());
+        Assert.assertEquals(BigInteger.valueOf(70), report.getEscrowedSupply());
+        Assert.assertEquals(BigInteger.valueOf(902), report.getHeldSupply());
+        Assert.assertEquals(BigInteger.valueOf(20), report.getFrozenSupply());
+        Assert.assertEquals(BigInteger.valueOf(952), report.getLiquidSupply());
+        Assert.assertEquals(4, report.getHolderCount());
+        Assert.assertEquals(6, report.getLastBlockNumber());
+    }
+
+    @Test
+    public void testClearedInflation() throws IOException {
+        addBlock(tokenCreated(owner, 1_000));
+        addBlock(sent(owner, owner, holder1, 300));
+        addBlock(cleared(owner, new byte[][]{owner, holder1}, new long[]{700, 300}));
+        addBlock(cleared(owner, new byte[][]{owner, holder1}, new long[]{800, 300}));
+        addBlock(sent(holder1, holder1, holder2, 100));
+
+        SupplyAuditReport report = auditor.audit(blocks, null);
+        Assert.assertFalse(report.isConsistent());
+        Assert.assertEquals(4, report.getFirstInconsistentBlock());
+        Assert.assertEquals(BigInteger.valueOf(1_100), report.getHeldSupply());
+    }
+
+    @Test
+    public void testNegativeBalance() throws IOException {
+        addBlock(tokenCreated(owner, 1_000));
+        addBlock(sent(owner, owner, holder1, 300));
+        addBlock(sent(holder2, holder2, holder1, 50));
+
+        SupplyAuditReport report = auditor.audit(blocks, null);
+        Assert.assertEquals(3, report.getFirstInconsistentBlock());
+    }
+
+    @Test
+    public void testMalformedBlock() throws IOException {
+        addBlock(tokenCreated(owner, 1_000));
+        addBlock(sent(owner, owner, holder1, 300)[0]);
+        addBlock(sent(owner, owner, holder1, 300));
+
+        SupplyAuditReport report = auditor.audit(blocks, null);
+        Assert.assertEquals(2, report.getFirstInconsistentBlock());
+    }
+
+    @Test
+    public void testDivergingViews() throws IOException {
+        addBlock(tokenCreated(owner, 1_000));
+        for (int i = 0; i < 99; i++) {
+            addBlock(minted(owner, new byte[][]{holder1}, new long[]{1}), sent(holder1, holder1, contract, 1));
+        }
+
+        // views of a contract that agrees with its events
+        SupplyViews views = new SupplyViews(0);
+        SupplyAuditReport report = auditor.audit(blocks, views);
+        Assert.assertTrue(report.toString(), report.isConsistent());
+        Assert.assertEquals(BigInteger.valueOf(1_000), views.getLiquidSupply(100));
+
+        // views of a contract that stops counting a frozen balance from block 37 on
+        views = new SupplyViews(37);
+        report = auditor.audit(blocks, views);
+        Assert.assertEquals(-1, report.getFirstInconsistentBlock());
+        Assert.assertEquals(37, report.getFirstDivergingBlock());
+        Assert.assertTrue(views.calls < 20);
+    }
+
+    @Test
+    public void testLargeHistory() throws IOException {
+        int holderCount = 5_000;
+        byte[][] holders = new byte[holderCount][];
+        for (int i = 0; i < holderCount; i++) {
+            holders[i] = randomAddress();
+        }
+        holders[holderCount - 1] = contract;
+
+        Map<ByteBuffer, Long> balances = new HashMap<>();
+        balances.put(ByteBuffer.wrap(owner), 1_000_000_000L);
+        long totalSupply = 1_000_000_000L;
+        addBlock(tokenCreated(owner, totalSupply));
+        List<byte[]> funded = new ArrayList<>();
+        funded.add(owner);
+
+        for (int block = 0; block < 20_000; block++) {
+            List<Object> events = new ArrayList<>();
+            for (int e = 0; e < 10; e++) {
+                byte[] from = funded.get(random.nextInt(funded.size()));
+                long balance = balances.get(ByteBuffer.wrap(from));
+                if (random.nextInt(20) == 0) {
+                    byte[] to = holders[random.nextInt(holderCount)];
+                    events.add(minted(owner, new byte[][]{to}, new long[]{100}));
+                    credit(balances, funded, to, 100);
+                    totalSupply += 100;
+                } else if (balance > 0 && random.nextInt(20) == 0) {
+                    long amount = 1 + random.nextInt((int) Math.min(balance, 1_000));
+                    events.add(burned(from, from, amount));
+                    credit(balances, funded, from, -amount);
+                    totalSupply -= amount;
+                } else if (balance > 0) {
+                    byte[] to = holders[random.nextInt(holderCount)];
+                    long amount = 1 + random.nextInt((int) Math.min(balance, 1_000));
+                    events.add(sent(from, from, to, amount));
+                    credit(balances, funded, from, -amount);
+                    credit(balances, funded, to, amount);
+                }
+            }
+            addBlock(events.toArray());
+        }
+
+        long start = System.nanoTime();
+        SupplyAuditReport report = auditor.audit(blocks, null);
+        long elapsed = System.nanoTime() - start;
+        System.out.println(report);
+        System.out.println(String.format("audited %d blocks in %.1f ms", blocks.size(), elapsed / 1e6));
+
+        Assert.assertTrue(report.isConsistent());
+        Assert.assertEquals(BigInteger.valueOf(totalSupply), report.getTotalSupply());
+        Assert.assertEquals(BigInteger.valueOf(totalSupply), report.getHeldSupply());
+        Assert.assertEquals(BigInteger.valueOf(balances.getOrDefault(ByteBuffer.wrap(contract), 0L)), report.getFrozenSupply());
+        Assert.assertEquals(balances.size(), report.getHolderCount());
+    }
+
+    private static void credit(Map<ByteBuffer, Long> balances, List<byte[]> funded, byte[] account, long amount) {
+        Long previous = balances.put(ByteBuffer.wrap(account), balances.getOrDefault(ByteBuffer.wrap(account), 0L) + amount);
+        if (previous == null) {
+            funded.add(account);
+        }
+    }
+
+    /**
+     * Supply views computed from the blocks, which drop the frozen balance from the liquid supply starting at a given
+     * block when it is not 0.
+     */
+    private class SupplyViews implements SupplyAuditor.SupplyViews {
+        private final long divergingBlock;
+        private int calls;
+
+        private SupplyViews(long divergingBlock) {
+            this.divergingBlock = divergingBlock;
+        }
+
+        @Override
+        public BigInteger getTotalSupply(long blockNumber) throws IOException {
+            calls++;
+            return auditor.audit(blocks.subList(0, (int) blockNumber), null).getTotalSupply();
+        }
+
+        @Override
+        public BigInteger getLiquidSupply(long blockNumber) throws IOException {
+            SupplyAuditReport report = auditor.audit(blocks.subList(0, (int) blockNumber), null);
+            return (divergingBlock != 0 && blockNumber >= divergingBlock) ? report.getTotalSupply() : report.getLiquidSupply();
+        }
+    }
+
+    /** ========= Events, encoded as ATSContractEvents does ========= */
+    private EventLog tokenCreated(byte[] owner, long totalSupply) {
+        return log("TokenCreatedEvent", ByteBuffer.allocate(64).put(owner).put(amount(totalSupply)));
+    }
+
+    private EventLog[] sent(byte[] operator, byte[] from, byte[] to, long amount) {
+        return new EventLog[]{
+                log("SentEventPart1", ByteBuffer.allocate(96).put(operator).put(from).put(to)),
+                log("SentEventPart2", ByteBuffer.allocate(36).put(amount(amount)).putInt(0))};
+    }
+
+    private EventLog[] burned(byte[] operator, byte[] from, long amount) {
+        return new EventLog[]{
+                log("BurnedEventPart1", ByteBuffer.allocate(64).put(operator).put(from)),
+                log("BurnedEventPart2", ByteBuffer.allocate(36).put(amount(amount)).putInt(0))};
+    }
+
+    private EventLog minted(byte[] operator, byte[][] recipients, long[] amounts) {
+        ByteBuffer data = ByteBuffer.allocate(68 + recipients.length * 64).put(operator).put(amount(Arrays.stream(amounts).sum())).putInt(recipients.length);
+        for (int i = 0; i < recipients.length; i++) {
+            data.put(recipients[i]).put(amount(amounts[i]));
+        }
+        return log("MintedEvent", data);
+    }
+
+    private EventLog streamCreated(long streamId, byte[] sender, byte[] recipient, long ratePerBlock, long startBlock, long stopBlock) {
+        return log("StreamCreatedEvent", ByteBuffer.allocate(152).putLong(streamId).put(sender).put(recipient).put(amount(ratePerBlock)).putLong(startBlock).putLong(stopBlock).put(amount(0)));
+    }
+
+    private EventLog streamWithdrawn(long streamId, byte[] recipient, long amount) {
+        return log("StreamWithdrawnEvent", ByteBuffer.allocate(72).putLong(streamId).put(recipient).put(amount(amount)));
+    }
+
+    private EventLog channelOpened(long channelId, byte[] sender, byte[] recipient, long deposit) {
+        return log("ChannelOpenedEvent", ByteBuffer.allocate(144).putLong(channelId).put(sender).put(recipient).put(amount(deposit)).putLong(1_000).put(new byte[32]));
+    }
+
+    private EventLog channelClosed(long channelId, byte[] sender, long senderAmount, byte[] recipient, long recipientAmount) {
+        return log("ChannelClosedEvent", ByteBuffer.allocate(136).putLong(channelId).put(sender).put(amount(senderAmount)).put(recipient).put(amount(recipientAmount)));
+    }
+
+    private EventLog cleared(byte[] operator, byte[][] accounts, long[] balances) {
+        ByteBuffer data = ByteBuffer.allocate(40 + accounts.length * 64).put(operator).putInt(accounts.length).putInt(accounts.length);
+        for (int i = 0; i < accounts.length; i++) {
+            data.put(accounts[i]).put(amount(balances[i]));
+        }
+        return log("ClearedEvent", data);
+    }
+
+    private EventLog log(String event, ByteBuffer data) {
+        byte[][] topics = new byte[][]{Arrays.copyOf(event.getBytes(StandardCharsets.UTF_8), 32)};
+        return new EventLog(contract, topics, data.flip());
+    }
+
+    /**
+     * Add the events logged by a single call, such as those returned by sent, as the next block.
+     */
+    private void addBlock(EventLog[] events) {
+        addBlock((Object[]) events);
+    }
+
+    /**
+     * Add the events as the next block, numbered from 1.
+     */
+    private void addBlock(Object... events) {
+        List<EventLog> logs = new ArrayList<>();
+        for (Object event : events) {
+            if (event instanceof EventLog[]) {
+                logs.addAll(Arrays.asList((EventLog[]) event));
+            } else {
+                logs.add((EventLog) event);
+            }
+        }
+        blocks.add(new BlockLogs(blocks.size() + 1, logs));
+    }
+
+    private static byte[] amount(long amount) {
+        return ByteBuffer.allocate(32).putLong(24, amount).array();
+    }
+
+    private byte[] randomAddress() {
+        byte[] address = new byte[32];
+        random.nextBytes(address);
+        return address;
+    }
+}